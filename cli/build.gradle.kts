@@ -17,7 +17,6 @@ dependencies {
     implementation(project(":core"))
     implementation("org.neo4j.test:neo4j-harness:5.19.0")
     implementation("org.neo4j.driver:neo4j-java-driver:5.19.0")
-    implementation("io.github.classgraph:classgraph:4.8.180")
     implementation("org.json:json:20240303")
 }
 
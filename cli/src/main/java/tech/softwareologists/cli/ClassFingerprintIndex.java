@@ -0,0 +1,164 @@
+package tech.softwareologists.cli;
+
+import tech.softwareologists.core.ArtifactFingerprint;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persistent index of the class files imported from a project directory.
+ *
+ * <p>Every entry maps the path of a class file, relative to the project
+ * directory, to its size, modification time, SHA-256 content hash and the
+ * name of the class it declares. The index is stored as a tab separated text
+ * file and rewritten atomically by {@link #save()}.</p>
+ */
+public class ClassFingerprintIndex {
+    /** File name used when the index is kept inside the project directory. */
+    public static final String DEFAULT_FILE_NAME = ".codegraph-fingerprints";
+
+    private static final String HEADER = "# codegraph class fingerprints v1";
+
+    private final Path file;
+    private final Map<String, Fingerprint> entries = new ConcurrentHashMap<>();
+    private volatile boolean verified;
+
+    private ClassFingerprintIndex(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Load the index from the given file. A missing or unreadable file yields
+     * an empty index.
+     */
+    public static ClassFingerprintIndex load(Path file) {
+        ClassFingerprintIndex index = new ClassFingerprintIndex(file);
+        if (!Files.isRegularFile(file)) {
+            return index;
+        }
+        try {
+            java.util.List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            if (lines.isEmpty() || !HEADER.equals(lines.get(0))) {
+                return index;
+            }
+            for (String line : lines.subList(1, lines.size())) {
+                String[] parts = line.split("\t", -1);
+                if (parts.length != 5) {
+                    continue;
+                }
+                index.entries.put(parts[0], new Fingerprint(Long.parseLong(parts[1]),
+                        Long.parseLong(parts[2]), parts[3], parts[4]));
+            }
+        } catch (IOException | NumberFormatException e) {
+            index.entries.clear();
+        }
+        return index;
+    }
+
+    /** Return the fingerprint recorded for the relative path or {@code null}. */
+    public Fingerprint get(String path) {
+        return entries.get(path);
+    }
+
+    /** Record the fingerprint of a class file. */
+    public void put(String path, Fingerprint fingerprint) {
+        entries.put(path, fingerprint);
+    }
+
+    /** Forget a class file. */
+    public Fingerprint remove(String path) {
+        return entries.remove(path);
+    }
+
+    /** Relative paths of all recorded class files. */
+    public java.util.Set<String> paths() {
+        return new java.util.HashSet<>(entries.keySet());
+    }
+
+    /** Number of recorded class files. */
+    public int size() {
+        return entries.size();
+    }
+
+    /** Whether the entries have been checked against the graph since loading. */
+    public boolean isVerified() {
+        return verified;
+    }
+
+    /** Record that the entries have been checked against the graph. */
+    public void markVerified() {
+        verified = true;
+    }
+
+    /** Write the index to its file, replacing the previous content atomically. */
+    public void save() throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            w.write(HEADER);
+            w.newLine();
+            for (Map.Entry<String, Fingerprint> e : new TreeMap<>(entries).entrySet()) {
+                Fingerprint fp = e.getValue();
+                w.write(e.getKey() + "\t" + fp.getSize() + "\t" + fp.getModified() + "\t"
+                        + fp.getHash() + "\t" + fp.getClassName());
+                w.newLine();
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Compute the hex encoded SHA-256 hash of the given bytes. */
+    public static String sha256(byte[] bytes) {
+        return ArtifactFingerprint.sha256(bytes);
+    }
+
+    /**
+     * Size, modification time and content hash of a single class file.
+     */
+    public static final class Fingerprint {
+        private final long size;
+        private final long modified;
+        private final String hash;
+        private final String className;
+
+        /**
+         * @param size file size in bytes
+         * @param modified last modification time in milliseconds
+         * @param hash hex encoded SHA-256 of the file content
+         * @param className declared class or an empty string for descriptors
+         */
+        public Fingerprint(long size, long modified, String hash, String className) {
+            this.size = size;
+            this.modified = modified;
+            this.hash = hash;
+            this.className = className == null ? "" : className;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getModified() {
+            return modified;
+        }
+
+        public String getHash() {
+            return hash;
+        }
+
+        public String getClassName() {
+            return className;
+        }
+
+        /** Whether size and modification time still match the file. */
+        public boolean matches(long size, long modified) {
+            return this.size == size && this.modified == modified;
+        }
+    }
+}
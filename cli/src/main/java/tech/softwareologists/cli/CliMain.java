@@ -1,8 +1,16 @@
 package tech.softwareologists.cli;
 
+import tech.softwareologists.core.ArtifactFingerprint;
+import tech.softwareologists.core.BulkLoader;
+import tech.softwareologists.core.CachingQueryService;
+import tech.softwareologists.core.ClassFacts;
+import tech.softwareologists.core.ImportOptions;
 import tech.softwareologists.core.JarImporter;
 import tech.softwareologists.core.QueryService;
 import tech.softwareologists.core.QueryServiceImpl;
+import tech.softwareologists.core.csr.CsrSnapshot;
+import tech.softwareologists.core.csr.GenerationalQueryService;
+import tech.softwareologists.core.db.DatabaseOptions;
 import tech.softwareologists.core.db.EmbeddedNeo4j;
 import tech.softwareologists.cli.ProjectDirImporter;
 import tech.softwareologists.cli.SseMcpServer;
@@ -17,7 +25,7 @@ import java.nio.file.Paths;
  */
 public class CliMain {
     /** Usage string shown when arguments are missing or --help is supplied. */
-    public static final String USAGE = "Usage: cli --watch-dir <dir> [--stdio] [--sse-port <port>] [--project-dir <dir>]";
+    public static final String USAGE = "Usage: cli --watch-dir <dir> [--stdio] [--sse-port <port>] [--project-dir <dir>] [--batch-size <rows>] [--commit-size <classes>] [--import-workers <n>] [--import-queue <n>] [--parse-threads <n>] [--bulk-load] [--data-dir <dir>] [--page-cache <size>] [--tx-state <on-heap|off-heap>] [--tx-state-off-heap-max <size>] [--plan-cache <n>] [--tx-memory <size>] [--total-tx-memory <size>] [--memory-graph] [--snapshot <file>] [--query-cache <entries>] [--query-cache-size <size>]";
     private static final Logger LOGGER = Logger.getLogger(CliMain.class.getName());
 
     public static void main(String[] args) {
@@ -37,9 +45,19 @@ public class CliMain {
     static int run(String[] args, PrintStream out) {
         String watchDir = null;
         String projectDir = null;
+        String dataDir = null;
         boolean stdio = false;
         int ssePort = -1;
         boolean help = false;
+        boolean bulkLoad = false;
+        boolean memoryGraph = false;
+        String snapshot = null;
+        int queryCacheEntries = 0;
+        long queryCacheBytes = CachingQueryService.DEFAULT_MAX_BYTES;
+        ImportOptions importOptions = ImportOptions.defaults();
+        DatabaseOptions dbOptions = DatabaseOptions.defaults();
+        int importWorkers = ImportScheduler.DEFAULT_WORKERS;
+        int importQueue = ImportScheduler.DEFAULT_CAPACITY;
 
         for (int i = 0; i < args.length; i++) {
             String arg = args[i];
@@ -58,6 +76,19 @@ public class CliMain {
                 case "--stdio":
                     stdio = true;
                     break;
+                case "--bulk-load":
+                    bulkLoad = true;
+                    break;
+                case "--memory-graph":
+                    memoryGraph = true;
+                    break;
+                case "--snapshot":
+                    if (i + 1 >= args.length) {
+                        out.println(USAGE);
+                        return 1;
+                    }
+                    snapshot = args[++i];
+                    break;
                 case "--sse-port":
                     if (i + 1 >= args.length) {
                         out.println(USAGE);
@@ -72,6 +103,104 @@ public class CliMain {
                     }
                     projectDir = args[++i];
                     break;
+                case "--data-dir":
+                    if (i + 1 >= args.length) {
+                        out.println(USAGE);
+                        return 1;
+                    }
+                    dataDir = args[++i];
+                    break;
+                case "--batch-size":
+                    if (i + 1 >= args.length) {
+                        out.println(USAGE);
+                        return 1;
+                    }
+                    importOptions = importOptions.withBatchSize(Integer.parseInt(args[++i]));
+                    break;
+                case "--commit-size":
+                    if (i + 1 >= args.length) {
+                        out.println(USAGE);
+                        return 1;
+                    }
+                    importOptions = importOptions.withCommitSize(Integer.parseInt(args[++i]));
+                    break;
+                case "--import-workers":
+                    if (i + 1 >= args.length) {
+                        out.println(USAGE);
+                        return 1;
+                    }
+                    importWorkers = Integer.parseInt(args[++i]);
+                    break;
+                case "--import-queue":
+                    if (i + 1 >= args.length) {
+                        out.println(USAGE);
+                        return 1;
+                    }
+                    importQueue = Integer.parseInt(args[++i]);
+                    break;
+                case "--parse-threads":
+                    if (i + 1 >= args.length) {
+                        out.println(USAGE);
+                        return 1;
+                    }
+                    importOptions = importOptions.withParallelism(Integer.parseInt(args[++i]));
+                    break;
+                case "--page-cache":
+                    if (i + 1 >= args.length) {
+                        out.println(USAGE);
+                        return 1;
+                    }
+                    dbOptions = dbOptions.withPageCacheBytes(DatabaseOptions.parseBytes(args[++i]));
+                    break;
+                case "--tx-state":
+                    if (i + 1 >= args.length) {
+                        out.println(USAGE);
+                        return 1;
+                    }
+                    dbOptions = dbOptions.withTxStateMemory(DatabaseOptions.parseTxStateMemory(args[++i]));
+                    break;
+                case "--tx-state-off-heap-max":
+                    if (i + 1 >= args.length) {
+                        out.println(USAGE);
+                        return 1;
+                    }
+                    dbOptions = dbOptions.withTxStateMaxOffHeapBytes(DatabaseOptions.parseBytes(args[++i]));
+                    break;
+                case "--plan-cache":
+                    if (i + 1 >= args.length) {
+                        out.println(USAGE);
+                        return 1;
+                    }
+                    dbOptions = dbOptions.withPlanCacheSize(Integer.parseInt(args[++i]));
+                    break;
+                case "--tx-memory":
+                    if (i + 1 >= args.length) {
+                        out.println(USAGE);
+                        return 1;
+                    }
+                    dbOptions = dbOptions.withTxMemoryMaxBytes(DatabaseOptions.parseBytes(args[++i]));
+                    break;
+                case "--total-tx-memory":
+                    if (i + 1 >= args.length) {
+                        out.println(USAGE);
+                        return 1;
+                    }
+                    dbOptions = dbOptions.withTotalTxMemoryMaxBytes(DatabaseOptions.parseBytes(args[++i]));
+                    break;
+                case "--query-cache":
+                    if (i + 1 >= args.length) {
+                        out.println(USAGE);
+                        return 1;
+                    }
+                    queryCacheEntries = Integer.parseInt(args[++i]);
+                    break;
+                case "--query-cache-size":
+                    if (i + 1 >= args.length) {
+                        out.println(USAGE);
+                        return 1;
+                    }
+                    queryCacheBytes = DatabaseOptions.parseBytes(args[++i]);
+                    break;
                 default:
                     out.println("Unknown option: " + arg);
                     out.println(USAGE);
@@ -79,45 +208,194 @@ public class CliMain {
             }
         }
 
-        if (help || watchDir == null) {
+        if (help || watchDir == null || (snapshot != null && !memoryGraph)) {
             out.println(USAGE);
             return help ? 0 : 1;
         }
 
-        try (EmbeddedNeo4j db = new EmbeddedNeo4j();
-             JarWatcher watcher = new JarWatcher(Paths.get(watchDir), p -> JarImporter.importJar(p.toFile(), db.getDriver()))) {
-            java.nio.file.Files.list(Paths.get(watchDir))
-                    .filter(p -> p.toString().endsWith(".jar"))
-                    .forEach(p -> JarImporter.importJar(p.toFile(), db.getDriver()));
+        final ImportOptions options = importOptions;
+        final int cacheEntries = queryCacheEntries;
+        final long cacheBytes = queryCacheBytes;
+        if (memoryGraph) {
+            GenerationalQueryService generations = new GenerationalQueryService();
+            try (ImportScheduler scheduler = new ImportScheduler(
+                         p -> {
+                             generations.put(p.toString(), readJar(p.toFile(), options));
+                             generations.commit();
+                         },
+                         p -> {
+                             generations.remove(p.toString());
+                             generations.commit();
+                         },
+                         importWorkers, importQueue, ImportScheduler.DEFAULT_SMALL_ARTIFACT_BYTES);
+                 JarWatcher watcher = new JarWatcher(Paths.get(watchDir), scheduler::submitImport, scheduler::submitRemove)) {
+                java.util.List<java.io.File> jars = listJars(watchDir);
+                java.nio.file.Path snapshotFile = snapshot == null ? null : Paths.get(snapshot);
+                String stamp = snapshotFile == null ? null : snapshotStamp(jars, projectDir);
+                final String project = projectDir;
+                Runnable stage = () -> {
+                    for (java.io.File jar : jars) {
+                        generations.put(jar.getAbsolutePath(), readJar(jar, options));
+                    }
+                    if (project != null) {
+                        java.util.List<ClassFacts> facts = new java.util.ArrayList<>();
+                        ProjectDirImporter.readDirectory(Paths.get(project).toFile(), facts::add, options);
+                        generations.put(Paths.get(project).toAbsolutePath().toString(), facts);
+                    }
+                };
+                if (stamp != null && stamp.equals(CsrSnapshot.stamp(snapshotFile))) {
+                    // Serve the snapshot right away; the facts needed to apply
+                    // later changes are read in the background.
+                    generations.publish(CsrSnapshot.read(snapshotFile));
+                    Thread loader = new Thread(() -> {
+                        try {
+                            stage.run();
+                            // Hands the facts behind the snapshot to the graph, so they are not kept twice
+                            generations.commit();
+                            watcher.start();
+                        } catch (RuntimeException e) {
+                            LOGGER.log(java.util.logging.Level.SEVERE, "Failed to read facts behind snapshot; changes are not applied", e);
+                        }
+                    }, "memory-graph-loader");
+                    loader.setDaemon(true);
+                    loader.start();
+                } else {
+                    stage.run();
+                    generations.commit();
+                    if (snapshotFile != null) {
+                        CsrSnapshot.write(generations.current().getGraph(), stamp, snapshotFile);
+                    }
+                    watcher.start();
+                }
+                return serve(cache(generations, generations::generation, cacheEntries, cacheBytes), ssePort, stdio, out);
+            } catch (Exception e) {
+                e.printStackTrace(out);
+                return 1;
+            }
+        }
+        // Bumped before and after every background import, so cached results are
+        // dropped and paged queries overlapping the import are read again
+        java.util.concurrent.atomic.AtomicLong generation = new java.util.concurrent.atomic.AtomicLong();
+        try (EmbeddedNeo4j db = new EmbeddedNeo4j(dataDir == null ? null : Paths.get(dataDir), false, dbOptions);
+             ImportScheduler scheduler = new ImportScheduler(
+                     p -> {
+                         generation.incrementAndGet();
+                         try {
+                             JarImporter.importJar(p.toFile(), db.getStore(), options);
+                         } finally {
+                             generation.incrementAndGet();
+                         }
+                     },
+                     p -> {
+                         generation.incrementAndGet();
+                         try {
+                             JarImporter.removeJar(p.toFile(), db.getStore());
+                         } finally {
+                             generation.incrementAndGet();
+                         }
+                     },
+                     importWorkers, importQueue, ImportScheduler.DEFAULT_SMALL_ARTIFACT_BYTES);
+             JarWatcher watcher = new JarWatcher(Paths.get(watchDir), scheduler::submitImport, scheduler::submitRemove)) {
+            java.util.List<java.io.File> jars = listJars(watchDir);
+            if (bulkLoad && db.isEmpty()) {
+                BulkLoader.load(jars, db.getStore(), options);
+                db.createIndexes();
+            } else {
+                db.createIndexes();
+                JarImporter.importJars(jars, db.getStore(), options);
+            }
 
             if (projectDir != null) {
-                int imported = ProjectDirImporter.importDirectory(Paths.get(projectDir).toFile(), db.getDriver());
+                int imported;
+                if (dataDir != null) {
+                    ClassFingerprintIndex index = ClassFingerprintIndex.load(
+                            Paths.get(dataDir).resolve(ClassFingerprintIndex.DEFAULT_FILE_NAME));
+                    imported = ProjectDirImporter.importChanges(Paths.get(projectDir).toFile(), db.getStore(), index, options);
+                } else {
+                    imported = ProjectDirImporter.importDirectory(Paths.get(projectDir).toFile(), db.getStore(), options);
+                }
                 LOGGER.info("Imported " + imported + " classes from project directory");
             }
 
             watcher.start();
 
-            QueryService service = new QueryServiceImpl(db.getDriver());
-            SseMcpServer sse = null;
-            if (ssePort > 0) {
-                sse = new SseMcpServer(ssePort, service);
-                sse.start();
-                out.println("SSE server started on port " + sse.getPort());
-            }
-            if (stdio) {
-                new StdioMcpServer(service, System.in, out).run();
-            } else if (sse != null) {
-                try {
-                    new java.util.concurrent.CountDownLatch(1).await();
-                } catch (InterruptedException ignored) {}
-            }
-            if (sse != null) {
-                sse.stop();
-            }
-            return 0;
+            // Responses only carry the items, so paged totals are not counted
+            QueryService queries = new QueryServiceImpl(db.getQueryStore(), false, generation::get);
+            return serve(cache(queries, generation::get, cacheEntries, cacheBytes), ssePort, stdio, out);
         } catch (Exception e) {
             e.printStackTrace(out);
             return 1;
         }
     }
+
+    private static java.util.List<ClassFacts> readJar(java.io.File jar, ImportOptions options) {
+        java.util.List<ClassFacts> facts = new java.util.ArrayList<>();
+        JarImporter.readJars(java.util.List.of(jar), facts::add, options);
+        return facts;
+    }
+
+    private static java.util.List<java.io.File> listJars(String watchDir) throws java.io.IOException {
+        try (java.util.stream.Stream<java.nio.file.Path> files = java.nio.file.Files.list(Paths.get(watchDir))) {
+            return files.filter(p -> p.toString().endsWith(".jar"))
+                    .sorted()
+                    .map(java.nio.file.Path::toFile)
+                    .collect(java.util.stream.Collectors.toList());
+        }
+    }
+
+    /**
+     * Identify the inputs of an in-memory graph by the path, size and
+     * modification time of every jar and project class file, so a snapshot
+     * is only reused while none of them changed.
+     */
+    private static String snapshotStamp(java.util.List<java.io.File> jars, String projectDir) throws java.io.IOException {
+        StringBuilder sb = new StringBuilder("schema=").append(ArtifactFingerprint.SCHEMA_VERSION).append('\n');
+        java.util.List<java.io.File> files = new java.util.ArrayList<>(jars);
+        if (projectDir != null) {
+            try (java.util.stream.Stream<java.nio.file.Path> classes = java.nio.file.Files.walk(Paths.get(projectDir))) {
+                classes.filter(p -> p.toString().endsWith(".class"))
+                        .sorted()
+                        .forEach(p -> files.add(p.toFile()));
+            }
+        }
+        for (java.io.File f : files) {
+            sb.append(f.getAbsolutePath()).append('|').append(f.length()).append('|')
+                    .append(f.lastModified()).append('\n');
+        }
+        return ArtifactFingerprint.sha256(sb.toString().getBytes(java.nio.charset.StandardCharsets.UTF_8));
+    }
+
+    /** Wrap the service in a result cache when one was requested. */
+    private static QueryService cache(QueryService service, java.util.function.LongSupplier generation,
+                                      int entries, long bytes) {
+        if (entries <= 0) {
+            return service;
+        }
+        LOGGER.info("Caching up to " + entries + " query results in " + bytes + " bytes");
+        return new CachingQueryService(service, generation, entries, bytes);
+    }
+
+    /** Answer MCP requests over SSE and/or stdio until the input ends. */
+    private static int serve(QueryService service, int ssePort, boolean stdio, PrintStream out) throws Exception {
+        SseMcpServer sse = null;
+        if (ssePort > 0) {
+            sse = new SseMcpServer(ssePort, service);
+            sse.start();
+            out.println("SSE server started on port " + sse.getPort());
+        }
+        if (stdio) {
+            new StdioMcpServer(service, System.in, out).run();
+        } else if (sse != null) {
+            try {
+                new java.util.concurrent.CountDownLatch(1).await();
+            } catch (InterruptedException ignored) {}
+        }
+        if (sse != null) {
+            sse.stop();
+        }
+        if (service instanceof CachingQueryService) {
+            ((CachingQueryService) service).logStatistics();
+        }
+        return 0;
+    }
 }
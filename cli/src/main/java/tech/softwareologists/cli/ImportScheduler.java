@@ -0,0 +1,304 @@
+package tech.softwareologists.cli;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs artifact imports on background workers so file watchers never block.
+ *
+ * <p>Jobs are keyed by path. Submitting a path that is already queued only
+ * updates the pending action, and a path that is being imported is queued
+ * again once the running job completes, so bursts of events for one file
+ * collapse into a single import. Artifacts up to
+ * {@code smallArtifactBytes} are served from a priority lane before larger
+ * ones. At most {@code capacity} paths may wait in the lanes; further
+ * submissions are deferred and moved to the lanes as workers take jobs, so
+ * a burst of events never loses a change.</p>
+ *
+ * <p>{@link #close()} stops the workers and waits up to
+ * {@link #CLOSE_TIMEOUT_MS} for running jobs, so they do not write to a
+ * database that is being shut down.</p>
+ */
+public class ImportScheduler implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(ImportScheduler.class.getName());
+
+    /** Default number of worker threads. */
+    public static final int DEFAULT_WORKERS = 1;
+    /** Default number of paths that may wait for a worker. */
+    public static final int DEFAULT_CAPACITY = 1024;
+    /** Default size limit of artifacts served from the priority lane. */
+    public static final long DEFAULT_SMALL_ARTIFACT_BYTES = 1024 * 1024;
+    /** Time {@link #close()} waits for running jobs. */
+    public static final long CLOSE_TIMEOUT_MS = 10_000;
+
+    private enum Action { IMPORT, REMOVE }
+
+    /** Submission waiting for room in the lanes. */
+    private static final class Deferred {
+        final Action action;
+        final boolean small;
+
+        Deferred(Action action, boolean small) {
+            this.action = action;
+            this.small = small;
+        }
+    }
+
+    private final Consumer<Path> importer;
+    private final Consumer<Path> remover;
+    private final int capacity;
+    private final long smallArtifactBytes;
+    private final List<Thread> workers = new ArrayList<>();
+
+    private final Deque<Path> smallLane = new ArrayDeque<>();
+    private final Deque<Path> largeLane = new ArrayDeque<>();
+    private final Map<Path, Action> pending = new HashMap<>();
+    private final Set<Path> inFlight = new LinkedHashSet<>();
+    private final Map<Path, Action> resubmitted = new HashMap<>();
+    private final Map<Path, Deferred> deferred = new LinkedHashMap<>();
+
+    private long completed;
+    private long failed;
+    private boolean closed;
+
+    /**
+     * Creates a scheduler with default settings.
+     *
+     * @param importer imports or re-imports an artifact
+     * @param remover removes an artifact that was deleted
+     */
+    public ImportScheduler(Consumer<Path> importer, Consumer<Path> remover) {
+        this(importer, remover, DEFAULT_WORKERS, DEFAULT_CAPACITY, DEFAULT_SMALL_ARTIFACT_BYTES);
+    }
+
+    /**
+     * Creates a scheduler.
+     *
+     * @param importer imports or re-imports an artifact
+     * @param remover removes an artifact that was deleted
+     * @param workerCount number of worker threads
+     * @param capacity maximum number of queued paths
+     * @param smallArtifactBytes artifacts up to this size use the priority lane
+     */
+    public ImportScheduler(Consumer<Path> importer, Consumer<Path> remover, int workerCount, int capacity,
+                           long smallArtifactBytes) {
+        if (workerCount < 1) {
+            throw new IllegalArgumentException("workerCount must be positive: " + workerCount);
+        }
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.importer = importer;
+        this.remover = remover;
+        this.capacity = capacity;
+        this.smallArtifactBytes = smallArtifactBytes;
+        for (int i = 0; i < workerCount; i++) {
+            Thread t = new Thread(this::work, "codegraph-import-" + i);
+            t.setDaemon(true);
+            workers.add(t);
+            t.start();
+        }
+    }
+
+    /**
+     * Queue an import of the artifact.
+     *
+     * @return {@code false} if the queue is full and the job was deferred
+     *         until a worker takes a job, or if the scheduler is closed
+     */
+    public boolean submitImport(Path path) {
+        return submit(path, Action.IMPORT, isSmall(path));
+    }
+
+    /**
+     * Queue the removal of the artifact.
+     *
+     * @return {@code false} if the queue is full and the job was deferred
+     *         until a worker takes a job, or if the scheduler is closed
+     */
+    public boolean submitRemove(Path path) {
+        return submit(path, Action.REMOVE, true);
+    }
+
+    /** Queue a job; the size of the artifact is read by the caller, outside the lock. */
+    private synchronized boolean submit(Path path, Action action, boolean small) {
+        if (closed) {
+            return false;
+        }
+        if (inFlight.contains(path)) {
+            resubmitted.put(path, action);
+            return true;
+        }
+        if (pending.containsKey(path)) {
+            pending.put(path, action);
+            Deque<Path> lane = lane(action, small);
+            if (!lane.contains(path)) {
+                // the action changed the lane, e.g. a large import became a removal
+                (lane == smallLane ? largeLane : smallLane).remove(path);
+                lane.addLast(path);
+                notifyAll();
+            }
+            return true;
+        }
+        if (deferred.containsKey(path) || pending.size() >= capacity) {
+            if (deferred.put(path, new Deferred(action, small)) == null) {
+                LOGGER.warning("Import queue full, deferring " + path);
+            }
+            return false;
+        }
+        pending.put(path, action);
+        lane(action, small).addLast(path);
+        notifyAll();
+        return true;
+    }
+
+    /** Move deferred jobs to the lanes while there is room. */
+    private void undefer() {
+        Iterator<Map.Entry<Path, Deferred>> it = deferred.entrySet().iterator();
+        while (pending.size() < capacity && it.hasNext()) {
+            Map.Entry<Path, Deferred> e = it.next();
+            it.remove();
+            pending.put(e.getKey(), e.getValue().action);
+            lane(e.getValue().action, e.getValue().small).addLast(e.getKey());
+        }
+    }
+
+    private Deque<Path> lane(Action action, boolean small) {
+        return action == Action.REMOVE || small ? smallLane : largeLane;
+    }
+
+    private boolean isSmall(Path path) {
+        try {
+            return Files.size(path) <= smallArtifactBytes;
+        } catch (java.io.IOException e) {
+            return true;
+        }
+    }
+
+    private void work() {
+        while (true) {
+            Path path;
+            Action action;
+            synchronized (this) {
+                while (!closed && smallLane.isEmpty() && largeLane.isEmpty()) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (closed) {
+                    return;
+                }
+                path = !smallLane.isEmpty() ? smallLane.pollFirst() : largeLane.pollFirst();
+                action = pending.remove(path);
+                inFlight.add(path);
+                undefer();
+            }
+            boolean ok = run(path, action);
+            boolean small = isSmall(path);
+            synchronized (this) {
+                inFlight.remove(path);
+                if (ok) {
+                    completed++;
+                } else {
+                    failed++;
+                }
+                Action again = resubmitted.remove(path);
+                if (again != null) {
+                    submit(path, again, small);
+                }
+                notifyAll();
+                LOGGER.info("Import queue depth " + pending.size() + ", in flight " + inFlight);
+            }
+        }
+    }
+
+    private boolean run(Path path, Action action) {
+        try {
+            if (action == Action.REMOVE) {
+                remover.accept(path);
+            } else {
+                importer.accept(path);
+            }
+            return true;
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Failed to process " + path, e);
+            return false;
+        }
+    }
+
+    /** Number of paths waiting for a worker, including deferred ones. */
+    public synchronized int getQueueDepth() {
+        return pending.size() + deferred.size();
+    }
+
+    /** Paths currently being processed. */
+    public synchronized List<Path> getInFlight() {
+        return new ArrayList<>(inFlight);
+    }
+
+    /** Number of jobs finished successfully. */
+    public synchronized long getCompletedCount() {
+        return completed;
+    }
+
+    /** Number of jobs that failed. */
+    public synchronized long getFailedCount() {
+        return failed;
+    }
+
+    /**
+     * Block until no job is queued or running.
+     *
+     * @param timeoutMs maximum time to wait
+     * @return {@code true} if the scheduler became idle in time
+     */
+    public synchronized boolean awaitIdle(long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (!pending.isEmpty() || !deferred.isEmpty() || !inFlight.isEmpty()) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(remaining);
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        for (Thread t : workers) {
+            t.interrupt();
+        }
+        long deadline = System.currentTimeMillis() + CLOSE_TIMEOUT_MS;
+        for (Thread t : workers) {
+            try {
+                t.join(Math.max(1, deadline - System.currentTimeMillis()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (t.isAlive()) {
+                LOGGER.warning("Import worker " + t.getName() + " still running after " + CLOSE_TIMEOUT_MS + " ms");
+            }
+        }
+    }
+}
@@ -2,20 +2,37 @@ package tech.softwareologists.cli;
 
 import java.io.IOException;
 import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-/**
- * Watches a directory for newly created JAR files and logs their paths.
- */
 import java.util.function.Consumer;
 
+/**
+ * Watches a directory for created, modified or deleted JAR files and logs
+ * their paths.
+ *
+ * <p>A created or modified JAR is only reported once its size and
+ * modification time have stayed the same for {@code settleMs}, so a JAR
+ * that is still being copied or rebuilt is not imported half written.
+ * Deletions are reported at once and drop any pending report.</p>
+ */
 public class JarWatcher implements AutoCloseable {
     private static final Logger LOGGER = Logger.getLogger(JarWatcher.class.getName());
+    private static final long DEFAULT_SETTLE_MS = 500;
 
     private final Path directory;
     private final WatchService watchService;
     private final Consumer<Path> onJar;
+    private final Consumer<Path> onDelete;
+    private final long settleMs;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final Map<Path, FileState> settling = new HashMap<>();
     private Thread thread;
 
     /**
@@ -27,10 +44,27 @@ public class JarWatcher implements AutoCloseable {
     }
 
     public JarWatcher(Path directory, Consumer<Path> onJar) throws IOException {
+        this(directory, onJar, p -> {});
+    }
+
+    /**
+     * Creates a watcher that also reports JAR files removed from the directory.
+     */
+    public JarWatcher(Path directory, Consumer<Path> onJar, Consumer<Path> onDelete) throws IOException {
+        this(directory, onJar, onDelete, DEFAULT_SETTLE_MS);
+    }
+
+    /**
+     * Creates a watcher with a custom settle delay.
+     */
+    public JarWatcher(Path directory, Consumer<Path> onJar, Consumer<Path> onDelete, long settleMs) throws IOException {
         this.directory = directory;
         this.onJar = onJar;
+        this.onDelete = onDelete;
+        this.settleMs = settleMs;
         this.watchService = directory.getFileSystem().newWatchService();
-        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE);
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
     }
 
     /** Starts watching in a background thread. */
@@ -48,12 +82,21 @@ public class JarWatcher implements AutoCloseable {
             while (!Thread.currentThread().isInterrupted()) {
                 WatchKey key = watchService.take();
                 for (WatchEvent<?> event : key.pollEvents()) {
-                    if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
-                        Path created = directory.resolve((Path) event.context());
-                        if (created.toString().endsWith(".jar")) {
-                            Path abs = created.toAbsolutePath();
-                            LOGGER.info("Detected JAR: " + abs);
-                            onJar.accept(abs);
+                    if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE
+                            || event.kind() == StandardWatchEventKinds.ENTRY_MODIFY) {
+                        Path changed = directory.resolve((Path) event.context());
+                        if (changed.toString().endsWith(".jar")) {
+                            settle(changed.toAbsolutePath());
+                        }
+                    } else if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                        Path deleted = directory.resolve((Path) event.context());
+                        if (deleted.toString().endsWith(".jar")) {
+                            Path abs = deleted.toAbsolutePath();
+                            synchronized (this) {
+                                settling.remove(abs);
+                            }
+                            LOGGER.info("Removed JAR: " + abs);
+                            onDelete.accept(abs);
                         }
                     }
                 }
@@ -66,11 +109,86 @@ public class JarWatcher implements AutoCloseable {
         }
     }
 
+    /**
+     * Start waiting for the JAR to settle unless it is already being waited
+     * for; later events for it are covered by the pending check.
+     */
+    private synchronized void settle(Path jar) {
+        FileState state = FileState.of(jar);
+        if (state == null || settling.containsKey(jar)) {
+            return;
+        }
+        settling.put(jar, state);
+        executor.schedule(() -> check(jar), settleMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void check(Path jar) {
+        synchronized (this) {
+            FileState last = settling.get(jar);
+            if (last == null) {
+                return;
+            }
+            FileState now = FileState.of(jar);
+            if (now == null) {
+                settling.remove(jar);
+                return;
+            }
+            if (!now.equals(last)) {
+                settling.put(jar, now);
+                executor.schedule(() -> check(jar), settleMs, TimeUnit.MILLISECONDS);
+                return;
+            }
+            settling.remove(jar);
+        }
+        LOGGER.info("Detected JAR: " + jar);
+        try {
+            onJar.accept(jar);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Failed to handle JAR " + jar, e);
+        }
+    }
+
     @Override
     public void close() throws IOException {
         if (thread != null) {
             thread.interrupt();
         }
+        executor.shutdownNow();
         watchService.close();
     }
+
+    /** Size and modification time of a file. */
+    private static final class FileState {
+        private final long size;
+        private final long modified;
+
+        private FileState(long size, long modified) {
+            this.size = size;
+            this.modified = modified;
+        }
+
+        /** Current state of the file or {@code null} if it cannot be read. */
+        static FileState of(Path file) {
+            try {
+                BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+                return new FileState(attrs.size(), attrs.lastModifiedTime().toMillis());
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof FileState)) {
+                return false;
+            }
+            FileState other = (FileState) o;
+            return size == other.size && modified == other.modified;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(size) * 31 + Long.hashCode(modified);
+        }
+    }
 }
@@ -1,26 +1,31 @@
 package tech.softwareologists.cli;
 
-import io.github.classgraph.ClassGraph;
-import io.github.classgraph.ClassInfo;
-import io.github.classgraph.ScanResult;
 import org.neo4j.driver.Driver;
-import org.neo4j.driver.Session;
-import org.neo4j.driver.Values;
-import org.objectweb.asm.ClassReader;
-import org.objectweb.asm.ClassVisitor;
-import org.objectweb.asm.MethodVisitor;
-import org.objectweb.asm.Opcodes;
+import tech.softwareologists.core.ClassFacts;
+import tech.softwareologists.core.ClassFactsExtractor;
+import tech.softwareologists.core.GraphBatchWriter;
+import tech.softwareologists.core.ImportOptions;
+import tech.softwareologists.core.ImportPipeline;
+import tech.softwareologists.core.db.GraphStore;
 import tech.softwareologists.core.db.NodeLabel;
-import tech.softwareologists.core.db.EdgeType;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Utility class to import compiled class files from a directory.
@@ -37,126 +42,224 @@ public class ProjectDirImporter {
      * return the number of classes discovered.
      *
      * @param dir    directory containing compiled .class files
-     * @param driver Neo4j driver used for persistence
+     * @param store  graph store used for persistence
      * @return number of classes imported
      */
-    public static int importDirectory(File dir, Driver driver) {
+    public static int importDirectory(File dir, GraphStore store) {
+        return importDirectory(dir, store, ImportOptions.defaults());
+    }
+
+    /**
+     * Import the compiled classes in the given directory using explicit
+     * transactions that each cover {@link ImportOptions#getCommitSize()}
+     * classes.
+     *
+     * @param dir     directory containing compiled .class files
+     * @param store   graph store used for persistence
+     * @param options batch, commit and retry settings
+     * @return number of classes imported
+     */
+    public static int importDirectory(File dir, GraphStore store, ImportOptions options) {
         try {
             LOGGER.info("Importing directory: " + dir.getAbsolutePath());
 
-            try (ScanResult scan = new ClassGraph()
-                    .overrideClasspath(dir)
-                    .enableClassInfo()
-                    .enableInterClassDependencies()
-                    .scan()) {
-                List<String> classes = scan.getAllClasses().getNames();
-                LOGGER.info("Classes: " + classes);
-                try (Session session = driver.session()) {
-                    for (ClassInfo classInfo : scan.getAllClasses()) {
-                        String cls = classInfo.getName();
-                        session.run(
-                                "MERGE (c:" + NodeLabel.CLASS + " {name:$name})",
-                                Values.parameters("name", cls));
-
-                        // parse bytecode to create method nodes and call edges
-                        List<String> methodNames = new java.util.ArrayList<>();
-                        Map<String, Set<String>> calls = new HashMap<>();
-                        try (java.io.InputStream in = classInfo.getResource().open()) {
-                            ClassReader cr = new ClassReader(in);
-                            cr.accept(new ClassVisitor(Opcodes.ASM9) {
-                                @Override
-                                public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
-                                    String sig = name + descriptor;
-                                    methodNames.add(sig);
-                                    session.run(
-                                            "MERGE (m:" + NodeLabel.METHOD + " {class:$cls, signature:$sig})",
-                                            Values.parameters("cls", cls, "sig", sig));
-                                    return new MethodVisitor(Opcodes.ASM9) {
-                                        @Override
-                                        public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
-                                            String tgtCls = owner.replace('/', '.');
-                                            String tgtSig = name + descriptor;
-                                            calls.computeIfAbsent(sig, k -> new HashSet<>()).add(tgtCls + "|" + tgtSig);
-                                        }
-                                    };
-                                }
-                            }, 0);
-                        }
-                        if (!methodNames.isEmpty()) {
-                            LOGGER.info("Methods in " + cls + ": " + methodNames);
-                        }
-
-                        for (Map.Entry<String, Set<String>> entry : calls.entrySet()) {
-                            String fromSig = entry.getKey();
-                            for (String tgtCombined : entry.getValue()) {
-                                int idx = tgtCombined.indexOf('|');
-                                String tgtCls = tgtCombined.substring(0, idx);
-                                String tgtSig = tgtCombined.substring(idx + 1);
-                                session.run(
-                                        "MERGE (m:" + NodeLabel.METHOD + " {class:$cls, signature:$sig})",
-                                        Values.parameters("cls", tgtCls, "sig", tgtSig));
-                                session.run(
-                                        "MATCH (s:" + NodeLabel.METHOD + " {class:$scls, signature:$ssig}), " +
-                                                "(t:" + NodeLabel.METHOD + " {class:$tcls, signature:$tsig}) MERGE (s)-[:CALLS]->(t)",
-                                        Values.parameters(
-                                                "scls", cls,
-                                                "ssig", fromSig,
-                                                "tcls", tgtCls,
-                                                "tsig", tgtSig));
-                            }
-                        }
-
-                        java.util.Set<String> seenDeps = new java.util.HashSet<>();
-                        for (ClassInfo dep : classInfo.getClassDependencies()) {
-                            String depName = dep.getName();
-                            if (cls.equals(depName) || !seenDeps.add(depName)) {
-                                continue;
-                            }
-                            session.run(
-                                    "MERGE (d:" + NodeLabel.CLASS + " {name:$dep})",
-                                    Values.parameters("dep", depName));
-                            session.run(
-                                    "MATCH (s:" + NodeLabel.CLASS + " {name:$src}), (t:" + NodeLabel.CLASS + " {name:$tgt}) MERGE (s)-[:" + EdgeType.DEPENDS_ON + "]->(t)",
-                                    Values.parameters("src", cls, "tgt", depName));
-                        }
-
-                        // record implemented interfaces
-                        java.util.Set<String> seenInterfaces = new java.util.HashSet<>();
-                        for (ClassInfo iface : classInfo.getInterfaces()) {
-                            String ifaceName = iface.getName();
-                            if (!seenInterfaces.add(ifaceName)) {
-                                continue;
-                            }
-                            session.run(
-                                    "MERGE (i:" + NodeLabel.CLASS + " {name:$iface})",
-                                    Values.parameters("iface", ifaceName));
-                            session.run(
-                                    "MATCH (c:" + NodeLabel.CLASS + " {name:$cls}), (i:" + NodeLabel.CLASS + " {name:$iface}) MERGE (c)-[:" + EdgeType.IMPLEMENTS + "]->(i)",
-                                    Values.parameters("cls", cls, "iface", ifaceName));
-                        }
-
-                        // record superclass relationship
-                        ClassInfo superInfo = classInfo.getSuperclass();
-                        if (superInfo != null) {
-                            String superName = superInfo.getName();
-                            session.run(
-                                    "MERGE (s:" + NodeLabel.CLASS + " {name:$sup})",
-                                    Values.parameters("sup", superName));
-                            session.run(
-                                    "MATCH (c:" + NodeLabel.CLASS + " {name:$cls}), (s:" + NodeLabel.CLASS + " {name:$sup}) MERGE (c)-[:" + EdgeType.EXTENDS + "]->(s)",
-                                    Values.parameters("cls", cls, "sup", superName));
-                        }
-                    }
+            List<Path> classFiles = listClassFiles(dir.toPath());
+            LOGGER.info("Classes: " + classFiles.stream()
+                    .map(p -> className(dir.toPath(), p))
+                    .collect(Collectors.toList()));
+            Set<String> scanned = classNames(dir.toPath(), classFiles);
+            GraphBatchWriter writer = new GraphBatchWriter(store, options);
+            int imported = ImportPipeline.run(classFiles,
+                    p -> ClassFactsExtractor.extract(Files.readAllBytes(p), scanned::contains), writer::write, options);
+            writer.flush();
+            LOGGER.info("Imported " + imported + " classes");
+            return imported;
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Failed to import directory", e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Parse the compiled classes in the given directory without writing to a
+     * database and hand the facts of every class to the sink, for example a
+     * {@link tech.softwareologists.core.csr.CsrGraph.Builder}.
+     *
+     * @param dir     directory containing compiled .class files
+     * @param sink    consumer of the extracted facts, called on the calling thread
+     * @param options parallelism and queue capacity settings
+     * @return number of classes passed to the sink
+     */
+    public static int readDirectory(File dir, Consumer<ClassFacts> sink, ImportOptions options) {
+        try {
+            LOGGER.info("Reading directory: " + dir.getAbsolutePath());
+            List<Path> classFiles = listClassFiles(dir.toPath());
+            Set<String> scanned = classNames(dir.toPath(), classFiles);
+            return ImportPipeline.run(classFiles,
+                    p -> ClassFactsExtractor.extract(Files.readAllBytes(p), scanned::contains), sink, options);
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Failed to read directory", e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Import only the class files that changed since the fingerprints in the
+     * index were recorded. Files whose size and modification time match are
+     * skipped without being read; files whose content hash still matches are
+     * not parsed. Classes whose files disappeared are removed from the graph.
+     * The index is updated and saved once all changes are committed.
+     *
+     * @param dir     directory containing compiled .class files
+     * @param store   graph store used for persistence
+     * @param index   fingerprints of the previously imported class files
+     * @param options batch, commit and retry settings
+     * @return number of classes re-imported
+     */
+    public static int importChanges(File dir, GraphStore store, ClassFingerprintIndex index, ImportOptions options) {
+        try {
+            Path root = dir.toPath();
+            if (!index.isVerified()) {
+                dropMissingClasses(store, index);
+            }
+            Set<String> known = new HashSet<>();
+            for (String rel : index.paths()) {
+                known.add(index.get(rel).getClassName());
+            }
+
+            Set<String> present = new HashSet<>();
+            List<Path> candidates = new ArrayList<>();
+            List<Path> classFiles = listClassFiles(root);
+            Set<String> scanned = classNames(root, classFiles);
+            for (Path p : classFiles) {
+                String rel = relativePath(root, p);
+                present.add(rel);
+                ClassFingerprintIndex.Fingerprint fp = index.get(rel);
+                if (fp == null || !fp.matches(Files.size(p), Files.getLastModifiedTime(p).toMillis())) {
+                    candidates.add(p);
+                }
+            }
+            List<String> deleted = new ArrayList<>();
+            for (String rel : index.paths()) {
+                if (!present.contains(rel)) {
+                    deleted.add(rel);
+                }
+            }
+
+            Map<String, ClassFingerprintIndex.Fingerprint> updated = new ConcurrentHashMap<>();
+            GraphBatchWriter writer = new GraphBatchWriter(store, options);
+            for (String rel : deleted) {
+                String cls = index.get(rel).getClassName();
+                if (!cls.isEmpty()) {
+                    writer.removeClass(cls);
                 }
-                LOGGER.info("Imported " + classes.size() + " classes");
-                return classes.size();
             }
+            int changed = ImportPipeline.run(candidates, p -> {
+                String rel = relativePath(root, p);
+                long modified = Files.getLastModifiedTime(p).toMillis();
+                byte[] bytes = Files.readAllBytes(p);
+                String hash = ClassFingerprintIndex.sha256(bytes);
+                ClassFingerprintIndex.Fingerprint old = index.get(rel);
+                if (old != null && old.getHash().equals(hash)) {
+                    updated.put(rel, new ClassFingerprintIndex.Fingerprint(
+                            bytes.length, modified, hash, old.getClassName()));
+                    return null;
+                }
+                ClassFacts facts = ClassFactsExtractor.extract(bytes, scanned::contains);
+                updated.put(rel, new ClassFingerprintIndex.Fingerprint(
+                        bytes.length, modified, hash, facts == null ? null : facts.getName()));
+                return facts;
+            }, facts -> {
+                if (known.contains(facts.getName())) {
+                    writer.replaceClass(facts);
+                } else {
+                    writer.write(facts);
+                }
+            }, options);
+            writer.flush();
+
+            deleted.forEach(index::remove);
+            updated.forEach(index::put);
+            index.save();
+            LOGGER.info("Re-imported " + changed + " changed classes and removed " + deleted.size()
+                    + " deleted class files out of " + present.size());
+            return changed;
         } catch (Exception e) {
-            LOGGER.log(Level.SEVERE, "Failed to import directory", e);
+            LOGGER.log(Level.SEVERE, "Failed to import directory changes", e);
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Forget fingerprints of classes that are not in the graph, for example
+     * because the index outlived an in-memory database.
+     */
+    private static void dropMissingClasses(GraphStore store, ClassFingerprintIndex index) {
+        Map<String, List<String>> pathsByClass = new HashMap<>();
+        for (String rel : index.paths()) {
+            String cls = index.get(rel).getClassName();
+            if (!cls.isEmpty()) {
+                pathsByClass.computeIfAbsent(cls, k -> new ArrayList<>()).add(rel);
+            }
+        }
+        if (!pathsByClass.isEmpty()) {
+            List<Map<String, Object>> missing = store.query(
+                    "UNWIND $names AS n OPTIONAL MATCH (c:" + NodeLabel.CLASS + " {name:n}) " +
+                            "WITH n, c WHERE c IS NULL RETURN n",
+                    Collections.singletonMap("names", new ArrayList<>(pathsByClass.keySet())));
+            for (Map<String, Object> r : missing) {
+                pathsByClass.get((String) r.get("n")).forEach(index::remove);
+            }
+            if (!missing.isEmpty()) {
+                LOGGER.info("Ignoring " + missing.size() + " fingerprints of classes missing from the graph");
+            }
+        }
+        index.markVerified();
+    }
+
+    private static List<Path> listClassFiles(Path root) throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            return files
+                    .filter(p -> p.getFileName().toString().endsWith(".class"))
+                    .filter(Files::isRegularFile)
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static String relativePath(Path root, Path classFile) {
+        return root.relativize(classFile).toString().replace(File.separatorChar, '/');
+    }
+
+    /** Names of the classes defined by the class files, which bound their dependencies. */
+    private static Set<String> classNames(Path root, List<Path> classFiles) {
+        Set<String> names = new HashSet<>();
+        for (Path p : classFiles) {
+            names.add(className(root, p));
+        }
+        return names;
+    }
+
+    private static String className(Path root, Path classFile) {
+        String rel = relativePath(root, classFile).replace('/', '.');
+        return rel.substring(0, rel.length() - ".class".length());
+    }
+
+    /** Driver based variant of {@link #importDirectory(File, GraphStore)}. */
+    public static int importDirectory(File dir, Driver driver) {
+        return importDirectory(dir, GraphStore.of(driver));
+    }
+
+    /** Driver based variant of {@link #importDirectory(File, GraphStore, ImportOptions)}. */
+    public static int importDirectory(File dir, Driver driver, ImportOptions options) {
+        return importDirectory(dir, GraphStore.of(driver), options);
+    }
+
+    /** Driver based variant of {@link #importChanges(File, GraphStore, ClassFingerprintIndex, ImportOptions)}. */
+    public static int importChanges(File dir, Driver driver, ClassFingerprintIndex index, ImportOptions options) {
+        return importChanges(dir, GraphStore.of(driver), index, options);
+    }
+
     /**
      * Backwards compatible wrapper for {@link #importDirectory(File, Driver)}.
      */
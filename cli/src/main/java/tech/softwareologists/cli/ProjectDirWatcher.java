@@ -1,6 +1,8 @@
 package tech.softwareologists.cli;
 
 import org.neo4j.driver.Driver;
+import tech.softwareologists.core.ImportOptions;
+import tech.softwareologists.core.db.GraphStore;
 
 import java.io.IOException;
 import java.nio.file.*;
@@ -15,17 +17,22 @@ import java.util.logging.Logger;
 
 /**
  * Watches a project directory for .java or .class file changes and re-imports
- * the directory using {@link ProjectDirImporter} after a short debounce period.
+ * the changed classes using {@link ProjectDirImporter} after a short debounce
+ * period. Deleted class files and package directories remove their classes
+ * from the graph. Class fingerprints are kept in
+ * {@link ClassFingerprintIndex#DEFAULT_FILE_NAME} inside the directory.
  */
 public class ProjectDirWatcher implements AutoCloseable {
     private static final Logger LOGGER = Logger.getLogger(ProjectDirWatcher.class.getName());
     private static final long DEFAULT_DEBOUNCE_MS = 500;
 
     private final Path directory;
-    private final Driver driver;
+    private final GraphStore store;
     private final WatchService watchService;
     private final Set<Path> registeredDirs = new HashSet<>();
     private final long debounceMs;
+    private final ImportOptions options;
+    private final ClassFingerprintIndex index;
     private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
 
     private ScheduledFuture<?> future;
@@ -39,7 +46,8 @@ public class ProjectDirWatcher implements AutoCloseable {
                         if (registeredDirs.add(p)) {
                             p.register(watchService,
                                     StandardWatchEventKinds.ENTRY_CREATE,
-                                    StandardWatchEventKinds.ENTRY_MODIFY);
+                                    StandardWatchEventKinds.ENTRY_MODIFY,
+                                    StandardWatchEventKinds.ENTRY_DELETE);
                         }
                     } catch (IOException e) {
                         throw new RuntimeException(e);
@@ -47,6 +55,15 @@ public class ProjectDirWatcher implements AutoCloseable {
                 });
     }
 
+    /**
+     * Forget a deleted directory and the directories below it.
+     *
+     * @return whether the path was a watched directory
+     */
+    private boolean forget(Path dir) {
+        return registeredDirs.removeIf(p -> p.startsWith(dir));
+    }
+
     /**
      * Creates a watcher for the given directory. The watcher is not started
      * until {@link #start()} is called.
@@ -59,9 +76,25 @@ public class ProjectDirWatcher implements AutoCloseable {
      * Creates a watcher with a custom debounce delay.
      */
     public ProjectDirWatcher(Path directory, Driver driver, long debounceMs) throws IOException {
+        this(directory, driver, debounceMs, ImportOptions.defaults());
+    }
+
+    /**
+     * Creates a watcher with a custom debounce delay and import options.
+     */
+    public ProjectDirWatcher(Path directory, Driver driver, long debounceMs, ImportOptions options) throws IOException {
+        this(directory, GraphStore.of(driver), debounceMs, options);
+    }
+
+    /**
+     * Creates a watcher writing through the given store.
+     */
+    public ProjectDirWatcher(Path directory, GraphStore store, long debounceMs, ImportOptions options) throws IOException {
         this.directory = directory;
-        this.driver = driver;
+        this.store = store;
         this.debounceMs = debounceMs;
+        this.options = options;
+        this.index = ClassFingerprintIndex.load(directory.resolve(ClassFingerprintIndex.DEFAULT_FILE_NAME));
         this.watchService = directory.getFileSystem().newWatchService();
         registerRecursive(directory);
     }
@@ -97,6 +130,9 @@ public class ProjectDirWatcher implements AutoCloseable {
                     String name = p.getFileName().toString();
                     if (name.endsWith(".java") || name.endsWith(".class")) {
                         trigger = true;
+                    } else if (kind == StandardWatchEventKinds.ENTRY_DELETE && forget(p)) {
+                        // a deleted package directory takes its class files along
+                        trigger = true;
                     }
                 }
                 if (!key.reset()) {
@@ -117,7 +153,7 @@ public class ProjectDirWatcher implements AutoCloseable {
         }
         future = executor.schedule(() -> {
             try {
-                int count = ProjectDirImporter.importDirectory(directory.toFile(), driver);
+                int count = ProjectDirImporter.importChanges(directory.toFile(), store, index, options);
                 LOGGER.info("Imported " + count + " classes from project directory");
             } catch (Exception e) {
                 LOGGER.log(Level.SEVERE, "Failed to import project directory", e);
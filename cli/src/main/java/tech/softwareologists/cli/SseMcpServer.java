@@ -5,24 +5,66 @@ import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
 import org.json.JSONArray;
 import org.json.JSONObject;
+import tech.softwareologists.core.AsyncQueryService;
 import tech.softwareologists.core.ManifestGenerator;
+import tech.softwareologists.core.PagedQuery;
+import tech.softwareologists.core.QueryResult;
 import tech.softwareologists.core.QueryService;
 
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 /**
  * Minimal HTTP SSE server exposing MCP endpoints.
+ *
+ * <p>A paged query whose parameters set {@code "stream": true} is answered
+ * from {@link QueryService#stream(PagedQuery, List, Integer)}: results are sent
+ * as JSON arrays of up to {@code batchSize} items, one event each, while the
+ * query runs, followed by an {@code end} event with the number of results.
+ * A failure after the first event is reported as an {@code error}
+ * event.</p>
+ *
+ * <p>Other queries go through {@link AsyncQueryService}. The handler
+ * returns as soon as a query is started and the response is sent when it
+ * completes, so the server thread is not held while the database
+ * works. Requests are handled and answered by a pool of
+ * {@value #DEFAULT_THREADS} threads.</p>
  */
 public class SseMcpServer {
+    /** Results sent per event of a streamed query unless the request sets {@code batchSize}. */
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
+    /** Threads handling requests and sending the answers of completed queries. */
+    public static final int DEFAULT_THREADS = 4;
+
     private final HttpServer server;
+    private final ExecutorService executor;
     private final QueryService queryService;
+    private final AsyncQueryService asyncQueries;
 
     public SseMcpServer(int port, QueryService queryService) throws IOException {
         this.queryService = queryService;
+        this.asyncQueries = AsyncQueryService.of(queryService);
         this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(DEFAULT_THREADS, task -> {
+            Thread t = new Thread(task, "codegraph-sse-" + threads.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(executor);
         server.createContext("/mcp/manifest", new ManifestHandler());
         server.createContext("/mcp/query", new QueryHandler());
     }
@@ -35,6 +77,7 @@ public class SseMcpServer {
     /** Stops the server. */
     public void stop() {
         server.stop(0);
+        executor.shutdown();
     }
 
     /** Returns the bound port. */
@@ -47,6 +90,11 @@ public class SseMcpServer {
         return event.getBytes(StandardCharsets.UTF_8);
     }
 
+    private static byte[] formatEvent(String name, String data) {
+        String event = "event: " + name + "\n" + "data: " + data.replace("\n", "") + "\n\n";
+        return event.getBytes(StandardCharsets.UTF_8);
+    }
+
     private class ManifestHandler implements HttpHandler {
         @Override
         public void handle(HttpExchange exchange) throws IOException {
@@ -71,9 +119,14 @@ public class SseMcpServer {
                 return;
             }
             String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8).trim();
-            String response = "[]";
+            CompletionStage<String> response = CompletableFuture.completedFuture("[]");
             if (!body.isEmpty()) {
                 JSONObject req = new JSONObject(body);
+                PagedQuery streamed = streamedQuery(req);
+                if (streamed != null) {
+                    streamQuery(exchange, streamed, req.getJSONObject(streamed.getMethod()));
+                    return;
+                }
 
                 if (req.has("findCallers")) {
                     Object val = req.get("findCallers");
@@ -90,7 +143,7 @@ public class SseMcpServer {
                     } else {
                         cls = val.toString();
                     }
-                    response = new JSONArray(queryService.findCallers(cls, limit, page, pageSize).getItems()).toString();
+                    response = asyncQueries.findCallersAsync(cls, limit, page, pageSize).thenApply(r -> pageJson(r, val));
                 } else if (req.has("findImplementations")) {
                     Object val = req.get("findImplementations");
                     String iface;
@@ -106,7 +159,7 @@ public class SseMcpServer {
                     } else {
                         iface = val.toString();
                     }
-                    response = new JSONArray(queryService.findImplementations(iface, limit, page, pageSize).getItems()).toString();
+                    response = asyncQueries.findImplementationsAsync(iface, limit, page, pageSize).thenApply(r -> pageJson(r, val));
                 } else if (req.has("findSubclasses")) {
                     Object val = req.get("findSubclasses");
                     String cls;
@@ -124,7 +177,7 @@ public class SseMcpServer {
                     } else {
                         cls = val.toString();
                     }
-                    response = new JSONArray(queryService.findSubclasses(cls, depth, limit, page, pageSize).getItems()).toString();
+                    response = asyncQueries.findSubclassesAsync(cls, depth, limit, page, pageSize).thenApply(r -> pageJson(r, val));
                 } else if (req.has("findDependencies")) {
                     Object val = req.get("findDependencies");
                     String cls;
@@ -142,13 +195,13 @@ public class SseMcpServer {
                     } else {
                         cls = val.toString();
                     }
-                    response = new JSONArray(queryService.findDependencies(cls, depth, limit, page, pageSize).getItems()).toString();
+                    response = asyncQueries.findDependenciesAsync(cls, depth, limit, page, pageSize).thenApply(r -> pageJson(r, val));
                 } else if (req.has("findPathBetweenClasses")) {
                     JSONObject o = req.getJSONObject("findPathBetweenClasses");
                     String from = o.getString("fromClass");
                     String to = o.getString("toClass");
                     Integer max = o.has("maxDepth") ? o.getInt("maxDepth") : null;
-                    response = new JSONArray(queryService.findPathBetweenClasses(from, to, max).getItems()).toString();
+                    response = asyncQueries.findPathBetweenClassesAsync(from, to, max).thenApply(r -> new JSONArray(r.getItems()).toString());
                 } else if (req.has("findMethodsCallingMethod")) {
                     JSONObject o = req.getJSONObject("findMethodsCallingMethod");
                     String cls = o.getString("className");
@@ -156,7 +209,7 @@ public class SseMcpServer {
                     Integer lim = o.has("limit") ? o.getInt("limit") : null;
                     Integer page = o.has("page") ? o.getInt("page") : null;
                     Integer pageSize = o.has("pageSize") ? o.getInt("pageSize") : null;
-                    response = new JSONArray(queryService.findMethodsCallingMethod(cls, sig, lim, page, pageSize).getItems()).toString();
+                    response = asyncQueries.findMethodsCallingMethodAsync(cls, sig, lim, page, pageSize).thenApply(r -> pageJson(r, o));
                 } else if (req.has("findBeansWithAnnotation")) {
                     Object val = req.get("findBeansWithAnnotation");
                     String ann;
@@ -172,7 +225,7 @@ public class SseMcpServer {
                     } else {
                         ann = val.toString();
                     }
-                    response = new JSONArray(queryService.findBeansWithAnnotation(ann, limit, page, pageSize).getItems()).toString();
+                    response = asyncQueries.findBeansWithAnnotationAsync(ann, limit, page, pageSize).thenApply(r -> pageJson(r, val));
                 } else if (req.has("searchByAnnotation")) {
                     JSONObject o = req.getJSONObject("searchByAnnotation");
                     String ann = o.getString("annotation");
@@ -180,7 +233,7 @@ public class SseMcpServer {
                     Integer limit = o.has("limit") ? o.getInt("limit") : null;
                     Integer page = o.has("page") ? o.getInt("page") : null;
                     Integer pageSize = o.has("pageSize") ? o.getInt("pageSize") : null;
-                    response = new JSONArray(queryService.searchByAnnotation(ann, target, limit, page, pageSize).getItems()).toString();
+                    response = asyncQueries.searchByAnnotationAsync(ann, target, limit, page, pageSize).thenApply(r -> pageJson(r, o));
                 } else if (req.has("findHttpEndpoints")) {
                     JSONObject o = req.getJSONObject("findHttpEndpoints");
                     String base = o.getString("basePath");
@@ -188,7 +241,7 @@ public class SseMcpServer {
                     Integer limit = o.has("limit") ? o.getInt("limit") : null;
                     Integer page = o.has("page") ? o.getInt("page") : null;
                     Integer pageSize = o.has("pageSize") ? o.getInt("pageSize") : null;
-                    response = new JSONArray(queryService.findHttpEndpoints(base, verb, limit, page, pageSize).getItems()).toString();
+                    response = asyncQueries.findHttpEndpointsAsync(base, verb, limit, page, pageSize).thenApply(r -> pageJson(r, o));
                 } else if (req.has("findControllersUsingService")) {
                     Object val = req.get("findControllersUsingService");
                     String svc;
@@ -204,7 +257,7 @@ public class SseMcpServer {
                     } else {
                         svc = val.toString();
                     }
-                    response = new JSONArray(queryService.findControllersUsingService(svc, limit, page, pageSize).getItems()).toString();
+                    response = asyncQueries.findControllersUsingServiceAsync(svc, limit, page, pageSize).thenApply(r -> pageJson(r, val));
                 } else if (req.has("findEventListeners")) {
                     Object val = req.get("findEventListeners");
                     String ev;
@@ -220,7 +273,7 @@ public class SseMcpServer {
                     } else {
                         ev = val.toString();
                     }
-                    response = new JSONArray(queryService.findEventListeners(ev, limit, page, pageSize).getItems()).toString();
+                    response = asyncQueries.findEventListenersAsync(ev, limit, page, pageSize).thenApply(r -> pageJson(r, val));
                 } else if (req.has("findScheduledTasks")) {
                     JSONObject o = req.optJSONObject("findScheduledTasks");
                     Integer limit = null;
@@ -231,7 +284,7 @@ public class SseMcpServer {
                         page = o.has("page") ? o.getInt("page") : null;
                         pageSize = o.has("pageSize") ? o.getInt("pageSize") : null;
                     }
-                    response = new JSONArray(queryService.findScheduledTasks(limit, page, pageSize).getItems()).toString();
+                    response = asyncQueries.findScheduledTasksAsync(limit, page, pageSize).thenApply(r -> pageJson(r, o));
                 } else if (req.has("findConfigPropertyUsage")) {
                     Object val = req.get("findConfigPropertyUsage");
                     String key;
@@ -247,7 +300,25 @@ public class SseMcpServer {
                     } else {
                         key = val.toString();
                     }
-                    response = new JSONArray(queryService.findConfigPropertyUsage(key, limit, page, pageSize).getItems()).toString();
+                    response = asyncQueries.findConfigPropertyUsageAsync(key, limit, page, pageSize).thenApply(r -> pageJson(r, val));
+                } else if (req.has("searchSymbols")) {
+                    Object val = req.get("searchSymbols");
+                    String query;
+                    String kind = null;
+                    Integer limit = null;
+                    if (val instanceof JSONObject) {
+                        JSONObject o = (JSONObject) val;
+                        query = o.getString("query");
+                        kind = o.has("kind") ? o.getString("kind") : null;
+                        limit = o.has("limit") ? o.getInt("limit") : null;
+                    } else {
+                        query = val.toString();
+                    }
+                    response = asyncQueries.searchSymbolsAsync(query, kind, limit).thenApply(r -> new JSONArray(r.getItems()).toString());
+                } else if (req.has("nextPage")) {
+                    Object val = req.get("nextPage");
+                    String cursor = val instanceof JSONObject ? ((JSONObject) val).getString("cursor") : val.toString();
+                    response = asyncQueries.nextPageAsync(cursor).thenApply(r -> pageWithCursor(r));
                 } else if (req.has("getPackageHierarchy")) {
                     Object val = req.get("getPackageHierarchy");
                     String pkg;
@@ -259,25 +330,121 @@ public class SseMcpServer {
                     } else {
                         pkg = val.toString();
                     }
-                    response = queryService.getPackageHierarchy(pkg, depth);
+                    response = asyncQueries.getPackageHierarchyAsync(pkg, depth);
                 } else if (req.has("getGraphStatistics")) {
                     Integer top = req.optInt("getGraphStatistics", -1);
-                    response = queryService.getGraphStatistics(top == -1 ? null : top);
+                    response = asyncQueries.getGraphStatisticsAsync(top == -1 ? null : top);
                 } else if (req.has("exportGraph")) {
                     JSONObject o = req.getJSONObject("exportGraph");
                     String format = o.getString("format");
                     String path = o.getString("outputPath");
                     queryService.exportGraph(format, path);
-                    response = "{}";
+                    response = CompletableFuture.completedFuture("{}");
                 }
             }
 
-            byte[] bytes = formatEvent(response);
+            // Answer on a server thread, not on the database thread completing the query
+            response.whenCompleteAsync((text, error) -> respond(exchange, text, error), executor);
+        }
+    }
+
+    /**
+     * Send the answer of a query once its stage completes, on a server
+     * thread after the handler has returned. A failed query is
+     * answered with status 500 and an {@code error} event.
+     */
+    private static void respond(HttpExchange exchange, String response, Throwable error) {
+        try {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            byte[] bytes = cause == null ? formatEvent(response) : formatEvent("error", String.valueOf(cause.getMessage()));
             exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
-            exchange.sendResponseHeaders(200, bytes.length);
+            exchange.sendResponseHeaders(cause == null ? 200 : 500, bytes.length);
             try (OutputStream os = exchange.getResponseBody()) {
                 os.write(bytes);
             }
+        } catch (IOException e) {
+            exchange.close();
         }
     }
+
+    /** Paged query in the request if its parameters ask for streaming, otherwise {@code null}. */
+    private static PagedQuery streamedQuery(JSONObject req) {
+        for (PagedQuery query : PagedQuery.values()) {
+            if (req.has(query.getMethod())) {
+                JSONObject o = req.optJSONObject(query.getMethod());
+                return o != null && o.optBoolean("stream") ? query : null;
+            }
+        }
+        return null;
+    }
+
+    /** Arguments of a paged query other than limit, page and page size, in declaration order. */
+    private static List<Object> streamArgs(PagedQuery query, JSONObject o) {
+        List<Object> args = new ArrayList<>();
+        for (PagedQuery.Param param : query.getParams()) {
+            if (param.isRequired()) {
+                args.add(o.getString(param.getName()));
+            } else if (!o.has(param.getName())) {
+                args.add(param.getDefaultValue());
+            } else if (param.getType() == String.class) {
+                args.add(o.getString(param.getName()));
+            } else {
+                args.add(o.getInt(param.getName()));
+            }
+        }
+        return args;
+    }
+
+    /**
+     * Send the results of a paged query in batches as they are read. The
+     * response is chunked, so each event reaches the client when it is
+     * flushed instead of after the last result.
+     */
+    private void streamQuery(HttpExchange exchange, PagedQuery query, JSONObject o) throws IOException {
+        Integer limit = o.has("limit") ? o.getInt("limit") : null;
+        int batchSize = Math.max(1, o.optInt("batchSize", DEFAULT_BATCH_SIZE));
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream os = exchange.getResponseBody()) {
+            int count = 0;
+            try (Stream<String> results = queryService.stream(query, streamArgs(query, o), limit)) {
+                List<String> batch = new ArrayList<>(batchSize);
+                Iterator<String> it = results.iterator();
+                while (it.hasNext()) {
+                    batch.add(it.next());
+                    count++;
+                    if (batch.size() == batchSize) {
+                        os.write(formatEvent(new JSONArray(batch).toString()));
+                        os.flush();
+                        batch.clear();
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    os.write(formatEvent(new JSONArray(batch).toString()));
+                }
+            } catch (RuntimeException e) {
+                os.write(formatEvent("error", String.valueOf(e.getMessage())));
+                return;
+            }
+            os.write(formatEvent("end", "{\"count\":" + count + "}"));
+        }
+    }
+
+    /**
+     * Items of a page as a JSON array, or as an object with the items and
+     * the cursor of the next page if the request set {@code withCursor}.
+     */
+    private static String pageJson(QueryResult<String> result, Object request) {
+        if (request instanceof JSONObject && ((JSONObject) request).optBoolean("withCursor")) {
+            return pageWithCursor(result);
+        }
+        return new JSONArray(result.getItems()).toString();
+    }
+
+    private static String pageWithCursor(QueryResult<String> result) {
+        JSONObject o = new JSONObject();
+        o.put("items", new JSONArray(result.getItems()));
+        o.put("nextCursor", result.getNextCursor() == null ? JSONObject.NULL : result.getNextCursor());
+        return o.toString();
+    }
 }
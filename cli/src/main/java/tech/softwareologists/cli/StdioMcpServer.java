@@ -1,6 +1,7 @@
 package tech.softwareologists.cli;
 
 import tech.softwareologists.core.ManifestGenerator;
+import tech.softwareologists.core.QueryResult;
 import tech.softwareologists.core.QueryService;
 
 import java.io.BufferedReader;
@@ -76,7 +77,7 @@ public class StdioMcpServer implements Runnable {
                     } else {
                         cls = val.toString();
                     }
-                    printArray(queryService.findCallers(cls, limit, page, pageSize).getItems());
+                    out.println(pageJson(queryService.findCallers(cls, limit, page, pageSize), val));
                     continue;
                 }
                 if (req.has("findImplementations")) {
@@ -94,7 +95,7 @@ public class StdioMcpServer implements Runnable {
                     } else {
                         iface = val.toString();
                     }
-                    printArray(queryService.findImplementations(iface, limit, page, pageSize).getItems());
+                    out.println(pageJson(queryService.findImplementations(iface, limit, page, pageSize), val));
                     continue;
                 }
                 if (req.has("findSubclasses")) {
@@ -114,7 +115,7 @@ public class StdioMcpServer implements Runnable {
                     } else {
                         cls = val.toString();
                     }
-                    printArray(queryService.findSubclasses(cls, depth, limit, page, pageSize).getItems());
+                    out.println(pageJson(queryService.findSubclasses(cls, depth, limit, page, pageSize), val));
                     continue;
                 }
                 if (req.has("findDependencies")) {
@@ -134,7 +135,7 @@ public class StdioMcpServer implements Runnable {
                     } else {
                         cls = val.toString();
                     }
-                    printArray(queryService.findDependencies(cls, depth, limit, page, pageSize).getItems());
+                    out.println(pageJson(queryService.findDependencies(cls, depth, limit, page, pageSize), val));
                     continue;
                 }
                 if (req.has("findPathBetweenClasses")) {
@@ -152,7 +153,7 @@ public class StdioMcpServer implements Runnable {
                     Integer lim = o.has("limit") ? o.getInt("limit") : null;
                     Integer page = o.has("page") ? o.getInt("page") : null;
                     Integer pageSize = o.has("pageSize") ? o.getInt("pageSize") : null;
-                    printArray(queryService.findMethodsCallingMethod(cls, sig, lim, page, pageSize).getItems());
+                    out.println(pageJson(queryService.findMethodsCallingMethod(cls, sig, lim, page, pageSize), o));
                     continue;
                 }
                 if (req.has("findBeansWithAnnotation")) {
@@ -170,7 +171,7 @@ public class StdioMcpServer implements Runnable {
                     } else {
                         ann = val.toString();
                     }
-                    printArray(queryService.findBeansWithAnnotation(ann, limit, page, pageSize).getItems());
+                    out.println(pageJson(queryService.findBeansWithAnnotation(ann, limit, page, pageSize), val));
                     continue;
                 }
                 if (req.has("searchByAnnotation")) {
@@ -180,7 +181,7 @@ public class StdioMcpServer implements Runnable {
                     Integer limit = o.has("limit") ? o.getInt("limit") : null;
                     Integer page = o.has("page") ? o.getInt("page") : null;
                     Integer pageSize = o.has("pageSize") ? o.getInt("pageSize") : null;
-                    printArray(queryService.searchByAnnotation(ann, target, limit, page, pageSize).getItems());
+                    out.println(pageJson(queryService.searchByAnnotation(ann, target, limit, page, pageSize), o));
                     continue;
                 }
                 if (req.has("findHttpEndpoints")) {
@@ -190,7 +191,7 @@ public class StdioMcpServer implements Runnable {
                     Integer limit = o.has("limit") ? o.getInt("limit") : null;
                     Integer page = o.has("page") ? o.getInt("page") : null;
                     Integer pageSize = o.has("pageSize") ? o.getInt("pageSize") : null;
-                    printArray(queryService.findHttpEndpoints(base, verb, limit, page, pageSize).getItems());
+                    out.println(pageJson(queryService.findHttpEndpoints(base, verb, limit, page, pageSize), o));
                     continue;
                 }
                 if (req.has("findControllersUsingService")) {
@@ -208,7 +209,7 @@ public class StdioMcpServer implements Runnable {
                     } else {
                         svc = val.toString();
                     }
-                    printArray(queryService.findControllersUsingService(svc, limit, page, pageSize).getItems());
+                    out.println(pageJson(queryService.findControllersUsingService(svc, limit, page, pageSize), val));
                     continue;
                 }
                 if (req.has("findEventListeners")) {
@@ -226,7 +227,7 @@ public class StdioMcpServer implements Runnable {
                     } else {
                         ev = val.toString();
                     }
-                    printArray(queryService.findEventListeners(ev, limit, page, pageSize).getItems());
+                    out.println(pageJson(queryService.findEventListeners(ev, limit, page, pageSize), val));
                     continue;
                 }
                 if (req.has("findScheduledTasks")) {
@@ -239,7 +240,7 @@ public class StdioMcpServer implements Runnable {
                         page = o.has("page") ? o.getInt("page") : null;
                         pageSize = o.has("pageSize") ? o.getInt("pageSize") : null;
                     }
-                    printArray(queryService.findScheduledTasks(limit, page, pageSize).getItems());
+                    out.println(pageJson(queryService.findScheduledTasks(limit, page, pageSize), o));
                     continue;
                 }
                 if (req.has("findConfigPropertyUsage")) {
@@ -257,7 +258,29 @@ public class StdioMcpServer implements Runnable {
                     } else {
                         key = val.toString();
                     }
-                    printArray(queryService.findConfigPropertyUsage(key, limit, page, pageSize).getItems());
+                    out.println(pageJson(queryService.findConfigPropertyUsage(key, limit, page, pageSize), val));
+                    continue;
+                }
+                if (req.has("searchSymbols")) {
+                    Object val = req.get("searchSymbols");
+                    String query;
+                    String kind = null;
+                    Integer limit = null;
+                    if (val instanceof JSONObject) {
+                        JSONObject o = (JSONObject) val;
+                        query = o.getString("query");
+                        kind = o.has("kind") ? o.getString("kind") : null;
+                        limit = o.has("limit") ? o.getInt("limit") : null;
+                    } else {
+                        query = val.toString();
+                    }
+                    printArray(queryService.searchSymbols(query, kind, limit).getItems());
+                    continue;
+                }
+                if (req.has("nextPage")) {
+                    Object val = req.get("nextPage");
+                    String cursor = val instanceof JSONObject ? ((JSONObject) val).getString("cursor") : val.toString();
+                    out.println(pageWithCursor(queryService.nextPage(cursor)));
                     continue;
                 }
                 if (req.has("getPackageHierarchy")) {
@@ -298,4 +321,22 @@ public class StdioMcpServer implements Runnable {
     private void printArray(List<String> list) {
         out.println(new JSONArray(list).toString());
     }
+
+    /**
+     * Items of a page as a JSON array, or as an object with the items and
+     * the cursor of the next page if the request set {@code withCursor}.
+     */
+    private static String pageJson(QueryResult<String> result, Object request) {
+        if (request instanceof JSONObject && ((JSONObject) request).optBoolean("withCursor")) {
+            return pageWithCursor(result);
+        }
+        return new JSONArray(result.getItems()).toString();
+    }
+
+    private static String pageWithCursor(QueryResult<String> result) {
+        JSONObject o = new JSONObject();
+        o.put("items", new JSONArray(result.getItems()));
+        o.put("nextCursor", result.getNextCursor() == null ? JSONObject.NULL : result.getNextCursor());
+        return o.toString();
+    }
 }
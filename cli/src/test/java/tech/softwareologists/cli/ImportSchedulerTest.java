@@ -0,0 +1,178 @@
+package tech.softwareologists.cli;
+
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class ImportSchedulerTest {
+    @Test
+    public void repeatedSubmissions_coalesceAndSmallArtifactsRunFirst() throws Exception {
+        Path dir = Files.createTempDirectory("sched");
+        Path blocker = Files.write(dir.resolve("blocker.jar"), new byte[1]);
+        Path large = Files.write(dir.resolve("large.jar"), new byte[2048]);
+        Path small = Files.write(dir.resolve("small.jar"), new byte[16]);
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Path> imported = new CopyOnWriteArrayList<>();
+
+        try (ImportScheduler scheduler = new ImportScheduler(p -> {
+            if (p.equals(blocker) && started.getCount() > 0) {
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            imported.add(p);
+        }, p -> {}, 1, 16, 1024)) {
+            scheduler.submitImport(blocker);
+            if (!started.await(5, TimeUnit.SECONDS)) {
+                throw new AssertionError("First job did not start");
+            }
+            scheduler.submitImport(large);
+            scheduler.submitImport(large);
+            scheduler.submitImport(small);
+            scheduler.submitImport(small);
+            scheduler.submitImport(blocker);
+
+            if (scheduler.getQueueDepth() != 2) {
+                throw new AssertionError("Expected 2 queued paths but was " + scheduler.getQueueDepth());
+            }
+            if (!scheduler.getInFlight().equals(Collections.singletonList(blocker))) {
+                throw new AssertionError("Unexpected in-flight jobs " + scheduler.getInFlight());
+            }
+
+            release.countDown();
+            if (!scheduler.awaitIdle(5000)) {
+                throw new AssertionError("Scheduler did not become idle");
+            }
+        }
+
+        if (imported.size() != 4) {
+            throw new AssertionError("Expected 4 imports but got " + imported);
+        }
+        if (imported.indexOf(small) > imported.indexOf(large)) {
+            throw new AssertionError("Small artifact not prioritised: " + imported);
+        }
+    }
+
+    @Test
+    public void largeImportTurnedRemoval_movesToPriorityLane() throws Exception {
+        Path dir = Files.createTempDirectory("schedlane");
+        Path blocker = Files.write(dir.resolve("blocker.jar"), new byte[1]);
+        Path first = Files.write(dir.resolve("first.jar"), new byte[2048]);
+        Path removed = Files.write(dir.resolve("removed.jar"), new byte[2048]);
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> processed = new CopyOnWriteArrayList<>();
+
+        try (ImportScheduler scheduler = new ImportScheduler(p -> {
+            if (p.equals(blocker)) {
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            processed.add("import " + p.getFileName());
+        }, p -> processed.add("remove " + p.getFileName()), 1, 16, 1024)) {
+            scheduler.submitImport(blocker);
+            if (!started.await(5, TimeUnit.SECONDS)) {
+                throw new AssertionError("First job did not start");
+            }
+            scheduler.submitImport(first);
+            scheduler.submitImport(removed);
+            scheduler.submitRemove(removed);
+
+            release.countDown();
+            if (!scheduler.awaitIdle(5000)) {
+                throw new AssertionError("Scheduler did not become idle");
+            }
+        }
+
+        List<String> expected = List.of("import blocker.jar", "remove removed.jar", "import first.jar");
+        if (!processed.equals(expected)) {
+            throw new AssertionError("Expected " + expected + " but was " + processed);
+        }
+    }
+
+    @Test
+    public void fullQueue_defersJobsUntilWorkerFree() throws Exception {
+        Path dir = Files.createTempDirectory("schedfull");
+        Path blocker = Files.write(dir.resolve("blocker.jar"), new byte[1]);
+        Path queued = Files.write(dir.resolve("queued.jar"), new byte[1]);
+        Path removed = dir.resolve("removed.jar");
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> processed = new CopyOnWriteArrayList<>();
+
+        try (ImportScheduler scheduler = new ImportScheduler(p -> {
+            if (p.equals(blocker)) {
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            processed.add("import " + p.getFileName());
+        }, p -> processed.add("remove " + p.getFileName()), 1, 1, 1024)) {
+            scheduler.submitImport(blocker);
+            if (!started.await(5, TimeUnit.SECONDS)) {
+                throw new AssertionError("First job did not start");
+            }
+            if (!scheduler.submitImport(queued) || scheduler.submitRemove(removed)) {
+                throw new AssertionError("Expected only the second job to be deferred");
+            }
+            if (scheduler.getQueueDepth() != 2) {
+                throw new AssertionError("Deferred job not counted: " + scheduler.getQueueDepth());
+            }
+
+            release.countDown();
+            if (!scheduler.awaitIdle(5000)) {
+                throw new AssertionError("Scheduler did not become idle");
+            }
+        }
+
+        List<String> expected = List.of("import blocker.jar", "import queued.jar", "remove removed.jar");
+        if (!processed.equals(expected)) {
+            throw new AssertionError("Expected " + expected + " but was " + processed);
+        }
+    }
+
+    @Test
+    public void close_waitsForRunningJob() throws Exception {
+        Path jar = Files.write(Files.createTempDirectory("schedclose").resolve("slow.jar"), new byte[1]);
+        CountDownLatch started = new CountDownLatch(1);
+        boolean[] finished = new boolean[1];
+
+        ImportScheduler scheduler = new ImportScheduler(p -> {
+            started.countDown();
+            long end = System.currentTimeMillis() + 200;
+            // ignores interrupts like a database write would
+            while (System.currentTimeMillis() < end) {
+                Thread.onSpinWait();
+            }
+            finished[0] = true;
+        }, p -> {});
+        scheduler.submitImport(jar);
+        if (!started.await(5, TimeUnit.SECONDS)) {
+            throw new AssertionError("Job did not start");
+        }
+        scheduler.close();
+        if (!finished[0]) {
+            throw new AssertionError("close returned while the job was running");
+        }
+    }
+}
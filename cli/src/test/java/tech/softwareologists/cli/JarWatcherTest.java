@@ -42,6 +42,36 @@ public class JarWatcherTest {
         }
     }
 
+    @Test
+    public void jarBeingWritten_reportedOnceSettled() throws Exception {
+        Path dir = Files.createTempDirectory("watch-settle");
+        List<Path> reported = java.util.Collections.synchronizedList(new ArrayList<>());
+
+        JarWatcher watcher = new JarWatcher(dir, reported::add, p -> {}, 300);
+        watcher.start();
+
+        Path jar = dir.resolve("growing.jar");
+        Files.createFile(jar);
+        for (int i = 0; i < 8; i++) {
+            Files.write(jar, new byte[1024], java.nio.file.StandardOpenOption.APPEND);
+            Thread.sleep(100);
+        }
+        if (!reported.isEmpty()) {
+            watcher.close();
+            throw new AssertionError("JAR reported while still being written");
+        }
+
+        for (int i = 0; i < 20 && reported.isEmpty(); i++) {
+            Thread.sleep(100);
+        }
+        Thread.sleep(500);
+        watcher.close();
+
+        if (reported.size() != 1 || !reported.get(0).endsWith("growing.jar")) {
+            throw new AssertionError("Expected a single report for growing.jar but was: " + reported);
+        }
+    }
+
     private static class RecordingHandler extends Handler {
         final List<LogRecord> records = new ArrayList<>();
 
@@ -4,6 +4,7 @@ import org.junit.Test;
 import org.neo4j.driver.Driver;
 import org.neo4j.driver.Session;
 import org.neo4j.driver.Record;
+import tech.softwareologists.core.ImportOptions;
 import tech.softwareologists.core.db.EmbeddedNeo4j;
 import tech.softwareologists.core.db.NodeLabel;
 
@@ -85,4 +86,117 @@ public class ProjectDirImporterTest {
             }
         }
     }
+
+    @Test
+    public void importChanges_onlyChangedAndDeletedClasses_areUpdated() throws Exception {
+        Path srcDir = Files.createTempDirectory("srcincr");
+        Path pkgDir = srcDir.resolve("incr");
+        Files.createDirectories(pkgDir);
+        Path aFile = pkgDir.resolve("A.java");
+        Files.write(aFile, "package incr; public class A { public void a() {} }".getBytes(StandardCharsets.UTF_8));
+        Path bFile = pkgDir.resolve("B.java");
+        Files.write(bFile, "package incr; public class B { public void old() { new A().a(); } }".getBytes(StandardCharsets.UTF_8));
+
+        Path outDir = Files.createTempDirectory("incrclasses");
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("Java compiler not available");
+        }
+        if (compiler.run(null, null, null, "-d", outDir.toString(), aFile.toString(), bFile.toString()) != 0) {
+            throw new IllegalStateException("Compilation failed");
+        }
+
+        try (EmbeddedNeo4j db = new EmbeddedNeo4j()) {
+            Driver driver = db.getDriver();
+            ClassFingerprintIndex index = ClassFingerprintIndex.load(
+                    outDir.resolve(ClassFingerprintIndex.DEFAULT_FILE_NAME));
+
+            int first = ProjectDirImporter.importChanges(outDir.toFile(), driver, index, ImportOptions.defaults());
+            if (first != 2) {
+                throw new AssertionError("Expected 2 classes on first import but was: " + first);
+            }
+            int unchanged = ProjectDirImporter.importChanges(outDir.toFile(), driver, index, ImportOptions.defaults());
+            if (unchanged != 0) {
+                throw new AssertionError("Expected no re-imported classes but was: " + unchanged);
+            }
+
+            Files.write(bFile, "package incr; public class B { public void renamed() {} }".getBytes(StandardCharsets.UTF_8));
+            if (compiler.run(null, null, null, "-d", outDir.toString(), "-cp", outDir.toString(), bFile.toString()) != 0) {
+                throw new IllegalStateException("Compilation failed");
+            }
+            Files.delete(outDir.resolve("incr").resolve("A.class"));
+
+            ClassFingerprintIndex reloaded = ClassFingerprintIndex.load(
+                    outDir.resolve(ClassFingerprintIndex.DEFAULT_FILE_NAME));
+            int changed = ProjectDirImporter.importChanges(outDir.toFile(), driver, reloaded, ImportOptions.defaults());
+            if (changed != 1) {
+                throw new AssertionError("Expected 1 re-imported class but was: " + changed);
+            }
+
+            try (Session session = driver.session()) {
+                if (!session.run("MATCH (c:" + NodeLabel.CLASS + " {name:'incr.A'}) RETURN c").list().isEmpty()) {
+                    throw new AssertionError("Deleted class still present");
+                }
+                if (!session.run("MATCH (m:" + NodeLabel.METHOD + " {class:'incr.B', signature:'old()V'}) RETURN m").list().isEmpty()) {
+                    throw new AssertionError("Stale method still present");
+                }
+                if (session.run("MATCH (m:" + NodeLabel.METHOD + " {class:'incr.B', signature:'renamed()V'}) RETURN m").list().isEmpty()) {
+                    throw new AssertionError("New method not imported");
+                }
+            }
+        }
+    }
+
+    @Test
+    public void importChanges_removedMethod_keepsIncomingCalls() throws Exception {
+        Path srcDir = Files.createTempDirectory("srccallee");
+        Path pkgDir = srcDir.resolve("callee");
+        Files.createDirectories(pkgDir);
+        Path calleeFile = pkgDir.resolve("Callee.java");
+        Files.write(calleeFile, "package callee; public class Callee { public void m() {} }".getBytes(StandardCharsets.UTF_8));
+        Path callerFile = pkgDir.resolve("Caller.java");
+        Files.write(callerFile, "package callee; public class Caller { public void n() { new Callee().m(); } }".getBytes(StandardCharsets.UTF_8));
+
+        Path outDir = Files.createTempDirectory("calleeclasses");
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("Java compiler not available");
+        }
+        if (compiler.run(null, null, null, "-d", outDir.toString(), calleeFile.toString(), callerFile.toString()) != 0) {
+            throw new IllegalStateException("Compilation failed");
+        }
+
+        try (EmbeddedNeo4j db = new EmbeddedNeo4j()) {
+            Driver driver = db.getDriver();
+            ClassFingerprintIndex index = ClassFingerprintIndex.load(
+                    outDir.resolve(ClassFingerprintIndex.DEFAULT_FILE_NAME));
+            ProjectDirImporter.importChanges(outDir.toFile(), driver, index, ImportOptions.defaults());
+
+            Files.write(calleeFile, "package callee; public class Callee { public void other() {} }".getBytes(StandardCharsets.UTF_8));
+            if (compiler.run(null, null, null, "-d", outDir.toString(), calleeFile.toString()) != 0) {
+                throw new IllegalStateException("Compilation failed");
+            }
+            int changed = ProjectDirImporter.importChanges(outDir.toFile(), driver, index, ImportOptions.defaults());
+            if (changed != 1) {
+                throw new AssertionError("Expected 1 re-imported class but was: " + changed);
+            }
+
+            try (Session session = driver.session()) {
+                List<Record> rel = session.run(
+                        "MATCH (s:" + NodeLabel.METHOD + " {class:'callee.Caller', signature:'n()V'})-[:CALLS]->(t:" + NodeLabel.METHOD + " {class:'callee.Callee', signature:'m()V'}) RETURN t.simpleName AS name")
+                        .list();
+                if (rel.isEmpty()) {
+                    throw new AssertionError("CALLS edge from unchanged caller dropped");
+                }
+                if (!rel.get(0).get("name").isNull()) {
+                    throw new AssertionError("Removed method kept its properties");
+                }
+                if (session.run("MATCH (m:" + NodeLabel.METHOD + " {class:'callee.Callee', signature:'other()V'}) RETURN m").list().isEmpty()) {
+                    throw new AssertionError("New method not imported");
+                }
+            }
+        }
+    }
 }
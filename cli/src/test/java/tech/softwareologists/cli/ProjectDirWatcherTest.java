@@ -4,6 +4,7 @@ import org.junit.Test;
 import org.neo4j.driver.Driver;
 import org.neo4j.driver.Record;
 import org.neo4j.driver.Session;
+import tech.softwareologists.core.ImportOptions;
 import tech.softwareologists.core.db.EmbeddedNeo4j;
 import tech.softwareologists.core.db.NodeLabel;
 
@@ -68,6 +69,52 @@ public class ProjectDirWatcherTest {
         }
     }
 
+    @Test
+    public void fileDeletion_removesClass() throws Exception {
+        Path dir = Files.createTempDirectory("projwatchdel");
+        Path pkgDir = dir.resolve("q");
+        Files.createDirectories(pkgDir);
+        Path src = pkgDir.resolve("Gone.java");
+        Files.writeString(src, "package q; public class Gone {}\n");
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("Java compiler not available");
+        }
+        if (compiler.run(null, null, null, "-d", dir.toString(), src.toString()) != 0) {
+            throw new IllegalStateException("Compilation failed");
+        }
+
+        Logger logger = Logger.getLogger(ProjectDirWatcher.class.getName());
+        logger.setUseParentHandlers(false);
+        RecordingHandler handler = new RecordingHandler();
+        logger.addHandler(handler);
+
+        try (EmbeddedNeo4j db = new EmbeddedNeo4j()) {
+            Driver driver = db.getDriver();
+            ProjectDirImporter.importChanges(dir.toFile(), driver,
+                    ClassFingerprintIndex.load(dir.resolve(ClassFingerprintIndex.DEFAULT_FILE_NAME)),
+                    ImportOptions.defaults());
+
+            ProjectDirWatcher watcher = new ProjectDirWatcher(dir, driver, 200);
+            watcher.start();
+            Files.delete(pkgDir.resolve("Gone.class"));
+
+            for (int i = 0; i < 20 && handler.records.isEmpty(); i++) {
+                Thread.sleep(100);
+            }
+
+            watcher.close();
+
+            try (Session session = driver.session()) {
+                if (!session.run("MATCH (c:" + NodeLabel.CLASS + " {name:'q.Gone'}) RETURN c").list().isEmpty()) {
+                    throw new AssertionError("Deleted class still present");
+                }
+            }
+        } finally {
+            logger.removeHandler(handler);
+        }
+    }
+
     private static class RecordingHandler extends Handler {
         final List<LogRecord> records = new ArrayList<>();
 
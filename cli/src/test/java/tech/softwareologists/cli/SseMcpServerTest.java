@@ -31,6 +31,7 @@ public class SseMcpServerTest {
             @Override public tech.softwareologists.core.QueryResult<String> findEventListeners(String eventType, Integer limit, Integer page, Integer pageSize){ return new tech.softwareologists.core.QueryResult<>(Collections.emptyList(),1,0,0); }
             @Override public tech.softwareologists.core.QueryResult<String> findScheduledTasks(Integer limit, Integer page, Integer pageSize){ return new tech.softwareologists.core.QueryResult<>(Collections.emptyList(),1,0,0); }
             @Override public tech.softwareologists.core.QueryResult<String> findConfigPropertyUsage(String propertyKey, Integer limit, Integer page, Integer pageSize){ return new tech.softwareologists.core.QueryResult<>(Collections.emptyList(),1,0,0); }
+            @Override public tech.softwareologists.core.QueryResult<String> searchSymbols(String query, String kind, Integer limit){ return new tech.softwareologists.core.QueryResult<>(Collections.emptyList(),1,0,0); }
             @Override public String getPackageHierarchy(String rootPackage, Integer depth){ return "{}"; }
             @Override public String getGraphStatistics(Integer topN){ return "{}"; }
             @Override public void exportGraph(String format, String outputPath) {}
@@ -86,6 +87,7 @@ public class SseMcpServerTest {
             @Override public tech.softwareologists.core.QueryResult<String> findEventListeners(String eventType, Integer limit, Integer page, Integer pageSize){ return new tech.softwareologists.core.QueryResult<>(Collections.emptyList(),1,0,0); }
             @Override public tech.softwareologists.core.QueryResult<String> findScheduledTasks(Integer limit, Integer page, Integer pageSize){ return new tech.softwareologists.core.QueryResult<>(Collections.emptyList(),1,0,0); }
             @Override public tech.softwareologists.core.QueryResult<String> findConfigPropertyUsage(String propertyKey, Integer limit, Integer page, Integer pageSize){ return new tech.softwareologists.core.QueryResult<>(Collections.emptyList(),1,0,0); }
+            @Override public tech.softwareologists.core.QueryResult<String> searchSymbols(String query, String kind, Integer limit){ return new tech.softwareologists.core.QueryResult<>(Collections.emptyList(),1,0,0); }
             @Override public String getPackageHierarchy(String rootPackage, Integer depth){ return "{}"; }
             @Override public String getGraphStatistics(Integer topN){ return "{}"; }
             @Override public void exportGraph(String format, String outputPath) {}
@@ -103,4 +105,51 @@ public class SseMcpServerTest {
         client.send(req, HttpResponse.BodyHandlers.ofString());
         server.stop();
     }
+
+    @Test
+    public void streamedQuery_sendsBatchesAndEndEvent() throws Exception {
+        boolean[] closed = new boolean[1];
+        QueryService qs = new QueryService() {
+            @Override
+            public java.util.stream.Stream<String> stream(tech.softwareologists.core.PagedQuery query, java.util.List<Object> args, Integer limit) {
+                if (query != tech.softwareologists.core.PagedQuery.FIND_DEPENDENCIES || !java.util.Arrays.asList("A", 2).equals(args) || limit != null) {
+                    throw new AssertionError("Unexpected stream " + query + args + limit);
+                }
+                return java.util.stream.Stream.of("X", "Y", "Z").onClose(() -> closed[0] = true);
+            }
+            @Override public tech.softwareologists.core.QueryResult<String> findCallers(String className, Integer limit, Integer page, Integer pageSize){ return new tech.softwareologists.core.QueryResult<>(Collections.emptyList(),1,0,0); }
+            @Override public tech.softwareologists.core.QueryResult<String> findImplementations(String interfaceName, Integer limit, Integer page, Integer pageSize){ return new tech.softwareologists.core.QueryResult<>(Collections.emptyList(),1,0,0); }
+            @Override public tech.softwareologists.core.QueryResult<String> findSubclasses(String className, int depth, Integer limit, Integer page, Integer pageSize){ return new tech.softwareologists.core.QueryResult<>(Collections.emptyList(),1,0,0); }
+            @Override public tech.softwareologists.core.QueryResult<String> findDependencies(String className, Integer depth, Integer limit, Integer page, Integer pageSize){ return new tech.softwareologists.core.QueryResult<>(Collections.emptyList(),1,0,0); }
+            @Override public tech.softwareologists.core.QueryResult<String> findPathBetweenClasses(String fromClass, String toClass, Integer maxDepth){ return new tech.softwareologists.core.QueryResult<>(Collections.emptyList(),1,0,0); }
+            @Override public tech.softwareologists.core.QueryResult<String> findMethodsCallingMethod(String className, String methodSignature, Integer limit, Integer page, Integer pageSize){ return new tech.softwareologists.core.QueryResult<>(Collections.emptyList(),1,0,0); }
+            @Override public tech.softwareologists.core.QueryResult<String> findBeansWithAnnotation(String annotation, Integer limit, Integer page, Integer pageSize){ return new tech.softwareologists.core.QueryResult<>(Collections.emptyList(),1,0,0); }
+            @Override public tech.softwareologists.core.QueryResult<String> searchByAnnotation(String annotation, String targetType, Integer limit, Integer page, Integer pageSize){ return new tech.softwareologists.core.QueryResult<>(Collections.emptyList(),1,0,0); }
+            @Override public tech.softwareologists.core.QueryResult<String> findHttpEndpoints(String basePath, String httpMethod, Integer limit, Integer page, Integer pageSize){ return new tech.softwareologists.core.QueryResult<>(Collections.emptyList(),1,0,0); }
+            @Override public tech.softwareologists.core.QueryResult<String> findControllersUsingService(String serviceClassName, Integer limit, Integer page, Integer pageSize){ return new tech.softwareologists.core.QueryResult<>(Collections.emptyList(),1,0,0); }
+            @Override public tech.softwareologists.core.QueryResult<String> findEventListeners(String eventType, Integer limit, Integer page, Integer pageSize){ return new tech.softwareologists.core.QueryResult<>(Collections.emptyList(),1,0,0); }
+            @Override public tech.softwareologists.core.QueryResult<String> findScheduledTasks(Integer limit, Integer page, Integer pageSize){ return new tech.softwareologists.core.QueryResult<>(Collections.emptyList(),1,0,0); }
+            @Override public tech.softwareologists.core.QueryResult<String> findConfigPropertyUsage(String propertyKey, Integer limit, Integer page, Integer pageSize){ return new tech.softwareologists.core.QueryResult<>(Collections.emptyList(),1,0,0); }
+            @Override public tech.softwareologists.core.QueryResult<String> searchSymbols(String query, String kind, Integer limit){ return new tech.softwareologists.core.QueryResult<>(Collections.emptyList(),1,0,0); }
+            @Override public String getPackageHierarchy(String rootPackage, Integer depth){ return "{}"; }
+            @Override public String getGraphStatistics(Integer topN){ return "{}"; }
+            @Override public void exportGraph(String format, String outputPath) {}
+        };
+        SseMcpServer server = new SseMcpServer(0, qs);
+        server.start();
+        int port = server.getPort();
+        HttpClient client = HttpClient.newHttpClient();
+        String body = "{\"findDependencies\":{\"className\":\"A\",\"depth\":2,\"stream\":true,\"batchSize\":2}}";
+        HttpRequest req = HttpRequest.newBuilder()
+                .uri(new URI("http://localhost:" + port + "/mcp/query"))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/json")
+                .build();
+        String events = client.send(req, HttpResponse.BodyHandlers.ofString()).body().replace("\r", "").trim();
+        server.stop();
+        String expected = "data: [\"X\",\"Y\"]\n\ndata: [\"Z\"]\n\nevent: end\ndata: {\"count\":3}";
+        if (!expected.equals(events) || !closed[0]) {
+            throw new AssertionError("Unexpected events: " + events + " closed=" + closed[0]);
+        }
+    }
 }
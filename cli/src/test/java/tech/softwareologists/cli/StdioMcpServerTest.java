@@ -82,6 +82,11 @@ public class StdioMcpServerTest {
                 return new tech.softwareologists.core.QueryResult<>(java.util.Collections.emptyList(),1,0,0);
             }
 
+            @Override
+            public tech.softwareologists.core.QueryResult<String> searchSymbols(String query, String kind, Integer limit) {
+                return new tech.softwareologists.core.QueryResult<>(java.util.Collections.emptyList(),1,0,0);
+            }
+
             @Override
             public String getPackageHierarchy(String rootPackage, Integer depth) {
                 return "{}";
@@ -183,6 +188,11 @@ public class StdioMcpServerTest {
                 return new tech.softwareologists.core.QueryResult<>(java.util.Collections.emptyList(),1,0,0);
             }
 
+            @Override
+            public tech.softwareologists.core.QueryResult<String> searchSymbols(String query, String kind, Integer limit) {
+                return new tech.softwareologists.core.QueryResult<>(java.util.Collections.emptyList(),1,0,0);
+            }
+
             @Override
             public String getPackageHierarchy(String rootPackage, Integer depth) {
                 return "{}";
@@ -284,6 +294,11 @@ public class StdioMcpServerTest {
                 return new tech.softwareologists.core.QueryResult<>(java.util.Collections.emptyList(),1,0,0);
             }
 
+            @Override
+            public tech.softwareologists.core.QueryResult<String> searchSymbols(String query, String kind, Integer limit) {
+                return new tech.softwareologists.core.QueryResult<>(java.util.Collections.emptyList(),1,0,0);
+            }
+
             @Override
             public String getPackageHierarchy(String rootPackage, Integer depth) {
                 return "{}";
@@ -378,6 +393,11 @@ public class StdioMcpServerTest {
                 return new tech.softwareologists.core.QueryResult<>(java.util.Collections.emptyList(),1,0,0);
             }
 
+            @Override
+            public tech.softwareologists.core.QueryResult<String> searchSymbols(String query, String kind, Integer limit) {
+                return new tech.softwareologists.core.QueryResult<>(java.util.Collections.emptyList(),1,0,0);
+            }
+
             @Override
             public String getPackageHierarchy(String rootPackage, Integer depth) {
                 return "{}";
@@ -11,7 +11,6 @@ java {
 }
 
 dependencies {
-    implementation("io.github.classgraph:classgraph:4.8.180")
     implementation("org.ow2.asm:asm:9.7")
     implementation("org.neo4j.test:neo4j-harness:5.19.0")
     api("org.neo4j.driver:neo4j-java-driver:5.19.0")
@@ -0,0 +1,219 @@
+package tech.softwareologists.core;
+
+import tech.softwareologists.core.db.EdgeType;
+import tech.softwareologists.core.db.GraphStore;
+import tech.softwareologists.core.db.NodeLabel;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads the facts previously written for an artifact and writes only the
+ * difference to a new set of facts.
+ */
+final class ArtifactDelta {
+    private ArtifactDelta() {
+        // utility class
+    }
+
+    /**
+     * Rebuild the facts tagged with the given artifact, keyed by class name.
+     */
+    static Map<String, ClassFacts> load(GraphStore store, String artifact) {
+        Map<String, Builder> builders = new LinkedHashMap<>();
+        java.util.function.Function<String, Builder> builder = name -> builders.computeIfAbsent(name, Builder::new);
+
+        for (Map<String, Object> r : store.query(
+                "MATCH (c:" + NodeLabel.CLASS + " {artifact:$a}) " +
+                        "OPTIONAL MATCH (p:" + NodeLabel.PACKAGE + ")-[r:CONTAINS {artifact:$a}]->(c) " +
+                        "RETURN c.name AS name, c.annotations AS annotations, " +
+                        "c.configProperties AS configProperties, p.name AS pkg",
+                Collections.singletonMap("a", artifact))) {
+            Builder b = builder.apply((String) r.get("name"));
+            b.packageName = r.get("pkg") == null ? "" : (String) r.get("pkg");
+            b.annotations = strings(r.get("annotations"));
+            b.configProperties = strings(r.get("configProperties"));
+        }
+
+        for (Map<String, Object> r : store.query(
+                "MATCH (c:" + NodeLabel.CLASS + " {artifact:$a})-[r]->(t:" + NodeLabel.CLASS + ") " +
+                        "WHERE r.artifact = $a RETURN c.name AS src, type(r) AS type, t.name AS tgt",
+                Collections.singletonMap("a", artifact))) {
+            Builder b = builder.apply((String) r.get("src"));
+            String tgt = (String) r.get("tgt");
+            switch (EdgeType.valueOf((String) r.get("type"))) {
+                case DEPENDS_ON:
+                    b.dependencies.add(tgt);
+                    break;
+                case USES:
+                    b.uses.add(tgt);
+                    break;
+                case IMPLEMENTS:
+                    b.interfaces.add(tgt);
+                    break;
+                case EXTENDS:
+                    b.superclass = tgt;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        Map<String, Map<String, List<String>>> calls = new LinkedHashMap<>();
+        for (Map<String, Object> r : store.query(
+                "MATCH (m:" + NodeLabel.METHOD + " {artifact:$a})-[r:" + EdgeType.CALLS + " {artifact:$a}]->(t:" + NodeLabel.METHOD + ") " +
+                        "RETURN m.class AS cls, m.signature AS sig, t.class AS tcls, t.signature AS tsig",
+                Collections.singletonMap("a", artifact))) {
+            calls.computeIfAbsent((String) r.get("cls"), k -> new LinkedHashMap<>())
+                    .computeIfAbsent((String) r.get("sig"), k -> new ArrayList<>())
+                    .add(r.get("tcls") + "|" + r.get("tsig"));
+        }
+
+        for (Map<String, Object> r : store.query(
+                "MATCH (m:" + NodeLabel.METHOD + " {artifact:$a}) " +
+                        "RETURN m.class AS cls, m.signature AS sig, m.annotations AS annotations, " +
+                        "m.httpRoute AS httpRoute, m.httpMethod AS httpMethod, m.eventType AS eventType, " +
+                        "m.cron AS cron, m.configProperties AS configProperties",
+                Collections.singletonMap("a", artifact))) {
+            String cls = (String) r.get("cls");
+            String sig = (String) r.get("sig");
+            List<String> methodCalls = calls.getOrDefault(cls, Collections.emptyMap())
+                    .getOrDefault(sig, Collections.emptyList());
+            builder.apply(cls).methods.add(new ClassFacts.MethodFacts(sig, strings(r.get("annotations")),
+                    (String) r.get("httpRoute"), (String) r.get("httpMethod"),
+                    (String) r.get("eventType"), (String) r.get("cron"),
+                    strings(r.get("configProperties")), methodCalls));
+        }
+
+        Map<String, ClassFacts> facts = new LinkedHashMap<>();
+        for (Builder b : builders.values()) {
+            facts.put(b.name, b.build());
+        }
+        return facts;
+    }
+
+    /**
+     * Buffer the changes needed to turn {@code previous} into {@code current}.
+     * Either side may be {@code null} for an added or removed class.
+     */
+    static void write(GraphBatchWriter writer, ClassFacts previous, ClassFacts current) {
+        if (previous == null) {
+            writer.write(current);
+            return;
+        }
+        String cls = previous.getName();
+        ClassFacts next = current != null ? current
+                : new ClassFacts(cls, null, null, null, null, null, null, null, null);
+
+        if (!previous.getPackageName().equals(next.getPackageName())) {
+            if (!previous.getPackageName().isEmpty()) {
+                writer.deletePackage(previous.getPackageName(), cls);
+            }
+            if (!next.getPackageName().isEmpty()) {
+                writer.addPackage(next.getPackageName(), cls);
+            }
+        }
+
+        Map<String, ClassFacts.MethodFacts> oldMethods = methodsBySignature(previous);
+        Map<String, ClassFacts.MethodFacts> newMethods = methodsBySignature(next);
+        for (ClassFacts.MethodFacts method : oldMethods.values()) {
+            ClassFacts.MethodFacts replacement = newMethods.get(method.getSignature());
+            Collection<String> keptCalls = replacement == null ? Collections.emptySet() : replacement.getCalls();
+            for (String call : difference(method.getCalls(), keptCalls)) {
+                int idx = call.indexOf('|');
+                writer.deleteCall(cls, method.getSignature(), call.substring(0, idx), call.substring(idx + 1));
+            }
+            if (replacement == null || !method.getProperties().equals(replacement.getProperties())) {
+                writer.clearMethod(cls, method.getSignature());
+            }
+            if (replacement == null) {
+                writer.deleteMethod(cls, method.getSignature());
+            }
+        }
+        for (ClassFacts.MethodFacts method : newMethods.values()) {
+            ClassFacts.MethodFacts original = oldMethods.get(method.getSignature());
+            if (original == null || !original.getProperties().equals(method.getProperties())) {
+                writer.addMethod(cls, method.getSignature(), method.getProperties());
+            }
+            Collection<String> oldCalls = original == null ? Collections.emptySet() : original.getCalls();
+            for (String call : difference(method.getCalls(), oldCalls)) {
+                int idx = call.indexOf('|');
+                writer.addCall(cls, method.getSignature(), call.substring(0, idx), call.substring(idx + 1));
+            }
+        }
+
+        writeEdges(writer, EdgeType.DEPENDS_ON, cls, previous.getDependencies(), next.getDependencies());
+        writeEdges(writer, EdgeType.USES, cls, previous.getUses(), next.getUses());
+        writeEdges(writer, EdgeType.IMPLEMENTS, cls, previous.getInterfaces(), next.getInterfaces());
+        writeEdges(writer, EdgeType.EXTENDS, cls, single(previous.getSuperclass()), single(next.getSuperclass()));
+
+        if (current == null) {
+            writer.clearClass(cls);
+            writer.deleteClass(cls);
+        } else if (!previous.getProperties().equals(current.getProperties())) {
+            writer.clearClass(cls);
+            writer.addClass(cls, current.getProperties());
+        }
+        writer.endClass();
+    }
+
+    private static void writeEdges(GraphBatchWriter writer, EdgeType type, String cls,
+                                   Collection<String> previous, Collection<String> current) {
+        for (String tgt : difference(previous, current)) {
+            writer.deleteClassEdge(type, cls, tgt);
+        }
+        for (String tgt : difference(current, previous)) {
+            writer.addClassEdge(type, cls, tgt);
+        }
+    }
+
+    private static Map<String, ClassFacts.MethodFacts> methodsBySignature(ClassFacts facts) {
+        Map<String, ClassFacts.MethodFacts> methods = new LinkedHashMap<>();
+        for (ClassFacts.MethodFacts method : facts.getMethods()) {
+            methods.put(method.getSignature(), method);
+        }
+        return methods;
+    }
+
+    private static Set<String> difference(Collection<String> values, Collection<String> minus) {
+        Set<String> result = new java.util.LinkedHashSet<>(values);
+        result.removeAll(new HashSet<>(minus));
+        return result;
+    }
+
+    private static List<String> single(String value) {
+        return value == null ? Collections.emptyList() : Collections.singletonList(value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> strings(Object value) {
+        return value == null ? Collections.emptyList() : (List<String>) value;
+    }
+
+    private static final class Builder {
+        private final String name;
+        private String packageName = "";
+        private List<String> annotations = Collections.emptyList();
+        private List<String> configProperties = Collections.emptyList();
+        private final List<ClassFacts.MethodFacts> methods = new ArrayList<>();
+        private final Set<String> dependencies = new java.util.LinkedHashSet<>();
+        private final Set<String> uses = new java.util.LinkedHashSet<>();
+        private final Set<String> interfaces = new java.util.LinkedHashSet<>();
+        private String superclass;
+
+        private Builder(String name) {
+            this.name = name;
+        }
+
+        private ClassFacts build() {
+            return new ClassFacts(name, packageName, annotations, configProperties, methods,
+                    dependencies, uses, interfaces, superclass);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package tech.softwareologists.core;
+
+import org.neo4j.driver.Driver;
+import tech.softwareologists.core.db.GraphStore;
+import tech.softwareologists.core.db.NodeLabel;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Content hash of an artifact together with the version of the importer that
+ * produced its facts. Fingerprints are stored as provenance on
+ * {@link NodeLabel#ARTIFACT} nodes so unchanged artifacts can be skipped.
+ */
+public final class ArtifactFingerprint {
+    /**
+     * Version of the facts written by the importers. Bump it whenever the
+     * extracted facts change so existing artifacts are imported again.
+     */
+    public static final int SCHEMA_VERSION = 3;
+
+    private final String path;
+    private final String sha256;
+    private final long size;
+    private final int schemaVersion;
+
+    public ArtifactFingerprint(String path, String sha256, long size, int schemaVersion) {
+        this.path = path;
+        this.sha256 = sha256;
+        this.size = size;
+        this.schemaVersion = schemaVersion;
+    }
+
+    /**
+     * Compute the fingerprint of a file with the current schema version.
+     *
+     * @param file artifact to hash
+     * @return fingerprint keyed by the absolute path of the file
+     * @throws IOException if the file cannot be read
+     */
+    public static ArtifactFingerprint of(File file) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buf = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                digest.update(buf, 0, n);
+            }
+        }
+        return new ArtifactFingerprint(file.getAbsolutePath(), hex(digest.digest()), file.length(), SCHEMA_VERSION);
+    }
+
+    /**
+     * Load the fingerprint recorded for the given path.
+     *
+     * @return the stored fingerprint or {@code null} if the artifact was never imported
+     */
+    public static ArtifactFingerprint load(GraphStore store, String path) {
+        List<Map<String, Object>> records = store.query(
+                "MATCH (a:" + NodeLabel.ARTIFACT + " {path:$path}) " +
+                        "RETURN a.sha256 AS sha256, a.size AS size, a.schemaVersion AS schemaVersion",
+                Collections.singletonMap("path", path));
+        if (records.isEmpty()) {
+            return null;
+        }
+        Map<String, Object> r = records.get(0);
+        Number size = (Number) r.get("size");
+        Number version = (Number) r.get("schemaVersion");
+        return new ArtifactFingerprint(path, (String) r.get("sha256"),
+                size == null ? 0L : size.longValue(), version == null ? 0 : version.intValue());
+    }
+
+    /** Load the fingerprint recorded for the given path through a driver. */
+    public static ArtifactFingerprint load(Driver driver, String path) {
+        return load(GraphStore.of(driver), path);
+    }
+
+    /** Record this fingerprint on the artifact node, creating it if needed. */
+    public void store(GraphStore store) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("path", path);
+        params.put("sha256", sha256);
+        params.put("size", size);
+        params.put("schemaVersion", schemaVersion);
+        store.write(tx -> tx.run("MERGE (a:" + NodeLabel.ARTIFACT + " {path:$path}) " +
+                "SET a.sha256 = $sha256, a.size = $size, a.schemaVersion = $schemaVersion, " +
+                "a.importedAt = timestamp()", params));
+    }
+
+    /** Delete the artifact node recorded for the given path. */
+    public static void delete(GraphStore store, String path) {
+        store.write(tx -> tx.run("MATCH (a:" + NodeLabel.ARTIFACT + " {path:$path}) DELETE a",
+                Collections.singletonMap("path", path)));
+    }
+
+    /** Whether both fingerprints describe the same content imported by the same schema. */
+    public boolean matches(ArtifactFingerprint other) {
+        return other != null && sha256.equals(other.sha256) && schemaVersion == other.schemaVersion;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public int getSchemaVersion() {
+        return schemaVersion;
+    }
+
+    /** Compute the hex encoded SHA-256 hash of the given bytes. */
+    public static String sha256(byte[] bytes) {
+        return hex(newDigest().digest(bytes));
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] digest) {
+        StringBuilder sb = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return path + " sha256=" + sha256 + " schemaVersion=" + schemaVersion;
+    }
+}
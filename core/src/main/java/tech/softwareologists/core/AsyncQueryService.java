@@ -0,0 +1,64 @@
+package tech.softwareologists.core;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Non-blocking variant of {@link QueryService}.
+ *
+ * <p>Each method starts its query and returns at once. The returned stage
+ * completes when the database has answered, so no thread waits on the
+ * database and a small pool can keep many queries in flight. Parameters and
+ * results are those of the {@link QueryService} method of the same name
+ * without the {@code Async} suffix. A failed query completes the stage
+ * exceptionally instead of throwing.</p>
+ */
+public interface AsyncQueryService {
+    CompletionStage<QueryResult<String>> findCallersAsync(String className, Integer limit, Integer page, Integer pageSize);
+
+    CompletionStage<QueryResult<String>> findImplementationsAsync(String interfaceName, Integer limit, Integer page, Integer pageSize);
+
+    CompletionStage<QueryResult<String>> findSubclassesAsync(String className, int depth, Integer limit, Integer page, Integer pageSize);
+
+    CompletionStage<QueryResult<String>> findDependenciesAsync(String className, Integer depth, Integer limit, Integer page, Integer pageSize);
+
+    CompletionStage<QueryResult<String>> findPathBetweenClassesAsync(String fromClass, String toClass, Integer maxDepth);
+
+    CompletionStage<QueryResult<String>> findMethodsCallingMethodAsync(String className, String methodSignature, Integer limit, Integer page, Integer pageSize);
+
+    CompletionStage<QueryResult<String>> findBeansWithAnnotationAsync(String annotation, Integer limit, Integer page, Integer pageSize);
+
+    CompletionStage<QueryResult<String>> searchByAnnotationAsync(String annotation, String targetType, Integer limit, Integer page, Integer pageSize);
+
+    CompletionStage<QueryResult<String>> findHttpEndpointsAsync(String basePath, String httpMethod, Integer limit, Integer page, Integer pageSize);
+
+    CompletionStage<QueryResult<String>> findControllersUsingServiceAsync(String serviceClassName, Integer limit, Integer page, Integer pageSize);
+
+    CompletionStage<QueryResult<String>> findEventListenersAsync(String eventType, Integer limit, Integer page, Integer pageSize);
+
+    CompletionStage<QueryResult<String>> findScheduledTasksAsync(Integer limit, Integer page, Integer pageSize);
+
+    CompletionStage<QueryResult<String>> findConfigPropertyUsageAsync(String propertyKey, Integer limit, Integer page, Integer pageSize);
+
+    CompletionStage<QueryResult<String>> searchSymbolsAsync(String query, String kind, Integer limit);
+
+    CompletionStage<QueryResult<String>> nextPageAsync(String cursor);
+
+    CompletionStage<String> getPackageHierarchyAsync(String rootPackage, Integer depth);
+
+    CompletionStage<String> getGraphStatisticsAsync(Integer topN);
+
+    /**
+     * Return the service itself if it answers asynchronously, otherwise an
+     * adapter that runs each query in the calling thread and returns a
+     * completed stage. The adapter suits services that never wait on I/O,
+     * such as the in-memory graph.
+     *
+     * @param service service to query
+     */
+    static AsyncQueryService of(QueryService service) {
+        if (service instanceof AsyncQueryService) {
+            return (AsyncQueryService) service;
+        }
+        return new BlockingAsyncQueryService(service);
+    }
+}
@@ -0,0 +1,110 @@
+package tech.softwareologists.core;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+
+/**
+ * {@link AsyncQueryService} answering each query in the calling thread
+ * through a {@link QueryService}, see {@link AsyncQueryService#of(QueryService)}.
+ */
+class BlockingAsyncQueryService implements AsyncQueryService {
+    private final QueryService delegate;
+
+    BlockingAsyncQueryService(QueryService delegate) {
+        this.delegate = delegate;
+    }
+
+    private static <T> CompletionStage<T> complete(Supplier<T> query) {
+        try {
+            return CompletableFuture.completedFuture(query.get());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> findCallersAsync(String className, Integer limit, Integer page, Integer pageSize) {
+        return complete(() -> delegate.findCallers(className, limit, page, pageSize));
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> findImplementationsAsync(String interfaceName, Integer limit, Integer page, Integer pageSize) {
+        return complete(() -> delegate.findImplementations(interfaceName, limit, page, pageSize));
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> findSubclassesAsync(String className, int depth, Integer limit, Integer page, Integer pageSize) {
+        return complete(() -> delegate.findSubclasses(className, depth, limit, page, pageSize));
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> findDependenciesAsync(String className, Integer depth, Integer limit, Integer page, Integer pageSize) {
+        return complete(() -> delegate.findDependencies(className, depth, limit, page, pageSize));
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> findPathBetweenClassesAsync(String fromClass, String toClass, Integer maxDepth) {
+        return complete(() -> delegate.findPathBetweenClasses(fromClass, toClass, maxDepth));
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> findMethodsCallingMethodAsync(String className, String methodSignature, Integer limit, Integer page, Integer pageSize) {
+        return complete(() -> delegate.findMethodsCallingMethod(className, methodSignature, limit, page, pageSize));
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> findBeansWithAnnotationAsync(String annotation, Integer limit, Integer page, Integer pageSize) {
+        return complete(() -> delegate.findBeansWithAnnotation(annotation, limit, page, pageSize));
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> searchByAnnotationAsync(String annotation, String targetType, Integer limit, Integer page, Integer pageSize) {
+        return complete(() -> delegate.searchByAnnotation(annotation, targetType, limit, page, pageSize));
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> findHttpEndpointsAsync(String basePath, String httpMethod, Integer limit, Integer page, Integer pageSize) {
+        return complete(() -> delegate.findHttpEndpoints(basePath, httpMethod, limit, page, pageSize));
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> findControllersUsingServiceAsync(String serviceClassName, Integer limit, Integer page, Integer pageSize) {
+        return complete(() -> delegate.findControllersUsingService(serviceClassName, limit, page, pageSize));
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> findEventListenersAsync(String eventType, Integer limit, Integer page, Integer pageSize) {
+        return complete(() -> delegate.findEventListeners(eventType, limit, page, pageSize));
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> findScheduledTasksAsync(Integer limit, Integer page, Integer pageSize) {
+        return complete(() -> delegate.findScheduledTasks(limit, page, pageSize));
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> findConfigPropertyUsageAsync(String propertyKey, Integer limit, Integer page, Integer pageSize) {
+        return complete(() -> delegate.findConfigPropertyUsage(propertyKey, limit, page, pageSize));
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> searchSymbolsAsync(String query, String kind, Integer limit) {
+        return complete(() -> delegate.searchSymbols(query, kind, limit));
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> nextPageAsync(String cursor) {
+        return complete(() -> delegate.nextPage(cursor));
+    }
+
+    @Override
+    public CompletionStage<String> getPackageHierarchyAsync(String rootPackage, Integer depth) {
+        return complete(() -> delegate.getPackageHierarchy(rootPackage, depth));
+    }
+
+    @Override
+    public CompletionStage<String> getGraphStatisticsAsync(Integer topN) {
+        return complete(() -> delegate.getGraphStatistics(topN));
+    }
+}
@@ -0,0 +1,316 @@
+package tech.softwareologists.core;
+
+import org.neo4j.driver.Driver;
+import tech.softwareologists.core.db.EdgeType;
+import tech.softwareologists.core.db.EmbeddedNeo4j;
+import tech.softwareologists.core.db.GraphStore;
+import tech.softwareologists.core.db.NodeLabel;
+
+import java.io.File;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Offline loader for the first import of a large code base into an empty
+ * database.
+ *
+ * <p>All JARs are parsed in parallel and the resulting graph is built in
+ * memory first: nodes are deduplicated by their identity and numbered,
+ * and every relationship refers to those numbers. The graph is then written
+ * with plain {@code CREATE} statements, looking up relationship endpoints by
+ * element id, so no {@code MERGE} and no index lookup is needed. Indexes
+ * should be created once the load has finished, see
+ * {@link EmbeddedNeo4j#createIndexes()}.</p>
+ *
+ * <p>Neo4j 5 no longer ships the batch inserter, so the store is written
+ * through the embedded database rather than by writing store files
+ * directly.</p>
+ */
+public final class BulkLoader {
+    private static final Logger LOGGER = Logger.getLogger(BulkLoader.class.getName());
+
+    private static final String CONTAINS = "CONTAINS";
+
+    private BulkLoader() {
+        // utility class
+    }
+
+    /**
+     * Load the given JARs into an empty database and record their
+     * fingerprints, so later imports can skip or replace them.
+     *
+     * @param jars the JAR files to load
+     * @param store store of a database without any nodes
+     * @param options batch size and parallelism settings
+     * @return number of classes loaded from the JARs
+     * @throws IllegalStateException if the database is not empty
+     */
+    public static int load(List<File> jars, GraphStore store, ImportOptions options) {
+        long existing = ((Number) store.query("MATCH (n) RETURN count(n) AS c", Collections.emptyMap())
+                .get(0).get("c")).longValue();
+        if (existing > 0) {
+            throw new IllegalStateException("Bulk load requires an empty database but found " + existing + " nodes");
+        }
+
+        List<ArtifactFingerprint> fingerprints = jars.parallelStream()
+                .map(BulkLoader::fingerprint)
+                .collect(Collectors.toList());
+        long start = System.nanoTime();
+        Graph graph = new Graph();
+        List<JarFile> jarFiles = new ArrayList<>();
+        try {
+            List<Map.Entry<JarFile, JarEntry>> sources = new ArrayList<>();
+            Map<JarFile, Set<String>> scanned = new HashMap<>();
+            for (ArtifactFingerprint fingerprint : fingerprints) {
+                JarFile jarFile = new JarFile(fingerprint.getPath());
+                jarFiles.add(jarFile);
+                List<JarEntry> entries = JarImporter.classEntries(jarFile);
+                scanned.put(jarFile, JarImporter.classNames(entries));
+                for (JarEntry entry : entries) {
+                    sources.add(new AbstractMap.SimpleImmutableEntry<>(jarFile, entry));
+                }
+            }
+            LOGGER.info("Bulk loading " + jars.size() + " JARs with " + sources.size() + " classes");
+            ImportPipeline.run(sources,
+                    source -> JarImporter.parse(source.getKey(), source.getValue(), scanned.get(source.getKey())),
+                    (source, facts) -> graph.add(facts, source.getKey().getName()), options);
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Failed to bulk load JARs", e);
+            throw new RuntimeException(e);
+        } finally {
+            for (JarFile jarFile : jarFiles) {
+                try {
+                    jarFile.close();
+                } catch (java.io.IOException e) {
+                    LOGGER.log(Level.WARNING, "Failed to close " + jarFile.getName(), e);
+                }
+            }
+        }
+        long parsed = System.nanoTime();
+
+        List<String> classIds = createNodes(store, NodeLabel.CLASS, graph.classes, options);
+        List<String> packageIds = createNodes(store, NodeLabel.PACKAGE, graph.packages, options);
+        List<String> methodIds = createNodes(store, NodeLabel.METHOD, graph.methods, options);
+        List<String> annotationIds = createNodes(store, NodeLabel.ANNOTATION, graph.annotations, options);
+        List<String> propertyIds = createNodes(store, NodeLabel.CONFIG_PROPERTY, graph.configProperties, options);
+        createRelationships(store, CONTAINS, graph.contains, packageIds, classIds, options);
+        createRelationships(store, EdgeType.CALLS.name(), graph.calls, methodIds, methodIds, options);
+        createRelationships(store, EdgeType.ANNOTATED_WITH.name(), graph.annotatedClasses, classIds, annotationIds, options);
+        createRelationships(store, EdgeType.ANNOTATED_WITH.name(), graph.annotatedMethods, methodIds, annotationIds, options);
+        createRelationships(store, EdgeType.USES_CONFIG.name(), graph.classConfig, classIds, propertyIds, options);
+        createRelationships(store, EdgeType.USES_CONFIG.name(), graph.methodConfig, methodIds, propertyIds, options);
+        for (Map.Entry<EdgeType, Map<Long, String>> edges : graph.classEdges.entrySet()) {
+            createRelationships(store, edges.getKey().name(), edges.getValue(), classIds, classIds, options);
+        }
+        for (ArtifactFingerprint fingerprint : fingerprints) {
+            fingerprint.store(store);
+        }
+
+        long done = System.nanoTime();
+        LOGGER.info(String.format("Bulk loaded %d classes, %d nodes and %d relationships (parse %d ms, write %d ms)",
+                graph.loadedClasses, graph.nodeCount(),
+                graph.relationshipCount(), (parsed - start) / 1_000_000, (done - parsed) / 1_000_000));
+        return graph.loadedClasses;
+    }
+
+    /** Driver based variant of {@link #load(List, GraphStore, ImportOptions)}. */
+    public static int load(List<File> jars, Driver driver, ImportOptions options) {
+        return load(jars, GraphStore.of(driver), options);
+    }
+
+    private static List<String> createNodes(GraphStore store, NodeLabel label, Nodes nodes, ImportOptions options) {
+        String query = "UNWIND $rows AS row CREATE (n:" + label + ") SET n = row.props " +
+                "RETURN row.id AS id, elementId(n) AS eid";
+        String[] elementIds = new String[nodes.size()];
+        List<Map<String, Object>> batch = new ArrayList<>();
+        for (int id = 0; id < nodes.size(); id++) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("id", id);
+            row.put("props", nodes.props.get(id));
+            batch.add(row);
+            if (batch.size() >= options.getBatchSize() || id == nodes.size() - 1) {
+                List<Map<String, Object>> rows = batch;
+                for (Map<String, Object> r : store.write(tx -> tx.run(query, Collections.singletonMap("rows", rows)))) {
+                    elementIds[((Number) r.get("id")).intValue()] = (String) r.get("eid");
+                }
+                batch = new ArrayList<>();
+            }
+        }
+        return Arrays.asList(elementIds);
+    }
+
+    private static void createRelationships(GraphStore store, String type, Map<Long, String> edges,
+                                            List<String> sourceIds, List<String> targetIds, ImportOptions options) {
+        String query = "UNWIND $rows AS row MATCH (s) WHERE elementId(s) = row.s " +
+                "MATCH (t) WHERE elementId(t) = row.t CREATE (s)-[r:" + type + "]->(t) SET r.artifact = row.artifact";
+        List<Map<String, Object>> batch = new ArrayList<>();
+        int remaining = edges.size();
+        for (Map.Entry<Long, String> edge : edges.entrySet()) {
+            long key = edge.getKey();
+            Map<String, Object> row = new HashMap<>();
+            row.put("s", sourceIds.get((int) (key >>> 32)));
+            row.put("t", targetIds.get((int) key));
+            row.put("artifact", edge.getValue());
+            batch.add(row);
+            remaining--;
+            if (batch.size() >= options.getBatchSize() || remaining == 0) {
+                List<Map<String, Object>> rows = batch;
+                store.write(tx -> tx.run(query, Collections.singletonMap("rows", rows)));
+                batch = new ArrayList<>();
+            }
+        }
+    }
+
+    private static ArtifactFingerprint fingerprint(File jar) {
+        try {
+            return ArtifactFingerprint.of(jar);
+        } catch (java.io.IOException e) {
+            LOGGER.log(Level.SEVERE, "Failed to bulk load JAR", e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    /** Nodes of one label, numbered in the order they are first seen. */
+    private static final class Nodes {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<Map<String, Object>> props = new ArrayList<>();
+
+        private int id(String key, Map<String, Object> identity) {
+            Integer id = ids.get(key);
+            if (id == null) {
+                id = props.size();
+                ids.put(key, id);
+                props.add(new HashMap<>(identity));
+            }
+            return id;
+        }
+
+        private int size() {
+            return props.size();
+        }
+    }
+
+    /**
+     * Deduplicated in-memory graph. Relationships are keyed by their source
+     * and target ids packed into a {@code long} and map to the artifact that
+     * contributed them last, mirroring what repeated merges would store.
+     */
+    private static final class Graph {
+        private final Nodes classes = new Nodes();
+        private final Nodes packages = new Nodes();
+        private final Nodes methods = new Nodes();
+        private final Nodes annotations = new Nodes();
+        private final Nodes configProperties = new Nodes();
+        private final Map<Long, String> contains = new LinkedHashMap<>();
+        private final Map<Long, String> calls = new LinkedHashMap<>();
+        private final Map<Long, String> annotatedClasses = new LinkedHashMap<>();
+        private final Map<Long, String> annotatedMethods = new LinkedHashMap<>();
+        private final Map<Long, String> classConfig = new LinkedHashMap<>();
+        private final Map<Long, String> methodConfig = new LinkedHashMap<>();
+        private final Map<EdgeType, Map<Long, String>> classEdges = new EnumMap<>(EdgeType.class);
+        private int loadedClasses;
+
+        private void add(ClassFacts facts, String artifact) {
+            String cls = facts.getName();
+            int clsId = classId(cls);
+            Map<String, Object> props = classes.props.get(clsId);
+            props.putAll(SymbolNames.classProperties(cls));
+            props.putAll(facts.getProperties());
+            props.put("artifact", artifact);
+            loadedClasses++;
+            for (String annotation : facts.getAnnotations()) {
+                annotatedClasses.put(key(clsId, annotationId(annotation)), artifact);
+            }
+            for (String property : facts.getConfigProperties()) {
+                classConfig.put(key(clsId, propertyId(property)), artifact);
+            }
+
+            if (!facts.getPackageName().isEmpty()) {
+                int pkgId = packages.id(facts.getPackageName(),
+                        Collections.singletonMap("name", facts.getPackageName()));
+                contains.put(key(pkgId, clsId), artifact);
+            }
+            for (ClassFacts.MethodFacts method : facts.getMethods()) {
+                int methodId = methodId(cls, method.getSignature());
+                Map<String, Object> methodProps = methods.props.get(methodId);
+                methodProps.putAll(SymbolNames.methodProperties(method.getSignature()));
+                methodProps.putAll(method.getProperties());
+                methodProps.put("artifact", artifact);
+                for (String annotation : method.getAnnotations()) {
+                    annotatedMethods.put(key(methodId, annotationId(annotation)), artifact);
+                }
+                for (String property : method.getConfigProperties()) {
+                    methodConfig.put(key(methodId, propertyId(property)), artifact);
+                }
+                for (String call : method.getCalls()) {
+                    int idx = call.indexOf('|');
+                    int target = methodId(call.substring(0, idx), call.substring(idx + 1));
+                    calls.put(key(methodId, target), artifact);
+                }
+            }
+            addClassEdges(EdgeType.DEPENDS_ON, clsId, facts.getDependencies(), artifact);
+            addClassEdges(EdgeType.USES, clsId, facts.getUses(), artifact);
+            addClassEdges(EdgeType.IMPLEMENTS, clsId, facts.getInterfaces(), artifact);
+            if (facts.getSuperclass() != null) {
+                addClassEdges(EdgeType.EXTENDS, clsId, Collections.singletonList(facts.getSuperclass()), artifact);
+            }
+        }
+
+        private void addClassEdges(EdgeType type, int src, List<String> targets, String artifact) {
+            Map<Long, String> edges = classEdges.computeIfAbsent(type, t -> new LinkedHashMap<>());
+            for (String tgt : targets) {
+                edges.put(key(src, classId(tgt)), artifact);
+            }
+        }
+
+        private int classId(String name) {
+            return classes.id(name, Collections.singletonMap("name", name));
+        }
+
+        private int methodId(String cls, String signature) {
+            Map<String, Object> identity = new HashMap<>();
+            identity.put("class", cls);
+            identity.put("signature", signature);
+            return methods.id(cls + "|" + signature, identity);
+        }
+
+        private int annotationId(String name) {
+            return annotations.id(name, Collections.singletonMap("name", name));
+        }
+
+        private int propertyId(String key) {
+            return configProperties.id(key, Collections.singletonMap("key", key));
+        }
+
+        private long nodeCount() {
+            return (long) classes.size() + packages.size() + methods.size() + annotations.size()
+                    + configProperties.size();
+        }
+
+        private long relationshipCount() {
+            long count = contains.size() + calls.size() + annotatedClasses.size() + annotatedMethods.size()
+                    + classConfig.size() + methodConfig.size();
+            for (Map<Long, String> edges : classEdges.values()) {
+                count += edges.size();
+            }
+            return count;
+        }
+
+        private static long key(int src, int tgt) {
+            return ((long) src << 32) | (tgt & 0xFFFFFFFFL);
+        }
+    }
+}
@@ -0,0 +1,435 @@
+package tech.softwareologists.core;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * {@link QueryService} decorator that remembers query results keyed by the
+ * method name and its arguments.
+ *
+ * <p>The cache is bounded by a number of entries and by an estimate of the
+ * bytes held by the cached strings; the least recently used entries are
+ * evicted first. Every entry records the graph generation it was computed
+ * from. As soon as the generation supplier reports a different value, for
+ * example because an import finished, the whole cache is dropped, so a
+ * result computed before a change is never returned after it.</p>
+ *
+ * <p>{@link #exportGraph(String, String)} writes a file and
+ * {@link #stream(PagedQuery, List, Integer)} exists to avoid holding whole
+ * results, so both are always passed through.</p>
+ *
+ * <p>The {@link AsyncQueryService} methods share the cache with their
+ * blocking counterparts. A miss is answered by the asynchronous variant of
+ * the delegate, see {@link AsyncQueryService#of(QueryService)}.</p>
+ */
+public class CachingQueryService implements QueryService, AsyncQueryService {
+    private static final Logger LOGGER = Logger.getLogger(CachingQueryService.class.getName());
+    /** Rough per entry cost of the key, the map entry and the result wrapper. */
+    private static final long ENTRY_OVERHEAD = 256;
+    /** Rough per string cost of the header and array on top of its chars. */
+    private static final long STRING_OVERHEAD = 56;
+
+    /** Default maximum number of cached results. */
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+    /** Default maximum estimated size of the cached results. */
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    private static final class Entry {
+        final Object value;
+        final long bytes;
+
+        Entry(Object value, long bytes) {
+            this.value = value;
+            this.bytes = bytes;
+        }
+    }
+
+    private final QueryService delegate;
+    private final AsyncQueryService asyncDelegate;
+    private final LongSupplier generation;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final LinkedHashMap<List<Object>, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedGeneration;
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    /**
+     * @param delegate service answering cache misses
+     * @param generation current graph generation; must change whenever the graph does
+     * @param maxEntries maximum number of cached results
+     * @param maxBytes maximum estimated size of the cached results
+     */
+    public CachingQueryService(QueryService delegate, LongSupplier generation, int maxEntries, long maxBytes) {
+        if (maxEntries <= 0 || maxBytes <= 0) {
+            throw new IllegalArgumentException("Cache bounds must be positive");
+        }
+        this.delegate = delegate;
+        this.asyncDelegate = AsyncQueryService.of(delegate);
+        this.generation = generation;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.cachedGeneration = generation.getAsLong();
+    }
+
+    private <T> T cached(Supplier<T> query, Object... key) {
+        List<Object> k = Arrays.asList(key);
+        long gen = generation.getAsLong();
+        Entry e = lookup(k, gen);
+        if (e != null) {
+            return value(e);
+        }
+        T value = query.get();
+        store(k, gen, value);
+        return value;
+    }
+
+    private <T> CompletionStage<T> cachedAsync(Supplier<CompletionStage<T>> query, Object... key) {
+        List<Object> k = Arrays.asList(key);
+        long gen = generation.getAsLong();
+        Entry e = lookup(k, gen);
+        if (e != null) {
+            return CompletableFuture.completedFuture(value(e));
+        }
+        CompletionStage<T> stage;
+        try {
+            stage = query.get();
+        } catch (RuntimeException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+        return stage.thenApply(value -> {
+            store(k, gen, value);
+            return value;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T value(Entry e) {
+        return (T) e.value;
+    }
+
+    /** Return the cached entry, counting the hit or miss. */
+    private synchronized Entry lookup(List<Object> k, long gen) {
+        if (gen != cachedGeneration) {
+            invalidate(gen);
+        }
+        Entry e = entries.get(k);
+        if (e != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return e;
+    }
+
+    private void store(List<Object> k, long gen, Object value) {
+        long size = ENTRY_OVERHEAD + sizeOf(value);
+        synchronized (this) {
+            // A result computed while the graph changed may be stale
+            if (gen == cachedGeneration && size <= maxBytes && !entries.containsKey(k)) {
+                entries.put(k, new Entry(value, size));
+                bytes += size;
+                evict();
+            }
+        }
+    }
+
+    private void invalidate(long gen) {
+        if (!entries.isEmpty()) {
+            invalidations++;
+            LOGGER.info("Graph generation " + gen + " replaces " + cachedGeneration + ", dropping query cache " + this);
+        }
+        entries.clear();
+        bytes = 0;
+        cachedGeneration = gen;
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<List<Object>, Entry>> it = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || bytes > maxBytes) && it.hasNext()) {
+            bytes -= it.next().getValue().bytes;
+            it.remove();
+            evictions++;
+        }
+    }
+
+    private static long sizeOf(Object value) {
+        if (value instanceof String) {
+            return STRING_OVERHEAD + 2L * ((String) value).length();
+        }
+        long size = 0;
+        if (value instanceof QueryResult) {
+            for (Object item : ((QueryResult<?>) value).getItems()) {
+                size += sizeOf(item);
+            }
+        }
+        return size;
+    }
+
+    /** Number of calls answered from the cache. */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /** Number of calls passed to the delegate. */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /** Fraction of calls answered from the cache, or 0 before the first call. */
+    public synchronized double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /** Number of results dropped to stay within the bounds. */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /** Number of times the cache was dropped because the graph changed. */
+    public synchronized long getInvalidations() {
+        return invalidations;
+    }
+
+    /** Number of cached results. */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /** Estimated size of the cached results in bytes. */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("hits=%d misses=%d hitRate=%.2f entries=%d bytes=%d evictions=%d invalidations=%d",
+                hits, misses, getHitRate(), entries.size(), bytes, evictions, invalidations);
+    }
+
+    /** Log the cache metrics. */
+    public void logStatistics() {
+        LOGGER.info("Query cache " + this);
+    }
+
+    @Override
+    public QueryResult<String> findCallers(String className, Integer limit, Integer page, Integer pageSize) {
+        return cached(() -> delegate.findCallers(className, limit, page, pageSize),
+                "findCallers", className, limit, page, pageSize);
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> findCallersAsync(String className, Integer limit, Integer page, Integer pageSize) {
+        return cachedAsync(() -> asyncDelegate.findCallersAsync(className, limit, page, pageSize),
+                "findCallers", className, limit, page, pageSize);
+    }
+
+    @Override
+    public QueryResult<String> findImplementations(String interfaceName, Integer limit, Integer page, Integer pageSize) {
+        return cached(() -> delegate.findImplementations(interfaceName, limit, page, pageSize),
+                "findImplementations", interfaceName, limit, page, pageSize);
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> findImplementationsAsync(String interfaceName, Integer limit, Integer page, Integer pageSize) {
+        return cachedAsync(() -> asyncDelegate.findImplementationsAsync(interfaceName, limit, page, pageSize),
+                "findImplementations", interfaceName, limit, page, pageSize);
+    }
+
+    @Override
+    public QueryResult<String> findSubclasses(String className, int depth, Integer limit, Integer page, Integer pageSize) {
+        return cached(() -> delegate.findSubclasses(className, depth, limit, page, pageSize),
+                "findSubclasses", className, depth, limit, page, pageSize);
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> findSubclassesAsync(String className, int depth, Integer limit, Integer page, Integer pageSize) {
+        return cachedAsync(() -> asyncDelegate.findSubclassesAsync(className, depth, limit, page, pageSize),
+                "findSubclasses", className, depth, limit, page, pageSize);
+    }
+
+    @Override
+    public QueryResult<String> findDependencies(String className, Integer depth, Integer limit, Integer page, Integer pageSize) {
+        return cached(() -> delegate.findDependencies(className, depth, limit, page, pageSize),
+                "findDependencies", className, depth, limit, page, pageSize);
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> findDependenciesAsync(String className, Integer depth, Integer limit, Integer page, Integer pageSize) {
+        return cachedAsync(() -> asyncDelegate.findDependenciesAsync(className, depth, limit, page, pageSize),
+                "findDependencies", className, depth, limit, page, pageSize);
+    }
+
+    @Override
+    public QueryResult<String> findPathBetweenClasses(String fromClass, String toClass, Integer maxDepth) {
+        return cached(() -> delegate.findPathBetweenClasses(fromClass, toClass, maxDepth),
+                "findPathBetweenClasses", fromClass, toClass, maxDepth);
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> findPathBetweenClassesAsync(String fromClass, String toClass, Integer maxDepth) {
+        return cachedAsync(() -> asyncDelegate.findPathBetweenClassesAsync(fromClass, toClass, maxDepth),
+                "findPathBetweenClasses", fromClass, toClass, maxDepth);
+    }
+
+    @Override
+    public QueryResult<String> findMethodsCallingMethod(String className, String methodSignature, Integer limit, Integer page, Integer pageSize) {
+        return cached(() -> delegate.findMethodsCallingMethod(className, methodSignature, limit, page, pageSize),
+                "findMethodsCallingMethod", className, methodSignature, limit, page, pageSize);
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> findMethodsCallingMethodAsync(String className, String methodSignature, Integer limit, Integer page, Integer pageSize) {
+        return cachedAsync(() -> asyncDelegate.findMethodsCallingMethodAsync(className, methodSignature, limit, page, pageSize),
+                "findMethodsCallingMethod", className, methodSignature, limit, page, pageSize);
+    }
+
+    @Override
+    public QueryResult<String> findBeansWithAnnotation(String annotation, Integer limit, Integer page, Integer pageSize) {
+        return cached(() -> delegate.findBeansWithAnnotation(annotation, limit, page, pageSize),
+                "findBeansWithAnnotation", annotation, limit, page, pageSize);
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> findBeansWithAnnotationAsync(String annotation, Integer limit, Integer page, Integer pageSize) {
+        return cachedAsync(() -> asyncDelegate.findBeansWithAnnotationAsync(annotation, limit, page, pageSize),
+                "findBeansWithAnnotation", annotation, limit, page, pageSize);
+    }
+
+    @Override
+    public QueryResult<String> searchByAnnotation(String annotation, String targetType, Integer limit, Integer page, Integer pageSize) {
+        return cached(() -> delegate.searchByAnnotation(annotation, targetType, limit, page, pageSize),
+                "searchByAnnotation", annotation, targetType, limit, page, pageSize);
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> searchByAnnotationAsync(String annotation, String targetType, Integer limit, Integer page, Integer pageSize) {
+        return cachedAsync(() -> asyncDelegate.searchByAnnotationAsync(annotation, targetType, limit, page, pageSize),
+                "searchByAnnotation", annotation, targetType, limit, page, pageSize);
+    }
+
+    @Override
+    public QueryResult<String> findHttpEndpoints(String basePath, String httpMethod, Integer limit, Integer page, Integer pageSize) {
+        return cached(() -> delegate.findHttpEndpoints(basePath, httpMethod, limit, page, pageSize),
+                "findHttpEndpoints", basePath, httpMethod, limit, page, pageSize);
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> findHttpEndpointsAsync(String basePath, String httpMethod, Integer limit, Integer page, Integer pageSize) {
+        return cachedAsync(() -> asyncDelegate.findHttpEndpointsAsync(basePath, httpMethod, limit, page, pageSize),
+                "findHttpEndpoints", basePath, httpMethod, limit, page, pageSize);
+    }
+
+    @Override
+    public QueryResult<String> findControllersUsingService(String serviceClassName, Integer limit, Integer page, Integer pageSize) {
+        return cached(() -> delegate.findControllersUsingService(serviceClassName, limit, page, pageSize),
+                "findControllersUsingService", serviceClassName, limit, page, pageSize);
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> findControllersUsingServiceAsync(String serviceClassName, Integer limit, Integer page, Integer pageSize) {
+        return cachedAsync(() -> asyncDelegate.findControllersUsingServiceAsync(serviceClassName, limit, page, pageSize),
+                "findControllersUsingService", serviceClassName, limit, page, pageSize);
+    }
+
+    @Override
+    public QueryResult<String> findEventListeners(String eventType, Integer limit, Integer page, Integer pageSize) {
+        return cached(() -> delegate.findEventListeners(eventType, limit, page, pageSize),
+                "findEventListeners", eventType, limit, page, pageSize);
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> findEventListenersAsync(String eventType, Integer limit, Integer page, Integer pageSize) {
+        return cachedAsync(() -> asyncDelegate.findEventListenersAsync(eventType, limit, page, pageSize),
+                "findEventListeners", eventType, limit, page, pageSize);
+    }
+
+    @Override
+    public QueryResult<String> findScheduledTasks(Integer limit, Integer page, Integer pageSize) {
+        return cached(() -> delegate.findScheduledTasks(limit, page, pageSize),
+                "findScheduledTasks", limit, page, pageSize);
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> findScheduledTasksAsync(Integer limit, Integer page, Integer pageSize) {
+        return cachedAsync(() -> asyncDelegate.findScheduledTasksAsync(limit, page, pageSize),
+                "findScheduledTasks", limit, page, pageSize);
+    }
+
+    @Override
+    public QueryResult<String> findConfigPropertyUsage(String propertyKey, Integer limit, Integer page, Integer pageSize) {
+        return cached(() -> delegate.findConfigPropertyUsage(propertyKey, limit, page, pageSize),
+                "findConfigPropertyUsage", propertyKey, limit, page, pageSize);
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> findConfigPropertyUsageAsync(String propertyKey, Integer limit, Integer page, Integer pageSize) {
+        return cachedAsync(() -> asyncDelegate.findConfigPropertyUsageAsync(propertyKey, limit, page, pageSize),
+                "findConfigPropertyUsage", propertyKey, limit, page, pageSize);
+    }
+
+    @Override
+    public QueryResult<String> searchSymbols(String query, String kind, Integer limit) {
+        return cached(() -> delegate.searchSymbols(query, kind, limit), "searchSymbols", query, kind, limit);
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> searchSymbolsAsync(String query, String kind, Integer limit) {
+        return cachedAsync(() -> asyncDelegate.searchSymbolsAsync(query, kind, limit),
+                "searchSymbols", query, kind, limit);
+    }
+
+    @Override
+    public QueryResult<String> nextPage(String cursor) {
+        return cached(() -> delegate.nextPage(cursor), "nextPage", cursor);
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> nextPageAsync(String cursor) {
+        return cachedAsync(() -> asyncDelegate.nextPageAsync(cursor), "nextPage", cursor);
+    }
+
+    @Override
+    public Stream<String> stream(PagedQuery query, List<Object> args, Integer limit) {
+        return delegate.stream(query, args, limit);
+    }
+
+    @Override
+    public String getPackageHierarchy(String rootPackage, Integer depth) {
+        return cached(() -> delegate.getPackageHierarchy(rootPackage, depth), "getPackageHierarchy", rootPackage, depth);
+    }
+
+    @Override
+    public CompletionStage<String> getPackageHierarchyAsync(String rootPackage, Integer depth) {
+        return cachedAsync(() -> asyncDelegate.getPackageHierarchyAsync(rootPackage, depth),
+                "getPackageHierarchy", rootPackage, depth);
+    }
+
+    @Override
+    public String getGraphStatistics(Integer topN) {
+        return cached(() -> delegate.getGraphStatistics(topN), "getGraphStatistics", topN);
+    }
+
+    @Override
+    public CompletionStage<String> getGraphStatisticsAsync(Integer topN) {
+        return cachedAsync(() -> asyncDelegate.getGraphStatisticsAsync(topN), "getGraphStatistics", topN);
+    }
+
+    @Override
+    public void exportGraph(String format, String outputPath) {
+        delegate.exportGraph(format, outputPath);
+    }
+}
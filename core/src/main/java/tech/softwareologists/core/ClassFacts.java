@@ -0,0 +1,199 @@
+package tech.softwareologists.core;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+/**
+ * Immutable description of everything the importers extract from one class
+ * file. Facts are produced by the parsing stage and consumed by a single
+ * {@link GraphBatchWriter}.
+ */
+public final class ClassFacts {
+    private final String name;
+    private final String packageName;
+    private final List<String> annotations;
+    private final List<String> configProperties;
+    private final List<MethodFacts> methods;
+    private final List<String> dependencies;
+    private final List<String> uses;
+    private final List<String> interfaces;
+    private final String superclass;
+
+    /**
+     * @param name fully qualified class name
+     * @param packageName package name or an empty string for the default package
+     * @param annotations annotation class names present on the class
+     * @param configProperties configuration keys referenced by fields
+     * @param methods declared methods
+     * @param dependencies classes of the same artifact referenced by this class, excluding itself
+     * @param uses classes injected through fields or constructors
+     * @param interfaces directly implemented interfaces
+     * @param superclass superclass name or {@code null}
+     */
+    public ClassFacts(String name, String packageName, Collection<String> annotations,
+                      Collection<String> configProperties, Collection<MethodFacts> methods,
+                      Collection<String> dependencies, Collection<String> uses,
+                      Collection<String> interfaces, String superclass) {
+        this.name = name;
+        this.packageName = packageName == null ? "" : packageName;
+        this.annotations = copy(annotations);
+        this.configProperties = copy(configProperties);
+        this.methods = copy(methods);
+        this.dependencies = copy(dependencies);
+        this.uses = copy(uses);
+        this.interfaces = copy(interfaces);
+        this.superclass = superclass;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getPackageName() {
+        return packageName;
+    }
+
+    public List<String> getAnnotations() {
+        return annotations;
+    }
+
+    public List<String> getConfigProperties() {
+        return configProperties;
+    }
+
+    public List<MethodFacts> getMethods() {
+        return methods;
+    }
+
+    public List<String> getDependencies() {
+        return dependencies;
+    }
+
+    public List<String> getUses() {
+        return uses;
+    }
+
+    public List<String> getInterfaces() {
+        return interfaces;
+    }
+
+    public String getSuperclass() {
+        return superclass;
+    }
+
+    /** Properties stored on the class node; empty values are omitted. */
+    public Map<String, Object> getProperties() {
+        Map<String, Object> props = new LinkedHashMap<>();
+        if (!annotations.isEmpty()) {
+            props.put("annotations", annotations);
+        }
+        if (!configProperties.isEmpty()) {
+            props.put("configProperties", configProperties);
+        }
+        return props;
+    }
+
+    private static <T> List<T> copy(Collection<T> values) {
+        if (values == null || values.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(new ArrayList<>(values));
+    }
+
+    /**
+     * Immutable description of a declared method.
+     */
+    public static final class MethodFacts {
+        private final String signature;
+        private final List<String> annotations;
+        private final String httpRoute;
+        private final String httpMethod;
+        private final String eventType;
+        private final String cron;
+        private final List<String> configProperties;
+        private final List<String> calls;
+
+        /**
+         * @param signature JVM method signature
+         * @param annotations annotation class names present on the method
+         * @param httpRoute request mapping path or {@code null}
+         * @param httpMethod request mapping verb or {@code null}
+         * @param eventType handled event class or {@code null}
+         * @param cron schedule expression or {@code null}
+         * @param configProperties configuration keys referenced by parameters
+         * @param calls invoked methods as {@code class|signature} pairs
+         */
+        public MethodFacts(String signature, Collection<String> annotations, String httpRoute,
+                           String httpMethod, String eventType, String cron,
+                           Collection<String> configProperties, Collection<String> calls) {
+            this.signature = signature;
+            this.annotations = copy(annotations);
+            this.httpRoute = httpRoute;
+            this.httpMethod = httpMethod;
+            this.eventType = eventType;
+            this.cron = cron;
+            this.configProperties = copy(configProperties);
+            this.calls = copy(calls);
+        }
+
+        public String getSignature() {
+            return signature;
+        }
+
+        public List<String> getAnnotations() {
+            return annotations;
+        }
+
+        public String getHttpRoute() {
+            return httpRoute;
+        }
+
+        public String getHttpMethod() {
+            return httpMethod;
+        }
+
+        public String getEventType() {
+            return eventType;
+        }
+
+        public String getCron() {
+            return cron;
+        }
+
+        public List<String> getConfigProperties() {
+            return configProperties;
+        }
+
+        public List<String> getCalls() {
+            return calls;
+        }
+
+        /** Properties stored on the method node; absent values are omitted. */
+        public Map<String, Object> getProperties() {
+            Map<String, Object> props = new LinkedHashMap<>();
+            if (!annotations.isEmpty()) {
+                props.put("annotations", annotations);
+            }
+            if (httpRoute != null) {
+                props.put("httpRoute", httpRoute);
+            }
+            if (httpMethod != null) {
+                props.put("httpMethod", httpMethod);
+            }
+            if (eventType != null) {
+                props.put("eventType", eventType);
+            }
+            if (cron != null) {
+                props.put("cron", cron);
+            }
+            if (!configProperties.isEmpty()) {
+                props.put("configProperties", configProperties);
+            }
+            return props;
+        }
+    }
+}
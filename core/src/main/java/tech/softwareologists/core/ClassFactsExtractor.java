@@ -0,0 +1,399 @@
+package tech.softwareologists.core;
+
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+
+/**
+ * Extracts {@link ClassFacts} from a class file with a single ASM pass.
+ *
+ * <p>Besides methods, calls and Spring metadata the pass derives the
+ * superclass, the implemented interfaces and every class referenced from the
+ * constant pool or from field, method and annotation descriptors, so no
+ * separate classpath scan is needed to compute dependencies. Like the
+ * classpath scan it replaces, dependencies are limited to the classes of
+ * the scanned artifact; references to JDK and library types are
+ * dropped.</p>
+ */
+public final class ClassFactsExtractor {
+    private static final Logger LOGGER = Logger.getLogger(ClassFactsExtractor.class.getName());
+
+    private static final java.util.Map<String, String> MAPPING_VERBS = java.util.Map.of(
+            "org.springframework.web.bind.annotation.GetMapping", "GET",
+            "org.springframework.web.bind.annotation.PostMapping", "POST",
+            "org.springframework.web.bind.annotation.PutMapping", "PUT",
+            "org.springframework.web.bind.annotation.DeleteMapping", "DELETE",
+            "org.springframework.web.bind.annotation.PatchMapping", "PATCH"
+    );
+    private static final String REQUEST_MAPPING =
+            "org.springframework.web.bind.annotation.RequestMapping";
+    private static final String OBJECT = "java.lang.Object";
+    private static final int CONSTANT_CLASS = 7;
+
+    private ClassFactsExtractor() {
+        // utility class
+    }
+
+    /**
+     * Read and parse a class file.
+     *
+     * @param in stream positioned at the start of the class file
+     * @param scanned whether a class name belongs to the scanned artifact
+     * @return the extracted facts or {@code null} for module and package descriptors
+     * @throws IOException if the stream cannot be read
+     */
+    public static ClassFacts extract(InputStream in, Predicate<String> scanned) throws IOException {
+        return extract(in.readAllBytes(), scanned);
+    }
+
+    /**
+     * Parse a class file.
+     *
+     * @param classFile bytes of the class file
+     * @param scanned whether a class name belongs to the scanned artifact; only
+     *                such classes are kept as dependencies
+     * @return the extracted facts or {@code null} for module and package descriptors
+     */
+    public static ClassFacts extract(byte[] classFile, Predicate<String> scanned) {
+        ClassReader cr = new ClassReader(classFile);
+        if ((cr.getAccess() & Opcodes.ACC_MODULE) != 0 || cr.getClassName().endsWith("/package-info")) {
+            return null;
+        }
+        String cls = cr.getClassName().replace('/', '.');
+
+        java.util.List<String> annos = new java.util.ArrayList<>();
+        List<String> methodNames = new java.util.ArrayList<>();
+        Map<String, Set<String>> calls = new HashMap<>();
+        Map<String, java.util.List<String>> methodAnnos = new HashMap<>();
+        Map<String, String> methodRoutes = new HashMap<>();
+        Map<String, String> methodVerbs = new HashMap<>();
+        Map<String, String> eventTypes = new HashMap<>();
+        Map<String, String> cronExprs = new HashMap<>();
+        Set<String> usesDeps = new LinkedHashSet<>();
+        java.util.List<String> classConfigProps = new java.util.ArrayList<>();
+        Map<String, java.util.List<String>> methodConfigProps = new java.util.HashMap<>();
+        Set<String> refs = new LinkedHashSet<>();
+        Set<String> interfaces = new LinkedHashSet<>();
+        String[] superclass = new String[1];
+
+        // class constants cover instantiations, casts, invocation owners and field owners
+        char[] buf = new char[cr.getMaxStringLength()];
+        for (int i = 1; i < cr.getItemCount(); i++) {
+            int offset = cr.getItem(i);
+            if (offset > 0 && cr.readByte(offset - 1) == CONSTANT_CLASS) {
+                String internalName = cr.readUTF8(offset, buf);
+                addReference(refs, internalName.startsWith("[")
+                        ? Type.getType(internalName) : Type.getObjectType(internalName));
+            }
+        }
+
+        cr.accept(new ClassVisitor(Opcodes.ASM9) {
+            @Override
+            public void visit(int version, int access, String name, String signature, String superName, String[] ifaces) {
+                if (superName != null && !OBJECT.equals(superName.replace('/', '.'))) {
+                    superclass[0] = superName.replace('/', '.');
+                }
+                if (ifaces != null) {
+                    for (String iface : ifaces) {
+                        interfaces.add(iface.replace('/', '.'));
+                    }
+                }
+            }
+
+            @Override
+            public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+                String ann = Type.getType(descriptor).getClassName();
+                annos.add(ann);
+                refs.add(ann);
+                return super.visitAnnotation(descriptor, visible);
+            }
+
+
+            @Override
+            public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+                addReference(refs, Type.getType(descriptor));
+                return new FieldVisitor(Opcodes.ASM9) {
+                    boolean autowired = false;
+                    String configKey = null;
+
+                    @Override
+                    public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+                        String ann = Type.getType(desc).getClassName();
+                        if ("org.springframework.beans.factory.annotation.Autowired".equals(ann)) {
+                            autowired = true;
+                        }
+                        AnnotationVisitor parent = super.visitAnnotation(desc, visible);
+                        if (ann.endsWith(".Value") || ann.endsWith(".ConfigurationProperty")) {
+                            return new AnnotationVisitor(Opcodes.ASM9, parent) {
+                                @Override
+                                public void visit(String name, Object value) {
+                                    if (value instanceof String && (name == null || "value".equals(name) || "name".equals(name))) {
+                                        String v = (String) value;
+                                        if (v.startsWith("${") && v.endsWith("}")) {
+                                            v = v.substring(2, v.length() - 1);
+                                            int idx = v.indexOf(':');
+                                            if (idx > -1) v = v.substring(0, idx);
+                                        }
+                                        configKey = v;
+                                    }
+                                }
+
+                                @Override
+                                public void visitEnd() {
+                                    if (configKey != null) {
+                                        classConfigProps.add(configKey);
+                                    }
+                                    super.visitEnd();
+                                }
+                            };
+                        }
+                        return parent;
+                    }
+
+                    @Override
+                    public void visitEnd() {
+                        if (autowired) {
+                            String type = Type.getType(descriptor).getClassName();
+                            usesDeps.add(type);
+                        }
+                        super.visitEnd();
+                    }
+                };
+            }
+
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                String sig = name + descriptor;
+                addReference(refs, Type.getReturnType(descriptor));
+                for (Type t : Type.getArgumentTypes(descriptor)) {
+                    addReference(refs, t);
+                }
+                if ("<init>".equals(name)) {
+                    for (Type t : Type.getArgumentTypes(descriptor)) {
+                        usesDeps.add(t.getClassName());
+                    }
+                }
+                methodNames.add(sig);
+                java.util.List<String> mprops = new java.util.ArrayList<>();
+                methodConfigProps.put(sig, mprops);
+                return new MethodVisitor(Opcodes.ASM9) {
+                    @Override
+                    public AnnotationVisitor visitParameterAnnotation(int parameter, String descriptor, boolean visible) {
+                        String ann = Type.getType(descriptor).getClassName();
+                        AnnotationVisitor parent = super.visitParameterAnnotation(parameter, descriptor, visible);
+                        if (ann.endsWith(".Value") || ann.endsWith(".ConfigurationProperty")) {
+                            return new AnnotationVisitor(Opcodes.ASM9, parent) {
+                                String key = null;
+
+                                @Override
+                                public void visit(String name, Object value) {
+                                    if (value instanceof String && (name == null || "value".equals(name) || "name".equals(name))) {
+                                        String v = (String) value;
+                                        if (v.startsWith("${") && v.endsWith("}")) {
+                                            v = v.substring(2, v.length() - 1);
+                                            int idx = v.indexOf(':');
+                                            if (idx > -1) v = v.substring(0, idx);
+                                        }
+                                        key = v;
+                                    }
+                                }
+
+                                @Override
+                                public void visitEnd() {
+                                    if (key != null) {
+                                        mprops.add(key);
+                                    }
+                                    super.visitEnd();
+                                }
+                            };
+                        }
+                        return parent;
+                    }
+                    @Override
+                    public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+                        String ann = Type.getType(descriptor).getClassName();
+                        refs.add(ann);
+                        methodAnnos.computeIfAbsent(sig, k -> new java.util.ArrayList<>()).add(ann);
+                        AnnotationVisitor parent = super.visitAnnotation(descriptor, visible);
+                        if (MAPPING_VERBS.containsKey(ann) || REQUEST_MAPPING.equals(ann)) {
+                            return new AnnotationVisitor(Opcodes.ASM9, parent) {
+                                String route = null;
+                                String verb = MAPPING_VERBS.get(ann);
+
+                                @Override
+                                public void visit(String name, Object value) {
+                                    if (("value".equals(name) || "path".equals(name)) && value instanceof String) {
+                                        route = (String) value;
+                                    }
+                                }
+
+                                @Override
+                                public AnnotationVisitor visitArray(String name) {
+                                    if ("value".equals(name) || "path".equals(name)) {
+                                        return new AnnotationVisitor(Opcodes.ASM9) {
+                                            String first = null;
+
+                                            @Override
+                                            public void visit(String n, Object v) {
+                                                if (v instanceof String && first == null) {
+                                                    first = (String) v;
+                                                }
+                                            }
+
+                                            @Override
+                                            public void visitEnd() {
+                                                if (first != null) {
+                                                    route = first;
+                                                }
+                                            }
+                                        };
+                                    } else if ("method".equals(name)) {
+                                        return new AnnotationVisitor(Opcodes.ASM9) {
+                                            @Override
+                                            public void visitEnum(String n, String desc, String value) {
+                                                if (verb == null) {
+                                                    verb = value;
+                                                }
+                                            }
+                                        };
+                                    }
+                                    return super.visitArray(name);
+                                }
+
+                                @Override
+                                public void visitEnum(String name, String descriptor, String value) {
+                                    if ("method".equals(name)) {
+                                        verb = value;
+                                    }
+                                }
+
+                                @Override
+                                public void visitEnd() {
+                                    if (route != null) {
+                                        methodRoutes.put(sig, route);
+                                    }
+                                    if (verb != null) {
+                                        methodVerbs.put(sig, verb);
+                                    }
+                                    super.visitEnd();
+                                }
+                            };
+                        } else if ("org.springframework.context.event.EventListener".equals(ann)) {
+                            return new AnnotationVisitor(Opcodes.ASM9, parent) {
+                                String evType = null;
+
+                                @Override
+                                public void visit(String name, Object value) {
+                                    if (("classes".equals(name) || "value".equals(name)) && value instanceof Type) {
+                                        evType = ((Type) value).getClassName();
+                                    }
+                                }
+
+                                @Override
+                                public AnnotationVisitor visitArray(String name) {
+                                    if ("classes".equals(name) || "value".equals(name)) {
+                                        return new AnnotationVisitor(Opcodes.ASM9) {
+                                            String first = null;
+
+                                            @Override
+                                            public void visit(String n, Object v) {
+                                                if (v instanceof Type && first == null) {
+                                                    first = ((Type) v).getClassName();
+                                                }
+                                            }
+
+                                            @Override
+                                            public void visitEnd() {
+                                                if (first != null) {
+                                                    evType = first;
+                                                }
+                                            }
+                                        };
+                                    }
+                                    return super.visitArray(name);
+                                }
+
+                                @Override
+                                public void visitEnd() {
+                                    if (evType != null) {
+                                        eventTypes.put(sig, evType);
+                                    }
+                                    super.visitEnd();
+                                }
+                            };
+                        } else if ("org.springframework.scheduling.annotation.Scheduled".equals(ann)) {
+                            return new AnnotationVisitor(Opcodes.ASM9, parent) {
+                                String cron = null;
+
+                                @Override
+                                public void visit(String name, Object value) {
+                                    if ("cron".equals(name) && value instanceof String) {
+                                        cron = (String) value;
+                                    }
+                                }
+
+                                @Override
+                                public void visitEnd() {
+                                    if (cron != null) {
+                                        cronExprs.put(sig, cron);
+                                    }
+                                    super.visitEnd();
+                                }
+                            };
+                        }
+                        return parent;
+                    }
+                    @Override
+                    public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+                        String tgtCls = owner.replace('/', '.');
+                        String tgtSig = name + descriptor;
+                        calls.computeIfAbsent(sig, k -> new HashSet<>())
+                                .add(tgtCls + "|" + tgtSig);
+                    }
+                };
+            }
+        }, 0);
+        if (!methodNames.isEmpty()) {
+            LOGGER.info("Methods in " + cls + ": " + methodNames);
+        }
+
+        java.util.List<ClassFacts.MethodFacts> methods = new java.util.ArrayList<>();
+        for (String sig : methodNames) {
+            methods.add(new ClassFacts.MethodFacts(sig, methodAnnos.get(sig), methodRoutes.get(sig),
+                    methodVerbs.get(sig), eventTypes.get(sig), cronExprs.get(sig),
+                    methodConfigProps.get(sig), calls.get(sig)));
+        }
+
+        refs.remove(cls);
+        refs.remove(OBJECT);
+        refs.removeIf(scanned.negate());
+        int idx = cls.lastIndexOf('.');
+        String pkg = idx > -1 ? cls.substring(0, idx) : "";
+        return new ClassFacts(cls, pkg, annos, classConfigProps, methods,
+                refs, usesDeps, interfaces, superclass[0]);
+    }
+
+    private static void addReference(Set<String> refs, Type type) {
+        while (type.getSort() == Type.ARRAY) {
+            type = type.getElementType();
+        }
+        if (type.getSort() == Type.OBJECT) {
+            refs.add(type.getClassName());
+        }
+    }
+}
@@ -13,6 +13,30 @@ public interface CoreEngine extends AutoCloseable {
      */
     void importJar(File jar);
 
+    /**
+     * Import the given JAR file into the graph using the supplied options.
+     *
+     * @param jar JAR file containing compiled classes
+     * @param options batch, commit and retry settings
+     */
+    void importJar(File jar, ImportOptions options);
+
+    /**
+     * Replace the facts previously imported from the JAR with its current
+     * content in a single transaction.
+     *
+     * @param jar JAR file containing compiled classes
+     * @param options batch, retry and parallelism settings
+     */
+    void replaceJar(File jar, ImportOptions options);
+
+    /**
+     * Remove all facts imported from the JAR.
+     *
+     * @param jar previously imported JAR file
+     */
+    void removeJar(File jar);
+
     /**
      * Return the query service backed by the engine's database.
      */
@@ -1,7 +1,9 @@
 package tech.softwareologists.core;
 
+import tech.softwareologists.core.db.DatabaseOptions;
 import tech.softwareologists.core.db.EmbeddedNeo4j;
 import java.io.File;
+import java.util.List;
 
 /**
  * Default implementation of {@link CoreEngine} using an embedded Neo4j database.
@@ -11,13 +13,75 @@ public class CoreEngineImpl implements CoreEngine {
     private final QueryService queryService;
 
     public CoreEngineImpl() {
-        this.db = new EmbeddedNeo4j();
-        this.queryService = new QueryServiceImpl(db.getDriver());
+        this(DatabaseOptions.defaults());
+    }
+
+    /**
+     * Create an engine whose embedded database uses the given memory settings.
+     *
+     * @param dbOptions page cache, transaction state and query memory settings
+     */
+    public CoreEngineImpl(DatabaseOptions dbOptions) {
+        this(new EmbeddedNeo4j(null, true, dbOptions));
+    }
+
+    private CoreEngineImpl(EmbeddedNeo4j db) {
+        this.db = db;
+        this.queryService = new QueryServiceImpl(db.getStore());
+    }
+
+    /**
+     * Create an engine whose graph is built from the given JARs with the
+     * {@link BulkLoader} instead of per-fact merges. Indexes are created
+     * after the load.
+     *
+     * @param jars the JAR files to load
+     * @param options batch size and parallelism settings
+     * @return engine serving the loaded graph
+     */
+    public static CoreEngineImpl bulkLoad(List<File> jars, ImportOptions options) {
+        return bulkLoad(jars, options, DatabaseOptions.defaults());
+    }
+
+    /**
+     * Create an engine whose graph is built from the given JARs with the
+     * {@link BulkLoader}, using the given database memory settings.
+     *
+     * @param jars the JAR files to load
+     * @param options batch size and parallelism settings
+     * @param dbOptions page cache, transaction state and query memory settings
+     * @return engine serving the loaded graph
+     */
+    public static CoreEngineImpl bulkLoad(List<File> jars, ImportOptions options, DatabaseOptions dbOptions) {
+        EmbeddedNeo4j db = new EmbeddedNeo4j(null, false, dbOptions);
+        try {
+            BulkLoader.load(jars, db.getStore(), options);
+            db.createIndexes();
+        } catch (RuntimeException e) {
+            db.close();
+            throw e;
+        }
+        return new CoreEngineImpl(db);
     }
 
     @Override
     public void importJar(File jar) {
-        JarImporter.importJar(jar, db.getDriver());
+        importJar(jar, ImportOptions.defaults());
+    }
+
+    @Override
+    public void importJar(File jar, ImportOptions options) {
+        JarImporter.importJar(jar, db.getStore(), options);
+    }
+
+    @Override
+    public void replaceJar(File jar, ImportOptions options) {
+        JarImporter.replaceJar(jar, db.getStore(), options);
+    }
+
+    @Override
+    public void removeJar(File jar) {
+        JarImporter.removeJar(jar, db.getStore());
     }
 
     @Override
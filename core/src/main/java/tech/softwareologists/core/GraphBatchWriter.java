@@ -0,0 +1,571 @@
+package tech.softwareologists.core;
+
+import tech.softwareologists.core.db.EdgeType;
+import tech.softwareologists.core.db.GraphStore;
+import tech.softwareologists.core.db.NodeLabel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Buffers graph facts produced by the importers and persists them with
+ * batched {@code UNWIND $rows AS row MERGE ...} statements.
+ *
+ * <p>Every kind of fact is collected into its own parameter list. Once
+ * {@link ImportOptions#getCommitSize()} classes have been completed with
+ * {@link #endClass()}, the buffered rows are sent in a single explicit
+ * transaction, split into statements of at most
+ * {@link ImportOptions#getBatchSize()} rows. Each statement merges all nodes
+ * it touches, so buffers can be written in any order. Transactions failing
+ * with a transient error are rolled back and replayed.</p>
+ *
+ * <p>When an artifact is set, every written class, method and edge is
+ * tagged with it in the {@code artifact} property. The {@code delete*} and
+ * {@code clear*} methods only touch facts carrying that tag; untagged edge
+ * targets left without any relationship are deleted as well.</p>
+ *
+ * <p>Annotations and configuration keys listed in the {@code annotations}
+ * and {@code configProperties} properties of a class or method are also
+ * linked to {@code ANNOTATION} and {@code CONFIG_PROPERTY} nodes with
+ * {@code ANNOTATED_WITH} and {@code USES_CONFIG} edges, so lookups start
+ * from the annotation or key instead of scanning every class or method.
+ * Clearing the properties removes the links and the nodes no longer in
+ * use.</p>
+ *
+ * <p>Classes passed to {@link #replaceClass(ClassFacts)} or
+ * {@link #removeClass(String)} first have their previously imported facts
+ * cleared in the same transaction, before any new facts are merged.</p>
+ */
+public class GraphBatchWriter implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(GraphBatchWriter.class.getName());
+
+    /** Default number of rows sent with a single UNWIND statement. */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private static final String CLASS_QUERY =
+            "UNWIND $rows AS row MERGE (c:" + NodeLabel.CLASS + " {name:row.name}) " +
+                    "SET c += row.props, c.artifact = row.artifact " + link("c");
+    private static final String PACKAGE_QUERY =
+            "UNWIND $rows AS row MERGE (p:" + NodeLabel.PACKAGE + " {name:row.pkg}) " +
+                    "MERGE (c:" + NodeLabel.CLASS + " {name:row.cls}) MERGE (p)-[r:CONTAINS]->(c) SET r.artifact = row.artifact";
+    private static final String METHOD_QUERY =
+            "UNWIND $rows AS row MERGE (m:" + NodeLabel.METHOD + " {class:row.cls, signature:row.sig}) " +
+                    "SET m += row.props, m.artifact = row.artifact " + link("m");
+    private static final String CALL_QUERY =
+            "UNWIND $rows AS row MERGE (s:" + NodeLabel.METHOD + " {class:row.scls, signature:row.ssig}) " +
+                    "MERGE (t:" + NodeLabel.METHOD + " {class:row.tcls, signature:row.tsig}) " +
+                    "MERGE (s)-[r:" + EdgeType.CALLS + "]->(t) SET r.artifact = row.artifact";
+
+    private static final String DELETE_CALL_QUERY =
+            "UNWIND $rows AS row MATCH (s:" + NodeLabel.METHOD + " {class:row.scls, signature:row.ssig})" +
+                    "-[r:" + EdgeType.CALLS + "]->(t:" + NodeLabel.METHOD + " {class:row.tcls, signature:row.tsig}) " +
+                    "WHERE r.artifact = row.artifact DELETE r";
+    private static final String DELETE_PACKAGE_QUERY =
+            "UNWIND $rows AS row MATCH (p:" + NodeLabel.PACKAGE + " {name:row.pkg})-[r:CONTAINS]->" +
+                    "(c:" + NodeLabel.CLASS + " {name:row.cls}) WHERE r.artifact = row.artifact DELETE r";
+    private static final String DELETE_EMPTY_PACKAGE_QUERY =
+            "UNWIND $rows AS row WITH DISTINCT row.pkg AS pkg " +
+                    "MATCH (p:" + NodeLabel.PACKAGE + " {name:pkg}) WHERE NOT (p)--() DELETE p";
+    private static final String DELETE_ORPHAN_METHOD_QUERY =
+            "UNWIND $rows AS row WITH DISTINCT row.tcls AS cls, row.tsig AS sig " +
+                    "MATCH (t:" + NodeLabel.METHOD + " {class:cls, signature:sig}) " +
+                    "WHERE t.artifact IS NULL AND NOT (t)--() DELETE t";
+    private static final String DELETE_ORPHAN_CLASS_QUERY =
+            "UNWIND $rows AS row WITH DISTINCT row.tgt AS name " +
+                    "MATCH (t:" + NodeLabel.CLASS + " {name:name}) " +
+                    "WHERE t.artifact IS NULL AND NOT (t)--() DELETE t";
+    private static final String CLEAR_METHOD_QUERY =
+            "UNWIND $rows AS row MATCH (m:" + NodeLabel.METHOD + " {class:row.cls, signature:row.sig}) " +
+                    "WHERE m.artifact = row.artifact " +
+                    "REMOVE m.annotations, m.httpRoute, m.httpMethod, m.eventType, m.cron, m.configProperties " +
+                    unlink("m");
+    private static final String DELETE_METHOD_QUERY =
+            "UNWIND $rows AS row MATCH (m:" + NodeLabel.METHOD + " {class:row.cls, signature:row.sig}) " +
+                    "WHERE m.artifact = row.artifact REMOVE m.artifact WITH m WHERE NOT (m)--() DELETE m";
+    private static final String CLEAR_CLASS_QUERY =
+            "UNWIND $rows AS row MATCH (c:" + NodeLabel.CLASS + " {name:row.name}) " +
+                    "WHERE c.artifact = row.artifact REMOVE c.annotations, c.configProperties " + unlink("c");
+    private static final String DELETE_CLASS_QUERY =
+            "UNWIND $rows AS row MATCH (c:" + NodeLabel.CLASS + " {name:row.name}) " +
+                    "WHERE c.artifact = row.artifact REMOVE c.artifact WITH c WHERE NOT (c)--() DELETE c";
+
+    private static final String[] RESET_QUERIES = {
+            "UNWIND $rows AS row MATCH (c:" + NodeLabel.CLASS + " {name:row.name}) REMOVE c.annotations, c.configProperties " +
+                    unlink("c"),
+            "UNWIND $rows AS row MATCH (m:" + NodeLabel.METHOD + " {class:row.name}) " +
+                    "REMOVE m.annotations, m.httpRoute, m.httpMethod, m.eventType, m.cron, m.configProperties " +
+                    unlink("m"),
+            "UNWIND $rows AS row MATCH (c:" + NodeLabel.CLASS + " {name:row.name})-[r]->() DELETE r",
+            "UNWIND $rows AS row MATCH (m:" + NodeLabel.METHOD + " {class:row.name})-[r:" + EdgeType.CALLS + "]->() DELETE r",
+            "UNWIND $rows AS row MATCH (m:" + NodeLabel.METHOD + " {class:row.name}) " +
+                    "WHERE NOT m.signature IN row.keep SET m = {class:m.class, signature:m.signature} " +
+                    "WITH m WHERE NOT (m)--() DELETE m"
+    };
+    private static final String REMOVE_QUERY =
+            "UNWIND $rows AS row MATCH (c:" + NodeLabel.CLASS + " {name:row.name}) DETACH DELETE c";
+
+    private final GraphStore store;
+    private final ImportOptions options;
+    private String artifact;
+
+    private final List<Map<String, Object>> resets = new ArrayList<>();
+    private final List<Map<String, Object>> removals = new ArrayList<>();
+    private final List<Map<String, Object>> deletedCalls = new ArrayList<>();
+    private final Map<EdgeType, List<Map<String, Object>>> deletedClassEdges = new EnumMap<>(EdgeType.class);
+    private final List<Map<String, Object>> deletedPackages = new ArrayList<>();
+    private final List<Map<String, Object>> clearedMethods = new ArrayList<>();
+    private final List<Map<String, Object>> deletedMethods = new ArrayList<>();
+    private final List<Map<String, Object>> clearedClasses = new ArrayList<>();
+    private final List<Map<String, Object>> deletedClasses = new ArrayList<>();
+    private final List<Map<String, Object>> classes = new ArrayList<>();
+    private final List<Map<String, Object>> packages = new ArrayList<>();
+    private final List<Map<String, Object>> methods = new ArrayList<>();
+    private final List<Map<String, Object>> calls = new ArrayList<>();
+    private final Map<EdgeType, List<Map<String, Object>>> classEdges = new EnumMap<>(EdgeType.class);
+
+    private int pendingClasses;
+    private int statements;
+    private int transactions;
+    private int retries;
+    private long rows;
+
+    /**
+     * Create a writer that commits through the given store.
+     *
+     * @param store store used to run write transactions
+     * @param options batch, commit and retry settings
+     */
+    public GraphBatchWriter(GraphStore store, ImportOptions options) {
+        this(store, options, null);
+    }
+
+    /**
+     * Create a writer that tags every written class, method and edge with
+     * the given artifact.
+     *
+     * @param store store used to run write transactions
+     * @param options batch, commit and retry settings
+     * @param artifact provenance stored in the {@code artifact} property or {@code null}
+     */
+    public GraphBatchWriter(GraphStore store, ImportOptions options, String artifact) {
+        this.store = store;
+        this.options = options;
+        this.artifact = artifact;
+    }
+
+    /**
+     * Change the artifact used to tag facts buffered from now on. Facts
+     * already buffered keep the artifact they were added with.
+     *
+     * @param artifact provenance stored in the {@code artifact} property or {@code null}
+     */
+    public void setArtifact(String artifact) {
+        this.artifact = artifact;
+    }
+
+    /**
+     * Merge a class node and set the given properties on it, together with
+     * the search properties from {@link SymbolNames}.
+     *
+     * @param name fully qualified class name
+     * @param props properties to set, empty values should be omitted
+     */
+    public void addClass(String name, Map<String, Object> props) {
+        Map<String, Object> row = newRow();
+        Map<String, Object> all = SymbolNames.classProperties(name);
+        if (props != null) {
+            all.putAll(props);
+        }
+        row.put("name", name);
+        row.put("props", all);
+        classes.add(row);
+    }
+
+    /**
+     * Record that the package contains the given class.
+     */
+    public void addPackage(String pkg, String cls) {
+        Map<String, Object> row = newRow();
+        row.put("pkg", pkg);
+        row.put("cls", cls);
+        packages.add(row);
+    }
+
+    /**
+     * Merge a method node and set the given properties on it, together with
+     * the search properties from {@link SymbolNames}.
+     *
+     * @param cls declaring class name
+     * @param sig JVM method signature
+     * @param props properties to set, empty values should be omitted
+     */
+    public void addMethod(String cls, String sig, Map<String, Object> props) {
+        Map<String, Object> row = newRow();
+        Map<String, Object> all = SymbolNames.methodProperties(sig);
+        if (props != null) {
+            all.putAll(props);
+        }
+        row.put("cls", cls);
+        row.put("sig", sig);
+        row.put("props", all);
+        methods.add(row);
+    }
+
+    /**
+     * Record a {@code CALLS} edge between two methods.
+     */
+    public void addCall(String srcCls, String srcSig, String tgtCls, String tgtSig) {
+        Map<String, Object> row = newRow();
+        row.put("scls", srcCls);
+        row.put("ssig", srcSig);
+        row.put("tcls", tgtCls);
+        row.put("tsig", tgtSig);
+        calls.add(row);
+    }
+
+    /**
+     * Record a class level edge such as {@code DEPENDS_ON} or {@code EXTENDS}.
+     */
+    public void addClassEdge(EdgeType type, String src, String tgt) {
+        Map<String, Object> row = newRow();
+        row.put("src", src);
+        row.put("tgt", tgt);
+        classEdges.computeIfAbsent(type, t -> new ArrayList<>()).add(row);
+    }
+
+    /**
+     * Delete a {@code CALLS} edge written for this writer's artifact.
+     */
+    public void deleteCall(String srcCls, String srcSig, String tgtCls, String tgtSig) {
+        Map<String, Object> row = newRow();
+        row.put("scls", srcCls);
+        row.put("ssig", srcSig);
+        row.put("tcls", tgtCls);
+        row.put("tsig", tgtSig);
+        deletedCalls.add(row);
+    }
+
+    /**
+     * Delete a class level edge written for this writer's artifact.
+     */
+    public void deleteClassEdge(EdgeType type, String src, String tgt) {
+        Map<String, Object> row = newRow();
+        row.put("src", src);
+        row.put("tgt", tgt);
+        deletedClassEdges.computeIfAbsent(type, t -> new ArrayList<>()).add(row);
+    }
+
+    /**
+     * Delete the {@code CONTAINS} edge between package and class and the
+     * package itself once it is empty.
+     */
+    public void deletePackage(String pkg, String cls) {
+        Map<String, Object> row = newRow();
+        row.put("pkg", pkg);
+        row.put("cls", cls);
+        deletedPackages.add(row);
+    }
+
+    /**
+     * Remove all properties of a method so a following
+     * {@link #addMethod(String, String, Map)} replaces them.
+     */
+    public void clearMethod(String cls, String sig) {
+        Map<String, Object> row = newRow();
+        row.put("cls", cls);
+        row.put("sig", sig);
+        clearedMethods.add(row);
+    }
+
+    /**
+     * Drop the artifact's claim on a method and delete it unless other
+     * edges still point to it. Properties should be cleared with
+     * {@link #clearMethod(String, String)}.
+     */
+    public void deleteMethod(String cls, String sig) {
+        Map<String, Object> row = newRow();
+        row.put("cls", cls);
+        row.put("sig", sig);
+        deletedMethods.add(row);
+    }
+
+    /**
+     * Remove all properties of a class so a following
+     * {@link #addClass(String, Map)} replaces them.
+     */
+    public void clearClass(String name) {
+        Map<String, Object> row = newRow();
+        row.put("name", name);
+        clearedClasses.add(row);
+    }
+
+    /**
+     * Drop the artifact's claim on a class and delete it unless other edges
+     * still point to it. Properties should be cleared with
+     * {@link #clearClass(String)}.
+     */
+    public void deleteClass(String name) {
+        Map<String, Object> row = newRow();
+        row.put("name", name);
+        deletedClasses.add(row);
+    }
+
+    /**
+     * Buffer all facts of a parsed class and complete it with
+     * {@link #endClass()}.
+     *
+     * @param facts facts extracted from one class file
+     */
+    public void write(ClassFacts facts) {
+        String cls = facts.getName();
+        if (!facts.getPackageName().isEmpty()) {
+            addPackage(facts.getPackageName(), cls);
+        }
+        addClass(cls, facts.getProperties());
+        for (ClassFacts.MethodFacts method : facts.getMethods()) {
+            addMethod(cls, method.getSignature(), method.getProperties());
+            for (String call : method.getCalls()) {
+                int idx = call.indexOf('|');
+                addCall(cls, method.getSignature(), call.substring(0, idx), call.substring(idx + 1));
+            }
+        }
+        for (String dep : facts.getDependencies()) {
+            addClassEdge(EdgeType.DEPENDS_ON, cls, dep);
+        }
+        for (String use : facts.getUses()) {
+            addClassEdge(EdgeType.USES, cls, use);
+        }
+        for (String iface : facts.getInterfaces()) {
+            addClassEdge(EdgeType.IMPLEMENTS, cls, iface);
+        }
+        if (facts.getSuperclass() != null) {
+            addClassEdge(EdgeType.EXTENDS, cls, facts.getSuperclass());
+        }
+        endClass();
+    }
+
+    /**
+     * Drop everything previously imported for the class and write the given
+     * facts in its place. Incoming edges to the class and to its methods are
+     * kept. A method that no longer exists but is still called from another
+     * class stays as a bare call target, as if the caller had been imported
+     * first.
+     *
+     * @param facts facts extracted from the new version of the class
+     */
+    public void replaceClass(ClassFacts facts) {
+        List<String> keep = new ArrayList<>();
+        for (ClassFacts.MethodFacts method : facts.getMethods()) {
+            keep.add(method.getSignature());
+        }
+        Map<String, Object> row = newRow();
+        row.put("name", facts.getName());
+        row.put("keep", keep);
+        resets.add(row);
+        write(facts);
+    }
+
+    /**
+     * Delete the class, its methods and all of their edges. Methods still
+     * called from other classes stay as bare call targets.
+     *
+     * @param name fully qualified class name
+     */
+    public void removeClass(String name) {
+        Map<String, Object> row = newRow();
+        row.put("name", name);
+        row.put("keep", Collections.emptyList());
+        resets.add(row);
+        removals.add(Collections.singletonMap("name", name));
+        endClass();
+    }
+
+    /**
+     * Mark the facts of one class as complete. The pending transaction is
+     * committed once the configured commit size has been reached.
+     */
+    public void endClass() {
+        pendingClasses++;
+        if (pendingClasses >= options.getCommitSize()) {
+            flush();
+        }
+    }
+
+    /** Commit all buffered rows in a single transaction. */
+    public void flush() {
+        if (isEmpty()) {
+            pendingClasses = 0;
+            return;
+        }
+        int attempt = 0;
+        long backoff = options.getRetryBackoffMs();
+        while (true) {
+            try {
+                statements += store.write(this::write);
+                break;
+            } catch (RuntimeException e) {
+                if (!store.isTransient(e) || attempt >= options.getMaxRetries()) {
+                    throw e;
+                }
+                attempt++;
+                retries++;
+                LOGGER.log(Level.WARNING, "Transient failure committing import batch, retry "
+                        + attempt + " of " + options.getMaxRetries(), e);
+                sleep(backoff);
+                backoff *= 2;
+            }
+        }
+        transactions++;
+        for (List<Map<String, Object>> buffer : buffers()) {
+            rows += buffer.size();
+        }
+        clear();
+    }
+
+    /** Number of statements sent so far. */
+    public int getStatementCount() {
+        return statements;
+    }
+
+    /** Number of committed transactions. */
+    public int getTransactionCount() {
+        return transactions;
+    }
+
+    /** Number of transactions replayed after a transient failure. */
+    public int getRetryCount() {
+        return retries;
+    }
+
+    /** Number of rows committed so far. */
+    public long getRowCount() {
+        return rows;
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+
+    /**
+     * Clauses linking the node bound to {@code var} to the annotation and
+     * configuration property nodes listed in {@code row.props}.
+     */
+    private static String link(String var) {
+        return "FOREACH (ann IN coalesce(row.props.annotations, []) | " +
+                "MERGE (a:" + NodeLabel.ANNOTATION + " {name:ann}) " +
+                "MERGE (" + var + ")-[r:" + EdgeType.ANNOTATED_WITH + "]->(a) SET r.artifact = row.artifact) " +
+                "FOREACH (prop IN coalesce(row.props.configProperties, []) | " +
+                "MERGE (p:" + NodeLabel.CONFIG_PROPERTY + " {key:prop}) " +
+                "MERGE (" + var + ")-[r:" + EdgeType.USES_CONFIG + "]->(p) SET r.artifact = row.artifact)";
+    }
+
+    /**
+     * Clause deleting the annotation and configuration property links of the
+     * node bound to {@code var}, together with annotation and property nodes
+     * left without links. Must end the statement.
+     */
+    private static String unlink(String var) {
+        return "WITH " + var + " OPTIONAL MATCH (" + var + ")-[r:" + EdgeType.ANNOTATED_WITH + "|" +
+                EdgeType.USES_CONFIG + "]->(a) DELETE r " +
+                "WITH collect(DISTINCT a) AS linked UNWIND linked AS a WITH a WHERE NOT (a)--() DELETE a";
+    }
+
+    private static String classEdgeQuery(EdgeType type) {
+        return "UNWIND $rows AS row MERGE (s:" + NodeLabel.CLASS + " {name:row.src}) " +
+                "MERGE (t:" + NodeLabel.CLASS + " {name:row.tgt}) MERGE (s)-[r:" + type + "]->(t) " +
+                "SET r.artifact = row.artifact";
+    }
+
+    private static String deleteClassEdgeQuery(EdgeType type) {
+        return "UNWIND $rows AS row MATCH (s:" + NodeLabel.CLASS + " {name:row.src})-[r:" + type + "]->" +
+                "(t:" + NodeLabel.CLASS + " {name:row.tgt}) WHERE r.artifact = row.artifact DELETE r";
+    }
+
+    private Map<String, Object> newRow() {
+        Map<String, Object> row = new HashMap<>();
+        row.put("artifact", artifact);
+        return row;
+    }
+
+    private List<List<Map<String, Object>>> buffers() {
+        List<List<Map<String, Object>>> all = new ArrayList<>(java.util.Arrays.asList(
+                resets, removals, deletedCalls, deletedPackages, clearedMethods, deletedMethods,
+                clearedClasses, deletedClasses, classes, packages, methods, calls));
+        all.addAll(deletedClassEdges.values());
+        all.addAll(classEdges.values());
+        return all;
+    }
+
+    private boolean isEmpty() {
+        for (List<Map<String, Object>> buffer : buffers()) {
+            if (!buffer.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void clear() {
+        for (List<Map<String, Object>> buffer : buffers()) {
+            buffer.clear();
+        }
+        pendingClasses = 0;
+    }
+
+    private int write(GraphStore.Tx tx) {
+        int sent = 0;
+        for (String query : RESET_QUERIES) {
+            sent += write(tx, resets, query);
+        }
+        sent += write(tx, removals, REMOVE_QUERY);
+        sent += write(tx, deletedCalls, DELETE_CALL_QUERY);
+        for (Map.Entry<EdgeType, List<Map<String, Object>>> e : deletedClassEdges.entrySet()) {
+            sent += write(tx, e.getValue(), deleteClassEdgeQuery(e.getKey()));
+        }
+        sent += write(tx, deletedPackages, DELETE_PACKAGE_QUERY);
+        sent += write(tx, clearedMethods, CLEAR_METHOD_QUERY);
+        sent += write(tx, deletedMethods, DELETE_METHOD_QUERY);
+        sent += write(tx, clearedClasses, CLEAR_CLASS_QUERY);
+        sent += write(tx, deletedClasses, DELETE_CLASS_QUERY);
+        sent += write(tx, deletedPackages, DELETE_EMPTY_PACKAGE_QUERY);
+        sent += write(tx, deletedCalls, DELETE_ORPHAN_METHOD_QUERY);
+        for (List<Map<String, Object>> edges : deletedClassEdges.values()) {
+            sent += write(tx, edges, DELETE_ORPHAN_CLASS_QUERY);
+        }
+        sent += write(tx, classes, CLASS_QUERY);
+        sent += write(tx, packages, PACKAGE_QUERY);
+        sent += write(tx, methods, METHOD_QUERY);
+        sent += write(tx, calls, CALL_QUERY);
+        for (Map.Entry<EdgeType, List<Map<String, Object>>> e : classEdges.entrySet()) {
+            sent += write(tx, e.getValue(), classEdgeQuery(e.getKey()));
+        }
+        return sent;
+    }
+
+    private int write(GraphStore.Tx tx, List<Map<String, Object>> buffer, String query) {
+        int sent = 0;
+        int batchSize = options.getBatchSize();
+        for (int from = 0; from < buffer.size(); from += batchSize) {
+            List<Map<String, Object>> batch = buffer.subList(from, Math.min(from + batchSize, buffer.size()));
+            tx.run(query, Collections.singletonMap("rows", new ArrayList<>(batch)));
+            sent++;
+        }
+        return sent;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to retry import batch", ie);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package tech.softwareologists.core;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the files produced by {@link QueryService#exportGraph(String, String)}.
+ */
+public final class GraphExport {
+    private GraphExport() {
+        // utility class
+    }
+
+    /**
+     * Render the graph in the given format and write it to the output path.
+     *
+     * @param format {@code DOT}, {@code CSV} or {@code JSON}, case-insensitive
+     * @param names display name of every node by node id
+     * @param edgeRecords edges as {@code {Long from, String type, Long to}} arrays
+     * @param outputPath file to write
+     * @throws IllegalArgumentException for an unsupported format
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(String format, Map<Long, String> names, List<Object[]> edgeRecords, String outputPath)
+            throws IOException {
+        String upper = format == null ? "" : format.toUpperCase();
+        StringBuilder sb = new StringBuilder();
+        switch (upper) {
+            case "DOT":
+                sb.append("digraph G {");
+                for (var e : names.entrySet()) {
+                    sb.append('\n').append("  n").append(e.getKey())
+                            .append(" [label=\"").append(e.getValue()).append("\"];");
+                }
+                for (Object[] edge : edgeRecords) {
+                    sb.append('\n').append("  n").append(edge[0]).append(" -> n")
+                            .append(edge[2]).append(" [label=\"")
+                            .append(edge[1]).append("\"];");
+                }
+                sb.append('\n').append('}');
+                break;
+            case "CSV":
+                sb.append("from,to,type\n");
+                for (Object[] edge : edgeRecords) {
+                    sb.append(names.get((Long) edge[0])).append(',')
+                            .append(names.get((Long) edge[2])).append(',')
+                            .append(edge[1]).append('\n');
+                }
+                break;
+            case "JSON":
+                sb.append('{');
+                sb.append("\"nodes\":[");
+                boolean first = true;
+                for (var e : names.entrySet()) {
+                    if (!first) sb.append(',');
+                    first = false;
+                    sb.append('{')
+                            .append("\"id\":").append(e.getKey()).append(',')
+                            .append("\"name\":\"").append(e.getValue()).append("\"}");
+                }
+                sb.append("],\"edges\":[");
+                first = true;
+                for (Object[] edge : edgeRecords) {
+                    if (!first) sb.append(',');
+                    first = false;
+                    sb.append('{')
+                            .append("\"from\":").append(edge[0]).append(',')
+                            .append("\"to\":").append(edge[2]).append(',')
+                            .append("\"type\":\"").append(edge[1]).append("\"}");
+                }
+                sb.append(']');
+                sb.append('}');
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported format: " + format);
+        }
+
+        Files.write(Paths.get(outputPath), sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,123 @@
+package tech.softwareologists.core;
+
+/**
+ * Tuning options for graph imports.
+ *
+ * <p>Instances are immutable; use the {@code with*} methods to derive a copy
+ * with a single value changed.</p>
+ */
+public final class ImportOptions {
+    /** Default number of classes written per transaction. */
+    public static final int DEFAULT_COMMIT_SIZE = 500;
+    /** Default number of attempts made after a transient failure. */
+    public static final int DEFAULT_MAX_RETRIES = 3;
+    /** Default delay before the first retry, doubled on each further attempt. */
+    public static final long DEFAULT_RETRY_BACKOFF_MS = 100;
+    /** Default number of parsed classes that may wait for the writer. */
+    public static final int DEFAULT_QUEUE_CAPACITY = 256;
+
+    private static final ImportOptions DEFAULTS = new ImportOptions(
+            GraphBatchWriter.DEFAULT_BATCH_SIZE, DEFAULT_COMMIT_SIZE, DEFAULT_MAX_RETRIES, DEFAULT_RETRY_BACKOFF_MS,
+            Runtime.getRuntime().availableProcessors(), DEFAULT_QUEUE_CAPACITY);
+
+    private final int batchSize;
+    private final int commitSize;
+    private final int maxRetries;
+    private final long retryBackoffMs;
+    private final int parallelism;
+    private final int queueCapacity;
+
+    private ImportOptions(int batchSize, int commitSize, int maxRetries, long retryBackoffMs,
+                          int parallelism, int queueCapacity) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        if (commitSize < 1) {
+            throw new IllegalArgumentException("commitSize must be positive: " + commitSize);
+        }
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("maxRetries must not be negative: " + maxRetries);
+        }
+        if (retryBackoffMs < 0) {
+            throw new IllegalArgumentException("retryBackoffMs must not be negative: " + retryBackoffMs);
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("queueCapacity must be positive: " + queueCapacity);
+        }
+        this.batchSize = batchSize;
+        this.commitSize = commitSize;
+        this.maxRetries = maxRetries;
+        this.retryBackoffMs = retryBackoffMs;
+        this.parallelism = parallelism;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /** Return the default options. */
+    public static ImportOptions defaults() {
+        return DEFAULTS;
+    }
+
+    /** Maximum number of rows sent with a single UNWIND statement. */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /** Number of classes grouped into one explicit transaction. */
+    public int getCommitSize() {
+        return commitSize;
+    }
+
+    /** Number of times a transaction is replayed after a transient failure. */
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /** Delay before the first retry in milliseconds. */
+    public long getRetryBackoffMs() {
+        return retryBackoffMs;
+    }
+
+    /** Number of threads parsing class files. */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /** Maximum number of parsed classes buffered ahead of the writer. */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public ImportOptions withBatchSize(int batchSize) {
+        return new ImportOptions(batchSize, commitSize, maxRetries, retryBackoffMs, parallelism, queueCapacity);
+    }
+
+    public ImportOptions withCommitSize(int commitSize) {
+        return new ImportOptions(batchSize, commitSize, maxRetries, retryBackoffMs, parallelism, queueCapacity);
+    }
+
+    public ImportOptions withMaxRetries(int maxRetries) {
+        return new ImportOptions(batchSize, commitSize, maxRetries, retryBackoffMs, parallelism, queueCapacity);
+    }
+
+    public ImportOptions withRetryBackoffMs(long retryBackoffMs) {
+        return new ImportOptions(batchSize, commitSize, maxRetries, retryBackoffMs, parallelism, queueCapacity);
+    }
+
+    public ImportOptions withParallelism(int parallelism) {
+        return new ImportOptions(batchSize, commitSize, maxRetries, retryBackoffMs, parallelism, queueCapacity);
+    }
+
+    public ImportOptions withQueueCapacity(int queueCapacity) {
+        return new ImportOptions(batchSize, commitSize, maxRetries, retryBackoffMs, parallelism, queueCapacity);
+    }
+
+    @Override
+    public String toString() {
+        return "ImportOptions{batchSize=" + batchSize + ", commitSize=" + commitSize
+                + ", maxRetries=" + maxRetries + ", retryBackoffMs=" + retryBackoffMs
+                + ", parallelism=" + parallelism + ", queueCapacity=" + queueCapacity + '}';
+    }
+}
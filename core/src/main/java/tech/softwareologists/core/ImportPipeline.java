@@ -0,0 +1,107 @@
+package tech.softwareologists.core;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Two stage import pipeline. A fork-join pool parses class sources into
+ * {@link ClassFacts} in parallel while the calling thread acts as the single
+ * graph writer, consuming the results in source order.
+ *
+ * <p>Parsed results travel through a bounded queue, so at most
+ * {@link ImportOptions#getQueueCapacity()} classes are parsed ahead of the
+ * writer and memory stays bounded on large inputs.</p>
+ */
+public final class ImportPipeline {
+    private ImportPipeline() {
+        // utility class
+    }
+
+    /**
+     * Parses a single class source.
+     *
+     * @param <S> type of the class source
+     */
+    @FunctionalInterface
+    public interface Parser<S> {
+        /**
+         * @return the extracted facts or {@code null} to skip the source
+         */
+        ClassFacts parse(S source) throws Exception;
+    }
+
+    /**
+     * Parse all sources and hand the facts to the writer.
+     *
+     * @param sources class sources in the order they should be written
+     * @param parser parser invoked on the fork-join pool
+     * @param writer consumer invoked on the calling thread only
+     * @param options parallelism and queue capacity settings
+     * @return number of facts passed to the writer
+     */
+    public static <S> int run(List<S> sources, Parser<S> parser, Consumer<ClassFacts> writer,
+                              ImportOptions options) {
+        return run(sources, parser, (source, facts) -> writer.accept(facts), options);
+    }
+
+    /**
+     * Parse all sources and hand the facts together with their source to the
+     * writer, so a single writer can serve sources from several artifacts.
+     *
+     * @param sources class sources in the order they should be written
+     * @param parser parser invoked on the fork-join pool
+     * @param writer consumer invoked on the calling thread only
+     * @param options parallelism and queue capacity settings
+     * @return number of facts passed to the writer
+     */
+    public static <S> int run(List<S> sources, Parser<S> parser, BiConsumer<S, ClassFacts> writer,
+                              ImportOptions options) {
+        if (sources.isEmpty()) {
+            return 0;
+        }
+        ForkJoinPool pool = new ForkJoinPool(options.getParallelism());
+        BlockingQueue<ForkJoinTask<ClassFacts>> queue = new ArrayBlockingQueue<>(options.getQueueCapacity());
+        Thread producer = new Thread(() -> {
+            try {
+                for (S source : sources) {
+                    queue.put(pool.submit(() -> {
+                        try {
+                            return parser.parse(source);
+                        } catch (RuntimeException e) {
+                            throw e;
+                        } catch (Exception e) {
+                            throw new IllegalStateException("Failed to parse " + source, e);
+                        }
+                    }));
+                }
+            } catch (InterruptedException ignored) {
+                // writer aborted
+            }
+        }, "codegraph-import-producer");
+        producer.setDaemon(true);
+        producer.start();
+
+        int written = 0;
+        try {
+            for (S source : sources) {
+                ClassFacts facts = queue.take().join();
+                if (facts != null) {
+                    writer.accept(source, facts);
+                    written++;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while importing", e);
+        } finally {
+            producer.interrupt();
+            pool.shutdownNow();
+        }
+        return written;
+    }
+}
@@ -1,48 +1,30 @@
 package tech.softwareologists.core;
 
-import io.github.classgraph.ClassGraph;
-import io.github.classgraph.ClassInfo;
-import io.github.classgraph.MethodInfo;
-import io.github.classgraph.ScanResult;
-import org.objectweb.asm.ClassReader;
-import org.objectweb.asm.ClassVisitor;
-import org.objectweb.asm.MethodVisitor;
-import org.objectweb.asm.FieldVisitor;
-import org.objectweb.asm.Type;
-import org.objectweb.asm.Opcodes;
 import org.neo4j.driver.Driver;
-import org.neo4j.driver.Session;
-import org.neo4j.driver.Values;
-import tech.softwareologists.core.db.NodeLabel;
-import tech.softwareologists.core.db.EdgeType;
+import tech.softwareologists.core.db.GraphStore;
 import java.io.File;
+import java.io.InputStream;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.jar.JarEntry;
+import java.util.function.Consumer;
+import java.util.jar.JarFile;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
-import org.objectweb.asm.AnnotationVisitor;
-
 /**
  * Utility class to import JAR files into the core engine.
  */
 public class JarImporter {
     private static final Logger LOGGER = Logger.getLogger(JarImporter.class.getName());
 
-    private static final java.util.Map<String, String> MAPPING_VERBS = java.util.Map.of(
-            "org.springframework.web.bind.annotation.GetMapping", "GET",
-            "org.springframework.web.bind.annotation.PostMapping", "POST",
-            "org.springframework.web.bind.annotation.PutMapping", "PUT",
-            "org.springframework.web.bind.annotation.DeleteMapping", "DELETE",
-            "org.springframework.web.bind.annotation.PatchMapping", "PATCH"
-    );
-    private static final String REQUEST_MAPPING =
-            "org.springframework.web.bind.annotation.RequestMapping";
-
     private JarImporter() {
         // utility class
     }
@@ -51,423 +33,409 @@ public class JarImporter {
      * Import the given JAR file into the graph.
      *
      * @param jar the JAR file to import
-     * @param driver the Neo4j driver to use for persistence
+     * @param store the graph store to use for persistence
      */
-    public static void importJar(File jar, Driver driver) {
-        try {
-            LOGGER.info("Importing JAR: " + jar.getAbsolutePath());
+    public static void importJar(File jar, GraphStore store) {
+        importJar(jar, store, ImportOptions.defaults());
+    }
 
-            try (ScanResult scan = new ClassGraph()
-                    .overrideClasspath(jar)
-                    .enableClassInfo()
-                    .enableInterClassDependencies()
-                    .scan()) {
-                List<String> classes = scan.getAllClasses().getNames();
-                LOGGER.info("Classes: " + classes);
-                try (Session session = driver.session()) {
-                    for (ClassInfo classInfo : scan.getAllClasses()) {
-                        String cls = classInfo.getName();
-                        session.run(
-                                "MERGE (c:" + NodeLabel.CLASS + " {name:$name})",
-                                Values.parameters("name", cls));
-                        String pkgName = classInfo.getPackageName();
-                        if (pkgName != null && !pkgName.isEmpty()) {
-                            session.run(
-                                    "MERGE (p:" + NodeLabel.PACKAGE + " {name:$pkg})",
-                                    Values.parameters("pkg", pkgName));
-                            session.run(
-                                    "MATCH (p:" + NodeLabel.PACKAGE + " {name:$pkg}), (c:" + NodeLabel.CLASS + " {name:$cls}) MERGE (p)-[:CONTAINS]->(c)",
-                                    Values.parameters("pkg", pkgName, "cls", cls));
-                        }
+    /**
+     * Import the given JAR file into the graph, sending facts to the database
+     * in UNWIND batches of the given size.
+     *
+     * @param jar the JAR file to import
+     * @param store the graph store to use for persistence
+     * @param batchSize maximum number of rows per write statement
+     */
+    public static void importJar(File jar, GraphStore store, int batchSize) {
+        importJar(jar, store, ImportOptions.defaults().withBatchSize(batchSize));
+    }
 
-                        // record annotations on the class
-                        java.util.List<String> annos = new java.util.ArrayList<>();
-                        classInfo.getAnnotationInfo().forEach(a -> annos.add(a.getName()));
-                        if (!annos.isEmpty()) {
-                            session.run(
-                                    "MATCH (c:" + NodeLabel.CLASS + " {name:$cls}) SET c.annotations=$annos",
-                                    Values.parameters("cls", cls, "annos", annos));
-                        }
+    /**
+     * Import the given JAR file into the graph using explicit transactions
+     * that each cover {@link ImportOptions#getCommitSize()} classes. If the
+     * JAR was imported before, it is replaced as described in
+     * {@link #replaceJar(File, GraphStore, ImportOptions)}.
+     *
+     * @param jar the JAR file to import
+     * @param store the graph store to use for persistence
+     * @param options batch, commit and retry settings
+     */
+    public static void importJar(File jar, GraphStore store, ImportOptions options) {
+        ArtifactFingerprint fingerprint = fingerprint(jar);
+        importJar(jar, store, options, fingerprint, ArtifactFingerprint.load(store, fingerprint.getPath()));
+    }
 
-                        // parse bytecode to create method nodes and call edges
-                        List<String> methodNames = new java.util.ArrayList<>();
-                        Map<String, Set<String>> calls = new HashMap<>();
-                        Map<String, java.util.List<String>> methodAnnos = new HashMap<>();
-                        Map<String, String> methodRoutes = new HashMap<>();
-                        Map<String, String> methodVerbs = new HashMap<>();
-                        Map<String, String> eventTypes = new HashMap<>();
-                        Map<String, String> cronExprs = new HashMap<>();
-                        Set<String> usesDeps = new HashSet<>();
-                        java.util.List<String> classConfigProps = new java.util.ArrayList<>();
-                        Map<String, java.util.List<String>> methodConfigProps = new java.util.HashMap<>();
-                        try (java.io.InputStream in = classInfo.getResource().open()) {
-                            ClassReader cr = new ClassReader(in);
-                            cr.accept(new ClassVisitor(Opcodes.ASM9) {
-                                @Override
-                                public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
-                                    return new FieldVisitor(Opcodes.ASM9) {
-                                        boolean autowired = false;
-                                        String configKey = null;
-
-                                        @Override
-                                        public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
-                                            String ann = Type.getType(desc).getClassName();
-                                            if ("org.springframework.beans.factory.annotation.Autowired".equals(ann)) {
-                                                autowired = true;
-                                            }
-                                            AnnotationVisitor parent = super.visitAnnotation(desc, visible);
-                                            if (ann.endsWith(".Value") || ann.endsWith(".ConfigurationProperty")) {
-                                                return new AnnotationVisitor(Opcodes.ASM9, parent) {
-                                                    @Override
-                                                    public void visit(String name, Object value) {
-                                                        if (value instanceof String && (name == null || "value".equals(name) || "name".equals(name))) {
-                                                            String v = (String) value;
-                                                            if (v.startsWith("${") && v.endsWith("}")) {
-                                                                v = v.substring(2, v.length() - 1);
-                                                                int idx = v.indexOf(':');
-                                                                if (idx > -1) v = v.substring(0, idx);
-                                                            }
-                                                            configKey = v;
-                                                        }
-                                                    }
-
-                                                    @Override
-                                                    public void visitEnd() {
-                                                        if (configKey != null) {
-                                                            classConfigProps.add(configKey);
-                                                        }
-                                                        super.visitEnd();
-                                                    }
-                                                };
-                                            }
-                                            return parent;
-                                        }
-
-                                        @Override
-                                        public void visitEnd() {
-                                            if (autowired) {
-                                                String type = Type.getType(descriptor).getClassName();
-                                                usesDeps.add(type);
-                                            }
-                                            super.visitEnd();
-                                        }
-                                    };
-                                }
-
-                                @Override
-                                public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
-                                    String sig = name + descriptor;
-                                    if ("<init>".equals(name)) {
-                                        for (Type t : Type.getArgumentTypes(descriptor)) {
-                                            usesDeps.add(t.getClassName());
-                                        }
-                                    }
-                                    methodNames.add(sig);
-                                    session.run(
-                                            "MERGE (m:" + NodeLabel.METHOD + " {class:$cls, signature:$sig})",
-                                            Values.parameters("cls", cls, "sig", sig));
-                                    java.util.List<String> mprops = new java.util.ArrayList<>();
-                                    methodConfigProps.put(sig, mprops);
-                                    return new MethodVisitor(Opcodes.ASM9) {
-                                        @Override
-                                        public AnnotationVisitor visitParameterAnnotation(int parameter, String descriptor, boolean visible) {
-                                            String ann = Type.getType(descriptor).getClassName();
-                                            AnnotationVisitor parent = super.visitParameterAnnotation(parameter, descriptor, visible);
-                                            if (ann.endsWith(".Value") || ann.endsWith(".ConfigurationProperty")) {
-                                                return new AnnotationVisitor(Opcodes.ASM9, parent) {
-                                                    String key = null;
-
-                                                    @Override
-                                                    public void visit(String name, Object value) {
-                                                        if (value instanceof String && (name == null || "value".equals(name) || "name".equals(name))) {
-                                                            String v = (String) value;
-                                                            if (v.startsWith("${") && v.endsWith("}")) {
-                                                                v = v.substring(2, v.length() - 1);
-                                                                int idx = v.indexOf(':');
-                                                                if (idx > -1) v = v.substring(0, idx);
-                                                            }
-                                                            key = v;
-                                                        }
-                                                    }
-
-                                                    @Override
-                                                    public void visitEnd() {
-                                                        if (key != null) {
-                                                            mprops.add(key);
-                                                        }
-                                                        super.visitEnd();
-                                                    }
-                                                };
-                                            }
-                                            return parent;
-                                        }
-                                        @Override
-                                        public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
-                                            String ann = org.objectweb.asm.Type.getType(descriptor).getClassName();
-                                            methodAnnos.computeIfAbsent(sig, k -> new java.util.ArrayList<>()).add(ann);
-                                            AnnotationVisitor parent = super.visitAnnotation(descriptor, visible);
-                                            if (MAPPING_VERBS.containsKey(ann) || REQUEST_MAPPING.equals(ann)) {
-                                                return new AnnotationVisitor(Opcodes.ASM9, parent) {
-                                                    String route = null;
-                                                    String verb = MAPPING_VERBS.get(ann);
-
-                                                    @Override
-                                                    public void visit(String name, Object value) {
-                                                        if (("value".equals(name) || "path".equals(name)) && value instanceof String) {
-                                                            route = (String) value;
-                                                        }
-                                                    }
-
-                                                    @Override
-                                                    public AnnotationVisitor visitArray(String name) {
-                                                        if ("value".equals(name) || "path".equals(name)) {
-                                                            return new AnnotationVisitor(Opcodes.ASM9) {
-                                                                String first = null;
-
-                                                                @Override
-                                                                public void visit(String n, Object v) {
-                                                                    if (v instanceof String && first == null) {
-                                                                        first = (String) v;
-                                                                    }
-                                                                }
-
-                                                                @Override
-                                                                public void visitEnd() {
-                                                                    if (first != null) {
-                                                                        route = first;
-                                                                    }
-                                                                }
-                                                            };
-                                                        } else if ("method".equals(name)) {
-                                                            return new AnnotationVisitor(Opcodes.ASM9) {
-                                                                @Override
-                                                                public void visitEnum(String n, String desc, String value) {
-                                                                    if (verb == null) {
-                                                                        verb = value;
-                                                                    }
-                                                                }
-                                                            };
-                                                        }
-                                                        return super.visitArray(name);
-                                                    }
-
-                                                    @Override
-                                                    public void visitEnum(String name, String descriptor, String value) {
-                                                        if ("method".equals(name)) {
-                                                            verb = value;
-                                                        }
-                                                    }
-
-                                                    @Override
-                                                    public void visitEnd() {
-                                                        if (route != null) {
-                                                            methodRoutes.put(sig, route);
-                                                        }
-                                                        if (verb != null) {
-                                                            methodVerbs.put(sig, verb);
-                                                        }
-                                                        super.visitEnd();
-                                                    }
-                                                };
-                                            } else if ("org.springframework.context.event.EventListener".equals(ann)) {
-                                                return new AnnotationVisitor(Opcodes.ASM9, parent) {
-                                                    String evType = null;
-
-                                                    @Override
-                                                    public void visit(String name, Object value) {
-                                                        if (("classes".equals(name) || "value".equals(name)) && value instanceof Type) {
-                                                            evType = ((Type) value).getClassName();
-                                                        }
-                                                    }
-
-                                                    @Override
-                                                    public AnnotationVisitor visitArray(String name) {
-                                                        if ("classes".equals(name) || "value".equals(name)) {
-                                                            return new AnnotationVisitor(Opcodes.ASM9) {
-                                                                String first = null;
-
-                                                                @Override
-                                                                public void visit(String n, Object v) {
-                                                                    if (v instanceof Type && first == null) {
-                                                                        first = ((Type) v).getClassName();
-                                                                    }
-                                                                }
-
-                                                                @Override
-                                                                public void visitEnd() {
-                                                                    if (first != null) {
-                                                                        evType = first;
-                                                                    }
-                                                                }
-                                                            };
-                                                        }
-                                                        return super.visitArray(name);
-                                                    }
-
-                                                    @Override
-                                                    public void visitEnd() {
-                                                        if (evType != null) {
-                                                            eventTypes.put(sig, evType);
-                                                        }
-                                                        super.visitEnd();
-                                                    }
-                                                };
-                                            } else if ("org.springframework.scheduling.annotation.Scheduled".equals(ann)) {
-                                                return new AnnotationVisitor(Opcodes.ASM9, parent) {
-                                                    String cron = null;
-
-                                                    @Override
-                                                    public void visit(String name, Object value) {
-                                                        if ("cron".equals(name) && value instanceof String) {
-                                                            cron = (String) value;
-                                                        }
-                                                    }
-
-                                                    @Override
-                                                    public void visitEnd() {
-                                                        if (cron != null) {
-                                                            cronExprs.put(sig, cron);
-                                                        }
-                                                        super.visitEnd();
-                                                    }
-                                                };
-                                            }
-                                            return parent;
-                                        }
-                                        @Override
-                                        public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
-                                            String tgtCls = owner.replace('/', '.');
-                                            String tgtSig = name + descriptor;
-                                            calls.computeIfAbsent(sig, k -> new HashSet<>())
-                                                    .add(tgtCls + "|" + tgtSig);
-                                        }
-                                    };
-                                }
-                            }, 0);
-                        }
-                        if (!methodNames.isEmpty()) {
-                            LOGGER.info("Methods in " + cls + ": " + methodNames);
-                        }
+    /**
+     * Import the given JAR file unless an artifact with the same SHA-256 and
+     * {@link ArtifactFingerprint#SCHEMA_VERSION} is already recorded for its
+     * path.
+     *
+     * @param jar the JAR file to import
+     * @param store the graph store to use for persistence
+     * @param options batch, commit and retry settings
+     * @return {@code true} if the JAR was imported, {@code false} if it was skipped
+     */
+    public static boolean importJarIfChanged(File jar, GraphStore store, ImportOptions options) {
+        ArtifactFingerprint fingerprint = fingerprint(jar);
+        ArtifactFingerprint stored = ArtifactFingerprint.load(store, fingerprint.getPath());
+        if (fingerprint.matches(stored)) {
+            LOGGER.info("Skipping unchanged JAR: " + jar.getAbsolutePath());
+            return false;
+        }
+        importJar(jar, store, options, fingerprint, stored);
+        return true;
+    }
 
-                        for (Map.Entry<String, java.util.List<String>> ma : methodAnnos.entrySet()) {
-                            session.run(
-                                    "MATCH (m:" + NodeLabel.METHOD + " {class:$cls, signature:$sig}) SET m.annotations=$annos",
-                                    Values.parameters("cls", cls, "sig", ma.getKey(), "annos", ma.getValue()));
-                        }
+    /**
+     * Import many JAR files at once, as done on a cold start. Unchanged JARs
+     * are skipped and JARs imported before are replaced one by one. The
+     * classes of all new JARs are parsed in parallel through a single
+     * {@link ImportPipeline} and written by one {@link GraphBatchWriter}, so
+     * parsing scales with {@link ImportOptions#getParallelism()} while writes
+     * never contend for the same nodes. Progress and throughput are logged
+     * about once per second.
+     *
+     * @param jars the JAR files to import
+     * @param store the graph store to use for persistence
+     * @param options batch, commit, retry and parallelism settings
+     * @return number of JARs imported or replaced
+     */
+    public static int importJars(List<File> jars, GraphStore store, ImportOptions options) {
+        List<ArtifactFingerprint> fingerprints = jars.parallelStream()
+                .map(JarImporter::fingerprint)
+                .collect(Collectors.toList());
+        List<ArtifactFingerprint> added = new ArrayList<>();
+        int changed = 0;
+        for (int i = 0; i < jars.size(); i++) {
+            ArtifactFingerprint fingerprint = fingerprints.get(i);
+            ArtifactFingerprint stored = ArtifactFingerprint.load(store, fingerprint.getPath());
+            if (fingerprint.matches(stored)) {
+                LOGGER.info("Skipping unchanged JAR: " + fingerprint.getPath());
+            } else if (stored != null) {
+                replaceJar(jars.get(i), store, options);
+                changed++;
+            } else {
+                added.add(fingerprint);
+            }
+        }
+        if (added.isEmpty()) {
+            return changed;
+        }
 
-                        for (Map.Entry<String, String> en : methodRoutes.entrySet()) {
-                            session.run(
-                                    "MATCH (m:" + NodeLabel.METHOD + " {class:$cls, signature:$sig}) SET m.httpRoute=$route",
-                                    Values.parameters("cls", cls, "sig", en.getKey(), "route", en.getValue()));
+        List<JarFile> jarFiles = new ArrayList<>();
+        try {
+            List<Map.Entry<JarFile, JarEntry>> sources = new ArrayList<>();
+            Map<JarFile, Set<String>> scanned = new HashMap<>();
+            for (ArtifactFingerprint fingerprint : added) {
+                JarFile jarFile = new JarFile(fingerprint.getPath());
+                jarFiles.add(jarFile);
+                List<JarEntry> entries = classEntries(jarFile);
+                scanned.put(jarFile, classNames(entries));
+                for (JarEntry entry : entries) {
+                    sources.add(new AbstractMap.SimpleImmutableEntry<>(jarFile, entry));
+                }
+            }
+            LOGGER.info("Importing " + added.size() + " JARs with " + sources.size() + " classes using "
+                    + options.getParallelism() + " parser threads");
+
+            GraphBatchWriter writer = new GraphBatchWriter(store, options);
+            Progress progress = new Progress(added.size());
+            ImportPipeline.run(sources, source -> parse(source.getKey(), source.getValue(), scanned.get(source.getKey())),
+                    (source, facts) -> {
+                        String path = source.getKey().getName();
+                        if (!path.equals(progress.artifact)) {
+                            progress.nextArtifact(path);
+                            writer.setArtifact(path);
                         }
+                        writer.write(facts);
+                        progress.add(facts);
+                    }, options);
+            writer.flush();
+            progress.log("Imported");
+            LOGGER.info("Wrote " + writer.getRowCount() + " facts in "
+                    + writer.getStatementCount() + " statements and "
+                    + writer.getTransactionCount() + " transactions");
+            for (ArtifactFingerprint fingerprint : added) {
+                fingerprint.store(store);
+            }
+            return changed + added.size();
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Failed to import JARs", e);
+            throw new RuntimeException(e);
+        } finally {
+            for (JarFile jarFile : jarFiles) {
+                try {
+                    jarFile.close();
+                } catch (java.io.IOException e) {
+                    LOGGER.log(Level.WARNING, "Failed to close " + jarFile.getName(), e);
+                }
+            }
+        }
+    }
 
+    /**
+     * Parse the given JARs without writing to a database and hand the facts
+     * of every class to the sink, for example a
+     * {@link tech.softwareologists.core.csr.CsrGraph.Builder}. Classes are
+     * parsed in parallel through an {@link ImportPipeline}; the sink is only
+     * called from the calling thread.
+     *
+     * @param jars the JAR files to read
+     * @param sink consumer of the extracted facts
+     * @param options parallelism and queue capacity settings
+     * @return number of classes passed to the sink
+     */
+    public static int readJars(List<File> jars, Consumer<ClassFacts> sink, ImportOptions options) {
+        List<JarFile> jarFiles = new ArrayList<>();
+        try {
+            List<Map.Entry<JarFile, JarEntry>> sources = new ArrayList<>();
+            Map<JarFile, Set<String>> scanned = new HashMap<>();
+            for (File jar : jars) {
+                JarFile jarFile = new JarFile(jar);
+                jarFiles.add(jarFile);
+                List<JarEntry> entries = classEntries(jarFile);
+                scanned.put(jarFile, classNames(entries));
+                for (JarEntry entry : entries) {
+                    sources.add(new AbstractMap.SimpleImmutableEntry<>(jarFile, entry));
+                }
+            }
+            LOGGER.info("Reading " + jars.size() + " JARs with " + sources.size() + " classes using "
+                    + options.getParallelism() + " parser threads");
+            return ImportPipeline.run(sources,
+                    source -> parse(source.getKey(), source.getValue(), scanned.get(source.getKey())), sink, options);
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Failed to read JARs", e);
+            throw new RuntimeException(e);
+        } finally {
+            for (JarFile jarFile : jarFiles) {
+                try {
+                    jarFile.close();
+                } catch (java.io.IOException e) {
+                    LOGGER.log(Level.WARNING, "Failed to close " + jarFile.getName(), e);
+                }
+            }
+        }
+    }
 
-                        for (Map.Entry<String, String> en : methodVerbs.entrySet()) {
-                            session.run(
-                                    "MATCH (m:" + NodeLabel.METHOD + " {class:$cls, signature:$sig}) SET m.httpMethod=$verb",
-                                    Values.parameters("cls", cls, "sig", en.getKey(), "verb", en.getValue()));
-                        }
+    /**
+     * Replace the facts previously imported from the given JAR with its
+     * current content. Old and new facts are compared and only the
+     * difference is written, in a single transaction, so readers never see
+     * a partially replaced artifact.
+     *
+     * @param jar the JAR file to import
+     * @param store the graph store to use for persistence
+     * @param options batch, retry and parallelism settings
+     */
+    public static void replaceJar(File jar, GraphStore store, ImportOptions options) {
+        ArtifactFingerprint fingerprint = fingerprint(jar);
+        try {
+            LOGGER.info("Replacing JAR: " + jar.getAbsolutePath());
+            try (JarFile jarFile = new JarFile(jar)) {
+                Map<String, ClassFacts> previous = ArtifactDelta.load(store, fingerprint.getPath());
+                Map<String, ClassFacts> current = new LinkedHashMap<>();
+                List<JarEntry> entries = classEntries(jarFile);
+                Set<String> scanned = classNames(entries);
+                ImportPipeline.run(entries, entry -> parse(jarFile, entry, scanned),
+                        facts -> current.put(facts.getName(), facts), options);
+
+                GraphBatchWriter writer = new GraphBatchWriter(store,
+                        options.withCommitSize(Integer.MAX_VALUE), fingerprint.getPath());
+                for (ClassFacts facts : current.values()) {
+                    ArtifactDelta.write(writer, previous.remove(facts.getName()), facts);
+                }
+                for (ClassFacts facts : previous.values()) {
+                    ArtifactDelta.write(writer, facts, null);
+                }
+                writer.flush();
+                LOGGER.info("Replaced " + current.size() + " classes with " + writer.getRowCount()
+                        + " changed facts, removed " + previous.size() + " classes");
+            }
+            fingerprint.store(store);
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Failed to replace JAR", e);
+            throw new RuntimeException(e);
+        }
+    }
 
-                        for (Map.Entry<String, String> en : eventTypes.entrySet()) {
-                            session.run(
-                                    "MATCH (m:" + NodeLabel.METHOD + " {class:$cls, signature:$sig}) SET m.eventType=$type",
-                                    Values.parameters("cls", cls, "sig", en.getKey(), "type", en.getValue()));
-                        }
+    /**
+     * Remove every class, method and edge imported from the given JAR in a
+     * single transaction. Nodes still referenced by other artifacts are kept
+     * without the facts contributed by this JAR.
+     *
+     * @param jar the JAR file, which no longer needs to exist
+     * @param store the graph store to use for persistence
+     */
+    public static void removeJar(File jar, GraphStore store) {
+        String path = jar.getAbsolutePath();
+        try {
+            LOGGER.info("Removing JAR: " + path);
+            Map<String, ClassFacts> previous = ArtifactDelta.load(store, path);
+            GraphBatchWriter writer = new GraphBatchWriter(store,
+                    ImportOptions.defaults().withCommitSize(Integer.MAX_VALUE), path);
+            for (ClassFacts facts : previous.values()) {
+                ArtifactDelta.write(writer, facts, null);
+            }
+            writer.flush();
+            LOGGER.info("Removed " + previous.size() + " classes");
+            ArtifactFingerprint.delete(store, path);
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Failed to remove JAR", e);
+            throw new RuntimeException(e);
+        }
+    }
 
-                        for (Map.Entry<String, String> en : cronExprs.entrySet()) {
-                            session.run(
-                                    "MATCH (m:" + NodeLabel.METHOD + " {class:$cls, signature:$sig}) SET m.cron=$cron",
-                                    Values.parameters("cls", cls, "sig", en.getKey(), "cron", en.getValue()));
-                        }
+    /** Driver based variant of {@link #importJar(File, GraphStore)}. */
+    public static void importJar(File jar, Driver driver) {
+        importJar(jar, GraphStore.of(driver));
+    }
 
-                        if (!classConfigProps.isEmpty()) {
-                            session.run(
-                                    "MATCH (c:" + NodeLabel.CLASS + " {name:$cls}) SET c.configProperties=$props",
-                                    Values.parameters("cls", cls, "props", classConfigProps));
-                        }
-                        for (Map.Entry<String, java.util.List<String>> en : methodConfigProps.entrySet()) {
-                            if (!en.getValue().isEmpty()) {
-                                session.run(
-                                        "MATCH (m:" + NodeLabel.METHOD + " {class:$cls, signature:$sig}) SET m.configProperties=$props",
-                                        Values.parameters("cls", cls, "sig", en.getKey(), "props", en.getValue()));
-                            }
-                        }
+    /** Driver based variant of {@link #importJar(File, GraphStore, int)}. */
+    public static void importJar(File jar, Driver driver, int batchSize) {
+        importJar(jar, GraphStore.of(driver), batchSize);
+    }
 
-                        for (Map.Entry<String, Set<String>> entry : calls.entrySet()) {
-                            String fromSig = entry.getKey();
-                            for (String tgtCombined : entry.getValue()) {
-                                int idx = tgtCombined.indexOf('|');
-                                String tgtCls = tgtCombined.substring(0, idx);
-                                String tgtSig = tgtCombined.substring(idx + 1);
-                                session.run(
-                                        "MERGE (m:" + NodeLabel.METHOD + " {class:$cls, signature:$sig})",
-                                        Values.parameters("cls", tgtCls, "sig", tgtSig));
-                                session.run(
-                                        "MATCH (s:" + NodeLabel.METHOD + " {class:$scls, signature:$ssig}), " +
-                                                "(t:" + NodeLabel.METHOD + " {class:$tcls, signature:$tsig}) MERGE (s)-[:CALLS]->(t)",
-                                        Values.parameters(
-                                                "scls", cls,
-                                                "ssig", fromSig,
-                                                "tcls", tgtCls,
-                                                "tsig", tgtSig));
-                            }
-                        }
+    /** Driver based variant of {@link #importJar(File, GraphStore, ImportOptions)}. */
+    public static void importJar(File jar, Driver driver, ImportOptions options) {
+        importJar(jar, GraphStore.of(driver), options);
+    }
 
-                        java.util.Set<String> seenDeps = new java.util.HashSet<>();
-                        for (ClassInfo dep : classInfo.getClassDependencies()) {
-                            String depName = dep.getName();
-                            if (cls.equals(depName) || !seenDeps.add(depName)) {
-                                continue;
-                            }
-                            session.run(
-                                    "MERGE (d:" + NodeLabel.CLASS + " {name:$dep})",
-                                    Values.parameters("dep", depName));
-                            session.run(
-                                    "MATCH (s:" + NodeLabel.CLASS + " {name:$src}), (t:" + NodeLabel.CLASS + " {name:$tgt}) MERGE (s)-[:" + EdgeType.DEPENDS_ON + "]->(t)",
-                                    Values.parameters("src", cls, "tgt", depName));
-                        }
+    /** Driver based variant of {@link #importJarIfChanged(File, GraphStore, ImportOptions)}. */
+    public static boolean importJarIfChanged(File jar, Driver driver, ImportOptions options) {
+        return importJarIfChanged(jar, GraphStore.of(driver), options);
+    }
 
-                        for (String use : usesDeps) {
-                            session.run(
-                                    "MERGE (u:" + NodeLabel.CLASS + " {name:$dep})",
-                                    Values.parameters("dep", use));
-                            session.run(
-                                    "MATCH (s:" + NodeLabel.CLASS + " {name:$src}), (t:" + NodeLabel.CLASS + " {name:$tgt}) MERGE (s)-[:" + EdgeType.USES + "]->(t)",
-                                    Values.parameters("src", cls, "tgt", use));
-                        }
+    /** Driver based variant of {@link #importJars(List, GraphStore, ImportOptions)}. */
+    public static int importJars(List<File> jars, Driver driver, ImportOptions options) {
+        return importJars(jars, GraphStore.of(driver), options);
+    }
 
-                        // record implemented interfaces
-                        java.util.Set<String> seenInterfaces = new java.util.HashSet<>();
-                        for (ClassInfo iface : classInfo.getInterfaces()) {
-                            String ifaceName = iface.getName();
-                            if (!seenInterfaces.add(ifaceName)) {
-                                continue;
-                            }
-                            session.run(
-                                    "MERGE (i:" + NodeLabel.CLASS + " {name:$iface})",
-                                    Values.parameters("iface", ifaceName));
-                            session.run(
-                                    "MATCH (c:" + NodeLabel.CLASS + " {name:$cls}), (i:" + NodeLabel.CLASS + " {name:$iface}) MERGE (c)-[:" + EdgeType.IMPLEMENTS + "]->(i)",
-                                    Values.parameters("cls", cls, "iface", ifaceName));
-                        }
+    /** Driver based variant of {@link #replaceJar(File, GraphStore, ImportOptions)}. */
+    public static void replaceJar(File jar, Driver driver, ImportOptions options) {
+        replaceJar(jar, GraphStore.of(driver), options);
+    }
 
-                        // record superclass relationship
-                        ClassInfo superInfo = classInfo.getSuperclass();
-                        if (superInfo != null) {
-                            String superName = superInfo.getName();
-                            session.run(
-                                    "MERGE (s:" + NodeLabel.CLASS + " {name:$sup})",
-                                    Values.parameters("sup", superName));
-                            session.run(
-                                    "MATCH (c:" + NodeLabel.CLASS + " {name:$cls}), (s:" + NodeLabel.CLASS + " {name:$sup}) MERGE (c)-[:" + EdgeType.EXTENDS + "]->(s)",
-                                    Values.parameters("cls", cls, "sup", superName));
-                        }
-                    }
-                }
+    /** Driver based variant of {@link #removeJar(File, GraphStore)}. */
+    public static void removeJar(File jar, Driver driver) {
+        removeJar(jar, GraphStore.of(driver));
+    }
+
+    private static void importJar(File jar, GraphStore store, ImportOptions options,
+                                  ArtifactFingerprint fingerprint, ArtifactFingerprint stored) {
+        if (stored != null) {
+            replaceJar(jar, store, options);
+            return;
+        }
+        try {
+            LOGGER.info("Importing JAR: " + jar.getAbsolutePath());
+
+            try (JarFile jarFile = new JarFile(jar)) {
+                List<JarEntry> entries = classEntries(jarFile);
+                LOGGER.info("Classes: " + entries.stream()
+                        .map(e -> classNameOf(e.getName()))
+                        .collect(Collectors.toList()));
+                GraphBatchWriter writer = new GraphBatchWriter(store, options, fingerprint.getPath());
+                Set<String> scanned = classNames(entries);
+                ImportPipeline.run(entries, entry -> parse(jarFile, entry, scanned), writer::write, options);
+                writer.flush();
+                LOGGER.info("Wrote " + writer.getRowCount() + " facts in "
+                        + writer.getStatementCount() + " statements and "
+                        + writer.getTransactionCount() + " transactions");
             }
+            fingerprint.store(store);
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Failed to import JAR", e);
             throw new RuntimeException(e);
         }
     }
+
+    static ClassFacts parse(JarFile jarFile, JarEntry entry, Set<String> scanned) throws java.io.IOException {
+        try (InputStream in = jarFile.getInputStream(entry)) {
+            return ClassFactsExtractor.extract(in, scanned::contains);
+        }
+    }
+
+    /** Names of the classes defined by the given class file entries. */
+    static Set<String> classNames(List<JarEntry> entries) {
+        Set<String> names = new HashSet<>();
+        for (JarEntry entry : entries) {
+            names.add(classNameOf(entry.getName()));
+        }
+        return names;
+    }
+
+    private static ArtifactFingerprint fingerprint(File jar) {
+        try {
+            return ArtifactFingerprint.of(jar);
+        } catch (java.io.IOException e) {
+            LOGGER.log(Level.SEVERE, "Failed to import JAR", e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * List the class file entries of a JAR, skipping module descriptors and
+     * versioned entries of multi-release JARs.
+     */
+    static List<JarEntry> classEntries(JarFile jarFile) {
+        return jarFile.stream()
+                .filter(e -> !e.isDirectory())
+                .filter(e -> e.getName().endsWith(".class"))
+                .filter(e -> !e.getName().startsWith("META-INF/"))
+                .filter(e -> !e.getName().endsWith("module-info.class"))
+                .collect(Collectors.toList());
+    }
+
+    private static String classNameOf(String entryName) {
+        return entryName.substring(0, entryName.length() - ".class".length()).replace('/', '.');
+    }
+
+    /** Counts written classes and edges of a multi-JAR import. */
+    private static final class Progress {
+        private static final long INTERVAL_NANOS = 1_000_000_000L;
+
+        private final int artifacts;
+        private final long start = System.nanoTime();
+        private long lastLog = start;
+        private String artifact;
+        private int artifactIndex;
+        private long classes;
+        private long edges;
+
+        private Progress(int artifacts) {
+            this.artifacts = artifacts;
+        }
+
+        private void nextArtifact(String path) {
+            artifact = path;
+            artifactIndex++;
+        }
+
+        private void add(ClassFacts facts) {
+            classes++;
+            edges += facts.getDependencies().size() + facts.getUses().size() + facts.getInterfaces().size();
+            if (facts.getSuperclass() != null) {
+                edges++;
+            }
+            if (!facts.getPackageName().isEmpty()) {
+                edges++;
+            }
+            for (ClassFacts.MethodFacts method : facts.getMethods()) {
+                edges += method.getCalls().size();
+            }
+            // Checked per class so a single large JAR still reports progress.
+            long now = System.nanoTime();
+            if (now - lastLog >= INTERVAL_NANOS) {
+                lastLog = now;
+                log("Importing");
+            }
+        }
+
+        private void log(String verb) {
+            double seconds = Math.max(System.nanoTime() - start, 1L) / 1e9;
+            LOGGER.info(String.format("%s %d/%d JARs: %d classes, %d edges (%.0f classes/s, %.0f edges/s)",
+                    verb, artifactIndex, artifacts, classes, edges, classes / seconds, edges / seconds));
+        }
+    }
 }
@@ -64,6 +64,11 @@ public class ManifestGenerator {
                     }
                     sb.append('}');
                     break;
+                case "searchSymbols":
+                    sb.append(",\"defaults\":{\"limit\":")
+                            .append(QueryDefaults.DEFAULT_LIMIT)
+                            .append('}');
+                    break;
                 case "getGraphStatistics":
                     sb.append(",\"defaults\":{\"topN\":")
                             .append(QueryDefaults.DEFAULT_TOP_N)
@@ -0,0 +1,89 @@
+package tech.softwareologists.core;
+
+import java.util.List;
+
+/**
+ * Renders the package tree returned by
+ * {@link QueryService#getPackageHierarchy(String, Integer)}.
+ */
+public final class PackageHierarchy {
+    private PackageHierarchy() {
+        // utility class
+    }
+
+    /**
+     * Build the JSON tree of packages and classes below the root package.
+     *
+     * @param rootPackage package at the root of the tree
+     * @param depth maximum package depth below the root or {@code null} for all
+     * @param entries package and class name pairs of all packages starting with the root
+     * @return JSON tree with nested {@code packages} and sorted {@code classes}
+     */
+    public static String toJson(String rootPackage, Integer depth, List<String[]> entries) {
+        class PackageNode {
+            String name;
+            java.util.Map<String, PackageNode> children = new java.util.TreeMap<>();
+            java.util.List<String> classes = new java.util.ArrayList<>();
+
+            PackageNode(String name) { this.name = name; }
+        }
+
+        String[] rootParts = rootPackage.isEmpty() ? new String[0] : rootPackage.split("\\.");
+        PackageNode root = new PackageNode(rootPackage);
+
+        java.util.function.Function<String, Integer> depthCalc = pkg -> {
+            if (pkg.isEmpty()) return 0;
+            int diff = pkg.split("\\.").length - rootParts.length;
+            return diff;
+        };
+
+        for (String[] entry : entries) {
+            String pkg = entry[0];
+            String cls = entry[1];
+            int d = depthCalc.apply(pkg);
+            if (depth != null && d > depth) continue;
+            PackageNode node = root;
+            if (!pkg.equals(rootPackage)) {
+                String rel = pkg.substring(rootPackage.isEmpty() ? 0 : rootPackage.length() + 1);
+                String[] parts = rel.split("\\.");
+                String current = rootPackage;
+                for (int i = 0; i < parts.length && (depth == null || i + 1 <= depth); i++) {
+                    current = current.isEmpty() ? parts[i] : current + "." + parts[i];
+                    node = node.children.computeIfAbsent(current, PackageNode::new);
+                }
+            }
+            node.classes.add(cls);
+        }
+
+        java.util.function.Function<PackageNode, String> toJson = new java.util.function.Function<PackageNode, String>() {
+            @Override
+            public String apply(PackageNode n) {
+                StringBuilder sb = new StringBuilder();
+                sb.append('{').append("\"name\":\"").append(n.name).append("\"");
+                if (!n.classes.isEmpty()) {
+                    java.util.Collections.sort(n.classes);
+                    sb.append(",\"classes\":[");
+                    for (int i = 0; i < n.classes.size(); i++) {
+                        if (i > 0) sb.append(',');
+                        sb.append('"').append(n.classes.get(i)).append('"');
+                    }
+                    sb.append(']');
+                }
+                if (!n.children.isEmpty()) {
+                    sb.append(",\"packages\":[");
+                    boolean first = true;
+                    for (PackageNode child : n.children.values()) {
+                        if (!first) sb.append(',');
+                        first = false;
+                        sb.append(apply(child));
+                    }
+                    sb.append(']');
+                }
+                sb.append('}');
+                return sb.toString();
+            }
+        };
+
+        return toJson.apply(root);
+    }
+}
@@ -0,0 +1,254 @@
+package tech.softwareologists.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Position after the last result of a page, handed to clients as an opaque
+ * token by {@link QueryResult#getNextCursor()} and accepted by
+ * {@link QueryService#nextPage(String)}.
+ *
+ * <p>A cursor records the {@link PagedQuery} it continues and its arguments,
+ * the sort key of the last result returned and how many results with that
+ * key were returned, the page size and what is left of the limit, and the
+ * graph generation and total of the first page. The next page starts
+ * right after that key instead of skipping a number of rows, so it costs
+ * the same as the first page and does not shift when results are added or
+ * removed before it. The total is reused while the generation is
+ * unchanged.</p>
+ */
+public final class PageCursor {
+    private static final int FORMAT = 1;
+
+    private final PagedQuery query;
+    private final List<Object> args;
+    private final String after;
+    private final int ties;
+    private final long generation;
+    private final int pageSize;
+    private final Integer remaining;
+    private final int page;
+    private final int total;
+
+    private PageCursor(PagedQuery query, List<Object> args, String after, int ties, long generation, int pageSize,
+                       Integer remaining, int page, int total) {
+        this.query = query;
+        this.args = args;
+        this.after = after;
+        this.ties = ties;
+        this.generation = generation;
+        this.pageSize = pageSize;
+        this.remaining = remaining;
+        this.page = page;
+        this.total = total;
+    }
+
+    /**
+     * Create the token continuing an offset based page, or {@code null} if
+     * the page is the last one.
+     *
+     * @param query paged query that produced the page
+     * @param args arguments of that query other than limit, page and page size
+     * @param result the page
+     * @param limit limit of the original call, or {@code null}
+     * @param generation graph generation the page was read from
+     */
+    public static String first(PagedQuery query, List<Object> args, QueryResult<String> result, Integer limit,
+                               long generation) {
+        if (!result.hasMore() || result.getItems().isEmpty()) {
+            return null;
+        }
+        int skip = Math.max(0, (result.getPage() - 1) * result.getPageSize());
+        Integer remaining = limit == null ? null : limit - skip - result.getItems().size();
+        return next(query, args, result.getItems(), null, generation, result.getPageSize(), remaining,
+                result.getPage() + 1, result.getTotal()).encode();
+    }
+
+    /**
+     * Create the cursor following the given items, which continue the
+     * previous cursor if it is not {@code null}.
+     */
+    static PageCursor next(PagedQuery query, List<Object> args, List<String> items, PageCursor previous, long generation,
+                           int pageSize, Integer remaining, int page, int total) {
+        String last = items.get(items.size() - 1);
+        int ties = 0;
+        for (int i = items.size() - 1; i >= 0 && items.get(i).equals(last); i--) {
+            ties++;
+        }
+        if (ties == items.size() && previous != null && last.equals(previous.after)) {
+            ties += previous.ties;
+        }
+        return new PageCursor(query, args, last, ties, generation, pageSize, remaining, page, total);
+    }
+
+    /**
+     * Decode a token created by {@link #encode()}. The arguments are checked
+     * against the query, so a tampered token fails here instead of when the
+     * query runs.
+     *
+     * @throws IllegalArgumentException if the token is not a valid cursor
+     */
+    public static PageCursor decode(String token) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(token)))) {
+            if (in.readUnsignedByte() != FORMAT) {
+                throw new IllegalArgumentException("Unsupported cursor format");
+            }
+            PagedQuery query = PagedQuery.of(in.readUTF());
+            int n = in.readUnsignedByte();
+            List<Object> args = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                int tag = in.readUnsignedByte();
+                args.add(tag == 0 ? null : tag == 1 ? in.readUTF() : (Object) in.readInt());
+            }
+            String after = in.readUTF();
+            int ties = in.readInt();
+            long generation = in.readLong();
+            int pageSize = in.readInt();
+            int remaining = in.readInt();
+            int page = in.readInt();
+            int total = in.readInt();
+            if (pageSize <= 0 || ties <= 0 || in.available() > 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            query.checkArgs(args);
+            return new PageCursor(query, Collections.unmodifiableList(args), after, ties, generation, pageSize,
+                    remaining < 0 ? null : remaining, page, total);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token, e);
+        }
+    }
+
+    /** Encode the cursor as a URL safe token. */
+    public String encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT);
+            out.writeUTF(query.getMethod());
+            out.writeByte(args.size());
+            for (Object arg : args) {
+                if (arg == null) {
+                    out.writeByte(0);
+                } else if (arg instanceof Integer) {
+                    out.writeByte(2);
+                    out.writeInt((Integer) arg);
+                } else {
+                    out.writeByte(1);
+                    out.writeUTF(arg.toString());
+                }
+            }
+            out.writeUTF(after);
+            out.writeInt(ties);
+            out.writeLong(generation);
+            out.writeInt(pageSize);
+            out.writeInt(remaining == null ? -1 : remaining);
+            out.writeInt(page);
+            out.writeInt(total);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    public PagedQuery getQuery() {
+        return query;
+    }
+
+    public List<Object> getArgs() {
+        return args;
+    }
+
+    /** Sort key of the last result already returned. */
+    public String getAfter() {
+        return after;
+    }
+
+    /** Number of results with the key {@link #getAfter()} already returned. */
+    public int getTies() {
+        return ties;
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /** Results left before the limit of the original call, or {@code null} without limit. */
+    public Integer getRemaining() {
+        return remaining;
+    }
+
+    /** Number of the page this cursor starts. */
+    public int getPage() {
+        return page;
+    }
+
+    /** Total of the first page, see {@link QueryResult#getTotal()}. */
+    public int getTotal() {
+        return total;
+    }
+
+    /** Number of results to fetch for the page this cursor starts. */
+    public int fetchSize() {
+        return remaining == null ? pageSize : Math.min(pageSize, remaining);
+    }
+
+    /**
+     * Build the page read after this cursor, including the cursor for the
+     * page after it.
+     *
+     * @param items results after this cursor, in sort order
+     * @param more whether more results follow the items
+     * @param generation graph generation the items were read from
+     * @param total total of the results, used when the generation changed
+     */
+    public QueryResult<String> page(List<String> items, boolean more, long generation, int total) {
+        Integer left = remaining == null ? null : remaining - items.size();
+        boolean hasMore = more && !items.isEmpty() && (left == null || left > 0);
+        int t = generation == this.generation ? this.total : total;
+        String nextCursor = hasMore
+                ? next(query, args, items, this, generation, pageSize, left, page + 1, t).encode()
+                : null;
+        return new QueryResult<>(items, page, pageSize, t, hasMore, nextCursor);
+    }
+
+    /**
+     * Continue the query by running it again without paging and taking the
+     * results following the cursor. Suitable for services whose full results
+     * are cheap to compute, such as in-memory graphs.
+     *
+     * @param service service to run the query on
+     * @param generation graph generation of the service
+     */
+    public QueryResult<String> resume(QueryService service, long generation) {
+        List<String> all = replay(service, null, null, null).getItems();
+        int low = 0;
+        int high = all.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (all.get(mid).compareTo(after) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        int from = Math.min(all.size(), low + ties);
+        int to = Math.min(all.size(), from + fetchSize());
+        return page(new ArrayList<>(all.subList(from, to)), to < all.size(), generation, all.size());
+    }
+
+    /** Call the query this cursor continues with the given paging arguments. */
+    public QueryResult<String> replay(QueryService service, Integer limit, Integer page, Integer pageSize) {
+        return query.call(service, args, limit, page, pageSize);
+    }
+}
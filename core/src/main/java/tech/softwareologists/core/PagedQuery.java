@@ -0,0 +1,201 @@
+package tech.softwareologists.core;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The paged queries of {@link QueryService} that can be continued with a
+ * {@link PageCursor} or streamed with
+ * {@link QueryService#stream(PagedQuery, List, Integer)}.
+ *
+ * <p>Each constant names its {@link QueryService} method and describes the
+ * arguments of that method other than limit, page and page size, so
+ * cursors, streams and request parsers decode and check them in one
+ * place.</p>
+ */
+public enum PagedQuery {
+    FIND_CALLERS("findCallers", Param.required("className")) {
+        @Override
+        QueryResult<String> call(QueryService service, List<Object> args, Integer limit, Integer page, Integer pageSize) {
+            return service.findCallers(string(args, 0), limit, page, pageSize);
+        }
+    },
+    FIND_IMPLEMENTATIONS("findImplementations", Param.required("interfaceName")) {
+        @Override
+        QueryResult<String> call(QueryService service, List<Object> args, Integer limit, Integer page, Integer pageSize) {
+            return service.findImplementations(string(args, 0), limit, page, pageSize);
+        }
+    },
+    FIND_SUBCLASSES("findSubclasses", Param.required("className"), Param.optional("depth", int.class, 1)) {
+        @Override
+        QueryResult<String> call(QueryService service, List<Object> args, Integer limit, Integer page, Integer pageSize) {
+            return service.findSubclasses(string(args, 0), (Integer) args.get(1), limit, page, pageSize);
+        }
+    },
+    FIND_DEPENDENCIES("findDependencies", Param.required("className"), Param.optional("depth", Integer.class, null)) {
+        @Override
+        QueryResult<String> call(QueryService service, List<Object> args, Integer limit, Integer page, Integer pageSize) {
+            return service.findDependencies(string(args, 0), (Integer) args.get(1), limit, page, pageSize);
+        }
+    },
+    FIND_METHODS_CALLING_METHOD("findMethodsCallingMethod", Param.required("className"),
+            Param.required("methodSignature")) {
+        @Override
+        QueryResult<String> call(QueryService service, List<Object> args, Integer limit, Integer page, Integer pageSize) {
+            return service.findMethodsCallingMethod(string(args, 0), string(args, 1), limit, page, pageSize);
+        }
+    },
+    FIND_BEANS_WITH_ANNOTATION("findBeansWithAnnotation", Param.required("annotation")) {
+        @Override
+        QueryResult<String> call(QueryService service, List<Object> args, Integer limit, Integer page, Integer pageSize) {
+            return service.findBeansWithAnnotation(string(args, 0), limit, page, pageSize);
+        }
+    },
+    SEARCH_BY_ANNOTATION("searchByAnnotation", Param.required("annotation"),
+            Param.optional("targetType", String.class, "class")) {
+        @Override
+        QueryResult<String> call(QueryService service, List<Object> args, Integer limit, Integer page, Integer pageSize) {
+            return service.searchByAnnotation(string(args, 0), string(args, 1), limit, page, pageSize);
+        }
+    },
+    FIND_HTTP_ENDPOINTS("findHttpEndpoints", Param.required("basePath"), Param.required("httpMethod")) {
+        @Override
+        QueryResult<String> call(QueryService service, List<Object> args, Integer limit, Integer page, Integer pageSize) {
+            return service.findHttpEndpoints(string(args, 0), string(args, 1), limit, page, pageSize);
+        }
+    },
+    FIND_CONTROLLERS_USING_SERVICE("findControllersUsingService", Param.required("serviceClassName")) {
+        @Override
+        QueryResult<String> call(QueryService service, List<Object> args, Integer limit, Integer page, Integer pageSize) {
+            return service.findControllersUsingService(string(args, 0), limit, page, pageSize);
+        }
+    },
+    FIND_EVENT_LISTENERS("findEventListeners", Param.required("eventType")) {
+        @Override
+        QueryResult<String> call(QueryService service, List<Object> args, Integer limit, Integer page, Integer pageSize) {
+            return service.findEventListeners(string(args, 0), limit, page, pageSize);
+        }
+    },
+    FIND_SCHEDULED_TASKS("findScheduledTasks") {
+        @Override
+        QueryResult<String> call(QueryService service, List<Object> args, Integer limit, Integer page, Integer pageSize) {
+            return service.findScheduledTasks(limit, page, pageSize);
+        }
+    },
+    FIND_CONFIG_PROPERTY_USAGE("findConfigPropertyUsage", Param.required("propertyKey")) {
+        @Override
+        QueryResult<String> call(QueryService service, List<Object> args, Integer limit, Integer page, Integer pageSize) {
+            return service.findConfigPropertyUsage(string(args, 0), limit, page, pageSize);
+        }
+    };
+
+    /** Argument of a paged query. */
+    public static final class Param {
+        private final String name;
+        private final Class<?> type;
+        private final boolean required;
+        private final Object defaultValue;
+
+        private Param(String name, Class<?> type, boolean required, Object defaultValue) {
+            this.name = name;
+            this.type = type;
+            this.required = required;
+            this.defaultValue = defaultValue;
+        }
+
+        static Param required(String name) {
+            return new Param(name, String.class, true, null);
+        }
+
+        static Param optional(String name, Class<?> type, Object defaultValue) {
+            return new Param(name, type, false, defaultValue);
+        }
+
+        /** Parameter name of the {@link QueryService} method. */
+        public String getName() {
+            return name;
+        }
+
+        /** {@code String.class}, {@code Integer.class} or {@code int.class} if the value may not be {@code null}. */
+        public Class<?> getType() {
+            return type;
+        }
+
+        /** Whether a request must supply the argument. */
+        public boolean isRequired() {
+            return required;
+        }
+
+        /** Value used when a request does not supply the argument. */
+        public Object getDefaultValue() {
+            return defaultValue;
+        }
+
+        boolean accepts(Object value) {
+            if (value == null) {
+                return !type.isPrimitive();
+            }
+            return (type == int.class ? Integer.class : type).isInstance(value);
+        }
+    }
+
+    private final String method;
+    private final List<Param> params;
+
+    PagedQuery(String method, Param... params) {
+        this.method = method;
+        this.params = Collections.unmodifiableList(Arrays.asList(params));
+    }
+
+    /** Name of the {@link QueryService} method. */
+    public String getMethod() {
+        return method;
+    }
+
+    /** Arguments other than limit, page and page size, in declaration order. */
+    public List<Param> getParams() {
+        return params;
+    }
+
+    /**
+     * Return the paged query of the given {@link QueryService} method.
+     *
+     * @throws IllegalArgumentException if the method is not a paged query
+     */
+    public static PagedQuery of(String method) {
+        for (PagedQuery query : values()) {
+            if (query.method.equals(method)) {
+                return query;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported paged query " + method);
+    }
+
+    /**
+     * Check that the arguments match {@link #getParams()} in number and type.
+     *
+     * @return the arguments
+     * @throws IllegalArgumentException if they do not match
+     */
+    public List<Object> checkArgs(List<Object> args) {
+        if (args == null || args.size() != params.size()) {
+            throw new IllegalArgumentException(method + " takes " + params.size() + " arguments but got " + args);
+        }
+        for (int i = 0; i < args.size(); i++) {
+            if (!params.get(i).accepts(args.get(i))) {
+                throw new IllegalArgumentException("Invalid argument " + params.get(i).getName() + " of " + method
+                        + ": " + args.get(i));
+            }
+        }
+        return args;
+    }
+
+    /** Call the query on the service with arguments checked by {@link #checkArgs(List)}. */
+    abstract QueryResult<String> call(QueryService service, List<Object> args, Integer limit, Integer page,
+                                      Integer pageSize);
+
+    private static String string(List<Object> args, int index) {
+        return (String) args.get(index);
+    }
+}
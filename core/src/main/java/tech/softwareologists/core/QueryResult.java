@@ -6,16 +6,40 @@ import java.util.List;
  * Simple container for paginated query results.
  */
 public class QueryResult<T> {
+    /** Value of {@link #getTotal()} when the total was not counted. */
+    public static final int UNKNOWN_TOTAL = -1;
+
     private final List<T> items;
     private final int page;
     private final int pageSize;
     private final int total;
+    private final boolean hasMore;
+    private final String nextCursor;
 
     public QueryResult(List<T> items, int page, int pageSize, int total) {
+        this(items, page, pageSize, total, total > (long) Math.max(0, page - 1) * pageSize + items.size());
+    }
+
+    /**
+     * @param total number of results across all pages, or {@link #UNKNOWN_TOTAL}
+     * @param hasMore whether the next page holds at least one more result
+     */
+    public QueryResult(List<T> items, int page, int pageSize, int total, boolean hasMore) {
+        this(items, page, pageSize, total, hasMore, null);
+    }
+
+    /**
+     * @param total number of results across all pages, or {@link #UNKNOWN_TOTAL}
+     * @param hasMore whether the next page holds at least one more result
+     * @param nextCursor token for {@link QueryService#nextPage(String)}, or {@code null}
+     */
+    public QueryResult(List<T> items, int page, int pageSize, int total, boolean hasMore, String nextCursor) {
         this.items = items;
         this.page = page;
         this.pageSize = pageSize;
         this.total = total;
+        this.hasMore = hasMore;
+        this.nextCursor = nextCursor;
     }
 
     public List<T> getItems() {
@@ -30,7 +54,21 @@ public class QueryResult<T> {
         return pageSize;
     }
 
+    /** Number of results across all pages, or {@link #UNKNOWN_TOTAL} if it was not counted. */
     public int getTotal() {
         return total;
     }
+
+    /** Whether the next page holds at least one more result. */
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    /**
+     * Token continuing after the last item with {@link QueryService#nextPage(String)},
+     * or {@code null} if there is no next page or the service does not support cursors.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
 }
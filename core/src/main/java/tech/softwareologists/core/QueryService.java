@@ -1,6 +1,7 @@
 package tech.softwareologists.core;
 
 import java.util.List;
+import java.util.stream.Stream;
 import tech.softwareologists.core.QueryResult;
 
 /**
@@ -145,8 +146,9 @@ public interface QueryService {
 
     /**
      * Find classes or methods that reference the given configuration property key.
+     * The key may contain {@code *} wildcards, e.g. {@code spring.datasource.*}.
      *
-     * @param propertyKey configuration property key
+     * @param propertyKey configuration property key or key pattern
      * @param limit optional maximum number of results
      * @param page result page number starting at 1
      * @param pageSize number of items per page
@@ -154,6 +156,61 @@ public interface QueryService {
      */
     QueryResult<String> findConfigPropertyUsage(String propertyKey, Integer limit, Integer page, Integer pageSize);
 
+    /**
+     * Search classes and methods by name when the exact fully qualified name
+     * is not known.
+     *
+     * <p>Results are ranked: exact simple name matches first, then
+     * CamelCase abbreviations such as {@code QSI} for
+     * {@code QueryServiceImpl}, then prefix and typo-tolerant matches.</p>
+     *
+     * @param query simple name, fully qualified class name, CamelCase abbreviation or name fragment
+     * @param kind {@code "class"}, {@code "method"} or {@code null} for both
+     * @param limit optional maximum number of results
+     * @return class names or "class|signature" for methods, best match first
+     */
+    QueryResult<String> searchSymbols(String query, String kind, Integer limit);
+
+    /**
+     * Return the page following a previous page of a paged query.
+     *
+     * <p>The cursor is the opaque {@link QueryResult#getNextCursor()} of
+     * that page. The page starts right after the last result returned, so it
+     * neither repeats nor skips results when the graph changes between
+     * pages, and keeps the page size and limit of the original call.</p>
+     *
+     * <p>The default implementation runs the query again without paging
+     * and returns the results sorted after the cursor, see
+     * {@link PageCursor#resume(QueryService, long)}.</p>
+     *
+     * @param cursor token returned with the previous page
+     * @return the next page, whose own cursor continues after it
+     * @throws IllegalArgumentException if the cursor is invalid
+     */
+    default QueryResult<String> nextPage(String cursor) {
+        return PageCursor.decode(cursor).resume(this, 0);
+    }
+
+    /**
+     * Stream the results of a paged query instead of collecting them into a
+     * {@link QueryResult}, so the first results can be sent while later ones
+     * are still being read and the whole result is never held in memory.
+     *
+     * <p>Results may arrive in any order. The stream holds database
+     * resources until it is closed, so use it in a try-with-resources
+     * statement. The default implementation runs the query unpaged and
+     * streams its items.</p>
+     *
+     * @param query paged query to run
+     * @param args arguments of that query other than limit, page and page size, see {@link PagedQuery#getParams()}
+     * @param limit optional maximum number of results
+     * @return the results, to be closed by the caller
+     * @throws IllegalArgumentException if the arguments do not match the query
+     */
+    default Stream<String> stream(PagedQuery query, List<Object> args, Integer limit) {
+        return query.call(this, query.checkArgs(args), limit, null, null).getItems().stream();
+    }
+
     /**
      * Return a JSON tree of packages and classes starting from the given root package.
      *
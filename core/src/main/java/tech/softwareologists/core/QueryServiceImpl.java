@@ -1,22 +1,108 @@
 package tech.softwareologists.core;
 
 import org.neo4j.driver.Driver;
-import org.neo4j.driver.Session;
-import org.neo4j.driver.Values;
+import tech.softwareologists.core.db.GraphStore;
 import tech.softwareologists.core.db.NodeLabel;
 import tech.softwareologists.core.db.EdgeType;
 import tech.softwareologists.core.QueryResult;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
 
 /**
- * Default implementation of {@link QueryService} backed by a Neo4j driver.
+ * Default implementation of {@link QueryService} backed by a {@link GraphStore}.
+ *
+ * <p>Every query is written once against a {@link Runner}. The blocking
+ * methods run it with {@link GraphStore#query} and wait for the result; the
+ * {@link AsyncQueryService} methods run it with {@link GraphStore#queryAsync}
+ * and chain the follow-up queries, such as counts, on the returned
+ * stage.</p>
  */
-public class QueryServiceImpl implements QueryService {
-    private final Driver driver;
+public class QueryServiceImpl implements QueryService, AsyncQueryService {
+    /** Fulltext index over the simple names of classes and methods. */
+    private static final String SYMBOL_INDEX = "symbol_names";
+    /** Candidates read per requested result before CamelCase filtering. */
+    private static final int SYMBOL_SCAN_FACTOR = 4;
+    /** Times a paged query is run while the graph keeps changing under it. */
+    private static final int GENERATION_ATTEMPTS = 3;
+
+    private final GraphStore store;
+    private final boolean countTotals;
+    private final java.util.function.LongSupplier generation;
+
+    public QueryServiceImpl(GraphStore store) {
+        this(store, true);
+    }
+
+    /**
+     * Create a query service that optionally skips the count query of paged
+     * results whose total cannot be derived from the page itself. Their
+     * total is then {@link QueryResult#UNKNOWN_TOTAL}; {@link QueryResult#hasMore()}
+     * is always exact.
+     *
+     * @param store graph store to query
+     * @param countTotals whether to run a count query when the total is not known otherwise
+     */
+    public QueryServiceImpl(GraphStore store, boolean countTotals) {
+        this(store, countTotals, () -> 0L);
+    }
 
+    /**
+     * Create a query service whose page cursors record the graph generation,
+     * so totals carried by a cursor are recounted once the graph changed.
+     *
+     * @param store graph store to query
+     * @param countTotals whether to run a count query when the total is not known otherwise
+     * @param generation current graph generation; must change whenever the graph does.
+     *                   A paged query during which it changed is run again
+     */
+    public QueryServiceImpl(GraphStore store, boolean countTotals, java.util.function.LongSupplier generation) {
+        this.store = store;
+        this.countTotals = countTotals;
+        this.generation = generation;
+    }
+
+    /** Create a query service sending every query through the given driver. */
     public QueryServiceImpl(Driver driver) {
-        this.driver = driver;
+        this(GraphStore.of(driver));
+    }
+
+    /** Runs one query and hands over its rows when the store has them. */
+    private interface Runner {
+        CompletionStage<List<Map<String, Object>>> run(String query, Map<String, Object> params);
+    }
+
+    private CompletionStage<List<Map<String, Object>>> blocking(String query, Map<String, Object> params) {
+        return CompletableFuture.completedFuture(store.query(query, params));
+    }
+
+    private CompletionStage<List<Map<String, Object>>> async(String query, Map<String, Object> params) {
+        return store.queryAsync(query, params);
+    }
+
+    /** Wait for a stage of the blocking runner, rethrowing its failure unwrapped. */
+    private static <T> T join(CompletionStage<T> stage) {
+        try {
+            return stage.toCompletableFuture().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /** Start an asynchronous query, turning a failure while preparing it into a failed stage. */
+    private static <T> CompletionStage<T> start(Supplier<CompletionStage<T>> query) {
+        try {
+            return query.get();
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
     }
 
     private QueryResult<String> wrap(List<String> items, Integer limit, Integer page, Integer pageSize) {
@@ -32,89 +118,324 @@ public class QueryServiceImpl implements QueryService {
         return new QueryResult<>(slice, p, ps, total);
     }
 
-    private QueryResult<String> runPagedQuery(String listQuery, String countQuery, java.util.Map<String, Object> params,
-                                              Integer limit, Integer page, Integer pageSize, String field) {
-        try (Session session = driver.session()) {
-            int total = session.run(countQuery, params).single().get("total").asInt();
+    /** A list query, its count query and the call they answer, so a cursor can run it again. */
+    private static final class ListQuery {
+        final PagedQuery query;
+        final List<Object> args;
+        final String list;
+        final String count;
+        final java.util.Map<String, Object> params;
+        final String field;
+
+        ListQuery(PagedQuery query, List<Object> args, String list, String count, java.util.Map<String, Object> params,
+                  String field) {
+            this.query = query;
+            this.args = args;
+            this.list = list;
+            this.count = count;
+            this.params = params;
+            this.field = field;
+        }
+    }
+
+    /**
+     * Run one page of a list query. The page is read with one extra row to
+     * tell whether more results follow. The count query only runs when the
+     * total cannot be derived from the rows read, i.e. when more rows follow
+     * or the page lies beyond the last result, and only if totals are counted.
+     */
+    private QueryResult<String> runPagedQuery(ListQuery query, Integer limit, Integer page, Integer pageSize) {
+        return join(runPagedQuery(query, limit, page, pageSize, this::blocking));
+    }
+
+    private CompletionStage<QueryResult<String>> runPagedQuery(ListQuery query, Integer limit, Integer page,
+                                                               Integer pageSize, Runner run) {
+        return consistent(() -> readPage(query, limit, page, pageSize, run), GENERATION_ATTEMPTS);
+    }
 
-            int p = page == null ? 1 : page;
-            int ps = pageSize == null ? (limit != null ? limit : total) : pageSize;
-            int skip = Math.max(0, (p - 1) * ps);
-            int fetch = ps;
-            if (limit != null) {
-                if (skip >= limit) {
-                    return new QueryResult<>(java.util.Collections.emptyList(), p, ps, total);
-                }
-                fetch = Math.min(fetch, limit - skip);
+    /**
+     * Run a query reading in several transactions again while the graph
+     * generation changed during it, so its page and total describe the same
+     * graph. After the last attempt the result is returned as it is.
+     */
+    private <T> CompletionStage<T> consistent(Supplier<CompletionStage<T>> query, int attempts) {
+        long gen = generation.getAsLong();
+        return query.get().thenCompose(result -> attempts <= 1 || generation.getAsLong() == gen
+                ? CompletableFuture.completedFuture(result)
+                : consistent(query, attempts - 1));
+    }
+
+    private CompletionStage<QueryResult<String>> readPage(ListQuery query, Integer limit, Integer page,
+                                                          Integer pageSize, Runner run) {
+        String field = query.field;
+        int p = page == null ? 1 : page;
+        if (pageSize == null && limit == null) {
+            // The whole result is a single page, so its size is the total
+            return run.run(query.list + " ORDER BY " + field, query.params).thenApply(rows -> {
+                List<String> items = strings(rows, field);
+                int total = items.size();
+                return new QueryResult<>(p <= 1 ? items : java.util.Collections.emptyList(), p, total, total, false);
+            });
+        }
+
+        int ps = pageSize == null ? limit : pageSize;
+        int skip = Math.max(0, (p - 1) * ps);
+        if (limit != null && skip >= limit) {
+            return count(query.count, query.params, run)
+                    .thenApply(total -> new QueryResult<>(java.util.Collections.emptyList(), p, ps, total, false));
+        }
+        int fetch = limit == null ? ps : Math.min(ps, limit - skip);
+
+        long gen = generation.getAsLong();
+        java.util.Map<String, Object> q = new java.util.HashMap<>(query.params);
+        q.put("skip", skip);
+        q.put("lim", fetch + 1);
+
+        return run.run(query.list + " ORDER BY " + field + " SKIP $skip LIMIT $lim", q).thenCompose(rows -> {
+            List<String> items = strings(rows, field);
+            boolean more = items.size() > fetch;
+            if (more) {
+                items.remove(fetch);
             }
+            CompletionStage<Integer> total = !more && (skip == 0 || !items.isEmpty())
+                    ? CompletableFuture.completedFuture(skip + items.size())
+                    : count(query.count, query.params, run);
+            return total.thenApply(t -> {
+                QueryResult<String> result = new QueryResult<>(items, p, ps, t, more && (limit == null || skip + fetch < limit));
+                String cursor = PageCursor.first(query.query, query.args, result, limit, gen);
+                return cursor == null ? result : new QueryResult<>(items, p, ps, t, true, cursor);
+            });
+        });
+    }
 
-            java.util.Map<String, Object> q = new java.util.HashMap<>(params);
-            q.put("skip", skip);
-            q.put("lim", fetch);
+    /**
+     * Continue a paged query after the key recorded in the cursor. The list
+     * query runs as a subquery filtered to keys not before that key, and the
+     * results sharing that key that were already returned are skipped, so no
+     * earlier rows are sorted away or skipped.
+     */
+    @Override
+    public QueryResult<String> nextPage(String cursor) {
+        return join(nextPage(cursor, this::blocking));
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> nextPageAsync(String cursor) {
+        return start(() -> nextPage(cursor, this::async));
+    }
 
-            List<String> items = session.run(listQuery + " ORDER BY " + field + " SKIP $skip LIMIT $lim", q)
-                    .list(r -> r.get(field).asString());
+    private CompletionStage<QueryResult<String>> nextPage(String cursor, Runner run) {
+        return consistent(() -> readNextPage(cursor, run), GENERATION_ATTEMPTS);
+    }
+
+    private CompletionStage<QueryResult<String>> readNextPage(String cursor, Runner run) {
+        PageCursor c = PageCursor.decode(cursor);
+        ListQuery query = listQuery(c.getQuery(), c.getArgs());
+        String field = query.field;
+        long gen = generation.getAsLong();
+        int fetch = c.fetchSize();
+        java.util.Map<String, Object> q = new java.util.HashMap<>(query.params);
+        q.put("after", c.getAfter());
+        q.put("ties", c.getTies());
+        q.put("lim", fetch + 1);
+        return run.run("CALL { " + query.list + " } WITH " + field + " WHERE " + field
+                + " >= $after RETURN " + field + " ORDER BY " + field + " SKIP $ties LIMIT $lim", q).thenCompose(rows -> {
+            List<String> items = strings(rows, field);
+            boolean more = items.size() > fetch;
+            if (more) {
+                items.remove(fetch);
+            }
+            CompletionStage<Integer> total = gen == c.getGeneration()
+                    ? CompletableFuture.completedFuture(c.getTotal())
+                    : count(query.count, query.params, run);
+            return total.thenApply(t -> c.page(items, more, gen, t));
+        });
+    }
+
+    /**
+     * Stream the rows of the list query as the store produces them. The
+     * query is not sorted, so the database can hand out the first rows
+     * before it has found the last.
+     */
+    @Override
+    public java.util.stream.Stream<String> stream(PagedQuery paged, List<Object> args, Integer limit) {
+        ListQuery query = listQuery(paged, paged.checkArgs(args));
+        java.util.Map<String, Object> q = new java.util.HashMap<>(query.params);
+        String list = query.list;
+        if (limit != null) {
+            list += " LIMIT $lim";
+            q.put("lim", limit);
+        }
+        return store.stream(list, q).map(row -> (String) row.get(query.field));
+    }
+
+    /** List query of a paged query whose arguments passed {@link PagedQuery#checkArgs(List)}. */
+    private ListQuery listQuery(PagedQuery query, List<Object> a) {
+        switch (query) {
+            case FIND_CALLERS:
+                return findCallersQuery((String) a.get(0));
+            case FIND_IMPLEMENTATIONS:
+                return findImplementationsQuery((String) a.get(0));
+            case FIND_SUBCLASSES:
+                return findSubclassesQuery((String) a.get(0), (Integer) a.get(1));
+            case FIND_DEPENDENCIES:
+                return findDependenciesQuery((String) a.get(0), (Integer) a.get(1));
+            case FIND_METHODS_CALLING_METHOD:
+                return findMethodsCallingMethodQuery((String) a.get(0), (String) a.get(1));
+            case FIND_BEANS_WITH_ANNOTATION:
+                return searchByAnnotationQuery((String) a.get(0), "class");
+            case SEARCH_BY_ANNOTATION:
+                return searchByAnnotationQuery((String) a.get(0), (String) a.get(1));
+            case FIND_HTTP_ENDPOINTS:
+                return findHttpEndpointsQuery((String) a.get(0), (String) a.get(1));
+            case FIND_CONTROLLERS_USING_SERVICE:
+                return findControllersUsingServiceQuery((String) a.get(0));
+            case FIND_EVENT_LISTENERS:
+                return findEventListenersQuery((String) a.get(0));
+            case FIND_SCHEDULED_TASKS:
+                return findScheduledTasksQuery();
+            case FIND_CONFIG_PROPERTY_USAGE:
+                return findConfigPropertyUsageQuery((String) a.get(0));
+            default:
+                throw new IllegalArgumentException("Unsupported paged query " + query);
+        }
+    }
+
+    private CompletionStage<Integer> count(String countQuery, java.util.Map<String, Object> params, Runner run) {
+        if (!countTotals) {
+            return CompletableFuture.completedFuture(QueryResult.UNKNOWN_TOTAL);
+        }
+        return run.run(countQuery, params).thenApply(rows -> intValue(rows.get(0).get("total")));
+    }
 
-            return new QueryResult<>(items, p, ps, total);
+    private static List<String> strings(List<Map<String, Object>> rows, String field) {
+        List<String> items = new java.util.ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows) {
+            items.add((String) row.get(field));
         }
+        return items;
+    }
+
+    private static int intValue(Object value) {
+        return value == null ? 0 : ((Number) value).intValue();
+    }
+
+    private static long longValue(Object value) {
+        return value == null ? 0L : ((Number) value).longValue();
     }
 
     @Override
     public QueryResult<String> findCallers(String className, Integer limit, Integer page, Integer pageSize) {
+        return runPagedQuery(findCallersQuery(className), limit, page, pageSize);
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> findCallersAsync(String className, Integer limit, Integer page, Integer pageSize) {
+        return start(() -> runPagedQuery(findCallersQuery(className), limit, page, pageSize, this::async));
+    }
+
+    private ListQuery findCallersQuery(String className) {
         String list = "MATCH (c:" + NodeLabel.CLASS + ")-[:" + EdgeType.DEPENDS_ON + "]->(t:" + NodeLabel.CLASS + " {name:$name}) RETURN c.name AS name";
         String count = "MATCH (c:" + NodeLabel.CLASS + ")-[:" + EdgeType.DEPENDS_ON + "]->(t:" + NodeLabel.CLASS + " {name:$name}) RETURN count(c) AS total";
         java.util.Map<String, Object> params = java.util.Collections.singletonMap("name", className);
-        return runPagedQuery(list, count, params, limit, page, pageSize, "name");
+        return new ListQuery(PagedQuery.FIND_CALLERS, java.util.Arrays.<Object>asList(className), list, count, params, "name");
     }
 
     @Override
     public QueryResult<String> findImplementations(String interfaceName, Integer limit, Integer page, Integer pageSize) {
+        return runPagedQuery(findImplementationsQuery(interfaceName), limit, page, pageSize);
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> findImplementationsAsync(String interfaceName, Integer limit, Integer page, Integer pageSize) {
+        return start(() -> runPagedQuery(findImplementationsQuery(interfaceName), limit, page, pageSize, this::async));
+    }
+
+    private ListQuery findImplementationsQuery(String interfaceName) {
         String list = "MATCH (c:" + NodeLabel.CLASS + ")-[:" + EdgeType.IMPLEMENTS + "]->(i:" + NodeLabel.CLASS + " {name:$name}) RETURN c.name AS name";
         String count = "MATCH (c:" + NodeLabel.CLASS + ")-[:" + EdgeType.IMPLEMENTS + "]->(i:" + NodeLabel.CLASS + " {name:$name}) RETURN count(c) AS total";
         java.util.Map<String, Object> params = java.util.Collections.singletonMap("name", interfaceName);
-        return runPagedQuery(list, count, params, limit, page, pageSize, "name");
+        return new ListQuery(PagedQuery.FIND_IMPLEMENTATIONS, java.util.Arrays.<Object>asList(interfaceName), list, count, params, "name");
     }
 
     @Override
     public QueryResult<String> findSubclasses(String className, int depth, Integer limit, Integer page, Integer pageSize) {
+        return runPagedQuery(findSubclassesQuery(className, depth), limit, page, pageSize);
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> findSubclassesAsync(String className, int depth, Integer limit, Integer page, Integer pageSize) {
+        return start(() -> runPagedQuery(findSubclassesQuery(className, depth), limit, page, pageSize, this::async));
+    }
+
+    private ListQuery findSubclassesQuery(String className, int depth) {
         String base = "MATCH (sub:" + NodeLabel.CLASS + ")-[:" + EdgeType.EXTENDS + "*1.." + depth + "]->(sup:" + NodeLabel.CLASS + " {name:$name}) RETURN DISTINCT sub.name AS name";
         String count = "MATCH (sub:" + NodeLabel.CLASS + ")-[:" + EdgeType.EXTENDS + "*1.." + depth + "]->(sup:" + NodeLabel.CLASS + " {name:$name}) RETURN count(DISTINCT sub) AS total";
         java.util.Map<String, Object> params = java.util.Collections.singletonMap("name", className);
-        return runPagedQuery(base, count, params, limit, page, pageSize, "name");
+        return new ListQuery(PagedQuery.FIND_SUBCLASSES, java.util.Arrays.<Object>asList(className, depth), base, count, params, "name");
     }
 
     @Override
     public QueryResult<String> findDependencies(String className, Integer depth, Integer limit, Integer page, Integer pageSize) {
+        return runPagedQuery(findDependenciesQuery(className, depth), limit, page, pageSize);
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> findDependenciesAsync(String className, Integer depth, Integer limit, Integer page, Integer pageSize) {
+        return start(() -> runPagedQuery(findDependenciesQuery(className, depth), limit, page, pageSize, this::async));
+    }
+
+    private ListQuery findDependenciesQuery(String className, Integer depth) {
         String pattern = depth == null ? "*" : "*1.." + depth;
         String list =
                 "MATCH (c:" + NodeLabel.CLASS + " {name:$name})-[:" + EdgeType.DEPENDS_ON + pattern + "]->(dep:" + NodeLabel.CLASS + ") RETURN DISTINCT dep.name AS name";
         String count =
                 "MATCH (c:" + NodeLabel.CLASS + " {name:$name})-[:" + EdgeType.DEPENDS_ON + pattern + "]->(dep:" + NodeLabel.CLASS + ") RETURN count(DISTINCT dep) AS total";
         java.util.Map<String, Object> params = java.util.Collections.singletonMap("name", className);
-        return runPagedQuery(list, count, params, limit, page, pageSize, "name");
+        return new ListQuery(PagedQuery.FIND_DEPENDENCIES, java.util.Arrays.<Object>asList(className, depth), list, count, params, "name");
     }
 
     @Override
     public QueryResult<String> findPathBetweenClasses(String fromClass, String toClass, Integer maxDepth) {
-        try (Session session = driver.session()) {
-            String query = "MATCH p=shortestPath((s:" + NodeLabel.CLASS + " {name:$from})-[:" + EdgeType.DEPENDS_ON + "*]->(t:" + NodeLabel.CLASS + " {name:$to})) " +
-                    "RETURN [n IN nodes(p) | n.name] AS path";
-            List<List<String>> paths = session.run(query,
-                            Values.parameters("from", fromClass, "to", toClass))
-                    .list(r -> r.get("path").asList(v -> v.asString()));
+        return join(findPathBetweenClasses(fromClass, toClass, maxDepth, this::blocking));
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> findPathBetweenClassesAsync(String fromClass, String toClass, Integer maxDepth) {
+        return start(() -> findPathBetweenClasses(fromClass, toClass, maxDepth, this::async));
+    }
+
+    private CompletionStage<QueryResult<String>> findPathBetweenClasses(String fromClass, String toClass, Integer maxDepth,
+                                                                        Runner run) {
+        String query = "MATCH p=shortestPath((s:" + NodeLabel.CLASS + " {name:$from})-[:" + EdgeType.DEPENDS_ON + "*]->(t:" + NodeLabel.CLASS + " {name:$to})) " +
+                "RETURN [n IN nodes(p) | n.name] AS path";
+        java.util.Map<String, Object> params = new java.util.HashMap<>();
+        params.put("from", fromClass);
+        params.put("to", toClass);
+        return run.run(query, params).thenApply(paths -> {
             if (paths.isEmpty()) {
                 return wrap(java.util.Collections.emptyList(), null, null, null);
             }
-            List<String> result = paths.get(0);
+            @SuppressWarnings("unchecked")
+            List<String> result = (List<String>) paths.get(0).get("path");
             if (maxDepth != null && result.size() - 1 > maxDepth) {
                 return wrap(java.util.Collections.emptyList(), null, null, null);
             }
             return wrap(result, null, null, null);
-        }
+        });
     }
 
     @Override
     public QueryResult<String> findMethodsCallingMethod(String className, String methodSignature, Integer limit, Integer page, Integer pageSize) {
+        return runPagedQuery(findMethodsCallingMethodQuery(className, methodSignature), limit, page, pageSize);
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> findMethodsCallingMethodAsync(String className, String methodSignature, Integer limit, Integer page, Integer pageSize) {
+        return start(() -> runPagedQuery(findMethodsCallingMethodQuery(className, methodSignature), limit, page, pageSize, this::async));
+    }
+
+    private ListQuery findMethodsCallingMethodQuery(String className, String methodSignature) {
         String base =
                 "MATCH (caller:" + NodeLabel.METHOD + ")-[:CALLS]->(target:" + NodeLabel.METHOD + " {class:$class, signature:$sig}) " +
                         "RETURN caller.signature AS sig";
@@ -123,7 +444,7 @@ public class QueryServiceImpl implements QueryService {
         java.util.Map<String, Object> params = new java.util.HashMap<>();
         params.put("class", className);
         params.put("sig", methodSignature);
-        return runPagedQuery(base, count, params, limit, page, pageSize, "sig");
+        return new ListQuery(PagedQuery.FIND_METHODS_CALLING_METHOD, java.util.Arrays.<Object>asList(className, methodSignature), base, count, params, "sig");
     }
 
     @Override
@@ -131,21 +452,43 @@ public class QueryServiceImpl implements QueryService {
         return searchByAnnotation(annotation, "class", limit, page, pageSize);
     }
 
+    @Override
+    public CompletionStage<QueryResult<String>> findBeansWithAnnotationAsync(String annotation, Integer limit, Integer page, Integer pageSize) {
+        return searchByAnnotationAsync(annotation, "class", limit, page, pageSize);
+    }
+
     @Override
     public QueryResult<String> searchByAnnotation(String annotation, String targetType, Integer limit, Integer page, Integer pageSize) {
+        return runPagedQuery(searchByAnnotationQuery(annotation, targetType), limit, page, pageSize);
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> searchByAnnotationAsync(String annotation, String targetType, Integer limit, Integer page, Integer pageSize) {
+        return start(() -> runPagedQuery(searchByAnnotationQuery(annotation, targetType), limit, page, pageSize, this::async));
+    }
+
+    private ListQuery searchByAnnotationQuery(String annotation, String targetType) {
         boolean method = "method".equalsIgnoreCase(targetType);
         String label = method ? NodeLabel.METHOD.toString() : NodeLabel.CLASS.toString();
         String returnProp = method ? "signature" : "name";
-        String base =
-                "MATCH (n:" + label + ") WHERE ANY(a IN n.annotations WHERE a = $ann) RETURN n." + returnProp + " AS name";
-        String count =
-                "MATCH (n:" + label + ") WHERE ANY(a IN n.annotations WHERE a = $ann) RETURN count(n) AS total";
+        String match = "MATCH (:" + NodeLabel.ANNOTATION + " {name:$ann})<-[:" + EdgeType.ANNOTATED_WITH + "]-(n:" + label + ") ";
+        String base = match + "RETURN n." + returnProp + " AS name";
+        String count = match + "RETURN count(n) AS total";
         java.util.Map<String, Object> params = java.util.Collections.singletonMap("ann", annotation);
-        return runPagedQuery(base, count, params, limit, page, pageSize, "name");
+        return new ListQuery(PagedQuery.SEARCH_BY_ANNOTATION, java.util.Arrays.<Object>asList(annotation, targetType), base, count, params, "name");
     }
 
     @Override
     public QueryResult<String> findHttpEndpoints(String basePath, String httpMethod, Integer limit, Integer page, Integer pageSize) {
+        return runPagedQuery(findHttpEndpointsQuery(basePath, httpMethod), limit, page, pageSize);
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> findHttpEndpointsAsync(String basePath, String httpMethod, Integer limit, Integer page, Integer pageSize) {
+        return start(() -> runPagedQuery(findHttpEndpointsQuery(basePath, httpMethod), limit, page, pageSize, this::async));
+    }
+
+    private ListQuery findHttpEndpointsQuery(String basePath, String httpMethod) {
         String base =
                 "MATCH (m:" + NodeLabel.METHOD + ") WHERE m.httpRoute STARTS WITH $base " +
                         "AND m.httpMethod = $verb RETURN m.class + '|' + m.signature AS ep";
@@ -154,199 +497,292 @@ public class QueryServiceImpl implements QueryService {
         java.util.Map<String, Object> params = new java.util.HashMap<>();
         params.put("base", basePath);
         params.put("verb", httpMethod);
-        return runPagedQuery(base, count, params, limit, page, pageSize, "ep");
+        return new ListQuery(PagedQuery.FIND_HTTP_ENDPOINTS, java.util.Arrays.<Object>asList(basePath, httpMethod), base, count, params, "ep");
     }
 
     @Override
     public QueryResult<String> findControllersUsingService(String serviceClassName, Integer limit, Integer page, Integer pageSize) {
-        String base =
-                "MATCH (svc:" + NodeLabel.CLASS + " {name:$svc})<-[:" + EdgeType.USES + "]-(c:" + NodeLabel.CLASS + ") " +
-                        "WHERE ANY(a IN c.annotations WHERE a IN ['org.springframework.stereotype.Controller','org.springframework.web.bind.annotation.RestController']) " +
-                        "RETURN c.name AS name";
-        String count =
+        return runPagedQuery(findControllersUsingServiceQuery(serviceClassName), limit, page, pageSize);
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> findControllersUsingServiceAsync(String serviceClassName, Integer limit, Integer page, Integer pageSize) {
+        return start(() -> runPagedQuery(findControllersUsingServiceQuery(serviceClassName), limit, page, pageSize, this::async));
+    }
+
+    private ListQuery findControllersUsingServiceQuery(String serviceClassName) {
+        String match =
                 "MATCH (svc:" + NodeLabel.CLASS + " {name:$svc})<-[:" + EdgeType.USES + "]-(c:" + NodeLabel.CLASS + ") " +
-                        "WHERE ANY(a IN c.annotations WHERE a IN ['org.springframework.stereotype.Controller','org.springframework.web.bind.annotation.RestController']) RETURN count(c) AS total";
+                        "WHERE EXISTS { MATCH (c)-[:" + EdgeType.ANNOTATED_WITH + "]->(a:" + NodeLabel.ANNOTATION + ") " +
+                        "WHERE a.name IN ['org.springframework.stereotype.Controller','org.springframework.web.bind.annotation.RestController'] } ";
+        String base = match + "RETURN c.name AS name";
+        String count = match + "RETURN count(c) AS total";
         java.util.Map<String, Object> params = java.util.Collections.singletonMap("svc", serviceClassName);
-        return runPagedQuery(base, count, params, limit, page, pageSize, "name");
+        return new ListQuery(PagedQuery.FIND_CONTROLLERS_USING_SERVICE, java.util.Arrays.<Object>asList(serviceClassName), base, count, params, "name");
     }
 
     @Override
     public QueryResult<String> findEventListeners(String eventType, Integer limit, Integer page, Integer pageSize) {
+        return runPagedQuery(findEventListenersQuery(eventType), limit, page, pageSize);
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> findEventListenersAsync(String eventType, Integer limit, Integer page, Integer pageSize) {
+        return start(() -> runPagedQuery(findEventListenersQuery(eventType), limit, page, pageSize, this::async));
+    }
+
+    private ListQuery findEventListenersQuery(String eventType) {
         String base =
                 "MATCH (m:" + NodeLabel.METHOD + ") WHERE m.eventType = $type RETURN m.class + '|' + m.signature AS m";
         String count =
                 "MATCH (m:" + NodeLabel.METHOD + ") WHERE m.eventType = $type RETURN count(m) AS total";
         java.util.Map<String, Object> params = java.util.Collections.singletonMap("type", eventType);
-        return runPagedQuery(base, count, params, limit, page, pageSize, "m");
+        return new ListQuery(PagedQuery.FIND_EVENT_LISTENERS, java.util.Arrays.<Object>asList(eventType), base, count, params, "m");
     }
 
     @Override
     public QueryResult<String> findScheduledTasks(Integer limit, Integer page, Integer pageSize) {
+        return runPagedQuery(findScheduledTasksQuery(), limit, page, pageSize);
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> findScheduledTasksAsync(Integer limit, Integer page, Integer pageSize) {
+        return start(() -> runPagedQuery(findScheduledTasksQuery(), limit, page, pageSize, this::async));
+    }
+
+    private ListQuery findScheduledTasksQuery() {
         String base =
                 "MATCH (m:" + NodeLabel.METHOD + ") WHERE m.cron IS NOT NULL RETURN m.class + '|' + m.signature + '|' + m.cron AS m";
         String count = "MATCH (m:" + NodeLabel.METHOD + ") WHERE m.cron IS NOT NULL RETURN count(m) AS total";
         java.util.Map<String, Object> params = java.util.Collections.emptyMap();
-        return runPagedQuery(base, count, params, limit, page, pageSize, "m");
+        return new ListQuery(PagedQuery.FIND_SCHEDULED_TASKS, java.util.Arrays.<Object>asList(), base, count, params, "m");
     }
 
     @Override
     public QueryResult<String> findConfigPropertyUsage(String propertyKey, Integer limit, Integer page, Integer pageSize) {
-        String base =
-                "MATCH (c:" + NodeLabel.CLASS + ") WHERE $key IN c.configProperties RETURN c.name AS loc " +
-                        "UNION MATCH (m:" + NodeLabel.METHOD + ") WHERE $key IN m.configProperties RETURN m.class + '|' + m.signature AS loc";
-        String count =
-                "MATCH (c:" + NodeLabel.CLASS + ") WHERE $key IN c.configProperties RETURN count(c) AS ccount UNION ALL MATCH (m:" + NodeLabel.METHOD + ") WHERE $key IN m.configProperties RETURN count(m) AS mcount";
-        // run count manually using session to sum two counts
-        try (Session session = driver.session()) {
-            var res = session.run("MATCH (c:" + NodeLabel.CLASS + ") WHERE $key IN c.configProperties RETURN count(c) AS c", java.util.Collections.singletonMap("key", propertyKey)).single();
-            int countClass = res.get("c").asInt();
-            var res2 = session.run("MATCH (m:" + NodeLabel.METHOD + ") WHERE $key IN m.configProperties RETURN count(m) AS m", java.util.Collections.singletonMap("key", propertyKey)).single();
-            int total = countClass + res2.get("m").asInt();
-
-            int p = page == null ? 1 : page;
-            int ps = pageSize == null ? (limit != null ? limit : total) : pageSize;
-            int skip = Math.max(0, (p - 1) * ps);
-            int fetch = ps;
-            if (limit != null) {
-                if (skip >= limit) {
-                    return new QueryResult<>(java.util.Collections.emptyList(), p, ps, total);
-                }
-                fetch = Math.min(fetch, limit - skip);
-            }
-            java.util.Map<String, Object> params = new java.util.HashMap<>();
+        return runPagedQuery(findConfigPropertyUsageQuery(propertyKey), limit, page, pageSize);
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> findConfigPropertyUsageAsync(String propertyKey, Integer limit, Integer page, Integer pageSize) {
+        return start(() -> runPagedQuery(findConfigPropertyUsageQuery(propertyKey), limit, page, pageSize, this::async));
+    }
+
+    private ListQuery findConfigPropertyUsageQuery(String propertyKey) {
+        java.util.Map<String, Object> params = new java.util.HashMap<>();
+        String match = "MATCH (p:" + NodeLabel.CONFIG_PROPERTY + ") WHERE " + configKeyFilter(propertyKey, params) +
+                " MATCH (p)<-[:" + EdgeType.USES_CONFIG + "]-(n) ";
+        String base = match + "WITH DISTINCT n RETURN CASE WHEN n:" + NodeLabel.METHOD +
+                " THEN n.class + '|' + n.signature ELSE n.name END AS loc";
+        String count = match + "RETURN count(DISTINCT n) AS total";
+        return new ListQuery(PagedQuery.FIND_CONFIG_PROPERTY_USAGE, java.util.Arrays.<Object>asList(propertyKey), base, count, params, "loc");
+    }
+
+    /**
+     * Build the predicate on {@code p.key} for a property key that may
+     * contain {@code *} wildcards. The text before the first wildcard is
+     * matched with {@code STARTS WITH}, so the lookup is served by the key
+     * index; any further wildcards are checked with a regular expression on
+     * the keys sharing that prefix.
+     */
+    private static String configKeyFilter(String propertyKey, java.util.Map<String, Object> params) {
+        int star = propertyKey.indexOf('*');
+        if (star < 0) {
             params.put("key", propertyKey);
-            params.put("skip", skip);
-            params.put("lim", fetch);
-            List<String> items = session.run(base + " ORDER BY loc SKIP $skip LIMIT $lim", params)
-                    .list(r -> r.get("loc").asString());
-            return new QueryResult<>(items, p, ps, total);
+            return "p.key = $key";
         }
+        params.put("prefix", propertyKey.substring(0, star));
+        if (star == propertyKey.length() - 1) {
+            return "p.key STARTS WITH $prefix";
+        }
+        String[] parts = propertyKey.split("\\*", -1);
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                regex.append(".*");
+            }
+            if (!parts[i].isEmpty()) {
+                regex.append(java.util.regex.Pattern.quote(parts[i]));
+            }
+        }
+        params.put("pattern", regex.toString());
+        return "p.key STARTS WITH $prefix AND p.key =~ $pattern";
     }
 
     @Override
-    public String getPackageHierarchy(String rootPackage, Integer depth) {
-        try (Session session = driver.session()) {
-            var results = session.run(
-                    "MATCH (p:" + NodeLabel.PACKAGE + ")-[:CONTAINS]->(c:" + NodeLabel.CLASS + ") " +
-                            "WHERE p.name STARTS WITH $root RETURN p.name AS pkg, c.name AS cls",
-                    Values.parameters("root", rootPackage));
+    public QueryResult<String> searchSymbols(String query, String kind, Integer limit) {
+        return join(searchSymbols(query, kind, limit, this::blocking));
+    }
 
-            class PackageNode {
-                String name;
-                java.util.Map<String, PackageNode> children = new java.util.TreeMap<>();
-                java.util.List<String> classes = new java.util.ArrayList<>();
+    @Override
+    public CompletionStage<QueryResult<String>> searchSymbolsAsync(String query, String kind, Integer limit) {
+        return start(() -> searchSymbols(query, kind, limit, this::async));
+    }
 
-                PackageNode(String name) { this.name = name; }
+    /** Run the exact, CamelCase and fulltext lookups one after another, each adding to the matches found so far. */
+    private CompletionStage<QueryResult<String>> searchSymbols(String query, String kind, Integer limit, Runner run) {
+        int max = limit == null ? QueryDefaults.DEFAULT_LIMIT : limit;
+        java.util.Set<String> found = new java.util.LinkedHashSet<>();
+        if (query == null || query.isEmpty() || max <= 0) {
+            return CompletableFuture.completedFuture(new QueryResult<>(new java.util.ArrayList<>(found), 1, max, 0));
+        }
+        java.util.List<NodeLabel> labels = new java.util.ArrayList<>();
+        if (kind == null || !"method".equalsIgnoreCase(kind)) {
+            labels.add(NodeLabel.CLASS);
+        }
+        if (kind == null || !"class".equalsIgnoreCase(kind)) {
+            labels.add(NodeLabel.METHOD);
+        }
+        java.util.Map<String, Object> params = new java.util.HashMap<>();
+        params.put("q", query);
+        params.put("humps", SymbolNames.humps(query));
+        params.put("lim", max);
+        params.put("scan", max * SYMBOL_SCAN_FACTOR);
+        params.put("text", luceneTerm(query) + "* OR " + luceneTerm(query) + "~");
+
+        CompletionStage<Void> done = CompletableFuture.completedFuture(null);
+        for (NodeLabel label : labels) {
+            String where = label == NodeLabel.CLASS ? "n.simpleName = $q OR n.name = $q" : "n.simpleName = $q";
+            done = done.thenCompose(v -> run.run("MATCH (n:" + label + ") WHERE " + where + " RETURN " + symbol(label) +
+                    " AS symbol ORDER BY symbol LIMIT $lim", params))
+                    .thenAccept(rows -> found.addAll(strings(rows, "symbol")));
+        }
+        for (NodeLabel label : labels) {
+            // Candidates are read in humps index order, so only $scan nodes are read before ranking
+            done = done.thenCompose(v -> run.run("MATCH (n:" + label + ") WHERE n.humps STARTS WITH $humps " +
+                    "WITH n ORDER BY n.humps LIMIT $scan " +
+                    "RETURN " + symbol(label) + " AS symbol, n.simpleName AS simple " +
+                    "ORDER BY size(n.simpleName), symbol", params))
+                    .thenAccept(rows -> {
+                        for (Map<String, Object> row : rows) {
+                            if (SymbolNames.matchesCamelCase(query, (String) row.get("simple"))) {
+                                found.add((String) row.get("symbol"));
+                            }
+                        }
+                    });
+        }
+        done = done.thenCompose(v -> {
+            if (found.size() >= max) {
+                return CompletableFuture.completedFuture(null);
             }
-
-            String[] rootParts = rootPackage.isEmpty() ? new String[0] : rootPackage.split("\\.");
-            PackageNode root = new PackageNode(rootPackage);
-
-            java.util.function.Function<String, Integer> depthCalc = pkg -> {
-                if (pkg.isEmpty()) return 0;
-                int diff = pkg.split("\\.").length - rootParts.length;
-                return diff;
-            };
-
-            while (results.hasNext()) {
-                var rec = results.next();
-                String pkg = rec.get("pkg").asString();
-                String cls = rec.get("cls").asString();
-                int d = depthCalc.apply(pkg);
-                if (depth != null && d > depth) continue;
-                PackageNode node = root;
-                if (!pkg.equals(rootPackage)) {
-                    String rel = pkg.substring(rootPackage.isEmpty() ? 0 : rootPackage.length() + 1);
-                    String[] parts = rel.split("\\.");
-                    String current = rootPackage;
-                    for (int i = 0; i < parts.length && (depth == null || i + 1 <= depth); i++) {
-                        current = current.isEmpty() ? parts[i] : current + "." + parts[i];
-                        node = node.children.computeIfAbsent(current, PackageNode::new);
-                    }
-                }
-                node.classes.add(cls);
+            String filter = labels.size() == 1 ? " WHERE n:" + labels.get(0) : "";
+            String symbol = "CASE WHEN n:" + NodeLabel.METHOD + " THEN n.class + '|' + n.signature ELSE n.name END";
+            return run.run("CALL db.index.fulltext.queryNodes('" + SYMBOL_INDEX + "', $text) " +
+                    "YIELD node AS n, score" + filter + " RETURN " + symbol + " AS symbol LIMIT $scan", params)
+                    .thenAccept(rows -> found.addAll(strings(rows, "symbol")));
+        });
+
+        return done.thenApply(v -> {
+            List<String> items = new java.util.ArrayList<>(found);
+            if (items.size() > max) {
+                items = new java.util.ArrayList<>(items.subList(0, max));
             }
+            return new QueryResult<>(items, 1, max, items.size());
+        });
+    }
 
-            java.util.function.Function<PackageNode, String> toJson = new java.util.function.Function<PackageNode, String>() {
-                @Override
-                public String apply(PackageNode n) {
-                    StringBuilder sb = new StringBuilder();
-                    sb.append('{').append("\"name\":\"").append(n.name).append("\"");
-                    if (!n.classes.isEmpty()) {
-                        java.util.Collections.sort(n.classes);
-                        sb.append(",\"classes\":[");
-                        for (int i = 0; i < n.classes.size(); i++) {
-                            if (i > 0) sb.append(',');
-                            sb.append('"').append(n.classes.get(i)).append('"');
-                        }
-                        sb.append(']');
-                    }
-                    if (!n.children.isEmpty()) {
-                        sb.append(",\"packages\":[");
-                        boolean first = true;
-                        for (PackageNode child : n.children.values()) {
-                            if (!first) sb.append(',');
-                            first = false;
-                            sb.append(apply(child));
-                        }
-                        sb.append(']');
-                    }
-                    sb.append('}');
-                    return sb.toString();
-                }
-            };
+    private static String symbol(NodeLabel label) {
+        return label == NodeLabel.METHOD ? "n.class + '|' + n.signature" : "n.name";
+    }
 
-            return toJson.apply(root);
+    /** Lower-case the query and escape the Lucene query syntax characters. */
+    private static String luceneTerm(String query) {
+        StringBuilder sb = new StringBuilder();
+        for (char c : query.toLowerCase(java.util.Locale.ROOT).toCharArray()) {
+            if ("+-&|!(){}[]^\"~*?:\\/ ".indexOf(c) >= 0) {
+                sb.append('\\');
+            }
+            sb.append(c);
         }
+        return sb.toString();
+    }
+
+    @Override
+    public String getPackageHierarchy(String rootPackage, Integer depth) {
+        return join(getPackageHierarchy(rootPackage, depth, this::blocking));
+    }
+
+    @Override
+    public CompletionStage<String> getPackageHierarchyAsync(String rootPackage, Integer depth) {
+        return start(() -> getPackageHierarchy(rootPackage, depth, this::async));
+    }
+
+    private CompletionStage<String> getPackageHierarchy(String rootPackage, Integer depth, Runner run) {
+        return run.run(
+                "MATCH (p:" + NodeLabel.PACKAGE + ")-[:CONTAINS]->(c:" + NodeLabel.CLASS + ") " +
+                        "WHERE p.name STARTS WITH $root RETURN p.name AS pkg, c.name AS cls",
+                java.util.Collections.singletonMap("root", rootPackage)).thenApply(results -> {
+            java.util.List<String[]> entries = new java.util.ArrayList<>();
+            for (var rec : results) {
+                entries.add(new String[]{(String) rec.get("pkg"), (String) rec.get("cls")});
+            }
+            return PackageHierarchy.toJson(rootPackage, depth, entries);
+        });
     }
 
     @Override
     public String getGraphStatistics(Integer topN) {
+        return join(getGraphStatistics(topN, this::blocking));
+    }
+
+    @Override
+    public CompletionStage<String> getGraphStatisticsAsync(Integer topN) {
+        return start(() -> getGraphStatistics(topN, this::async));
+    }
+
+    /** The three queries are independent, so asynchronous runs keep them in flight together. */
+    private CompletionStage<String> getGraphStatistics(Integer topN, Runner run) {
         int limit = topN == null ? 10 : topN;
-        try (Session session = driver.session()) {
-            long nodeCount = session.run("MATCH (n) RETURN count(n) AS c")
-                    .single()
-                    .get("c").asLong();
-            long edgeCount = session.run("MATCH ()-[r]->() RETURN count(r) AS c")
-                    .single()
-                    .get("c").asLong();
-
-            var top = session.run(
-                            "MATCH (c:" + NodeLabel.CLASS + ") " +
-                                    "RETURN c.name AS name, count{ (c)--() } AS d " +
-                                    "ORDER BY d DESC, name LIMIT $limit",
-                            Values.parameters("limit", limit))
-                    .list(r -> new String[]{r.get("name").asString(), String.valueOf(r.get("d").asInt())});
-
-            StringBuilder sb = new StringBuilder();
-            sb.append('{');
-            sb.append("\"nodes\":").append(nodeCount).append(',');
-            sb.append("\"edges\":").append(edgeCount).append(',');
-            sb.append("\"topClasses\":[");
-            for (int i = 0; i < top.size(); i++) {
-                String[] t = top.get(i);
-                if (i > 0) sb.append(',');
-                sb.append('{')
-                        .append("\"name\":\"").append(t[0]).append("\",")
-                        .append("\"degree\":").append(t[1])
-                        .append('}');
-            }
-            sb.append(']');
-            sb.append('}');
-            return sb.toString();
-        }
+        // Artifact nodes only record imports, the in-memory graph has none
+        CompletionStage<Long> nodes = run.run("MATCH (n) WHERE NOT n:" + NodeLabel.ARTIFACT + " RETURN count(n) AS c",
+                java.util.Collections.emptyMap())
+                .thenApply(rows -> longValue(rows.get(0).get("c")));
+        CompletionStage<Long> edges = run.run("MATCH ()-[r]->() RETURN count(r) AS c", java.util.Collections.emptyMap())
+                .thenApply(rows -> longValue(rows.get(0).get("c")));
+        CompletionStage<List<Map<String, Object>>> topClasses = run.run(
+                "MATCH (c:" + NodeLabel.CLASS + ") " +
+                        "RETURN c.name AS name, count{ (c)--() } AS d " +
+                        "ORDER BY d DESC, name LIMIT $limit",
+                java.util.Collections.singletonMap("limit", limit));
+
+        return nodes.thenCombine(edges, (nodeCount, edgeCount) -> new long[]{nodeCount, edgeCount})
+                .thenCombine(topClasses, (counts, rows) -> {
+                    var top = new java.util.ArrayList<String[]>();
+                    for (var r : rows) {
+                        top.add(new String[]{(String) r.get("name"), String.valueOf(intValue(r.get("d")))});
+                    }
+
+                    StringBuilder sb = new StringBuilder();
+                    sb.append('{');
+                    sb.append("\"nodes\":").append(counts[0]).append(',');
+                    sb.append("\"edges\":").append(counts[1]).append(',');
+                    sb.append("\"topClasses\":[");
+                    for (int i = 0; i < top.size(); i++) {
+                        String[] t = top.get(i);
+                        if (i > 0) sb.append(',');
+                        sb.append('{')
+                                .append("\"name\":\"").append(t[0]).append("\",")
+                                .append("\"degree\":").append(t[1])
+                                .append('}');
+                    }
+                    sb.append(']');
+                    sb.append('}');
+                    return sb.toString();
+                });
     }
 
     @Override
     public void exportGraph(String format, String outputPath) {
-        String upper = format == null ? "" : format.toUpperCase();
-        try (Session session = driver.session()) {
-            var nodeRecords = session.run(
-                    "MATCH (n) RETURN id(n) AS id, labels(n)[0] AS label, n.name AS name, n.class AS cls, n.signature AS sig")
-                    .list(r -> new Object[]{r.get("id").asLong(), r.get("label").asString(),
-                            r.get("name").isNull() ? null : r.get("name").asString(),
-                            r.get("cls").isNull() ? null : r.get("cls").asString(),
-                            r.get("sig").isNull() ? null : r.get("sig").asString()});
+        try {
+            var nodeRecords = new java.util.ArrayList<Object[]>();
+            // Configuration properties are identified by their key instead of a name;
+            // artifact nodes only record imports and are left out
+            for (var r : store.query(
+                    "MATCH (n) WHERE NOT n:" + NodeLabel.ARTIFACT + " RETURN id(n) AS id, labels(n)[0] AS label, coalesce(n.name, n.key) AS name, "
+                            + "n.class AS cls, n.signature AS sig",
+                    java.util.Collections.emptyMap())) {
+                nodeRecords.add(new Object[]{longValue(r.get("id")), r.get("label"), r.get("name"), r.get("cls"), r.get("sig")});
+            }
 
             java.util.Map<Long, String> names = new java.util.HashMap<>();
             for (Object[] arr : nodeRecords) {
@@ -363,63 +799,14 @@ public class QueryServiceImpl implements QueryService {
                 names.put(id, name);
             }
 
-            var edgeRecords = session.run(
-                    "MATCH (a)-[r]->(b) RETURN id(a) AS from, type(r) AS type, id(b) AS to")
-                    .list(r -> new Object[]{r.get("from").asLong(), r.get("type").asString(), r.get("to").asLong()});
-
-            StringBuilder sb = new StringBuilder();
-            switch (upper) {
-                case "DOT":
-                    sb.append("digraph G {");
-                    for (var e : names.entrySet()) {
-                        sb.append('\n').append("  n").append(e.getKey())
-                                .append(" [label=\"").append(e.getValue()).append("\"];");
-                    }
-                    for (Object[] edge : edgeRecords) {
-                        sb.append('\n').append("  n").append(edge[0]).append(" -> n")
-                                .append(edge[2]).append(" [label=\"")
-                                .append(edge[1]).append("\"];");
-                    }
-                    sb.append('\n').append('}');
-                    break;
-                case "CSV":
-                    sb.append("from,to,type\n");
-                    for (Object[] edge : edgeRecords) {
-                        sb.append(names.get((Long) edge[0])).append(',')
-                                .append(names.get((Long) edge[2])).append(',')
-                                .append(edge[1]).append('\n');
-                    }
-                    break;
-                case "JSON":
-                    sb.append('{');
-                    sb.append("\"nodes\":[");
-                    boolean first = true;
-                    for (var e : names.entrySet()) {
-                        if (!first) sb.append(',');
-                        first = false;
-                        sb.append('{')
-                                .append("\"id\":").append(e.getKey()).append(',')
-                                .append("\"name\":\"").append(e.getValue()).append("\"}");
-                    }
-                    sb.append("],\"edges\":[");
-                    first = true;
-                    for (Object[] edge : edgeRecords) {
-                        if (!first) sb.append(',');
-                        first = false;
-                        sb.append('{')
-                                .append("\"from\":").append(edge[0]).append(',')
-                                .append("\"to\":").append(edge[2]).append(',')
-                                .append("\"type\":\"").append(edge[1]).append("\"}");
-                    }
-                    sb.append(']');
-                    sb.append('}');
-                    break;
-                default:
-                    throw new IllegalArgumentException("Unsupported format: " + format);
+            var edgeRecords = new java.util.ArrayList<Object[]>();
+            for (var r : store.query("MATCH (a)-[r]->(b) WHERE NOT a:" + NodeLabel.ARTIFACT + " AND NOT b:" + NodeLabel.ARTIFACT
+                    + " RETURN id(a) AS from, type(r) AS type, id(b) AS to",
+                    java.util.Collections.emptyMap())) {
+                edgeRecords.add(new Object[]{longValue(r.get("from")), r.get("type"), longValue(r.get("to"))});
             }
 
-            java.nio.file.Files.write(java.nio.file.Paths.get(outputPath),
-                    sb.toString().getBytes(java.nio.charset.StandardCharsets.UTF_8));
+            GraphExport.write(format, names, edgeRecords, outputPath);
         } catch (Exception e) {
             throw new RuntimeException("Failed to export graph", e);
         }
@@ -0,0 +1,111 @@
+package tech.softwareologists.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Derives the searchable names stored on class and method nodes.
+ *
+ * <p>Every imported class and method carries a {@code simpleName}, the class
+ * name without package and outer classes or the method name without its
+ * descriptor, and {@code humps}, the capitalised first letter of the simple
+ * name followed by every further upper case letter. {@code QueryServiceImpl}
+ * has the humps {@code QSI}, so a CamelCase abbreviation becomes an indexed
+ * prefix lookup.</p>
+ */
+public final class SymbolNames {
+    /** Property holding the simple name. */
+    public static final String SIMPLE_NAME = "simpleName";
+    /** Property holding the CamelCase humps of the simple name. */
+    public static final String HUMPS = "humps";
+
+    private SymbolNames() {
+        // utility class
+    }
+
+    /** Simple name of a fully qualified, possibly nested class name. */
+    public static String classSimpleName(String className) {
+        String name = className.substring(className.lastIndexOf('.') + 1);
+        return name.substring(name.lastIndexOf('$') + 1);
+    }
+
+    /** Method name of a JVM method signature such as {@code run()V}. */
+    public static String methodSimpleName(String signature) {
+        int paren = signature.indexOf('(');
+        return paren < 0 ? signature : signature.substring(0, paren);
+    }
+
+    /**
+     * Capitalised first character followed by all further ASCII upper case
+     * letters of the name.
+     */
+    public static String humps(String name) {
+        if (name.isEmpty()) {
+            return name;
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(Character.toUpperCase(name.charAt(0)));
+        for (int i = 1; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /** Search properties of a class node. */
+    public static Map<String, Object> classProperties(String className) {
+        return properties(classSimpleName(className));
+    }
+
+    /** Search properties of a method node. */
+    public static Map<String, Object> methodProperties(String signature) {
+        return properties(methodSimpleName(signature));
+    }
+
+    /**
+     * Whether the query is a CamelCase abbreviation of the name: every hump
+     * of the query, split before upper case letters, must be a prefix of the
+     * corresponding hump of the name, starting with the first one. The first
+     * query hump is compared case-insensitively, so {@code qSI} and
+     * {@code QuSeI} both match {@code QueryServiceImpl}.
+     */
+    public static boolean matchesCamelCase(String query, String name) {
+        List<String> queryHumps = split(query);
+        List<String> nameHumps = split(name);
+        if (queryHumps.isEmpty() || queryHumps.size() > nameHumps.size()) {
+            return false;
+        }
+        for (int i = 0; i < queryHumps.size(); i++) {
+            String q = queryHumps.get(i);
+            String n = nameHumps.get(i);
+            boolean prefix = i == 0 ? n.regionMatches(true, 0, q, 0, q.length()) : n.startsWith(q);
+            if (!prefix) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Map<String, Object> properties(String simpleName) {
+        Map<String, Object> props = new HashMap<>();
+        props.put(SIMPLE_NAME, simpleName);
+        props.put(HUMPS, humps(simpleName));
+        return props;
+    }
+
+    private static List<String> split(String name) {
+        List<String> humps = new ArrayList<>();
+        int start = 0;
+        for (int i = 1; i <= name.length(); i++) {
+            if (i == name.length() || (name.charAt(i) >= 'A' && name.charAt(i) <= 'Z')) {
+                humps.add(name.substring(start, i));
+                start = i;
+            }
+        }
+        return humps;
+    }
+}
@@ -0,0 +1,107 @@
+package tech.softwareologists.core.csr;
+
+import java.util.Arrays;
+
+/**
+ * Edges of one type in compressed sparse row form. The targets of node
+ * {@code n} are {@code targets[offsets[n]]} up to, but excluding,
+ * {@code targets[offsets[n + 1]]}; every row is sorted and free of
+ * duplicates, so membership is a binary search.
+ */
+final class Adjacency {
+    final int[] offsets;
+    final int[] targets;
+
+    Adjacency(int[] offsets, int[] targets) {
+        this.offsets = offsets;
+        this.targets = targets;
+    }
+
+    /**
+     * Build the adjacency of the given edges. Duplicate edges are dropped,
+     * as {@code MERGE} would.
+     *
+     * @param nodes number of source nodes
+     * @param edges edges to add
+     */
+    static Adjacency of(int nodes, Edges edges) {
+        long[] packed = new long[edges.size];
+        for (int i = 0; i < edges.size; i++) {
+            packed[i] = ((long) edges.sources[i] << 32) | (edges.targets[i] & 0xffffffffL);
+        }
+        return of(nodes, packed);
+    }
+
+    /**
+     * Build the adjacency with every edge reversed.
+     *
+     * @param nodes number of target nodes of this adjacency
+     */
+    Adjacency reverse(int nodes) {
+        long[] packed = new long[targets.length];
+        int n = 0;
+        for (int source = 0; source < offsets.length - 1; source++) {
+            for (int i = offsets[source]; i < offsets[source + 1]; i++) {
+                packed[n++] = ((long) targets[i] << 32) | source;
+            }
+        }
+        return of(nodes, packed);
+    }
+
+    private static Adjacency of(int nodes, long[] packed) {
+        Arrays.sort(packed);
+        int[] offsets = new int[nodes + 1];
+        int[] targets = new int[packed.length];
+        int n = 0;
+        long previous = -1;
+        for (long edge : packed) {
+            if (edge == previous) {
+                continue;
+            }
+            previous = edge;
+            offsets[(int) (edge >>> 32) + 1]++;
+            targets[n++] = (int) edge;
+        }
+        for (int i = 0; i < nodes; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        return new Adjacency(offsets, n == targets.length ? targets : Arrays.copyOf(targets, n));
+    }
+
+    int start(int node) {
+        return offsets[node];
+    }
+
+    int end(int node) {
+        return offsets[node + 1];
+    }
+
+    int degree(int node) {
+        return offsets[node + 1] - offsets[node];
+    }
+
+    boolean contains(int node, int target) {
+        return Arrays.binarySearch(targets, offsets[node], offsets[node + 1], target) >= 0;
+    }
+
+    int edgeCount() {
+        return targets.length;
+    }
+
+    /** Growable list of edges collected before the adjacency is built. */
+    static final class Edges {
+        private int[] sources = new int[16];
+        private int[] targets = new int[16];
+        private int size;
+
+        void add(int source, int target) {
+            if (size == sources.length) {
+                sources = Arrays.copyOf(sources, size * 2);
+                targets = Arrays.copyOf(targets, size * 2);
+            }
+            sources[size] = source;
+            targets[size] = target;
+            size++;
+        }
+    }
+}
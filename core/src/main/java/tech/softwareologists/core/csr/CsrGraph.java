@@ -0,0 +1,487 @@
+package tech.softwareologists.core.csr;
+
+import tech.softwareologists.core.ClassFacts;
+import tech.softwareologists.core.db.EdgeType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+/**
+ * Immutable, compact in-memory copy of the code graph.
+ *
+ * <p>Nodes are numbered from zero per kind and names are kept once in
+ * sorted tables, so a node id is the position of its name and results in id
+ * order are already sorted by name. Edges of every type are stored as
+ * {@link Adjacency compressed sparse rows} of {@code int} ids in both
+ * directions, so traversals are loops over {@code int[]} slices without any
+ * per-edge objects.</p>
+ *
+ * <p>The graph holds the same nodes and edges the importers write into the
+ * database, except for artifact fingerprints: classes with their packages
+ * and class edges, methods including called methods of classes that were
+ * not imported, {@code CALLS} edges, annotations and configuration keys.
+ * Instances are created with a {@link Builder} fed with the
+ * {@link ClassFacts} of an import.</p>
+ */
+public final class CsrGraph {
+    /** Class to class edge types, in the order of {@link #classOut} and {@link #classIn}. */
+    static final EdgeType[] CLASS_EDGES = {EdgeType.DEPENDS_ON, EdgeType.USES, EdgeType.IMPLEMENTS, EdgeType.EXTENDS};
+
+    /** Sorted names of classes and of the owners of called methods. */
+    final String[] classNames;
+    /** Entries of {@link #classNames} that are class nodes. */
+    final BitSet classNodes;
+    final String[] packageNames;
+    /** Sorted, distinct method signatures referenced by {@link #methodSignature}. */
+    final String[] signatures;
+    /** Owner of every method as an index into {@link #classNames}; methods are sorted by {@code class|signature}. */
+    final int[] methodClass;
+    final int[] methodSignature;
+    /** Methods declared by an imported class, as opposed to methods only known as call targets. */
+    final BitSet declaredMethods;
+    final String[] httpRoutes;
+    final String[] httpMethods;
+    final String[] eventTypes;
+    final String[] crons;
+    final String[] annotationNames;
+    final String[] configKeys;
+
+    /** {@code CONTAINS} edges from packages to classes. */
+    final Adjacency contains;
+    final Adjacency[] classOut;
+    final Adjacency[] classIn;
+    final Adjacency callsOut;
+    final Adjacency callsIn;
+    /** {@code ANNOTATED_WITH} edges, from the annotation to the annotated classes. */
+    final Adjacency annotatedClasses;
+    final Adjacency annotatedMethods;
+    /** {@code USES_CONFIG} edges, from the key to the classes reading it. */
+    final Adjacency configClasses;
+    final Adjacency configMethods;
+
+    final int[] endpointMethods;
+    final int[] listenerMethods;
+    final int[] scheduledMethods;
+
+    private SymbolIndex symbols;
+
+    CsrGraph(String[] classNames, BitSet classNodes, String[] packageNames, String[] signatures,
+             int[] methodClass, int[] methodSignature, BitSet declaredMethods, String[] httpRoutes,
+             String[] httpMethods, String[] eventTypes, String[] crons, String[] annotationNames, String[] configKeys,
+             Adjacency contains, Adjacency[] classOut, Adjacency callsOut,
+             Adjacency annotatedClasses, Adjacency annotatedMethods,
+             Adjacency configClasses, Adjacency configMethods) {
+        this(classNames, classNodes, packageNames, signatures, methodClass, methodSignature, declaredMethods,
+                httpRoutes, httpMethods, eventTypes, crons, annotationNames, configKeys,
+                contains, classOut, reverse(classOut, classNames.length), callsOut, callsOut.reverse(methodClass.length),
+                annotatedClasses, annotatedMethods, configClasses, configMethods);
+    }
+
+    /** Create a graph whose reverse adjacencies have been computed already. */
+    CsrGraph(String[] classNames, BitSet classNodes, String[] packageNames, String[] signatures,
+             int[] methodClass, int[] methodSignature, BitSet declaredMethods, String[] httpRoutes,
+             String[] httpMethods, String[] eventTypes, String[] crons, String[] annotationNames, String[] configKeys,
+             Adjacency contains, Adjacency[] classOut, Adjacency[] classIn, Adjacency callsOut, Adjacency callsIn,
+             Adjacency annotatedClasses, Adjacency annotatedMethods,
+             Adjacency configClasses, Adjacency configMethods) {
+        this.classNames = classNames;
+        this.classNodes = classNodes;
+        this.packageNames = packageNames;
+        this.signatures = signatures;
+        this.methodClass = methodClass;
+        this.methodSignature = methodSignature;
+        this.declaredMethods = declaredMethods;
+        this.httpRoutes = httpRoutes;
+        this.httpMethods = httpMethods;
+        this.eventTypes = eventTypes;
+        this.crons = crons;
+        this.annotationNames = annotationNames;
+        this.configKeys = configKeys;
+        this.contains = contains;
+        this.classOut = classOut;
+        this.classIn = classIn;
+        this.callsOut = callsOut;
+        this.callsIn = callsIn;
+        this.annotatedClasses = annotatedClasses;
+        this.annotatedMethods = annotatedMethods;
+        this.configClasses = configClasses;
+        this.configMethods = configMethods;
+        this.endpointMethods = present(httpRoutes);
+        this.listenerMethods = present(eventTypes);
+        this.scheduledMethods = present(crons);
+    }
+
+    private static Adjacency[] reverse(Adjacency[] adjacencies, int nodes) {
+        Adjacency[] reversed = new Adjacency[adjacencies.length];
+        for (int i = 0; i < adjacencies.length; i++) {
+            reversed[i] = adjacencies[i].reverse(nodes);
+        }
+        return reversed;
+    }
+
+    private static int[] present(String[] values) {
+        int n = 0;
+        for (String value : values) {
+            if (value != null) {
+                n++;
+            }
+        }
+        int[] ids = new int[n];
+        n = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                ids[n++] = i;
+            }
+        }
+        return ids;
+    }
+
+    /** Number of class, method, package, annotation and configuration key nodes. */
+    public int nodeCount() {
+        return classNodes.cardinality() + methodClass.length + packageNames.length
+                + annotationNames.length + configKeys.length;
+    }
+
+    /** Number of edges of all types. */
+    public long edgeCount() {
+        long edges = contains.edgeCount() + callsOut.edgeCount() + annotatedClasses.edgeCount()
+                + annotatedMethods.edgeCount() + configClasses.edgeCount() + configMethods.edgeCount();
+        for (Adjacency adjacency : classOut) {
+            edges += adjacency.edgeCount();
+        }
+        return edges;
+    }
+
+    /** Id of the class or method owner with the given name, or a negative value. */
+    int classId(String name) {
+        return name == null ? -1 : Arrays.binarySearch(classNames, name);
+    }
+
+    /** Id of the method with the given owner and signature, or {@code -1}. */
+    int methodId(String className, String signature) {
+        if (className == null || signature == null) {
+            return -1;
+        }
+        int low = 0;
+        int high = methodClass.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareKey(classNames[methodClass[mid]], signatures[methodSignature[mid]], className, signature);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /** The {@code class|signature} name of a method. */
+    String methodName(int method) {
+        return classNames[methodClass[method]] + '|' + signatures[methodSignature[method]];
+    }
+
+    /**
+     * Recover the facts the given classes were built from, so a graph can be
+     * built again without keeping the facts of every class alive. Building a
+     * graph from the recovered facts yields the same nodes and edges for
+     * these classes. Names that are not class nodes are skipped.
+     *
+     * @param names fully qualified names of imported classes
+     * @return the facts of every class found
+     */
+    List<ClassFacts> facts(Collection<String> names) {
+        int[] packageOf = new int[classNames.length];
+        Arrays.fill(packageOf, -1);
+        for (int pkg = 0; pkg < packageNames.length; pkg++) {
+            for (int i = contains.start(pkg); i < contains.end(pkg); i++) {
+                packageOf[contains.targets[i]] = pkg;
+            }
+        }
+        Adjacency classAnnotations = annotatedClasses.reverse(classNames.length);
+        Adjacency classKeys = configClasses.reverse(classNames.length);
+        Adjacency methodAnnotations = annotatedMethods.reverse(methodClass.length);
+        Adjacency methodKeys = configMethods.reverse(methodClass.length);
+
+        List<ClassFacts> facts = new ArrayList<>(names.size());
+        for (String name : names) {
+            int cls = classId(name);
+            if (cls < 0 || !classNodes.get(cls)) {
+                continue;
+            }
+            List<ClassFacts.MethodFacts> methods = new ArrayList<>();
+            for (int m = firstMethod(name); m < methodClass.length && methodClass[m] == cls; m++) {
+                if (!declaredMethods.get(m)) {
+                    continue;
+                }
+                List<String> calls = new ArrayList<>(callsOut.degree(m));
+                for (int i = callsOut.start(m); i < callsOut.end(m); i++) {
+                    calls.add(methodName(callsOut.targets[i]));
+                }
+                methods.add(new ClassFacts.MethodFacts(signatures[methodSignature[m]],
+                        names(methodAnnotations, m, annotationNames), httpRoutes[m], httpMethods[m], eventTypes[m],
+                        crons[m], names(methodKeys, m, configKeys), calls));
+            }
+            List<String> superclass = names(classOut[3], cls, classNames);
+            facts.add(new ClassFacts(name, packageOf[cls] < 0 ? "" : packageNames[packageOf[cls]],
+                    names(classAnnotations, cls, annotationNames), names(classKeys, cls, configKeys), methods,
+                    names(classOut[0], cls, classNames), names(classOut[1], cls, classNames),
+                    names(classOut[2], cls, classNames), superclass.isEmpty() ? null : superclass.get(0)));
+        }
+        return facts;
+    }
+
+    /** Names of the targets of a node. */
+    private static List<String> names(Adjacency adjacency, int node, String[] table) {
+        List<String> names = new ArrayList<>(adjacency.degree(node));
+        for (int i = adjacency.start(node); i < adjacency.end(node); i++) {
+            names.add(table[adjacency.targets[i]]);
+        }
+        return names;
+    }
+
+    /** Id of the first method owned by the class, or where it would be inserted. */
+    private int firstMethod(String className) {
+        int low = 0;
+        int high = methodClass.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareKey(classNames[methodClass[mid]], signatures[methodSignature[mid]], className, "") <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /** Search index over simple names, built on first use. */
+    synchronized SymbolIndex symbols() {
+        if (symbols == null) {
+            symbols = new SymbolIndex(this);
+        }
+        return symbols;
+    }
+
+    /**
+     * Compare {@code class1|sig1} with {@code class2|sig2} as strings
+     * without concatenating them.
+     */
+    static int compareKey(String class1, String sig1, String class2, String sig2) {
+        int length1 = class1.length() + 1 + sig1.length();
+        int length2 = class2.length() + 1 + sig2.length();
+        int n = Math.min(length1, length2);
+        for (int i = 0; i < n; i++) {
+            char c1 = charAt(class1, sig1, i);
+            char c2 = charAt(class2, sig2, i);
+            if (c1 != c2) {
+                return c1 - c2;
+            }
+        }
+        return length1 - length2;
+    }
+
+    private static char charAt(String cls, String sig, int i) {
+        if (i < cls.length()) {
+            return cls.charAt(i);
+        }
+        return i == cls.length() ? '|' : sig.charAt(i - cls.length() - 1);
+    }
+
+    /**
+     * Collects the facts of an import and builds a {@link CsrGraph} from
+     * them. The builder is a {@link Consumer} of {@link ClassFacts}, so it
+     * can take the place of a graph writer in
+     * {@link tech.softwareologists.core.ImportPipeline}. Facts for a class
+     * added again replace the earlier ones, like
+     * {@link tech.softwareologists.core.GraphBatchWriter#replaceClass(ClassFacts)}.
+     * A builder is not thread-safe.
+     */
+    public static final class Builder implements Consumer<ClassFacts> {
+        private final Map<String, ClassFacts> classes = new LinkedHashMap<>();
+
+        @Override
+        public void accept(ClassFacts facts) {
+            classes.put(facts.getName(), facts);
+        }
+
+        /** Add the facts of all given classes. */
+        public Builder addAll(Collection<ClassFacts> facts) {
+            for (ClassFacts f : facts) {
+                accept(f);
+            }
+            return this;
+        }
+
+        /** Drop the facts of the given class. */
+        public void remove(String className) {
+            classes.remove(className);
+        }
+
+        /** Number of classes added so far. */
+        public int size() {
+            return classes.size();
+        }
+
+        /** Build an immutable graph of the facts added so far. */
+        public CsrGraph build() {
+            TreeSet<String> names = new TreeSet<>();
+            TreeSet<String> classSet = new TreeSet<>();
+            TreeSet<String> packages = new TreeSet<>();
+            TreeSet<String> signatureSet = new TreeSet<>();
+            TreeSet<String> annotations = new TreeSet<>();
+            TreeSet<String> keys = new TreeSet<>();
+            Map<String, String[]> methodKeys = new HashMap<>();
+            Map<String, ClassFacts.MethodFacts> declared = new HashMap<>();
+            for (ClassFacts facts : classes.values()) {
+                classSet.add(facts.getName());
+                classSet.addAll(facts.getDependencies());
+                classSet.addAll(facts.getUses());
+                classSet.addAll(facts.getInterfaces());
+                if (facts.getSuperclass() != null) {
+                    classSet.add(facts.getSuperclass());
+                }
+                if (!facts.getPackageName().isEmpty()) {
+                    packages.add(facts.getPackageName());
+                }
+                annotations.addAll(facts.getAnnotations());
+                keys.addAll(facts.getConfigProperties());
+                for (ClassFacts.MethodFacts method : facts.getMethods()) {
+                    String key = facts.getName() + '|' + method.getSignature();
+                    methodKeys.put(key, new String[]{facts.getName(), method.getSignature()});
+                    declared.put(key, method);
+                    annotations.addAll(method.getAnnotations());
+                    keys.addAll(method.getConfigProperties());
+                    for (String call : method.getCalls()) {
+                        int idx = call.indexOf('|');
+                        methodKeys.putIfAbsent(call, new String[]{call.substring(0, idx), call.substring(idx + 1)});
+                    }
+                }
+            }
+            for (String[] method : methodKeys.values()) {
+                names.add(method[0]);
+                signatureSet.add(method[1]);
+            }
+            names.addAll(classSet);
+
+            String[] classNames = names.toArray(new String[0]);
+            Map<String, Integer> classIds = index(classNames);
+            BitSet classNodes = new BitSet(classNames.length);
+            for (String name : classSet) {
+                classNodes.set(classIds.get(name));
+            }
+            String[] packageNames = packages.toArray(new String[0]);
+            Map<String, Integer> packageIds = index(packageNames);
+            String[] signatures = signatureSet.toArray(new String[0]);
+            Map<String, Integer> signatureIds = index(signatures);
+            String[] annotationNames = annotations.toArray(new String[0]);
+            Map<String, Integer> annotationIds = index(annotationNames);
+            String[] configKeys = keys.toArray(new String[0]);
+            Map<String, Integer> keyIds = index(configKeys);
+
+            List<String> sortedMethods = new ArrayList<>(methodKeys.keySet());
+            sortedMethods.sort(null);
+            int methodCount = sortedMethods.size();
+            Map<String, Integer> methodIds = new HashMap<>(methodCount * 2);
+            int[] methodClass = new int[methodCount];
+            int[] methodSignature = new int[methodCount];
+            BitSet declaredMethods = new BitSet(methodCount);
+            String[] httpRoutes = new String[methodCount];
+            String[] httpMethods = new String[methodCount];
+            String[] eventTypes = new String[methodCount];
+            String[] crons = new String[methodCount];
+            Adjacency.Edges annotatedMethods = new Adjacency.Edges();
+            Adjacency.Edges configMethods = new Adjacency.Edges();
+            for (int id = 0; id < methodCount; id++) {
+                String key = sortedMethods.get(id);
+                String[] method = methodKeys.get(key);
+                methodIds.put(key, id);
+                methodClass[id] = classIds.get(method[0]);
+                methodSignature[id] = signatureIds.get(method[1]);
+                ClassFacts.MethodFacts facts = declared.get(key);
+                if (facts != null) {
+                    declaredMethods.set(id);
+                    httpRoutes[id] = facts.getHttpRoute();
+                    httpMethods[id] = facts.getHttpMethod();
+                    eventTypes[id] = facts.getEventType();
+                    crons[id] = facts.getCron();
+                    for (String annotation : facts.getAnnotations()) {
+                        annotatedMethods.add(annotationIds.get(annotation), id);
+                    }
+                    for (String prop : facts.getConfigProperties()) {
+                        configMethods.add(keyIds.get(prop), id);
+                    }
+                }
+            }
+
+            Adjacency.Edges contains = new Adjacency.Edges();
+            Adjacency.Edges[] classEdges = new Adjacency.Edges[CLASS_EDGES.length];
+            for (int i = 0; i < classEdges.length; i++) {
+                classEdges[i] = new Adjacency.Edges();
+            }
+            Adjacency.Edges calls = new Adjacency.Edges();
+            Adjacency.Edges annotatedClasses = new Adjacency.Edges();
+            Adjacency.Edges configClasses = new Adjacency.Edges();
+            for (ClassFacts facts : classes.values()) {
+                int cls = classIds.get(facts.getName());
+                if (!facts.getPackageName().isEmpty()) {
+                    contains.add(packageIds.get(facts.getPackageName()), cls);
+                }
+                addAll(classEdges[0], cls, facts.getDependencies(), classIds);
+                addAll(classEdges[1], cls, facts.getUses(), classIds);
+                addAll(classEdges[2], cls, facts.getInterfaces(), classIds);
+                if (facts.getSuperclass() != null) {
+                    classEdges[3].add(cls, classIds.get(facts.getSuperclass()));
+                }
+                for (String annotation : facts.getAnnotations()) {
+                    annotatedClasses.add(annotationIds.get(annotation), cls);
+                }
+                for (String key : facts.getConfigProperties()) {
+                    configClasses.add(keyIds.get(key), cls);
+                }
+                for (ClassFacts.MethodFacts method : facts.getMethods()) {
+                    int source = methodIds.get(facts.getName() + '|' + method.getSignature());
+                    for (String call : method.getCalls()) {
+                        calls.add(source, methodIds.get(call));
+                    }
+                }
+            }
+            Adjacency[] classOut = new Adjacency[CLASS_EDGES.length];
+            for (int i = 0; i < classOut.length; i++) {
+                classOut[i] = Adjacency.of(classNames.length, classEdges[i]);
+            }
+
+            return new CsrGraph(classNames, classNodes, packageNames, signatures, methodClass, methodSignature,
+                    declaredMethods, httpRoutes, httpMethods, eventTypes, crons, annotationNames, configKeys,
+                    Adjacency.of(packageNames.length, contains), classOut, Adjacency.of(methodCount, calls),
+                    Adjacency.of(annotationNames.length, annotatedClasses),
+                    Adjacency.of(annotationNames.length, annotatedMethods),
+                    Adjacency.of(configKeys.length, configClasses),
+                    Adjacency.of(configKeys.length, configMethods));
+        }
+
+        private static void addAll(Adjacency.Edges edges, int source, List<String> targets, Map<String, Integer> ids) {
+            for (String target : targets) {
+                edges.add(source, ids.get(target));
+            }
+        }
+
+        private static Map<String, Integer> index(String[] sorted) {
+            Map<String, Integer> ids = new HashMap<>(sorted.length * 2);
+            for (int i = 0; i < sorted.length; i++) {
+                ids.put(sorted[i], i);
+            }
+            return ids;
+        }
+    }
+}
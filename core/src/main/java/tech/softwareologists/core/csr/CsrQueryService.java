@@ -0,0 +1,584 @@
+package tech.softwareologists.core.csr;
+
+import tech.softwareologists.core.GraphExport;
+import tech.softwareologists.core.PageCursor;
+import tech.softwareologists.core.PagedQuery;
+import tech.softwareologists.core.PackageHierarchy;
+import tech.softwareologists.core.QueryDefaults;
+import tech.softwareologists.core.QueryResult;
+import tech.softwareologists.core.QueryService;
+import tech.softwareologists.core.SymbolNames;
+import tech.softwareologists.core.db.EdgeType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntFunction;
+import java.util.regex.Pattern;
+
+/**
+ * {@link QueryService} answering every query from a {@link CsrGraph} in
+ * memory. Lookups are binary searches over the name tables and traversals
+ * walk the {@code int[]} adjacency arrays, so no query touches a database.
+ *
+ * <p>Results, ordering and paging are the same as those of
+ * {@link tech.softwareologists.core.QueryServiceImpl} for the same imported
+ * facts. {@link #searchSymbols(String, String, Integer)} ranks exact and
+ * CamelCase matches the same way but falls back to simple name prefixes
+ * instead of typo-tolerant fulltext matches.</p>
+ */
+public class CsrQueryService implements QueryService {
+    private static final String[] CONTROLLER_ANNOTATIONS = {
+            "org.springframework.stereotype.Controller",
+            "org.springframework.web.bind.annotation.RestController"};
+
+    private final CsrGraph graph;
+    private final long generation;
+
+    public CsrQueryService(CsrGraph graph) {
+        this(graph, 0);
+    }
+
+    /**
+     * @param graph graph to query
+     * @param generation generation of the graph, recorded in page cursors
+     */
+    public CsrQueryService(CsrGraph graph, long generation) {
+        this.graph = graph;
+        this.generation = generation;
+    }
+
+    /** Add the cursor continuing the page, if another page follows. */
+    private QueryResult<String> cursor(QueryResult<String> result, Integer limit, PagedQuery query, Object... args) {
+        String cursor = PageCursor.first(query, Arrays.asList(args), result, limit, generation);
+        if (cursor == null) {
+            return result;
+        }
+        return new QueryResult<>(result.getItems(), result.getPage(), result.getPageSize(), result.getTotal(), true, cursor);
+    }
+
+    /**
+     * Results are sorted arrays or lists, so the query runs again and the
+     * page after the cursor is found by binary search.
+     */
+    @Override
+    public QueryResult<String> nextPage(String cursor) {
+        return PageCursor.decode(cursor).resume(this, generation);
+    }
+
+    /**
+     * Return one page of a sorted result, materializing only the names on
+     * that page. Paging follows the rules of {@code QueryServiceImpl}.
+     */
+    private static QueryResult<String> page(int total, IntFunction<String> item, Integer limit, Integer page,
+                                            Integer pageSize) {
+        int p = page == null ? 1 : page;
+        int ps = pageSize == null ? (limit != null ? limit : total) : pageSize;
+        int skip = Math.max(0, (p - 1) * ps);
+        int fetch = ps;
+        if (limit != null) {
+            if (skip >= limit) {
+                return new QueryResult<>(Collections.emptyList(), p, ps, total, false);
+            }
+            fetch = Math.min(fetch, limit - skip);
+        }
+        List<String> items = new ArrayList<>();
+        for (int i = skip; i < total && items.size() < fetch; i++) {
+            items.add(item.apply(i));
+        }
+        boolean more = skip + items.size() < total && (limit == null || skip + fetch < limit);
+        return new QueryResult<>(items, p, ps, total, more);
+    }
+
+    private static QueryResult<String> page(List<String> sorted, Integer limit, Integer page, Integer pageSize) {
+        return page(sorted.size(), sorted::get, limit, page, pageSize);
+    }
+
+    private QueryResult<String> classPage(int[] ids, int from, int to, Integer limit, Integer page, Integer pageSize) {
+        return page(to - from, i -> graph.classNames[ids[from + i]], limit, page, pageSize);
+    }
+
+    private QueryResult<String> classPage(BitSet ids, Integer limit, Integer page, Integer pageSize) {
+        int[] sorted = ids.stream().toArray();
+        return classPage(sorted, 0, sorted.length, limit, page, pageSize);
+    }
+
+    private static QueryResult<String> empty(Integer limit, Integer page, Integer pageSize) {
+        return page(0, i -> null, limit, page, pageSize);
+    }
+
+    private static int edgeIndex(EdgeType type) {
+        for (int i = 0; i < CsrGraph.CLASS_EDGES.length; i++) {
+            if (CsrGraph.CLASS_EDGES[i] == type) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Not a class edge: " + type);
+    }
+
+    private QueryResult<String> incoming(EdgeType type, String className, Integer limit, Integer page,
+                                         Integer pageSize) {
+        int cls = graph.classId(className);
+        if (cls < 0) {
+            return empty(limit, page, pageSize);
+        }
+        Adjacency in = graph.classIn[edgeIndex(type)];
+        return classPage(in.targets, in.start(cls), in.end(cls), limit, page, pageSize);
+    }
+
+    /**
+     * Nodes reachable from the start in one up to {@code depth} steps, or
+     * any number of steps for a {@code null} depth.
+     */
+    private static BitSet reachable(Adjacency adjacency, int start, Integer depth) {
+        BitSet seen = new BitSet();
+        int[] frontier = {start};
+        int size = 1;
+        for (int level = 0; size > 0 && (depth == null || level < depth); level++) {
+            int[] next = new int[16];
+            int n = 0;
+            for (int f = 0; f < size; f++) {
+                int node = frontier[f];
+                for (int i = adjacency.start(node); i < adjacency.end(node); i++) {
+                    int target = adjacency.targets[i];
+                    if (!seen.get(target)) {
+                        seen.set(target);
+                        if (n == next.length) {
+                            next = Arrays.copyOf(next, n * 2);
+                        }
+                        next[n++] = target;
+                    }
+                }
+            }
+            frontier = next;
+            size = n;
+        }
+        return seen;
+    }
+
+    @Override
+    public QueryResult<String> findCallers(String className, Integer limit, Integer page, Integer pageSize) {
+        return cursor(incoming(EdgeType.DEPENDS_ON, className, limit, page, pageSize), limit, PagedQuery.FIND_CALLERS, className);
+    }
+
+    @Override
+    public QueryResult<String> findImplementations(String interfaceName, Integer limit, Integer page, Integer pageSize) {
+        return cursor(incoming(EdgeType.IMPLEMENTS, interfaceName, limit, page, pageSize), limit, PagedQuery.FIND_IMPLEMENTATIONS,
+                interfaceName);
+    }
+
+    @Override
+    public QueryResult<String> findSubclasses(String className, int depth, Integer limit, Integer page, Integer pageSize) {
+        int cls = graph.classId(className);
+        if (cls < 0) {
+            return empty(limit, page, pageSize);
+        }
+        return cursor(classPage(reachable(graph.classIn[edgeIndex(EdgeType.EXTENDS)], cls, depth), limit, page, pageSize),
+                limit, PagedQuery.FIND_SUBCLASSES, className, depth);
+    }
+
+    @Override
+    public QueryResult<String> findDependencies(String className, Integer depth, Integer limit, Integer page, Integer pageSize) {
+        int cls = graph.classId(className);
+        if (cls < 0) {
+            return empty(limit, page, pageSize);
+        }
+        return cursor(classPage(reachable(graph.classOut[edgeIndex(EdgeType.DEPENDS_ON)], cls, depth), limit, page, pageSize),
+                limit, PagedQuery.FIND_DEPENDENCIES, className, depth);
+    }
+
+    @Override
+    public QueryResult<String> findPathBetweenClasses(String fromClass, String toClass, Integer maxDepth) {
+        int from = graph.classId(fromClass);
+        int to = graph.classId(toClass);
+        List<String> path = new ArrayList<>();
+        if (from >= 0 && to >= 0) {
+            Adjacency out = graph.classOut[edgeIndex(EdgeType.DEPENDS_ON)];
+            Map<Integer, Integer> parents = new HashMap<>();
+            parents.put(from, -1);
+            int[] frontier = {from};
+            int size = 1;
+            boolean found = from == to;
+            for (int level = 0; !found && size > 0 && (maxDepth == null || level < maxDepth); level++) {
+                int[] next = new int[16];
+                int n = 0;
+                for (int f = 0; f < size && !found; f++) {
+                    int node = frontier[f];
+                    for (int i = out.start(node); i < out.end(node); i++) {
+                        int target = out.targets[i];
+                        if (parents.putIfAbsent(target, node) == null) {
+                            if (target == to) {
+                                found = true;
+                                break;
+                            }
+                            if (n == next.length) {
+                                next = Arrays.copyOf(next, n * 2);
+                            }
+                            next[n++] = target;
+                        }
+                    }
+                }
+                frontier = next;
+                size = n;
+            }
+            if (found) {
+                for (int node = to; node >= 0; node = parents.get(node)) {
+                    path.add(graph.classNames[node]);
+                }
+                Collections.reverse(path);
+            }
+        }
+        return new QueryResult<>(path, 1, path.size(), path.size());
+    }
+
+    @Override
+    public QueryResult<String> findMethodsCallingMethod(String className, String methodSignature, Integer limit, Integer page, Integer pageSize) {
+        int method = graph.methodId(className, methodSignature);
+        if (method < 0) {
+            return empty(limit, page, pageSize);
+        }
+        List<String> callers = new ArrayList<>();
+        for (int i = graph.callsIn.start(method); i < graph.callsIn.end(method); i++) {
+            callers.add(graph.signatures[graph.methodSignature[graph.callsIn.targets[i]]]);
+        }
+        Collections.sort(callers);
+        return cursor(page(callers, limit, page, pageSize), limit, PagedQuery.FIND_METHODS_CALLING_METHOD, className, methodSignature);
+    }
+
+    @Override
+    public QueryResult<String> findBeansWithAnnotation(String annotation, Integer limit, Integer page, Integer pageSize) {
+        return searchByAnnotation(annotation, "class", limit, page, pageSize);
+    }
+
+    @Override
+    public QueryResult<String> searchByAnnotation(String annotation, String targetType, Integer limit, Integer page, Integer pageSize) {
+        int ann = annotation == null ? -1 : Arrays.binarySearch(graph.annotationNames, annotation);
+        if (ann < 0) {
+            return empty(limit, page, pageSize);
+        }
+        if ("method".equalsIgnoreCase(targetType)) {
+            List<String> signatures = new ArrayList<>();
+            Adjacency methods = graph.annotatedMethods;
+            for (int i = methods.start(ann); i < methods.end(ann); i++) {
+                signatures.add(graph.signatures[graph.methodSignature[methods.targets[i]]]);
+            }
+            Collections.sort(signatures);
+            return cursor(page(signatures, limit, page, pageSize), limit, PagedQuery.SEARCH_BY_ANNOTATION, annotation, targetType);
+        }
+        Adjacency classes = graph.annotatedClasses;
+        return cursor(classPage(classes.targets, classes.start(ann), classes.end(ann), limit, page, pageSize), limit,
+                PagedQuery.SEARCH_BY_ANNOTATION, annotation, targetType);
+    }
+
+    @Override
+    public QueryResult<String> findHttpEndpoints(String basePath, String httpMethod, Integer limit, Integer page, Integer pageSize) {
+        List<String> endpoints = new ArrayList<>();
+        if (basePath != null && httpMethod != null) {
+            for (int method : graph.endpointMethods) {
+                if (graph.httpRoutes[method].startsWith(basePath) && httpMethod.equals(graph.httpMethods[method])) {
+                    endpoints.add(graph.methodName(method));
+                }
+            }
+        }
+        return cursor(page(endpoints, limit, page, pageSize), limit, PagedQuery.FIND_HTTP_ENDPOINTS, basePath, httpMethod);
+    }
+
+    @Override
+    public QueryResult<String> findControllersUsingService(String serviceClassName, Integer limit, Integer page, Integer pageSize) {
+        int svc = graph.classId(serviceClassName);
+        if (svc < 0) {
+            return empty(limit, page, pageSize);
+        }
+        int[] controllerAnnotations = new int[CONTROLLER_ANNOTATIONS.length];
+        for (int i = 0; i < CONTROLLER_ANNOTATIONS.length; i++) {
+            controllerAnnotations[i] = Arrays.binarySearch(graph.annotationNames, CONTROLLER_ANNOTATIONS[i]);
+        }
+        Adjacency users = graph.classIn[edgeIndex(EdgeType.USES)];
+        int[] controllers = new int[users.degree(svc)];
+        int n = 0;
+        for (int i = users.start(svc); i < users.end(svc); i++) {
+            int cls = users.targets[i];
+            for (int ann : controllerAnnotations) {
+                if (ann >= 0 && graph.annotatedClasses.contains(ann, cls)) {
+                    controllers[n++] = cls;
+                    break;
+                }
+            }
+        }
+        return cursor(classPage(controllers, 0, n, limit, page, pageSize), limit,
+                PagedQuery.FIND_CONTROLLERS_USING_SERVICE, serviceClassName);
+    }
+
+    @Override
+    public QueryResult<String> findEventListeners(String eventType, Integer limit, Integer page, Integer pageSize) {
+        List<String> listeners = new ArrayList<>();
+        if (eventType != null) {
+            for (int method : graph.listenerMethods) {
+                if (eventType.equals(graph.eventTypes[method])) {
+                    listeners.add(graph.methodName(method));
+                }
+            }
+        }
+        return cursor(page(listeners, limit, page, pageSize), limit, PagedQuery.FIND_EVENT_LISTENERS, eventType);
+    }
+
+    @Override
+    public QueryResult<String> findScheduledTasks(Integer limit, Integer page, Integer pageSize) {
+        List<String> tasks = new ArrayList<>(graph.scheduledMethods.length);
+        for (int method : graph.scheduledMethods) {
+            tasks.add(graph.methodName(method) + '|' + graph.crons[method]);
+        }
+        Collections.sort(tasks);
+        return cursor(page(tasks, limit, page, pageSize), limit, PagedQuery.FIND_SCHEDULED_TASKS);
+    }
+
+    @Override
+    public QueryResult<String> findConfigPropertyUsage(String propertyKey, Integer limit, Integer page, Integer pageSize) {
+        String[] keys = graph.configKeys;
+        int star = propertyKey.indexOf('*');
+        String prefix = star < 0 ? propertyKey : propertyKey.substring(0, star);
+        Pattern pattern = star < 0 || star == propertyKey.length() - 1 ? null : keyPattern(propertyKey);
+        int from = Arrays.binarySearch(keys, prefix);
+        if (from < 0) {
+            from = -from - 1;
+        }
+        BitSet classes = new BitSet();
+        BitSet methods = new BitSet();
+        for (int key = from; key < keys.length && keys[key].startsWith(prefix); key++) {
+            if (star < 0 && !keys[key].equals(propertyKey)) {
+                break;
+            }
+            if (pattern != null && !pattern.matcher(keys[key]).matches()) {
+                continue;
+            }
+            for (int i = graph.configClasses.start(key); i < graph.configClasses.end(key); i++) {
+                classes.set(graph.configClasses.targets[i]);
+            }
+            for (int i = graph.configMethods.start(key); i < graph.configMethods.end(key); i++) {
+                methods.set(graph.configMethods.targets[i]);
+            }
+        }
+        List<String> locations = new ArrayList<>(classes.cardinality() + methods.cardinality());
+        classes.stream().forEach(cls -> locations.add(graph.classNames[cls]));
+        methods.stream().forEach(method -> locations.add(graph.methodName(method)));
+        Collections.sort(locations);
+        return cursor(page(locations, limit, page, pageSize), limit, PagedQuery.FIND_CONFIG_PROPERTY_USAGE, propertyKey);
+    }
+
+    /** Regular expression for a key with wildcards, as used by {@code QueryServiceImpl}. */
+    private static Pattern keyPattern(String propertyKey) {
+        String[] parts = propertyKey.split("\\*", -1);
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                regex.append(".*");
+            }
+            if (!parts[i].isEmpty()) {
+                regex.append(Pattern.quote(parts[i]));
+            }
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    @Override
+    public QueryResult<String> searchSymbols(String query, String kind, Integer limit) {
+        int max = limit == null ? QueryDefaults.DEFAULT_LIMIT : limit;
+        Set<String> found = new LinkedHashSet<>();
+        if (query == null || query.isEmpty() || max <= 0) {
+            return new QueryResult<>(new ArrayList<>(found), 1, max, 0);
+        }
+        boolean classes = kind == null || !"method".equalsIgnoreCase(kind);
+        boolean methods = kind == null || !"class".equalsIgnoreCase(kind);
+        SymbolIndex index = graph.symbols();
+
+        if (classes) {
+            BitSet exact = new BitSet();
+            int cls = graph.classId(query);
+            if (cls >= 0 && graph.classNodes.get(cls)) {
+                exact.set(cls);
+            }
+            int[] order = index.classesBySimpleName;
+            for (int i = SymbolIndex.lowerBound(order, index.classSimpleNames, query);
+                 i < order.length && index.classSimpleNames[order[i]].equals(query); i++) {
+                exact.set(order[i]);
+            }
+            exact.stream().forEach(id -> found.add(graph.classNames[id]));
+        }
+        if (methods) {
+            int[] order = index.methodsBySimpleName;
+            for (int i = SymbolIndex.lowerBound(order, index.methodSimpleNames, query);
+                 i < order.length && index.methodSimpleNames[order[i]].equals(query); i++) {
+                found.add(graph.methodName(order[i]));
+            }
+        }
+
+        String humps = SymbolNames.humps(query);
+        if (classes) {
+            camelCase(query, humps, index.classesByHumps, index.classHumps, index.classSimpleNames,
+                    id -> graph.classNames[id], found);
+        }
+        if (methods) {
+            camelCase(query, humps, index.methodsByHumps, index.methodHumps, index.methodSimpleNames,
+                    graph::methodName, found);
+        }
+
+        if (classes) {
+            prefix(query, index.classesBySimpleName, index.classSimpleNames, id -> graph.classNames[id], found, max);
+        }
+        if (methods) {
+            prefix(query, index.methodsBySimpleName, index.methodSimpleNames, graph::methodName, found, max);
+        }
+
+        List<String> items = new ArrayList<>(found);
+        if (items.size() > max) {
+            items = new ArrayList<>(items.subList(0, max));
+        }
+        return new QueryResult<>(items, 1, max, items.size());
+    }
+
+    /** Add CamelCase matches, shortest simple name first. */
+    private static void camelCase(String query, String humps, int[] order, String[] keys, String[] simpleNames,
+                                  IntFunction<String> name, Set<String> found) {
+        List<int[]> matches = new ArrayList<>();
+        for (int i = SymbolIndex.lowerBound(order, keys, humps); i < order.length && keys[order[i]].startsWith(humps); i++) {
+            int id = order[i];
+            if (SymbolNames.matchesCamelCase(query, simpleNames[id])) {
+                matches.add(new int[]{simpleNames[id].length(), id});
+            }
+        }
+        matches.sort((a, b) -> a[0] != b[0] ? Integer.compare(a[0], b[0]) : Integer.compare(a[1], b[1]));
+        for (int[] match : matches) {
+            found.add(name.apply(match[1]));
+        }
+    }
+
+    /** Add matches whose simple name starts with the query until the limit is reached. */
+    private static void prefix(String query, int[] order, String[] simpleNames, IntFunction<String> name,
+                               Set<String> found, int max) {
+        for (int i = SymbolIndex.lowerBound(order, simpleNames, query);
+             i < order.length && found.size() < max && simpleNames[order[i]].startsWith(query); i++) {
+            found.add(name.apply(order[i]));
+        }
+    }
+
+    @Override
+    public String getPackageHierarchy(String rootPackage, Integer depth) {
+        String[] packages = graph.packageNames;
+        int from = Arrays.binarySearch(packages, rootPackage);
+        if (from < 0) {
+            from = -from - 1;
+        }
+        List<String[]> entries = new ArrayList<>();
+        for (int pkg = from; pkg < packages.length && packages[pkg].startsWith(rootPackage); pkg++) {
+            for (int i = graph.contains.start(pkg); i < graph.contains.end(pkg); i++) {
+                entries.add(new String[]{packages[pkg], graph.classNames[graph.contains.targets[i]]});
+            }
+        }
+        return PackageHierarchy.toJson(rootPackage, depth, entries);
+    }
+
+    @Override
+    public String getGraphStatistics(Integer topN) {
+        int limit = topN == null ? 10 : topN;
+        int[] degree = new int[graph.classNames.length];
+        for (int t = 0; t < CsrGraph.CLASS_EDGES.length; t++) {
+            for (int target : graph.classOut[t].targets) {
+                degree[target]++;
+            }
+            for (int source : graph.classIn[t].targets) {
+                degree[source]++;
+            }
+        }
+        for (int target : graph.contains.targets) {
+            degree[target]++;
+        }
+        for (int target : graph.annotatedClasses.targets) {
+            degree[target]++;
+        }
+        for (int target : graph.configClasses.targets) {
+            degree[target]++;
+        }
+        Integer[] classes = graph.classNodes.stream().boxed().toArray(Integer[]::new);
+        Arrays.sort(classes, (a, b) -> degree[a] != degree[b] ? Integer.compare(degree[b], degree[a])
+                : Integer.compare(a, b));
+
+        StringBuilder sb = new StringBuilder();
+        sb.append('{');
+        sb.append("\"nodes\":").append(graph.nodeCount()).append(',');
+        sb.append("\"edges\":").append(graph.edgeCount()).append(',');
+        sb.append("\"topClasses\":[");
+        for (int i = 0; i < Math.min(limit, classes.length); i++) {
+            if (i > 0) sb.append(',');
+            sb.append('{')
+                    .append("\"name\":\"").append(graph.classNames[classes[i]]).append("\",")
+                    .append("\"degree\":").append(degree[classes[i]])
+                    .append('}');
+        }
+        sb.append(']');
+        sb.append('}');
+        return sb.toString();
+    }
+
+    @Override
+    public void exportGraph(String format, String outputPath) {
+        try {
+            long methodBase = graph.classNames.length;
+            long packageBase = methodBase + graph.methodClass.length;
+            long annotationBase = packageBase + graph.packageNames.length;
+            long keyBase = annotationBase + graph.annotationNames.length;
+
+            Map<Long, String> names = new LinkedHashMap<>();
+            graph.classNodes.stream().forEach(cls -> names.put((long) cls, graph.classNames[cls]));
+            for (int m = 0; m < graph.methodClass.length; m++) {
+                names.put(methodBase + m, graph.methodName(m));
+            }
+            for (int p = 0; p < graph.packageNames.length; p++) {
+                names.put(packageBase + p, graph.packageNames[p]);
+            }
+            for (int a = 0; a < graph.annotationNames.length; a++) {
+                names.put(annotationBase + a, graph.annotationNames[a]);
+            }
+            for (int k = 0; k < graph.configKeys.length; k++) {
+                names.put(keyBase + k, graph.configKeys[k]);
+            }
+
+            List<Object[]> edgeRecords = new ArrayList<>();
+            edges(edgeRecords, graph.contains, packageBase, "CONTAINS", 0, false);
+            for (int t = 0; t < CsrGraph.CLASS_EDGES.length; t++) {
+                edges(edgeRecords, graph.classOut[t], 0, CsrGraph.CLASS_EDGES[t].toString(), 0, false);
+            }
+            edges(edgeRecords, graph.callsOut, methodBase, EdgeType.CALLS.toString(), methodBase, false);
+            edges(edgeRecords, graph.annotatedClasses, annotationBase, EdgeType.ANNOTATED_WITH.toString(), 0, true);
+            edges(edgeRecords, graph.annotatedMethods, annotationBase, EdgeType.ANNOTATED_WITH.toString(), methodBase, true);
+            edges(edgeRecords, graph.configClasses, keyBase, EdgeType.USES_CONFIG.toString(), 0, true);
+            edges(edgeRecords, graph.configMethods, keyBase, EdgeType.USES_CONFIG.toString(), methodBase, true);
+
+            GraphExport.write(format, names, edgeRecords, outputPath);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to export graph", e);
+        }
+    }
+
+    /**
+     * Append export records for all edges of an adjacency, shifting ids into
+     * the node numbering of the export. Reversed adjacencies are written in
+     * the direction of the graph edge.
+     */
+    private static void edges(List<Object[]> records, Adjacency adjacency, long sourceBase, String type,
+                              long targetBase, boolean reversed) {
+        for (int source = 0; source < adjacency.offsets.length - 1; source++) {
+            for (int i = adjacency.start(source); i < adjacency.end(source); i++) {
+                long from = sourceBase + source;
+                long to = targetBase + adjacency.targets[i];
+                records.add(reversed ? new Object[]{to, type, from} : new Object[]{from, type, to});
+            }
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package tech.softwareologists.core.csr;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Reads and writes a {@link CsrGraph} as a single binary file, so a graph
+ * built once can be reopened without parsing any class again.
+ *
+ * <p>The file starts with {@link #MAGIC}, the format {@link #VERSION} and a
+ * caller supplied stamp identifying the inputs the graph was built from.
+ * It is followed by the string tables, the method arrays and the adjacency
+ * of every edge type in both directions, so nothing has to be sorted or
+ * derived when the file is read. Strings are stored as one UTF-8 block per
+ * table with an end offset per string, and all numbers in big-endian
+ * order.</p>
+ *
+ * <p>{@link #read(Path)} maps the file with {@link FileChannel#map} and
+ * copies the arrays out of the mapping in bulk. Snapshots are written to a
+ * temporary file first and moved into place, so readers never see a
+ * partially written file. A single snapshot is limited to 2 GB.</p>
+ */
+public final class CsrSnapshot {
+    private static final Logger LOGGER = Logger.getLogger(CsrSnapshot.class.getName());
+
+    /** First four bytes of every snapshot, {@code CGSN}. */
+    public static final int MAGIC = 0x4347534E;
+
+    /** Version of the file layout. Bump it whenever the layout changes. */
+    public static final int VERSION = 2;
+
+    private CsrSnapshot() {
+        // utility class
+    }
+
+    /**
+     * Write the graph to the given file, replacing any previous snapshot.
+     *
+     * @param graph graph to write
+     * @param stamp identifies the inputs of the graph, see {@link #stamp(Path)}
+     * @param file snapshot file
+     */
+    public static void write(CsrGraph graph, String stamp, Path file) {
+        long start = System.nanoTime();
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                writeStrings(out, new String[]{stamp});
+
+                writeStrings(out, graph.classNames);
+                writeLongs(out, graph.classNodes.toLongArray());
+                writeStrings(out, graph.packageNames);
+                writeStrings(out, graph.signatures);
+                writeStrings(out, graph.annotationNames);
+                writeStrings(out, graph.configKeys);
+
+                writeInts(out, graph.methodClass);
+                writeInts(out, graph.methodSignature);
+                writeLongs(out, graph.declaredMethods.toLongArray());
+                Map<String, Integer> values = new HashMap<>();
+                int[][] attributes = {
+                        encode(graph.httpRoutes, values), encode(graph.httpMethods, values),
+                        encode(graph.eventTypes, values), encode(graph.crons, values)};
+                String[] table = new String[values.size()];
+                for (Map.Entry<String, Integer> e : values.entrySet()) {
+                    table[e.getValue()] = e.getKey();
+                }
+                writeStrings(out, table);
+                for (int[] attribute : attributes) {
+                    writeInts(out, attribute);
+                }
+
+                writeAdjacency(out, graph.contains);
+                for (int i = 0; i < CsrGraph.CLASS_EDGES.length; i++) {
+                    writeAdjacency(out, graph.classOut[i]);
+                    writeAdjacency(out, graph.classIn[i]);
+                }
+                writeAdjacency(out, graph.callsOut);
+                writeAdjacency(out, graph.callsIn);
+                writeAdjacency(out, graph.annotatedClasses);
+                writeAdjacency(out, graph.annotatedMethods);
+                writeAdjacency(out, graph.configClasses);
+                writeAdjacency(out, graph.configMethods);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write snapshot " + file, e);
+        }
+        LOGGER.info("Wrote snapshot " + file + " in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    /**
+     * Return the stamp recorded in the snapshot, or {@code null} if there is
+     * no snapshot or it was written with another {@link #VERSION}.
+     *
+     * @param file snapshot file
+     */
+    public static String stamp(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), 1 << 16));
+            if (!readHeader(header, file)) {
+                return null;
+            }
+            return readStrings(header)[0];
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warning("Ignoring unreadable snapshot " + file + ": " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Map the snapshot and build the graph it holds.
+     *
+     * @param file snapshot file
+     * @return the graph
+     * @throws IllegalStateException if the file is not a snapshot of this {@link #VERSION} or is truncated
+     */
+    public static CsrGraph read(Path file) {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Snapshot " + file + " is larger than 2 GB");
+            }
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (!readHeader(in, file)) {
+                throw new IllegalStateException("Snapshot " + file + " has an unsupported format; delete it to rebuild it");
+            }
+            readStrings(in);
+
+            String[] classNames = readStrings(in);
+            BitSet classNodes = BitSet.valueOf(readLongs(in));
+            String[] packageNames = readStrings(in);
+            String[] signatures = readStrings(in);
+            String[] annotationNames = readStrings(in);
+            String[] configKeys = readStrings(in);
+
+            int[] methodClass = readInts(in);
+            int[] methodSignature = readInts(in);
+            BitSet declaredMethods = BitSet.valueOf(readLongs(in));
+            String[] table = readStrings(in);
+            String[] httpRoutes = decode(readInts(in), table);
+            String[] httpMethods = decode(readInts(in), table);
+            String[] eventTypes = decode(readInts(in), table);
+            String[] crons = decode(readInts(in), table);
+
+            Adjacency contains = readAdjacency(in);
+            Adjacency[] classOut = new Adjacency[CsrGraph.CLASS_EDGES.length];
+            Adjacency[] classIn = new Adjacency[CsrGraph.CLASS_EDGES.length];
+            for (int i = 0; i < CsrGraph.CLASS_EDGES.length; i++) {
+                classOut[i] = readAdjacency(in);
+                classIn[i] = readAdjacency(in);
+            }
+            Adjacency callsOut = readAdjacency(in);
+            Adjacency callsIn = readAdjacency(in);
+            Adjacency annotatedClasses = readAdjacency(in);
+            Adjacency annotatedMethods = readAdjacency(in);
+            Adjacency configClasses = readAdjacency(in);
+            Adjacency configMethods = readAdjacency(in);
+            if (in.hasRemaining()) {
+                throw new IllegalStateException("Snapshot " + file + " has " + in.remaining() + " trailing bytes");
+            }
+
+            CsrGraph graph = new CsrGraph(classNames, classNodes, packageNames, signatures, methodClass,
+                    methodSignature, declaredMethods, httpRoutes, httpMethods, eventTypes, crons, annotationNames,
+                    configKeys, contains, classOut, classIn, callsOut, callsIn, annotatedClasses, annotatedMethods,
+                    configClasses, configMethods);
+            LOGGER.info("Read snapshot " + file + " with " + graph.nodeCount() + " nodes and " + graph.edgeCount()
+                    + " edges in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+            return graph;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IllegalStateException("Snapshot " + file + " is truncated or corrupt; delete it to rebuild it", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read snapshot " + file, e);
+        }
+    }
+
+    private static boolean readHeader(ByteBuffer in, Path file) {
+        if (in.remaining() < 8 || in.getInt() != MAGIC) {
+            LOGGER.warning(file + " is not a graph snapshot");
+            return false;
+        }
+        int version = in.getInt();
+        if (version != VERSION) {
+            LOGGER.info("Snapshot " + file + " has version " + version + " but version " + VERSION + " is required");
+            return false;
+        }
+        return true;
+    }
+
+    private static int[] encode(String[] values, Map<String, Integer> table) {
+        int[] ids = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            ids[i] = values[i] == null ? -1 : table.computeIfAbsent(values[i], v -> table.size());
+        }
+        return ids;
+    }
+
+    private static String[] decode(int[] ids, String[] table) {
+        String[] values = new String[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            values[i] = ids[i] < 0 ? null : table[ids[i]];
+        }
+        return values;
+    }
+
+    private static void writeStrings(DataOutputStream out, String[] strings) throws IOException {
+        byte[][] bytes = new byte[strings.length][];
+        int[] ends = new int[strings.length];
+        int end = 0;
+        for (int i = 0; i < strings.length; i++) {
+            bytes[i] = strings[i].getBytes(StandardCharsets.UTF_8);
+            end += bytes[i].length;
+            ends[i] = end;
+        }
+        writeInts(out, ends);
+        out.writeInt(end);
+        for (byte[] b : bytes) {
+            out.write(b);
+        }
+    }
+
+    private static String[] readStrings(ByteBuffer in) {
+        int[] ends = readInts(in);
+        byte[] block = new byte[in.getInt()];
+        in.get(block);
+        String[] strings = new String[ends.length];
+        int start = 0;
+        for (int i = 0; i < ends.length; i++) {
+            strings[i] = new String(block, start, ends[i] - start, StandardCharsets.UTF_8);
+            start = ends[i];
+        }
+        return strings;
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static int[] readInts(ByteBuffer in) {
+        int[] values = new int[in.getInt()];
+        in.asIntBuffer().get(values);
+        in.position(in.position() + values.length * Integer.BYTES);
+        return values;
+    }
+
+    private static void writeLongs(DataOutputStream out, long[] values) throws IOException {
+        out.writeInt(values.length);
+        for (long value : values) {
+            out.writeLong(value);
+        }
+    }
+
+    private static long[] readLongs(ByteBuffer in) {
+        long[] values = new long[in.getInt()];
+        in.asLongBuffer().get(values);
+        in.position(in.position() + values.length * Long.BYTES);
+        return values;
+    }
+
+    private static void writeAdjacency(DataOutputStream out, Adjacency adjacency) throws IOException {
+        writeInts(out, adjacency.offsets);
+        writeInts(out, adjacency.targets);
+    }
+
+    private static Adjacency readAdjacency(ByteBuffer in) {
+        return new Adjacency(readInts(in), readInts(in));
+    }
+}
@@ -0,0 +1,396 @@
+package tech.softwareologists.core.csr;
+
+import tech.softwareologists.core.AsyncQueryService;
+import tech.softwareologists.core.ClassFacts;
+import tech.softwareologists.core.PagedQuery;
+import tech.softwareologists.core.QueryResult;
+import tech.softwareologists.core.QueryService;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * {@link QueryService} that answers every query from the last committed
+ * generation of an in-memory graph while the next generation is built.
+ *
+ * <p>Facts are staged per source, for example a JAR path, with
+ * {@link #put(String, Collection)} and {@link #remove(String)}. Nothing
+ * staged is visible until {@link #commit()} builds an immutable
+ * {@link CsrGraph} and swaps it in with a single atomic reference update.
+ * Each query reads the reference once, so it sees exactly one generation
+ * and never waits for an import. Staging only waits for other staging
+ * calls; commits are serialized among themselves and build the graph
+ * without blocking staging.</p>
+ *
+ * <p>A class contributed by several sources is kept until the last of
+ * them is removed; the source put last provides its facts. Facts are only
+ * held until a generation containing them is committed. Later commits
+ * recover the facts of unchanged classes from the current generation, so
+ * only the compact graph stays in memory between imports.</p>
+ *
+ * <p>The {@link AsyncQueryService} methods answer from the current
+ * generation in the calling thread and return a completed stage.</p>
+ */
+public class GenerationalQueryService implements QueryService, AsyncQueryService {
+    private static final Logger LOGGER = Logger.getLogger(GenerationalQueryService.class.getName());
+
+    /** Immutable graph together with its generation number. */
+    public static final class Generation {
+        private final long number;
+        private final CsrGraph graph;
+        private final CsrQueryService service;
+
+        Generation(long number, CsrGraph graph) {
+            this.number = number;
+            this.graph = graph;
+            this.service = new CsrQueryService(graph, number);
+        }
+
+        /** Generation number, starting at 0 for the empty graph. */
+        public long getNumber() {
+            return number;
+        }
+
+        public CsrGraph getGraph() {
+            return graph;
+        }
+    }
+
+    /** Classes of every staged source. */
+    private final Map<String, List<String>> sources = new HashMap<>();
+    /** Sources contributing each class, in the order they were put; the last one provides the facts. */
+    private final Map<String, List<String>> owners = new HashMap<>();
+    /** Facts not held by the current generation, by source and class name. */
+    private final Map<String, Map<String, ClassFacts>> staged = new HashMap<>();
+    /** Source whose facts the current generation holds for each class. */
+    private Map<String, String> built = new HashMap<>();
+    private final Object commitLock = new Object();
+    private final AtomicReference<Generation> current =
+            new AtomicReference<>(new Generation(0, new CsrGraph.Builder().build()));
+
+    /** The generation queries are currently answered from. */
+    public Generation current() {
+        return current.get();
+    }
+
+    /** Number of the generation queries are currently answered from. */
+    public long generation() {
+        return current.get().number;
+    }
+
+    /**
+     * Stage the facts of a source, replacing the classes it contributed
+     * before. Takes effect with the next {@link #commit()}.
+     *
+     * @param source identifies the origin of the facts, e.g. a JAR path
+     * @param facts all classes of the source
+     */
+    public synchronized void put(String source, Collection<ClassFacts> facts) {
+        remove(source);
+        Map<String, ClassFacts> byName = new LinkedHashMap<>();
+        for (ClassFacts f : facts) {
+            byName.put(f.getName(), f);
+        }
+        staged.put(source, byName);
+        sources.put(source, new ArrayList<>(byName.keySet()));
+        for (String name : byName.keySet()) {
+            owners.computeIfAbsent(name, n -> new ArrayList<>(1)).add(source);
+        }
+    }
+
+    /**
+     * Stage the removal of the source. Its classes disappear with the next
+     * {@link #commit()} unless another source contributes them as well.
+     */
+    public synchronized void remove(String source) {
+        List<String> classes = sources.remove(source);
+        staged.remove(source);
+        if (classes == null) {
+            return;
+        }
+        for (String name : classes) {
+            List<String> contributors = owners.get(name);
+            contributors.remove(source);
+            if (contributors.isEmpty()) {
+                owners.remove(name);
+            }
+        }
+    }
+
+    /**
+     * Build a new generation from the staged sources and make it visible to
+     * queries started afterwards.
+     *
+     * @return the new generation number
+     */
+    public long commit() {
+        synchronized (commitLock) {
+            long start = System.nanoTime();
+            CsrGraph graph = current.get().graph;
+            Map<String, String> providers = new HashMap<>();
+            List<ClassFacts> changed = new ArrayList<>();
+            List<String> unchanged = new ArrayList<>();
+            synchronized (this) {
+                Map<String, List<String>> shadowed = new HashMap<>();
+                for (Map.Entry<String, List<String>> e : owners.entrySet()) {
+                    String name = e.getKey();
+                    List<String> contributors = e.getValue();
+                    String provider = contributors.get(contributors.size() - 1);
+                    providers.put(name, provider);
+                    ClassFacts facts = staged.get(provider).get(name);
+                    if (facts != null) {
+                        changed.add(facts);
+                    } else {
+                        unchanged.add(name);
+                    }
+                    String holder = built.get(name);
+                    if (holder != null && !holder.equals(provider) && contributors.contains(holder)
+                            && !staged.get(holder).containsKey(name)) {
+                        shadowed.computeIfAbsent(holder, h -> new ArrayList<>()).add(name);
+                    }
+                }
+                // Only the current generation holds the facts of a provider that was just outranked
+                for (Map.Entry<String, List<String>> e : shadowed.entrySet()) {
+                    for (ClassFacts facts : graph.facts(e.getValue())) {
+                        staged.get(e.getKey()).put(facts.getName(), facts);
+                    }
+                }
+            }
+
+            CsrGraph.Builder builder = new CsrGraph.Builder().addAll(graph.facts(unchanged)).addAll(changed);
+            long number = swap(builder.build(), start);
+            synchronized (this) {
+                for (ClassFacts facts : changed) {
+                    Map<String, ClassFacts> pending = staged.get(providers.get(facts.getName()));
+                    if (pending != null) {
+                        pending.remove(facts.getName(), facts);
+                    }
+                }
+                built = providers;
+            }
+            return number;
+        }
+    }
+
+    /**
+     * Make a graph built elsewhere, e.g. read from a {@link CsrSnapshot},
+     * the current generation. Staged facts are kept for later commits;
+     * classes without staged facts are then taken from this graph.
+     *
+     * @return the new generation number
+     */
+    public long publish(CsrGraph graph) {
+        synchronized (commitLock) {
+            long number = swap(graph, System.nanoTime());
+            synchronized (this) {
+                built = new HashMap<>();
+            }
+            return number;
+        }
+    }
+
+    private long swap(CsrGraph graph, long start) {
+        Generation next = new Generation(current.get().number + 1, graph);
+        current.set(next);
+        LOGGER.info("Published graph generation " + next.number + " with " + graph.nodeCount() + " nodes and "
+                + graph.edgeCount() + " edges in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        return next.number;
+    }
+
+    private QueryService service() {
+        return current.get().service;
+    }
+
+    /** The current generation answers in the calling thread, as it never waits on I/O. */
+    private AsyncQueryService async() {
+        return AsyncQueryService.of(service());
+    }
+
+    @Override
+    public QueryResult<String> findCallers(String className, Integer limit, Integer page, Integer pageSize) {
+        return service().findCallers(className, limit, page, pageSize);
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> findCallersAsync(String className, Integer limit, Integer page, Integer pageSize) {
+        return async().findCallersAsync(className, limit, page, pageSize);
+    }
+
+    @Override
+    public QueryResult<String> findImplementations(String interfaceName, Integer limit, Integer page, Integer pageSize) {
+        return service().findImplementations(interfaceName, limit, page, pageSize);
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> findImplementationsAsync(String interfaceName, Integer limit, Integer page, Integer pageSize) {
+        return async().findImplementationsAsync(interfaceName, limit, page, pageSize);
+    }
+
+    @Override
+    public QueryResult<String> findSubclasses(String className, int depth, Integer limit, Integer page, Integer pageSize) {
+        return service().findSubclasses(className, depth, limit, page, pageSize);
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> findSubclassesAsync(String className, int depth, Integer limit, Integer page, Integer pageSize) {
+        return async().findSubclassesAsync(className, depth, limit, page, pageSize);
+    }
+
+    @Override
+    public QueryResult<String> findDependencies(String className, Integer depth, Integer limit, Integer page, Integer pageSize) {
+        return service().findDependencies(className, depth, limit, page, pageSize);
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> findDependenciesAsync(String className, Integer depth, Integer limit, Integer page, Integer pageSize) {
+        return async().findDependenciesAsync(className, depth, limit, page, pageSize);
+    }
+
+    @Override
+    public QueryResult<String> findPathBetweenClasses(String fromClass, String toClass, Integer maxDepth) {
+        return service().findPathBetweenClasses(fromClass, toClass, maxDepth);
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> findPathBetweenClassesAsync(String fromClass, String toClass, Integer maxDepth) {
+        return async().findPathBetweenClassesAsync(fromClass, toClass, maxDepth);
+    }
+
+    @Override
+    public QueryResult<String> findMethodsCallingMethod(String className, String methodSignature, Integer limit, Integer page, Integer pageSize) {
+        return service().findMethodsCallingMethod(className, methodSignature, limit, page, pageSize);
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> findMethodsCallingMethodAsync(String className, String methodSignature, Integer limit, Integer page, Integer pageSize) {
+        return async().findMethodsCallingMethodAsync(className, methodSignature, limit, page, pageSize);
+    }
+
+    @Override
+    public QueryResult<String> findBeansWithAnnotation(String annotation, Integer limit, Integer page, Integer pageSize) {
+        return service().findBeansWithAnnotation(annotation, limit, page, pageSize);
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> findBeansWithAnnotationAsync(String annotation, Integer limit, Integer page, Integer pageSize) {
+        return async().findBeansWithAnnotationAsync(annotation, limit, page, pageSize);
+    }
+
+    @Override
+    public QueryResult<String> searchByAnnotation(String annotation, String targetType, Integer limit, Integer page, Integer pageSize) {
+        return service().searchByAnnotation(annotation, targetType, limit, page, pageSize);
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> searchByAnnotationAsync(String annotation, String targetType, Integer limit, Integer page, Integer pageSize) {
+        return async().searchByAnnotationAsync(annotation, targetType, limit, page, pageSize);
+    }
+
+    @Override
+    public QueryResult<String> findHttpEndpoints(String basePath, String httpMethod, Integer limit, Integer page, Integer pageSize) {
+        return service().findHttpEndpoints(basePath, httpMethod, limit, page, pageSize);
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> findHttpEndpointsAsync(String basePath, String httpMethod, Integer limit, Integer page, Integer pageSize) {
+        return async().findHttpEndpointsAsync(basePath, httpMethod, limit, page, pageSize);
+    }
+
+    @Override
+    public QueryResult<String> findControllersUsingService(String serviceClassName, Integer limit, Integer page, Integer pageSize) {
+        return service().findControllersUsingService(serviceClassName, limit, page, pageSize);
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> findControllersUsingServiceAsync(String serviceClassName, Integer limit, Integer page, Integer pageSize) {
+        return async().findControllersUsingServiceAsync(serviceClassName, limit, page, pageSize);
+    }
+
+    @Override
+    public QueryResult<String> findEventListeners(String eventType, Integer limit, Integer page, Integer pageSize) {
+        return service().findEventListeners(eventType, limit, page, pageSize);
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> findEventListenersAsync(String eventType, Integer limit, Integer page, Integer pageSize) {
+        return async().findEventListenersAsync(eventType, limit, page, pageSize);
+    }
+
+    @Override
+    public QueryResult<String> findScheduledTasks(Integer limit, Integer page, Integer pageSize) {
+        return service().findScheduledTasks(limit, page, pageSize);
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> findScheduledTasksAsync(Integer limit, Integer page, Integer pageSize) {
+        return async().findScheduledTasksAsync(limit, page, pageSize);
+    }
+
+    @Override
+    public QueryResult<String> findConfigPropertyUsage(String propertyKey, Integer limit, Integer page, Integer pageSize) {
+        return service().findConfigPropertyUsage(propertyKey, limit, page, pageSize);
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> findConfigPropertyUsageAsync(String propertyKey, Integer limit, Integer page, Integer pageSize) {
+        return async().findConfigPropertyUsageAsync(propertyKey, limit, page, pageSize);
+    }
+
+    @Override
+    public QueryResult<String> searchSymbols(String query, String kind, Integer limit) {
+        return service().searchSymbols(query, kind, limit);
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> searchSymbolsAsync(String query, String kind, Integer limit) {
+        return async().searchSymbolsAsync(query, kind, limit);
+    }
+
+    @Override
+    public QueryResult<String> nextPage(String cursor) {
+        return service().nextPage(cursor);
+    }
+
+    @Override
+    public CompletionStage<QueryResult<String>> nextPageAsync(String cursor) {
+        return async().nextPageAsync(cursor);
+    }
+
+    @Override
+    public Stream<String> stream(PagedQuery query, List<Object> args, Integer limit) {
+        return service().stream(query, args, limit);
+    }
+
+    @Override
+    public String getPackageHierarchy(String rootPackage, Integer depth) {
+        return service().getPackageHierarchy(rootPackage, depth);
+    }
+
+    @Override
+    public CompletionStage<String> getPackageHierarchyAsync(String rootPackage, Integer depth) {
+        return async().getPackageHierarchyAsync(rootPackage, depth);
+    }
+
+    @Override
+    public String getGraphStatistics(Integer topN) {
+        return service().getGraphStatistics(topN);
+    }
+
+    @Override
+    public CompletionStage<String> getGraphStatisticsAsync(Integer topN) {
+        return async().getGraphStatisticsAsync(topN);
+    }
+
+    @Override
+    public void exportGraph(String format, String outputPath) {
+        service().exportGraph(format, outputPath);
+    }
+}
@@ -0,0 +1,78 @@
+package tech.softwareologists.core.csr;
+
+import tech.softwareologists.core.SymbolNames;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Simple names and CamelCase humps of the classes and methods of a
+ * {@link CsrGraph}, each with the node ids sorted by them, so exact and
+ * prefix lookups are binary searches. Ties are ordered by id and thus by
+ * name.
+ */
+final class SymbolIndex {
+    final String[] classSimpleNames;
+    final String[] classHumps;
+    final int[] classesBySimpleName;
+    final int[] classesByHumps;
+    final String[] methodSimpleNames;
+    final String[] methodHumps;
+    final int[] methodsBySimpleName;
+    final int[] methodsByHumps;
+
+    SymbolIndex(CsrGraph graph) {
+        int classes = graph.classNames.length;
+        classSimpleNames = new String[classes];
+        classHumps = new String[classes];
+        for (int i = graph.classNodes.nextSetBit(0); i >= 0; i = graph.classNodes.nextSetBit(i + 1)) {
+            classSimpleNames[i] = SymbolNames.classSimpleName(graph.classNames[i]);
+            classHumps[i] = SymbolNames.humps(classSimpleNames[i]);
+        }
+        classesBySimpleName = sort(graph.classNodes.stream().toArray(), classSimpleNames);
+        classesByHumps = sort(graph.classNodes.stream().toArray(), classHumps);
+
+        int methods = graph.methodClass.length;
+        methodSimpleNames = new String[methods];
+        methodHumps = new String[methods];
+        String[] bySignature = new String[graph.signatures.length];
+        for (int i = 0; i < bySignature.length; i++) {
+            bySignature[i] = SymbolNames.methodSimpleName(graph.signatures[i]);
+        }
+        int[] all = new int[methods];
+        for (int i = 0; i < methods; i++) {
+            all[i] = i;
+            methodSimpleNames[i] = bySignature[graph.methodSignature[i]];
+            methodHumps[i] = SymbolNames.humps(methodSimpleNames[i]);
+        }
+        methodsBySimpleName = sort(all, methodSimpleNames);
+        methodsByHumps = sort(all.clone(), methodHumps);
+    }
+
+    private static int[] sort(int[] ids, String[] keys) {
+        Integer[] boxed = new Integer[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            boxed[i] = ids[i];
+        }
+        Arrays.sort(boxed, Comparator.<Integer, String>comparing(id -> keys[id]).thenComparingInt(id -> id));
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = boxed[i];
+        }
+        return ids;
+    }
+
+    /** First position in {@code order} whose key is not less than the value. */
+    static int lowerBound(int[] order, String[] keys, String value) {
+        int low = 0;
+        int high = order.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[order[mid]].compareTo(value) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,169 @@
+package tech.softwareologists.core.db;
+
+import java.util.Locale;
+
+/**
+ * Memory settings of the embedded database.
+ *
+ * <p>Every value is optional; {@code null} leaves the setting at the default
+ * chosen by the database. Instances are immutable; use the {@code with*}
+ * methods to derive a copy with a single value changed.</p>
+ */
+public final class DatabaseOptions {
+    /** Where the state of open transactions is kept. */
+    public enum TxStateMemory {
+        ON_HEAP,
+        OFF_HEAP
+    }
+
+    private static final DatabaseOptions DEFAULTS = new DatabaseOptions(null, null, null, null, null, null);
+
+    private final Long pageCacheBytes;
+    private final TxStateMemory txStateMemory;
+    private final Long txStateMaxOffHeapBytes;
+    private final Integer planCacheSize;
+    private final Long txMemoryMaxBytes;
+    private final Long totalTxMemoryMaxBytes;
+
+    private DatabaseOptions(Long pageCacheBytes, TxStateMemory txStateMemory, Long txStateMaxOffHeapBytes,
+                            Integer planCacheSize, Long txMemoryMaxBytes, Long totalTxMemoryMaxBytes) {
+        requireNonNegative("pageCacheBytes", pageCacheBytes);
+        requireNonNegative("txStateMaxOffHeapBytes", txStateMaxOffHeapBytes);
+        requireNonNegative("planCacheSize", planCacheSize == null ? null : planCacheSize.longValue());
+        requireNonNegative("txMemoryMaxBytes", txMemoryMaxBytes);
+        requireNonNegative("totalTxMemoryMaxBytes", totalTxMemoryMaxBytes);
+        this.pageCacheBytes = pageCacheBytes;
+        this.txStateMemory = txStateMemory;
+        this.txStateMaxOffHeapBytes = txStateMaxOffHeapBytes;
+        this.planCacheSize = planCacheSize;
+        this.txMemoryMaxBytes = txMemoryMaxBytes;
+        this.totalTxMemoryMaxBytes = totalTxMemoryMaxBytes;
+    }
+
+    private static void requireNonNegative(String name, Long value) {
+        if (value != null && value < 0) {
+            throw new IllegalArgumentException(name + " must not be negative: " + value);
+        }
+    }
+
+    /** Return options leaving every setting at the database default. */
+    public static DatabaseOptions defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * Parse a byte size such as {@code 512m}, {@code 2g} or {@code 1048576}.
+     * The suffixes {@code k}, {@code m} and {@code g} are binary multiples.
+     *
+     * @param text size to parse
+     * @return size in bytes
+     * @throws IllegalArgumentException if the text is not a size
+     */
+    public static long parseBytes(String text) {
+        String s = text.trim().toLowerCase(Locale.ROOT);
+        if (s.endsWith("b")) {
+            s = s.substring(0, s.length() - 1);
+        }
+        long factor = 1;
+        if (s.endsWith("k")) {
+            factor = 1L << 10;
+        } else if (s.endsWith("m")) {
+            factor = 1L << 20;
+        } else if (s.endsWith("g")) {
+            factor = 1L << 30;
+        }
+        if (factor != 1) {
+            s = s.substring(0, s.length() - 1);
+        }
+        try {
+            long value = Long.parseLong(s.trim());
+            if (value < 0) {
+                throw new IllegalArgumentException("Size must not be negative: " + text);
+            }
+            return Math.multiplyExact(value, factor);
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new IllegalArgumentException("Not a byte size: " + text, e);
+        }
+    }
+
+    /**
+     * Parse {@code on-heap} or {@code off-heap}.
+     *
+     * @throws IllegalArgumentException for any other value
+     */
+    public static TxStateMemory parseTxStateMemory(String text) {
+        String s = text.trim().toUpperCase(Locale.ROOT).replace('-', '_');
+        try {
+            return TxStateMemory.valueOf(s);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Expected on-heap or off-heap but was: " + text, e);
+        }
+    }
+
+    /** Size of the page cache holding store files in bytes. */
+    public Long getPageCacheBytes() {
+        return pageCacheBytes;
+    }
+
+    /** Where transaction state is allocated. */
+    public TxStateMemory getTxStateMemory() {
+        return txStateMemory;
+    }
+
+    /** Upper bound of off-heap memory used for transaction state in bytes. */
+    public Long getTxStateMaxOffHeapBytes() {
+        return txStateMaxOffHeapBytes;
+    }
+
+    /** Number of compiled Cypher plans kept in the query cache. */
+    public Integer getPlanCacheSize() {
+        return planCacheSize;
+    }
+
+    /** Memory a single transaction, and thus a single query, may use in bytes. */
+    public Long getTxMemoryMaxBytes() {
+        return txMemoryMaxBytes;
+    }
+
+    /** Memory all running transactions may use together in bytes. */
+    public Long getTotalTxMemoryMaxBytes() {
+        return totalTxMemoryMaxBytes;
+    }
+
+    public DatabaseOptions withPageCacheBytes(Long pageCacheBytes) {
+        return new DatabaseOptions(pageCacheBytes, txStateMemory, txStateMaxOffHeapBytes,
+                planCacheSize, txMemoryMaxBytes, totalTxMemoryMaxBytes);
+    }
+
+    public DatabaseOptions withTxStateMemory(TxStateMemory txStateMemory) {
+        return new DatabaseOptions(pageCacheBytes, txStateMemory, txStateMaxOffHeapBytes,
+                planCacheSize, txMemoryMaxBytes, totalTxMemoryMaxBytes);
+    }
+
+    public DatabaseOptions withTxStateMaxOffHeapBytes(Long txStateMaxOffHeapBytes) {
+        return new DatabaseOptions(pageCacheBytes, txStateMemory, txStateMaxOffHeapBytes,
+                planCacheSize, txMemoryMaxBytes, totalTxMemoryMaxBytes);
+    }
+
+    public DatabaseOptions withPlanCacheSize(Integer planCacheSize) {
+        return new DatabaseOptions(pageCacheBytes, txStateMemory, txStateMaxOffHeapBytes,
+                planCacheSize, txMemoryMaxBytes, totalTxMemoryMaxBytes);
+    }
+
+    public DatabaseOptions withTxMemoryMaxBytes(Long txMemoryMaxBytes) {
+        return new DatabaseOptions(pageCacheBytes, txStateMemory, txStateMaxOffHeapBytes,
+                planCacheSize, txMemoryMaxBytes, totalTxMemoryMaxBytes);
+    }
+
+    public DatabaseOptions withTotalTxMemoryMaxBytes(Long totalTxMemoryMaxBytes) {
+        return new DatabaseOptions(pageCacheBytes, txStateMemory, txStateMaxOffHeapBytes,
+                planCacheSize, txMemoryMaxBytes, totalTxMemoryMaxBytes);
+    }
+
+    @Override
+    public String toString() {
+        return "DatabaseOptions{pageCacheBytes=" + pageCacheBytes + ", txStateMemory=" + txStateMemory
+                + ", txStateMaxOffHeapBytes=" + txStateMaxOffHeapBytes + ", planCacheSize=" + planCacheSize
+                + ", txMemoryMaxBytes=" + txMemoryMaxBytes + ", totalTxMemoryMaxBytes=" + totalTxMemoryMaxBytes + '}';
+    }
+}
@@ -0,0 +1,84 @@
+package tech.softwareologists.core.db;
+
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.Transaction;
+import org.neo4j.driver.async.AsyncSession;
+import org.neo4j.driver.exceptions.ServiceUnavailableException;
+import org.neo4j.driver.exceptions.SessionExpiredException;
+import org.neo4j.driver.exceptions.TransientException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.stream.Stream;
+
+/**
+ * {@link GraphStore} sending queries through a Bolt {@link Driver}, for
+ * databases that do not run in the same JVM.
+ */
+public class DriverGraphStore implements GraphStore {
+    private final Driver driver;
+
+    public DriverGraphStore(Driver driver) {
+        this.driver = driver;
+    }
+
+    @Override
+    public List<Map<String, Object>> query(String query, Map<String, Object> params) {
+        try (Session session = driver.session()) {
+            return session.run(query, params).list(Record::asMap);
+        }
+    }
+
+    /**
+     * Runs the query on an {@link AsyncSession}, so no thread waits for the
+     * server. The session is closed before the stage completes.
+     */
+    @Override
+    public CompletionStage<List<Map<String, Object>>> queryAsync(String query, Map<String, Object> params) {
+        AsyncSession session = driver.session(AsyncSession.class);
+        return session.runAsync(query, params)
+                .thenCompose(cursor -> cursor.listAsync(Record::asMap))
+                .handle((rows, error) -> session.closeAsync().thenApply(closed -> {
+                    if (error != null) {
+                        throw error instanceof CompletionException ? (CompletionException) error : new CompletionException(error);
+                    }
+                    return rows;
+                }))
+                .thenCompose(result -> result);
+    }
+
+    /**
+     * Records are pulled from the server in batches of the driver fetch
+     * size while the stream is consumed.
+     */
+    @Override
+    public Stream<Map<String, Object>> stream(String query, Map<String, Object> params) {
+        Session session = driver.session();
+        try {
+            return session.run(query, params).stream().map(Record::asMap).onClose(session::close);
+        } catch (RuntimeException e) {
+            session.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public <T> T write(Work<T> work) {
+        try (Session session = driver.session();
+             Transaction tx = session.beginTransaction()) {
+            T result = work.execute((query, params) -> tx.run(query, params).list(Record::asMap));
+            tx.commit();
+            return result;
+        }
+    }
+
+    @Override
+    public boolean isTransient(RuntimeException e) {
+        return e instanceof TransientException || e instanceof SessionExpiredException
+                || e instanceof ServiceUnavailableException;
+    }
+}
@@ -23,7 +23,17 @@ public enum EdgeType {
     /**
      * Represents a USES relationship where a class depends on a service bean.
      */
-    USES;
+    USES,
+    /**
+     * Represents an ANNOTATED_WITH relationship from a class or method node
+     * to an annotation node.
+     */
+    ANNOTATED_WITH,
+    /**
+     * Represents a USES_CONFIG relationship from a class or method node to a
+     * configuration property node it reads.
+     */
+    USES_CONFIG;
 
     @Override
     public String toString() {
@@ -0,0 +1,151 @@
+package tech.softwareologists.core.db;
+
+import org.neo4j.graphdb.Entity;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.QueryExecutionException;
+import org.neo4j.graphdb.Result;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.TransientFailureException;
+import org.neo4j.kernel.api.exceptions.Status;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * {@link GraphStore} running queries through the transaction API of a
+ * database in the same JVM, so rows never pass through Bolt serialization
+ * and a socket.
+ */
+public class EmbeddedGraphStore implements GraphStore {
+    private final GraphDatabaseService database;
+
+    public EmbeddedGraphStore(GraphDatabaseService database) {
+        this.database = database;
+    }
+
+    @Override
+    public List<Map<String, Object>> query(String query, Map<String, Object> params) {
+        try (Transaction tx = database.beginTx()) {
+            List<Map<String, Object>> rows = rows(tx.execute(query, params));
+            tx.commit();
+            return rows;
+        }
+    }
+
+    @Override
+    public Stream<Map<String, Object>> stream(String query, Map<String, Object> params) {
+        Transaction tx = database.beginTx();
+        try {
+            Result result = tx.execute(query, params);
+            return result.stream().map(EmbeddedGraphStore::convertRow).onClose(() -> {
+                try (tx) {
+                    result.close();
+                }
+            });
+        } catch (RuntimeException e) {
+            tx.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public <T> T write(Work<T> work) {
+        try (Transaction tx = database.beginTx()) {
+            T result = work.execute((query, params) -> rows(tx.execute(query, params)));
+            tx.commit();
+            return result;
+        }
+    }
+
+    /**
+     * Whether the failure or one of its causes is transient. Errors raised
+     * while a query runs, such as a detected deadlock, surface as a
+     * {@link QueryExecutionException} carrying the status code instead of a
+     * {@link TransientFailureException}, so the status classification is
+     * checked as well.
+     */
+    @Override
+    public boolean isTransient(RuntimeException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof TransientFailureException) {
+                return true;
+            }
+            if (t instanceof Status.HasStatus
+                    && ((Status.HasStatus) t).status().code().classification() == Status.Classification.TransientError) {
+                return true;
+            }
+            if (t instanceof QueryExecutionException) {
+                String code = ((QueryExecutionException) t).getStatusCode();
+                if (code != null && code.startsWith("Neo.TransientError.")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static List<Map<String, Object>> rows(Result result) {
+        try (result) {
+            List<Map<String, Object>> rows = new ArrayList<>();
+            while (result.hasNext()) {
+                rows.add(convertRow(result.next()));
+            }
+            return rows;
+        }
+    }
+
+    private static Map<String, Object> convertRow(Map<String, Object> row) {
+        Map<String, Object> converted = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> e : row.entrySet()) {
+            converted.put(e.getKey(), convert(e.getValue()));
+        }
+        return converted;
+    }
+
+    /**
+     * Convert values the way the driver would: property arrays become lists
+     * and entities become property maps.
+     */
+    private static Object convert(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            List<Object> list = new ArrayList<>(length);
+            for (int i = 0; i < length; i++) {
+                list.add(convert(Array.get(value, i)));
+            }
+            return list;
+        }
+        if (value instanceof Collection) {
+            List<Object> list = new ArrayList<>();
+            for (Object item : (Collection<?>) value) {
+                list.add(convert(item));
+            }
+            return list;
+        }
+        if (value instanceof Map) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> e : ((Map<?, ?>) value).entrySet()) {
+                map.put(String.valueOf(e.getKey()), convert(e.getValue()));
+            }
+            return map;
+        }
+        if (value instanceof Entity) {
+            return convert(((Entity) value).getAllProperties());
+        }
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Float) {
+            return ((Float) value).doubleValue();
+        }
+        return value;
+    }
+}
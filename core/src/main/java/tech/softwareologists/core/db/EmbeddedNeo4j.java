@@ -1,42 +1,354 @@
 package tech.softwareologists.core.db;
 
+import org.neo4j.configuration.GraphDatabaseSettings;
+import org.neo4j.configuration.connectors.BoltConnector;
+import org.neo4j.configuration.helpers.SocketAddress;
+import org.neo4j.dbms.api.DatabaseManagementService;
+import org.neo4j.dbms.api.DatabaseManagementServiceBuilder;
 import org.neo4j.driver.AuthTokens;
 import org.neo4j.driver.Driver;
 import org.neo4j.driver.GraphDatabase;
-import org.neo4j.driver.Session;
+import org.neo4j.graphdb.config.Setting;
 import org.neo4j.harness.Neo4j;
+import org.neo4j.harness.Neo4jBuilder;
 import org.neo4j.harness.Neo4jBuilders;
 import tech.softwareologists.core.db.NodeLabel;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletionStage;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
 /**
  * Helper class to manage an embedded Neo4j instance.
+ *
+ * <p>{@link #getStore()} accesses the database in-process and is the
+ * preferred access path; {@link #getDriver()} goes through Bolt and is kept
+ * for callers that need a driver.</p>
+ *
+ * <p>Without a data directory the graph lives in a throwaway in-process
+ * instance. With a data directory the store is kept on disk and reopened on
+ * the next start together with its indexes. The layout version of a
+ * persistent store is recorded in {@value #STORE_FILE} next to the database
+ * files and checked when the store is opened, together with the schema
+ * version used to migrate its constraints and indexes.</p>
+ *
+ * <p>Memory settings are taken from {@link DatabaseOptions}; the values in
+ * effect are logged once the database has started.</p>
  */
 public class EmbeddedNeo4j implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(EmbeddedNeo4j.class.getName());
+
+    /**
+     * Version of the graph layout. Bump it whenever labels, properties or
+     * indexes change in a way existing stores cannot be used with.
+     */
+    public static final int STORE_VERSION = 1;
+
+    /** File in the data directory recording the store version. */
+    public static final String STORE_FILE = "codegraph-store.properties";
+
+    private static final String VERSION_KEY = "storeVersion";
+    private static final String SCHEMA_VERSION_KEY = "schemaVersion";
+
+    private static final List<Setting<?>> MEMORY_SETTINGS = Arrays.asList(
+            GraphDatabaseSettings.pagecache_memory,
+            GraphDatabaseSettings.tx_state_memory_allocation,
+            GraphDatabaseSettings.tx_state_max_off_heap_memory,
+            GraphDatabaseSettings.query_cache_size,
+            GraphDatabaseSettings.memory_transaction_max_size,
+            GraphDatabaseSettings.memory_transaction_global_max_size);
+
     private final Neo4j neo4j;
+    private final DatabaseManagementService managementService;
     private final Driver driver;
+    private final GraphStore store;
+    private final Path dataDir;
+    private int schemaVersion;
 
     public EmbeddedNeo4j() {
-        this.neo4j = Neo4jBuilders.newInProcessBuilder()
-                .withDisabledServer()
-                .build();
-        this.driver = GraphDatabase.driver(neo4j.boltURI(), AuthTokens.none());
-        // ensure index on Class name
-        try (Session session = driver.session()) {
-            session.run("CREATE INDEX class_name IF NOT EXISTS FOR (c:" + NodeLabel.CLASS + ") ON (c.name)");
-            session.run(
-                    "CREATE INDEX method_identity IF NOT EXISTS FOR (m:" + NodeLabel.METHOD + ") ON (m.class, m.signature)");
-            session.run(
-                    "CREATE INDEX package_name IF NOT EXISTS FOR (p:" + NodeLabel.PACKAGE + ") ON (p.name)");
+        this(true);
+    }
+
+    /**
+     * Start an embedded instance.
+     *
+     * @param indexed whether to create the indexes right away; a bulk load
+     *                into an empty store creates them with
+     *                {@link #createIndexes()} once it has finished
+     */
+    public EmbeddedNeo4j(boolean indexed) {
+        this(null, indexed);
+    }
+
+    /**
+     * Open the store in the given data directory, creating it if needed.
+     *
+     * @param dataDir directory holding the store or {@code null} for a throwaway instance
+     * @throws IllegalStateException if the store was written with another {@link #STORE_VERSION}
+     */
+    public EmbeddedNeo4j(Path dataDir) {
+        this(dataDir, true);
+    }
+
+    /**
+     * Open the store in the given data directory, creating it if needed.
+     *
+     * @param dataDir directory holding the store or {@code null} for a throwaway instance
+     * @param indexed whether to create the indexes right away
+     * @throws IllegalStateException if the store was written with another {@link #STORE_VERSION}
+     */
+    public EmbeddedNeo4j(Path dataDir, boolean indexed) {
+        this(dataDir, indexed, DatabaseOptions.defaults());
+    }
+
+    /**
+     * Open the store in the given data directory with the given memory settings.
+     *
+     * @param dataDir directory holding the store or {@code null} for a throwaway instance
+     * @param indexed whether to create the indexes right away
+     * @param options page cache, transaction state and query memory settings
+     * @throws IllegalStateException if the store was written with another {@link #STORE_VERSION}
+     */
+    public EmbeddedNeo4j(Path dataDir, boolean indexed, DatabaseOptions options) {
+        Map<Setting<?>, Object> config = config(options);
+        this.dataDir = dataDir;
+        if (dataDir == null) {
+            Neo4jBuilder builder = Neo4jBuilders.newInProcessBuilder()
+                    .withDisabledServer();
+            for (Map.Entry<Setting<?>, Object> e : config.entrySet()) {
+                builder = withConfig(builder, e.getKey(), e.getValue());
+            }
+            this.neo4j = builder.build();
+            this.managementService = null;
+            this.driver = GraphDatabase.driver(neo4j.boltURI(), AuthTokens.none());
+            this.store = new EmbeddedGraphStore(neo4j.defaultDatabaseService());
+        } else {
+            Properties props = readStoreProperties(dataDir);
+            Integer version = props == null ? null : intProperty(props, VERSION_KEY);
+            this.schemaVersion = props == null ? 0 : intProperty(props, SCHEMA_VERSION_KEY);
+            if (version != null && version != STORE_VERSION) {
+                throw new IllegalStateException("Store in " + dataDir + " has version " + version
+                        + " but version " + STORE_VERSION + " is required; delete the directory to rebuild it");
+            }
+            long start = System.nanoTime();
+            int port = freePort();
+            this.neo4j = null;
+            this.managementService = new DatabaseManagementServiceBuilder(dataDir)
+                    .setConfig(BoltConnector.enabled, true)
+                    .setConfig(BoltConnector.listen_address, new SocketAddress("localhost", port))
+                    .setConfig(config)
+                    .build();
+            this.driver = GraphDatabase.driver("bolt://localhost:" + port, AuthTokens.none());
+            this.store = new EmbeddedGraphStore(managementService.database(GraphDatabaseSettings.DEFAULT_DATABASE_NAME));
+            if (version == null) {
+                if (!isEmpty()) {
+                    close();
+                    throw new IllegalStateException("Store in " + dataDir + " has no version; "
+                            + "delete the directory to rebuild it");
+                }
+                writeStoreProperties();
+            }
+            LOGGER.info("Opened store " + dataDir + " in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        }
+        LOGGER.info("Database memory: " + memoryReport());
+        if (indexed) {
+            createIndexes();
         }
     }
 
+    /**
+     * Return the memory settings in effect, keyed by setting name, followed
+     * by the maximum heap of the JVM under {@code jvm.heap.max}.
+     */
+    public Map<String, String> memoryReport() {
+        Map<String, String> report = new LinkedHashMap<>();
+        for (Setting<?> setting : MEMORY_SETTINGS) {
+            report.put(setting.name(), "default");
+        }
+        try {
+            List<String> names = new ArrayList<>(report.keySet());
+            for (Map<String, Object> row : store.query(
+                    "SHOW SETTINGS YIELD name, value WHERE name IN $names RETURN name, value",
+                    Collections.singletonMap("names", names))) {
+                Object value = row.get("value");
+                if (value != null && !value.toString().isEmpty()) {
+                    report.put((String) row.get("name"), value.toString());
+                }
+            }
+        } catch (RuntimeException e) {
+            LOGGER.fine("Could not read database settings: " + e.getMessage());
+        }
+        report.put("jvm.heap.max", Runtime.getRuntime().maxMemory() + "B");
+        return report;
+    }
+
+    /**
+     * Bring the constraints and indexes up to date with {@link SchemaManager}
+     * and wait until they are online. A persistent store remembers its schema
+     * version, so only migrations it has not seen yet are applied.
+     */
+    public void createIndexes() {
+        int from = schemaVersion;
+        schemaVersion = new SchemaManager(store).migrate(from);
+        if (dataDir != null && schemaVersion != from) {
+            writeStoreProperties();
+        }
+    }
+
+    /** Whether the graph contains no nodes at all. */
+    public boolean isEmpty() {
+        return store.query("MATCH (n) RETURN n LIMIT 1", Collections.emptyMap()).isEmpty();
+    }
+
     public Driver getDriver() {
         return driver;
     }
 
+    /** Store reading and writing the graph through the in-process transaction API. */
+    public GraphStore getStore() {
+        return store;
+    }
+
+    /**
+     * Store for query services serving several clients. It works like
+     * {@link #getStore()}, except that {@link GraphStore#queryAsync} goes
+     * through the driver, whose asynchronous session does not hold the
+     * calling thread while the database works.
+     */
+    public GraphStore getQueryStore() {
+        return new QueryStore(store, GraphStore.of(driver));
+    }
+
+    /** Store answering asynchronous queries through Bolt and everything else in-process. */
+    private static final class QueryStore implements GraphStore {
+        private final GraphStore local;
+        private final GraphStore bolt;
+
+        QueryStore(GraphStore local, GraphStore bolt) {
+            this.local = local;
+            this.bolt = bolt;
+        }
+
+        @Override
+        public List<Map<String, Object>> query(String query, Map<String, Object> params) {
+            return local.query(query, params);
+        }
+
+        @Override
+        public CompletionStage<List<Map<String, Object>>> queryAsync(String query, Map<String, Object> params) {
+            return bolt.queryAsync(query, params);
+        }
+
+        @Override
+        public Stream<Map<String, Object>> stream(String query, Map<String, Object> params) {
+            return local.stream(query, params);
+        }
+
+        @Override
+        public <T> T write(Work<T> work) {
+            return local.write(work);
+        }
+
+        @Override
+        public boolean isTransient(RuntimeException e) {
+            return local.isTransient(e) || bolt.isTransient(e);
+        }
+    }
+
     @Override
     public void close() {
         driver.close();
-        neo4j.close();
+        if (neo4j != null) {
+            neo4j.close();
+        } else {
+            managementService.shutdown();
+        }
+    }
+
+    private static Map<Setting<?>, Object> config(DatabaseOptions options) {
+        Map<Setting<?>, Object> config = new LinkedHashMap<>();
+        if (options.getPageCacheBytes() != null) {
+            config.put(GraphDatabaseSettings.pagecache_memory, options.getPageCacheBytes());
+        }
+        if (options.getTxStateMemory() != null) {
+            config.put(GraphDatabaseSettings.tx_state_memory_allocation,
+                    options.getTxStateMemory() == DatabaseOptions.TxStateMemory.OFF_HEAP
+                            ? GraphDatabaseSettings.TransactionStateMemoryAllocation.OFF_HEAP
+                            : GraphDatabaseSettings.TransactionStateMemoryAllocation.ON_HEAP);
+        }
+        if (options.getTxStateMaxOffHeapBytes() != null) {
+            config.put(GraphDatabaseSettings.tx_state_max_off_heap_memory, options.getTxStateMaxOffHeapBytes());
+        }
+        if (options.getPlanCacheSize() != null) {
+            config.put(GraphDatabaseSettings.query_cache_size, options.getPlanCacheSize());
+        }
+        if (options.getTxMemoryMaxBytes() != null) {
+            config.put(GraphDatabaseSettings.memory_transaction_max_size, options.getTxMemoryMaxBytes());
+        }
+        if (options.getTotalTxMemoryMaxBytes() != null) {
+            config.put(GraphDatabaseSettings.memory_transaction_global_max_size, options.getTotalTxMemoryMaxBytes());
+        }
+        return config;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Neo4jBuilder withConfig(Neo4jBuilder builder, Setting<T> setting, Object value) {
+        return builder.withConfig(setting, (T) value);
+    }
+
+    private static Properties readStoreProperties(Path dataDir) {
+        Path file = dataDir.resolve(STORE_FILE);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        Properties props = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            props.load(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + file, e);
+        }
+        return props;
+    }
+
+    private static int intProperty(Properties props, String key) {
+        try {
+            return Integer.parseInt(props.getProperty(key, "0").trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private void writeStoreProperties() {
+        Properties props = new Properties();
+        props.setProperty(VERSION_KEY, String.valueOf(STORE_VERSION));
+        props.setProperty(SCHEMA_VERSION_KEY, String.valueOf(schemaVersion));
+        try (OutputStream out = Files.newOutputStream(dataDir.resolve(STORE_FILE))) {
+            props.store(out, "CodeGraph store");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write store version", e);
+        }
+    }
+
+    private static int freePort() {
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException("No free port for the Bolt connector", e);
+        }
     }
 }
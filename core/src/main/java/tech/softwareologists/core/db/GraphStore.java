@@ -0,0 +1,101 @@
+package tech.softwareologists.core.db;
+
+import org.neo4j.driver.Driver;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.stream.Stream;
+
+/**
+ * Access path to the graph used by the query service and the importers.
+ *
+ * <p>Rows map column names to plain Java values: {@link String},
+ * {@link Long}, {@link Double}, {@link Boolean}, {@link List}, {@link Map} or
+ * {@code null}. {@link EmbeddedGraphStore} runs queries directly against an
+ * in-process database, {@link DriverGraphStore} sends them through a
+ * {@link Driver}.</p>
+ */
+public interface GraphStore {
+    /**
+     * Run a query in its own transaction and return all rows.
+     *
+     * @param query Cypher query
+     * @param params query parameters
+     * @return result rows
+     */
+    List<Map<String, Object>> query(String query, Map<String, Object> params);
+
+    /**
+     * Run a query in its own transaction without blocking the calling
+     * thread while the database works. The default implementation runs the
+     * query in the calling thread and returns a completed stage.
+     *
+     * @param query Cypher query
+     * @param params query parameters
+     * @return stage completed with the result rows, or exceptionally if the query failed
+     */
+    default CompletionStage<List<Map<String, Object>>> queryAsync(String query, Map<String, Object> params) {
+        try {
+            return CompletableFuture.completedFuture(query(query, params));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Run a query in its own transaction and return the rows as they are
+     * produced. The transaction stays open until the stream is closed.
+     * The default implementation reads all rows first.
+     *
+     * @param query Cypher query
+     * @param params query parameters
+     * @return result rows, to be closed by the caller
+     */
+    default Stream<Map<String, Object>> stream(String query, Map<String, Object> params) {
+        return query(query, params).stream();
+    }
+
+    /**
+     * Run the given work in one write transaction. The transaction is
+     * committed if the work completes normally and rolled back otherwise.
+     *
+     * @param work statements to run
+     * @return value returned by the work
+     */
+    <T> T write(Work<T> work);
+
+    /**
+     * Whether the failure is transient, so the transaction that raised it
+     * may succeed when retried.
+     */
+    boolean isTransient(RuntimeException e);
+
+    /** Open transaction handed to {@link Work}. */
+    interface Tx {
+        /**
+         * Run a statement in this transaction and return all rows.
+         *
+         * @param query Cypher query
+         * @param params query parameters
+         * @return result rows
+         */
+        List<Map<String, Object>> run(String query, Map<String, Object> params);
+    }
+
+    /**
+     * Statements executed in a single write transaction.
+     *
+     * @param <T> type of the returned value
+     */
+    @FunctionalInterface
+    interface Work<T> {
+        T execute(Tx tx);
+    }
+
+    /** Create a store sending every query through the given driver. */
+    static GraphStore of(Driver driver) {
+        return new DriverGraphStore(driver);
+    }
+}
@@ -13,7 +13,23 @@ public enum NodeLabel {
      * qualified class name in the {@code class} property and the JVM method
      * signature in the {@code signature} property.
      */
-    METHOD;
+    METHOD,
+    /**
+     * Node recording an imported artifact. Artifact nodes store the absolute
+     * path in the {@code path} property together with the {@code sha256}
+     * content hash and the {@code schemaVersion} of the importer.
+     */
+    ARTIFACT,
+    /**
+     * Node representing an annotation type, identified by its fully
+     * qualified name in the {@code name} property.
+     */
+    ANNOTATION,
+    /**
+     * Node representing a configuration property, identified by its key in
+     * the {@code key} property.
+     */
+    CONFIG_PROPERTY;
 
     @Override
     public String toString() {
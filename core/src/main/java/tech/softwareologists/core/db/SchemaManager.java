@@ -0,0 +1,122 @@
+package tech.softwareologists.core.db;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Creates and migrates the constraints and indexes of the graph, together
+ * with any data the new schema relies on.
+ *
+ * <p>The schema is described by an ordered list of migrations. A store
+ * records the number of the last migration applied to it, and
+ * {@link #migrate(int)} applies every later one, so an existing store is
+ * brought up to date the same way a new one is set up.</p>
+ */
+public final class SchemaManager {
+    private static final Logger LOGGER = Logger.getLogger(SchemaManager.class.getName());
+
+    private static final List<Migration> MIGRATIONS = Arrays.asList(
+            new Migration(1, "uniqueness constraints for the keys used by MERGE",
+                    "DROP INDEX class_name IF EXISTS",
+                    "DROP INDEX method_identity IF EXISTS",
+                    "DROP INDEX package_name IF EXISTS",
+                    "DROP INDEX artifact_path IF EXISTS",
+                    "CREATE CONSTRAINT class_name IF NOT EXISTS FOR (c:" + NodeLabel.CLASS + ") REQUIRE c.name IS UNIQUE",
+                    "CREATE CONSTRAINT method_identity IF NOT EXISTS FOR (m:" + NodeLabel.METHOD + ") "
+                            + "REQUIRE (m.class, m.signature) IS UNIQUE",
+                    "CREATE CONSTRAINT package_name IF NOT EXISTS FOR (p:" + NodeLabel.PACKAGE + ") REQUIRE p.name IS UNIQUE",
+                    "CREATE CONSTRAINT artifact_path IF NOT EXISTS FOR (a:" + NodeLabel.ARTIFACT + ") REQUIRE a.path IS UNIQUE",
+                    "CREATE INDEX class_artifact IF NOT EXISTS FOR (c:" + NodeLabel.CLASS + ") ON (c.artifact)",
+                    "CREATE INDEX method_artifact IF NOT EXISTS FOR (m:" + NodeLabel.METHOD + ") ON (m.artifact)"),
+            new Migration(2, "indexes for endpoint, listener and scheduled task lookups",
+                    "CREATE INDEX method_http_endpoint IF NOT EXISTS FOR (m:" + NodeLabel.METHOD + ") "
+                            + "ON (m.httpMethod, m.httpRoute)",
+                    "CREATE INDEX method_event_type IF NOT EXISTS FOR (m:" + NodeLabel.METHOD + ") ON (m.eventType)",
+                    "CREATE INDEX method_cron IF NOT EXISTS FOR (m:" + NodeLabel.METHOD + ") ON (m.cron)"),
+            new Migration(3, "annotation nodes linked from annotated classes and methods",
+                    "CREATE CONSTRAINT annotation_name IF NOT EXISTS FOR (a:" + NodeLabel.ANNOTATION + ") "
+                            + "REQUIRE a.name IS UNIQUE",
+                    "MATCH (n:" + NodeLabel.CLASS + ") WHERE n.annotations IS NOT NULL "
+                            + "UNWIND n.annotations AS ann MERGE (a:" + NodeLabel.ANNOTATION + " {name:ann}) "
+                            + "MERGE (n)-[r:" + EdgeType.ANNOTATED_WITH + "]->(a) SET r.artifact = n.artifact",
+                    "MATCH (n:" + NodeLabel.METHOD + ") WHERE n.annotations IS NOT NULL "
+                            + "UNWIND n.annotations AS ann MERGE (a:" + NodeLabel.ANNOTATION + " {name:ann}) "
+                            + "MERGE (n)-[r:" + EdgeType.ANNOTATED_WITH + "]->(a) SET r.artifact = n.artifact"),
+            new Migration(4, "configuration property nodes linked from the classes and methods reading them",
+                    "CREATE CONSTRAINT config_property_key IF NOT EXISTS FOR (p:" + NodeLabel.CONFIG_PROPERTY + ") "
+                            + "REQUIRE p.key IS UNIQUE",
+                    "MATCH (n:" + NodeLabel.CLASS + ") WHERE n.configProperties IS NOT NULL "
+                            + "UNWIND n.configProperties AS prop MERGE (p:" + NodeLabel.CONFIG_PROPERTY + " {key:prop}) "
+                            + "MERGE (n)-[r:" + EdgeType.USES_CONFIG + "]->(p) SET r.artifact = n.artifact",
+                    "MATCH (n:" + NodeLabel.METHOD + ") WHERE n.configProperties IS NOT NULL "
+                            + "UNWIND n.configProperties AS prop MERGE (p:" + NodeLabel.CONFIG_PROPERTY + " {key:prop}) "
+                            + "MERGE (n)-[r:" + EdgeType.USES_CONFIG + "]->(p) SET r.artifact = n.artifact"),
+            new Migration(5, "simple names and CamelCase humps for symbol search",
+                    "CREATE INDEX class_simple_name IF NOT EXISTS FOR (c:" + NodeLabel.CLASS + ") ON (c.simpleName)",
+                    "CREATE INDEX class_humps IF NOT EXISTS FOR (c:" + NodeLabel.CLASS + ") ON (c.humps)",
+                    "CREATE INDEX method_simple_name IF NOT EXISTS FOR (m:" + NodeLabel.METHOD + ") ON (m.simpleName)",
+                    "CREATE INDEX method_humps IF NOT EXISTS FOR (m:" + NodeLabel.METHOD + ") ON (m.humps)",
+                    "CREATE FULLTEXT INDEX symbol_names IF NOT EXISTS FOR (n:" + NodeLabel.CLASS + "|" + NodeLabel.METHOD
+                            + ") ON EACH [n.simpleName]",
+                    "MATCH (c:" + NodeLabel.CLASS + ") WHERE c.simpleName IS NULL "
+                            + "WITH c, last(split(last(split(c.name, '.')), '$')) AS s "
+                            + "SET c.simpleName = s, c.humps = toUpper(substring(s, 0, 1)) + reduce(h = '', i IN range(1, size(s) - 1) | "
+                            + "h + CASE WHEN substring(s, i, 1) =~ '[A-Z]' THEN substring(s, i, 1) ELSE '' END)",
+                    "MATCH (m:" + NodeLabel.METHOD + ") WHERE m.simpleName IS NULL "
+                            + "WITH m, split(m.signature, '(')[0] AS s "
+                            + "SET m.simpleName = s, m.humps = toUpper(substring(s, 0, 1)) + reduce(h = '', i IN range(1, size(s) - 1) | "
+                            + "h + CASE WHEN substring(s, i, 1) =~ '[A-Z]' THEN substring(s, i, 1) ELSE '' END)"));
+
+    /** Number of the newest migration. */
+    public static final int SCHEMA_VERSION = MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+
+    private final GraphStore store;
+
+    public SchemaManager(GraphStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Apply all migrations newer than the given version and wait until the
+     * resulting indexes are online.
+     *
+     * @param from number of the last migration already applied, {@code 0} for a new store
+     * @return the schema version of the store afterwards, {@link #SCHEMA_VERSION}
+     * @throws IllegalStateException if the store has a newer schema than this version knows
+     */
+    public int migrate(int from) {
+        if (from > SCHEMA_VERSION) {
+            throw new IllegalStateException("Schema version " + from + " is newer than the supported version "
+                    + SCHEMA_VERSION);
+        }
+        Map<String, Object> none = Collections.emptyMap();
+        for (Migration migration : MIGRATIONS) {
+            if (migration.version <= from) {
+                continue;
+            }
+            long start = System.nanoTime();
+            for (String statement : migration.statements) {
+                store.query(statement, none);
+            }
+            store.query("CALL db.awaitIndexes()", none);
+            LOGGER.info("Applied schema migration " + migration.version + " (" + migration.description + ") in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+        }
+        return SCHEMA_VERSION;
+    }
+
+    private static final class Migration {
+        private final int version;
+        private final String description;
+        private final List<String> statements;
+
+        private Migration(int version, String description, String... statements) {
+            this.version = version;
+            this.description = description;
+            this.statements = Arrays.asList(statements);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package tech.softwareologists.core;
+
+import org.junit.Test;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Session;
+import tech.softwareologists.core.db.EmbeddedNeo4j;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+/** Tests for {@link BulkLoader}. */
+public class BulkLoaderTest {
+    @Test
+    public void load_producesSameGraphAsMergeImport() throws Exception {
+        Path src = Files.createTempDirectory("bulk");
+        Path pkg = src.resolve("bulk");
+        Files.createDirectories(pkg);
+        Path a = pkg.resolve("A.java");
+        Files.write(a, "package bulk; public class A { public void a() {} }".getBytes(StandardCharsets.UTF_8));
+        Path b = pkg.resolve("B.java");
+        Files.write(b, "package bulk; public class B extends A implements Runnable { public void run() { a(); new A().a(); } }"
+                .getBytes(StandardCharsets.UTF_8));
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) throw new IllegalStateException("Java compiler not available");
+        if (compiler.run(null, null, null, a.toString(), b.toString()) != 0) {
+            throw new IllegalStateException("Compilation failed");
+        }
+
+        File first = File.createTempFile("bulka", ".jar");
+        File second = File.createTempFile("bulkb", ".jar");
+        writeJar(first, pkg, "A");
+        writeJar(second, pkg, "B");
+        List<File> jars = Arrays.asList(first, second);
+
+        long[] merged;
+        try (EmbeddedNeo4j db = new EmbeddedNeo4j()) {
+            JarImporter.importJars(jars, db.getDriver(), ImportOptions.defaults());
+            merged = counts(db.getDriver());
+        }
+
+        try (CoreEngineImpl engine = CoreEngineImpl.bulkLoad(jars, ImportOptions.defaults().withBatchSize(2))) {
+            QueryResult<String> callers = engine.getQueryService().findCallers("bulk.A", null, null, null);
+            if (!callers.getItems().contains("bulk.B")) {
+                throw new AssertionError("Unexpected callers: " + callers.getItems());
+            }
+        }
+
+        try (EmbeddedNeo4j db = new EmbeddedNeo4j(false)) {
+            if (BulkLoader.load(jars, db.getDriver(), ImportOptions.defaults()) != 2) {
+                throw new AssertionError("Expected 2 loaded classes");
+            }
+            db.createIndexes();
+            long[] bulk = counts(db.getDriver());
+            if (!Arrays.equals(merged, bulk)) {
+                throw new AssertionError("Bulk load " + Arrays.toString(bulk)
+                        + " differs from merge import " + Arrays.toString(merged));
+            }
+            if (JarImporter.importJarIfChanged(first, db.getDriver(), ImportOptions.defaults())) {
+                throw new AssertionError("Bulk loaded JAR imported again");
+            }
+        }
+    }
+
+    @Test
+    public void load_nonEmptyDatabase_isRejected() throws Exception {
+        try (EmbeddedNeo4j db = new EmbeddedNeo4j()) {
+            try (Session session = db.getDriver().session()) {
+                session.run("CREATE (:Class {name:'x.Existing'})").consume();
+            }
+            try {
+                BulkLoader.load(Arrays.asList(), db.getDriver(), ImportOptions.defaults());
+                throw new AssertionError("Expected bulk load to fail");
+            } catch (IllegalStateException expected) {
+                // expected
+            }
+        }
+    }
+
+    private static long[] counts(Driver driver) {
+        try (Session session = driver.session()) {
+            long nodes = session.run("MATCH (n) RETURN count(n) AS c").single().get("c").asLong();
+            long rels = session.run("MATCH ()-[r]->() RETURN count(r) AS c").single().get("c").asLong();
+            long tagged = session.run("MATCH (n) WHERE n.artifact IS NOT NULL RETURN count(n) AS c").single().get("c").asLong();
+            return new long[]{nodes, rels, tagged};
+        }
+    }
+
+    private static void writeJar(File jar, Path pkg, String name) throws Exception {
+        try (JarOutputStream jos = new JarOutputStream(new FileOutputStream(jar))) {
+            jos.putNextEntry(new JarEntry("bulk/" + name + ".class"));
+            Files.copy(pkg.resolve(name + ".class"), jos);
+            jos.closeEntry();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package tech.softwareologists.core;
+
+import org.junit.Test;
+import tech.softwareologists.core.csr.CsrGraph;
+import tech.softwareologists.core.csr.CsrQueryService;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Tests for {@link CachingQueryService}. */
+public class CachingQueryServiceTest {
+    private static final AtomicInteger CALLS = new AtomicInteger();
+
+    private static QueryService countingService() {
+        ClassFacts a = new ClassFacts("a.A", "a", null, null, null, List.of("b.B"), null, null, null);
+        ClassFacts c = new ClassFacts("c.C", "c", null, null, null, List.of("b.B"), null, null, null);
+        return new CsrQueryService(new CsrGraph.Builder().addAll(List.of(a, c)).build()) {
+            @Override
+            public QueryResult<String> findCallers(String className, Integer limit, Integer page, Integer pageSize) {
+                CALLS.incrementAndGet();
+                return super.findCallers(className, limit, page, pageSize);
+            }
+        };
+    }
+
+    @Test
+    public void repeatedCall_answeredFromCacheUntilGenerationChanges() {
+        CALLS.set(0);
+        AtomicLong generation = new AtomicLong();
+        CachingQueryService cache = new CachingQueryService(countingService(), generation::get, 10, 1 << 20);
+
+        List<String> first = cache.findCallers("b.B", null, null, null).getItems();
+        List<String> second = cache.findCallers("b.B", null, null, null).getItems();
+        cache.findCallers("b.B", 1, null, null);
+        if (!first.equals(List.of("a.A", "c.C")) || !first.equals(second) || CALLS.get() != 2) {
+            throw new AssertionError("Expected 2 delegate calls but got " + CALLS.get() + " for " + first);
+        }
+        if (cache.getHits() != 1 || cache.getMisses() != 2) {
+            throw new AssertionError("Unexpected metrics " + cache);
+        }
+
+        generation.incrementAndGet();
+        cache.findCallers("b.B", null, null, null);
+        if (CALLS.get() != 3 || cache.getInvalidations() != 1 || cache.size() != 1) {
+            throw new AssertionError("Cache not dropped after generation change: " + cache);
+        }
+    }
+
+    @Test
+    public void asyncCall_sharesCacheWithBlockingCall() {
+        CALLS.set(0);
+        CachingQueryService cache = new CachingQueryService(countingService(), () -> 0, 10, 1 << 20);
+        if (AsyncQueryService.of(cache) != cache) {
+            throw new AssertionError("Cache hides the asynchronous methods");
+        }
+
+        List<String> async = cache.findCallersAsync("b.B", null, null, null).toCompletableFuture().join().getItems();
+        List<String> blocking = cache.findCallers("b.B", null, null, null).getItems();
+        cache.findCallersAsync("b.B", null, null, null).toCompletableFuture().join();
+        if (!async.equals(blocking) || CALLS.get() != 1 || cache.getHits() != 2) {
+            throw new AssertionError("Expected 1 delegate call but got " + CALLS.get() + ": " + cache);
+        }
+    }
+
+    @Test
+    public void bounds_evictLeastRecentlyUsed() {
+        CALLS.set(0);
+        CachingQueryService cache = new CachingQueryService(countingService(), () -> 0, 2, 1 << 20);
+        cache.findCallers("b.B", 1, null, null);
+        cache.findCallers("b.B", 2, null, null);
+        cache.findCallers("b.B", 1, null, null);
+        cache.findCallers("b.B", 3, null, null);
+        cache.findCallers("b.B", 1, null, null);
+        cache.findCallers("b.B", 2, null, null);
+        if (CALLS.get() != 4 || cache.getEvictions() != 2 || cache.size() != 2) {
+            throw new AssertionError("Unexpected eviction: calls=" + CALLS.get() + " " + cache);
+        }
+
+        CachingQueryService tiny = new CachingQueryService(countingService(), () -> 0, 10, 400);
+        tiny.findCallers("b.B", 1, null, null);
+        tiny.findCallers("b.B", 2, null, null);
+        if (tiny.size() != 1 || tiny.getBytes() > 400) {
+            throw new AssertionError("Byte bound not enforced: " + tiny);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package tech.softwareologists.core;
+
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.Set;
+
+/** Tests for {@link ClassFactsExtractor}. */
+public class ClassFactsExtractorTest {
+    @java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)
+    @interface Marker {
+    }
+
+    interface Api {
+    }
+
+    static class Base {
+    }
+
+    static class Helper {
+        static void help() {
+        }
+    }
+
+    static class Payload {
+    }
+
+    static class Unscanned {
+    }
+
+    @Marker
+    static class Sample extends Base implements Api {
+        private Payload payload;
+        private final List<String> names = new java.util.ArrayList<>();
+
+        Object run(Unscanned u) {
+            Helper.help();
+            return new StringBuilder().append(names).append(payload).append(u);
+        }
+    }
+
+    private static ClassFacts extract(Class<?> type, Set<String> scanned) throws Exception {
+        String resource = "/" + type.getName().replace('.', '/') + ".class";
+        try (InputStream in = ClassFactsExtractorTest.class.getResourceAsStream(resource)) {
+            return ClassFactsExtractor.extract(in, scanned::contains);
+        }
+    }
+
+    @Test
+    public void extract_keepsOnlyDependenciesOfTheScannedArtifact() throws Exception {
+        Set<String> scanned = Set.of(Sample.class.getName(), Base.class.getName(), Api.class.getName(),
+                Helper.class.getName(), Payload.class.getName(), Marker.class.getName());
+        ClassFacts facts = extract(Sample.class, scanned);
+
+        Set<String> expected = Set.of(Base.class.getName(), Api.class.getName(), Helper.class.getName(),
+                Payload.class.getName(), Marker.class.getName());
+        if (!Set.copyOf(facts.getDependencies()).equals(expected)) {
+            throw new AssertionError("Expected dependencies " + expected + " but was " + facts.getDependencies());
+        }
+        if (!Base.class.getName().equals(facts.getSuperclass())
+                || !facts.getInterfaces().equals(List.of(Api.class.getName()))
+                || !facts.getAnnotations().contains(Marker.class.getName())) {
+            throw new AssertionError("Unexpected hierarchy " + facts.getSuperclass() + " " + facts.getInterfaces()
+                    + " " + facts.getAnnotations());
+        }
+    }
+
+    @Test
+    public void extract_dropsJdkAndUnscannedTypes() throws Exception {
+        ClassFacts facts = extract(Sample.class, Set.of(Sample.class.getName()));
+        if (!facts.getDependencies().isEmpty()) {
+            throw new AssertionError("Types outside the artifact kept as dependencies: " + facts.getDependencies());
+        }
+        if (!facts.getInterfaces().equals(List.of(Api.class.getName()))) {
+            throw new AssertionError("Interfaces must not be filtered: " + facts.getInterfaces());
+        }
+    }
+}
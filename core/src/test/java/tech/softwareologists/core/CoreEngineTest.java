@@ -51,4 +51,37 @@ public class CoreEngineTest {
             }
         }
     }
+
+    @Test
+    public void importJar_singleClassCommits_thenQueryServiceFindsCaller() throws Exception {
+        Path src = Files.createTempDirectory("coreengtx");
+        Path pkg = src.resolve("tx");
+        Files.createDirectories(pkg);
+        Path a = pkg.resolve("A.java");
+        Files.write(a, "package tx; public class A {}".getBytes(StandardCharsets.UTF_8));
+        Path b = pkg.resolve("B.java");
+        Files.write(b, "package tx; public class B { A a; }".getBytes(StandardCharsets.UTF_8));
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) throw new IllegalStateException("Java compiler not available");
+        int res = compiler.run(null, null, null, a.toString(), b.toString());
+        if (res != 0) throw new IllegalStateException("Compilation failed");
+
+        File jar = File.createTempFile("coreengtx", ".jar");
+        try (JarOutputStream jos = new JarOutputStream(new FileOutputStream(jar))) {
+            for (String n : new String[]{"tx/A.class", "tx/B.class"}) {
+                jos.putNextEntry(new JarEntry(n));
+                Files.copy(pkg.resolve(n.substring(n.lastIndexOf('/') + 1)), jos);
+                jos.closeEntry();
+            }
+        }
+
+        try (CoreEngine engine = new CoreEngineImpl()) {
+            engine.importJar(jar, ImportOptions.defaults().withCommitSize(1).withBatchSize(2));
+            QueryResult<String> callers = engine.getQueryService().findCallers("tx.A", null, null, null);
+            if (callers.getItems().size() != 1 || !callers.getItems().get(0).equals("tx.B")) {
+                throw new AssertionError("Unexpected callers: " + callers.getItems());
+            }
+        }
+    }
 }
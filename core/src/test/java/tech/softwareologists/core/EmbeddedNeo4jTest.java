@@ -1,13 +1,18 @@
 package tech.softwareologists.core;
 
+import tech.softwareologists.core.db.DatabaseOptions;
 import tech.softwareologists.core.db.EmbeddedNeo4j;
+import tech.softwareologists.core.db.GraphStore;
 import tech.softwareologists.core.db.NodeLabel;
 import org.junit.Test;
 import org.neo4j.driver.Driver;
 import org.neo4j.driver.Session;
 import org.neo4j.driver.Record;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
 
 public class EmbeddedNeo4jTest {
     @Test
@@ -23,4 +28,165 @@ public class EmbeddedNeo4jTest {
             }
         }
     }
+
+    @Test
+    public void store_embeddedQuery_returnsPlainValues() {
+        try (EmbeddedNeo4j db = new EmbeddedNeo4j()) {
+            GraphStore store = db.getStore();
+            store.write(tx -> tx.run("CREATE (c:" + NodeLabel.CLASS + " {name:$name, tags:['a','b'], size:3})",
+                    java.util.Map.of("name", "Foo")));
+            List<Map<String, Object>> rows = store.query(
+                    "MATCH (c:" + NodeLabel.CLASS + ") RETURN c.name AS name, c.tags AS tags, c.size AS size, c",
+                    java.util.Collections.emptyMap());
+            if (rows.size() != 1) {
+                throw new AssertionError("Expected one row but got " + rows);
+            }
+            Map<String, Object> row = rows.get(0);
+            if (!"Foo".equals(row.get("name")) || !java.util.Arrays.asList("a", "b").equals(row.get("tags"))
+                    || !Long.valueOf(3).equals(row.get("size"))) {
+                throw new AssertionError("Unexpected row: " + row);
+            }
+            if (!"Foo".equals(((Map<?, ?>) row.get("c")).get("name"))) {
+                throw new AssertionError("Node not returned as property map: " + row.get("c"));
+            }
+        }
+    }
+
+    @Test
+    public void options_planCacheSize_isAppliedAndReported() {
+        DatabaseOptions options = DatabaseOptions.defaults()
+                .withPlanCacheSize(17)
+                .withTxMemoryMaxBytes(DatabaseOptions.parseBytes("64m"));
+        try (EmbeddedNeo4j db = new EmbeddedNeo4j(null, true, options)) {
+            Map<String, String> report = db.memoryReport();
+            if (!"17".equals(report.get("server.db.query_cache_size"))) {
+                throw new AssertionError("Plan cache size not applied: " + report);
+            }
+            if (!report.containsKey("jvm.heap.max")) {
+                throw new AssertionError("Heap size missing from report: " + report);
+            }
+        }
+    }
+
+    @Test
+    public void dataDir_reopen_keepsGraph() throws Exception {
+        Path dir = Files.createTempDirectory("store");
+        try (EmbeddedNeo4j db = new EmbeddedNeo4j(dir)) {
+            try (Session session = db.getDriver().session()) {
+                session.run("CREATE (c:" + NodeLabel.CLASS + " {name:'Kept'})").consume();
+            }
+        }
+        try (EmbeddedNeo4j db = new EmbeddedNeo4j(dir)) {
+            try (Session session = db.getDriver().session()) {
+                if (session.run("MATCH (c:" + NodeLabel.CLASS + " {name:'Kept'}) RETURN c").list().isEmpty()) {
+                    throw new AssertionError("Node lost after reopening the store");
+                }
+            }
+        }
+    }
+
+    @Test
+    public void startup_createsConstraintsAndPredicateIndexes() {
+        try (EmbeddedNeo4j db = new EmbeddedNeo4j()) {
+            List<String> constraints = names(db, "SHOW CONSTRAINTS YIELD name RETURN name");
+            for (String name : new String[]{"class_name", "method_identity", "package_name", "artifact_path"}) {
+                if (!constraints.contains(name)) {
+                    throw new AssertionError("Constraint " + name + " missing: " + constraints);
+                }
+            }
+            List<String> indexes = names(db, "SHOW INDEXES YIELD name RETURN name");
+            for (String name : new String[]{"method_http_endpoint", "method_event_type", "method_cron"}) {
+                if (!indexes.contains(name)) {
+                    throw new AssertionError("Index " + name + " missing: " + indexes);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void dataDir_storeWithoutSchemaVersion_isMigrated() throws Exception {
+        Path dir = Files.createTempDirectory("store");
+        try (EmbeddedNeo4j db = new EmbeddedNeo4j(dir, false)) {
+            db.getStore().query("CREATE INDEX class_name FOR (c:" + NodeLabel.CLASS + ") ON (c.name)",
+                    java.util.Collections.emptyMap());
+            db.getStore().query("CREATE (c:" + NodeLabel.CLASS + " {name:'Old'})", java.util.Collections.emptyMap());
+        }
+        Files.write(dir.resolve(EmbeddedNeo4j.STORE_FILE),
+                ("storeVersion=" + EmbeddedNeo4j.STORE_VERSION).getBytes(java.nio.charset.StandardCharsets.UTF_8));
+        try (EmbeddedNeo4j db = new EmbeddedNeo4j(dir)) {
+            if (!names(db, "SHOW CONSTRAINTS YIELD name RETURN name").contains("class_name")) {
+                throw new AssertionError("Lookup index not replaced by a constraint");
+            }
+            if (!names(db, "SHOW INDEXES YIELD name RETURN name").contains("method_cron")) {
+                throw new AssertionError("Predicate index not created on existing store");
+            }
+        }
+    }
+
+    @Test
+    public void dataDir_otherStoreVersion_isRejected() throws Exception {
+        Path dir = Files.createTempDirectory("store");
+        Files.write(dir.resolve(EmbeddedNeo4j.STORE_FILE),
+                ("storeVersion=" + (EmbeddedNeo4j.STORE_VERSION + 1)).getBytes(java.nio.charset.StandardCharsets.UTF_8));
+        try (EmbeddedNeo4j db = new EmbeddedNeo4j(dir)) {
+            throw new AssertionError("Store with another version opened");
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void store_deadlock_isTransient() throws Exception {
+        try (EmbeddedNeo4j db = new EmbeddedNeo4j()) {
+            GraphStore store = db.getStore();
+            store.write(tx -> tx.run("CREATE (:" + NodeLabel.CLASS + " {name:'A'}), (:" + NodeLabel.CLASS + " {name:'B'})",
+                    java.util.Collections.emptyMap()));
+
+            java.util.concurrent.CyclicBarrier bothLocked = new java.util.concurrent.CyclicBarrier(2);
+            List<RuntimeException> failures = new java.util.concurrent.CopyOnWriteArrayList<>();
+            Thread[] threads = new Thread[2];
+            String[][] orders = {{"A", "B"}, {"B", "A"}};
+            for (int i = 0; i < threads.length; i++) {
+                String[] order = orders[i];
+                threads[i] = new Thread(() -> {
+                    try {
+                        store.write(tx -> {
+                            lock(tx, order[0]);
+                            try {
+                                bothLocked.await(10, java.util.concurrent.TimeUnit.SECONDS);
+                            } catch (Exception e) {
+                                throw new IllegalStateException(e);
+                            }
+                            return lock(tx, order[1]);
+                        });
+                    } catch (RuntimeException e) {
+                        failures.add(e);
+                    }
+                });
+                threads[i].start();
+            }
+            for (Thread t : threads) {
+                t.join(30000);
+            }
+
+            if (failures.size() != 1) {
+                throw new AssertionError("Expected one transaction to fail with a deadlock but got " + failures);
+            }
+            if (!store.isTransient(failures.get(0))) {
+                throw new AssertionError("Deadlock not classified as transient", failures.get(0));
+            }
+        }
+    }
+
+    private static List<Map<String, Object>> lock(GraphStore.Tx tx, String name) {
+        return tx.run("MATCH (c:" + NodeLabel.CLASS + " {name:$name}) SET c.locked = true", Map.of("name", name));
+    }
+
+    private static List<String> names(EmbeddedNeo4j db, String query) {
+        List<String> names = new java.util.ArrayList<>();
+        for (Map<String, Object> row : db.getStore().query(query, java.util.Collections.emptyMap())) {
+            names.add((String) row.get("name"));
+        }
+        return names;
+    }
 }
@@ -8,6 +8,7 @@ import tech.softwareologists.core.db.NodeLabel;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 
 public class GraphExportTest {
     @Test
@@ -32,4 +33,21 @@ public class GraphExportTest {
             }
         }
     }
+
+    @Test
+    public void exportGraph_configProperty_exportedUnderItsKey() throws Exception {
+        try (EmbeddedNeo4j db = new EmbeddedNeo4j()) {
+            try (GraphBatchWriter writer = new GraphBatchWriter(db.getStore(), ImportOptions.defaults())) {
+                writer.write(new ClassFacts("cfg.Settings", "cfg", null, List.of("app.timeout"),
+                        null, null, null, null, null));
+            }
+
+            Path out = Files.createTempDirectory("export").resolve("graph.csv");
+            new QueryServiceImpl(db.getStore()).exportGraph("CSV", out.toString());
+            String content = Files.readString(out);
+            if (!content.contains("cfg.Settings,app.timeout,USES_CONFIG") || content.contains("null")) {
+                throw new AssertionError("Configuration property not exported under its key: " + content);
+            }
+        }
+    }
 }
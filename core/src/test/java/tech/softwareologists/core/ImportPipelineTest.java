@@ -0,0 +1,55 @@
+package tech.softwareologists.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class ImportPipelineTest {
+    @Test
+    public void run_parallelParsers_writesInSourceOrder() {
+        List<Integer> sources = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            sources.add(i);
+        }
+        List<String> written = new ArrayList<>();
+        ImportOptions options = ImportOptions.defaults().withParallelism(4).withQueueCapacity(1);
+
+        int count = ImportPipeline.run(sources,
+                i -> i % 10 == 0 ? null : new ClassFacts("c" + i, "", null, null, null, null, null, null, null),
+                facts -> written.add(facts.getName()), options);
+
+        if (count != 90) {
+            throw new AssertionError("Expected 90 written facts but got " + count);
+        }
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            if (i % 10 != 0) {
+                expected.add("c" + i);
+            }
+        }
+        if (!expected.equals(written)) {
+            throw new AssertionError("Facts written out of order: " + written);
+        }
+    }
+
+    @Test
+    public void run_parserFailure_propagatesToWriter() {
+        List<String> sources = Collections.singletonList("broken");
+        try {
+            ImportPipeline.run(sources, s -> {
+                throw new java.io.IOException("bad class file");
+            }, facts -> { }, ImportOptions.defaults());
+            throw new AssertionError("Expected failure");
+        } catch (IllegalStateException e) {
+            Throwable cause = e;
+            while (cause != null && !(cause instanceof java.io.IOException)) {
+                cause = cause.getCause();
+            }
+            if (cause == null) {
+                throw new AssertionError("Parser failure not propagated", e);
+            }
+        }
+    }
+}
@@ -22,6 +22,7 @@ import org.neo4j.driver.Driver;
 import org.neo4j.driver.Session;
 import org.neo4j.driver.Record;
 
+import tech.softwareologists.core.db.EdgeType;
 import tech.softwareologists.core.db.EmbeddedNeo4j;
 import tech.softwareologists.core.db.NodeLabel;
 
@@ -224,4 +225,210 @@ public class JarImporterTest {
             }
         }
     }
+
+    @Test
+    public void importJar_smallBatchSize_persistsAllFacts() throws Exception {
+        Path srcDir = Files.createTempDirectory("srcbatch");
+        Path pkgDir = srcDir.resolve("batch");
+        Files.createDirectories(pkgDir);
+
+        Path aFile = pkgDir.resolve("A.java");
+        Files.write(aFile, "package batch; public class A { public void a() {} }".getBytes(StandardCharsets.UTF_8));
+
+        Path bFile = pkgDir.resolve("B.java");
+        Files.write(bFile, "package batch; public class B { A a; public void b() { a.a(); } }".getBytes(StandardCharsets.UTF_8));
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("Java compiler not available");
+        }
+        int res = compiler.run(null, null, null, aFile.toString(), bFile.toString());
+        if (res != 0) {
+            throw new IllegalStateException("Compilation failed");
+        }
+
+        File jar = File.createTempFile("batch", ".jar");
+        try (JarOutputStream jos = new JarOutputStream(new FileOutputStream(jar))) {
+            for (String n : new String[]{"batch/A.class", "batch/B.class"}) {
+                jos.putNextEntry(new JarEntry(n));
+                Files.copy(pkgDir.resolve(n.substring(n.lastIndexOf('/') + 1)), jos);
+                jos.closeEntry();
+            }
+        }
+
+        try (EmbeddedNeo4j db = new EmbeddedNeo4j()) {
+            Driver driver = db.getDriver();
+            JarImporter.importJar(jar, driver, 1);
+
+            try (Session session = driver.session()) {
+                java.util.List<Record> pkg = session.run(
+                                "MATCH (p:" + NodeLabel.PACKAGE + " {name:'batch'})-[:CONTAINS]->(c:" + NodeLabel.CLASS + ") RETURN c")
+                        .list();
+                if (pkg.size() != 2) {
+                    throw new AssertionError("Expected two classes in package but found " + pkg.size());
+                }
+                java.util.List<Record> dep = session.run(
+                                "MATCH (s:" + NodeLabel.CLASS + " {name:'batch.B'})-[:DEPENDS_ON]->(t:" + NodeLabel.CLASS + " {name:'batch.A'}) RETURN t")
+                        .list();
+                if (dep.isEmpty()) {
+                    throw new AssertionError("Dependency edge not created");
+                }
+                java.util.List<Record> call = session.run(
+                                "MATCH (s:" + NodeLabel.METHOD + " {class:'batch.B', signature:'b()V'})-[:CALLS]->(t:" + NodeLabel.METHOD + " {class:'batch.A', signature:'a()V'}) RETURN t")
+                        .list();
+                if (call.isEmpty()) {
+                    throw new AssertionError("CALLS edge not created");
+                }
+            }
+        }
+    }
+
+    @Test
+    public void importJarIfChanged_sameJarTwice_skipsSecondImport() throws Exception {
+        Path srcDir = Files.createTempDirectory("srcprov");
+        Path pkgDir = srcDir.resolve("prov");
+        Files.createDirectories(pkgDir);
+
+        Path aFile = pkgDir.resolve("A.java");
+        Files.write(aFile, "package prov; public class A {}".getBytes(StandardCharsets.UTF_8));
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("Java compiler not available");
+        }
+        if (compiler.run(null, null, null, aFile.toString()) != 0) {
+            throw new IllegalStateException("Compilation failed");
+        }
+
+        File jar = File.createTempFile("prov", ".jar");
+        try (JarOutputStream jos = new JarOutputStream(new FileOutputStream(jar))) {
+            jos.putNextEntry(new JarEntry("prov/A.class"));
+            Files.copy(pkgDir.resolve("A.class"), jos);
+            jos.closeEntry();
+        }
+
+        try (EmbeddedNeo4j db = new EmbeddedNeo4j()) {
+            Driver driver = db.getDriver();
+            if (!JarImporter.importJarIfChanged(jar, driver, ImportOptions.defaults())) {
+                throw new AssertionError("First import skipped");
+            }
+            if (JarImporter.importJarIfChanged(jar, driver, ImportOptions.defaults())) {
+                throw new AssertionError("Unchanged JAR imported again");
+            }
+
+            ArtifactFingerprint stored = ArtifactFingerprint.load(driver, jar.getAbsolutePath());
+            if (stored == null || !stored.matches(ArtifactFingerprint.of(jar))) {
+                throw new AssertionError("Artifact provenance not recorded: " + stored);
+            }
+
+            long all;
+            try (Session session = driver.session()) {
+                all = session.run("MATCH (n) RETURN count(n) AS c").single().get("c").asLong();
+            }
+            String stats = new QueryServiceImpl(driver).getGraphStatistics(1);
+            if (!stats.startsWith("{\"nodes\":" + (all - 1) + ",")) {
+                throw new AssertionError("Artifact node counted in statistics: " + stats + " of " + all + " nodes");
+            }
+        }
+    }
+
+    @Test
+    public void importJar_newBuildOfSameJar_replacesStaleFacts() throws Exception {
+        File jar = File.createTempFile("repl", ".jar");
+        writeJar(jar, "repl",
+                "A", "package repl; public class A { public void m1() { new B().x(); } }",
+                "B", "package repl; public class B { public void x() {} }");
+
+        try (EmbeddedNeo4j db = new EmbeddedNeo4j()) {
+            Driver driver = db.getDriver();
+            JarImporter.importJar(jar, driver);
+
+            writeJar(jar, "repl", "A", "package repl; public class A { public void m2() {} }");
+            JarImporter.importJar(jar, driver);
+
+            try (Session session = driver.session()) {
+                if (!session.run("MATCH (m:" + NodeLabel.METHOD + " {class:'repl.A', signature:'m1()V'}) RETURN m").list().isEmpty()) {
+                    throw new AssertionError("Stale method m1 still present");
+                }
+                if (session.run("MATCH (m:" + NodeLabel.METHOD + " {class:'repl.A', signature:'m2()V'}) RETURN m").list().isEmpty()) {
+                    throw new AssertionError("New method m2 missing");
+                }
+                if (!session.run("MATCH (c:" + NodeLabel.CLASS + " {name:'repl.B'}) RETURN c").list().isEmpty()) {
+                    throw new AssertionError("Removed class B still present");
+                }
+            }
+
+            JarImporter.removeJar(jar, driver);
+            try (Session session = driver.session()) {
+                long left = session.run("MATCH (n) WHERE n:" + NodeLabel.METHOD + " OR n:" + NodeLabel.PACKAGE
+                        + " OR n:" + NodeLabel.ARTIFACT + " OR n.name = 'repl.A' RETURN count(n) AS c").single().get("c").asLong();
+                if (left != 0) {
+                    throw new AssertionError("Expected artifact to be removed but " + left + " nodes remain");
+                }
+            }
+        }
+    }
+
+    @Test
+    public void importJars_severalJars_tagsClassesWithTheirJar() throws Exception {
+        File first = File.createTempFile("multia", ".jar");
+        writeJar(first, "multia", "A", "package multia; public class A { public void a() {} }");
+        File second = File.createTempFile("multib", ".jar");
+        writeJar(second, "multib",
+                "B", "package multib; public class B { public void b() { new C().c(); } }",
+                "C", "package multib; public class C { public void c() {} }");
+        java.util.List<File> jars = java.util.Arrays.asList(first, second);
+
+        try (EmbeddedNeo4j db = new EmbeddedNeo4j()) {
+            Driver driver = db.getDriver();
+            int imported = JarImporter.importJars(jars, driver, ImportOptions.defaults().withParallelism(2));
+            if (imported != 2) {
+                throw new AssertionError("Expected 2 imported JARs but was " + imported);
+            }
+
+            try (Session session = driver.session()) {
+                String artifactA = session.run("MATCH (c:" + NodeLabel.CLASS + " {name:'multia.A'}) RETURN c.artifact AS a")
+                        .single().get("a").asString();
+                String artifactC = session.run("MATCH (c:" + NodeLabel.CLASS + " {name:'multib.C'}) RETURN c.artifact AS a")
+                        .single().get("a").asString();
+                if (!artifactA.equals(first.getAbsolutePath()) || !artifactC.equals(second.getAbsolutePath())) {
+                    throw new AssertionError("Unexpected artifacts " + artifactA + ", " + artifactC);
+                }
+                if (session.run("MATCH (:" + NodeLabel.METHOD + " {class:'multib.B'})-[:" + EdgeType.CALLS
+                        + "]->(:" + NodeLabel.METHOD + " {class:'multib.C'}) RETURN 1").list().isEmpty()) {
+                    throw new AssertionError("Call edge missing");
+                }
+            }
+
+            if (JarImporter.importJars(jars, driver, ImportOptions.defaults()) != 0) {
+                throw new AssertionError("Unchanged JARs imported again");
+            }
+        }
+    }
+
+    private static void writeJar(File jar, String pkg, String... classesAndSources) throws Exception {
+        Path srcDir = Files.createTempDirectory("src" + pkg);
+        Path pkgDir = srcDir.resolve(pkg);
+        Files.createDirectories(pkgDir);
+        java.util.List<String> files = new java.util.ArrayList<>();
+        for (int i = 0; i < classesAndSources.length; i += 2) {
+            Path file = pkgDir.resolve(classesAndSources[i] + ".java");
+            Files.write(file, classesAndSources[i + 1].getBytes(StandardCharsets.UTF_8));
+            files.add(file.toString());
+        }
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("Java compiler not available");
+        }
+        if (compiler.run(null, null, null, files.toArray(new String[0])) != 0) {
+            throw new IllegalStateException("Compilation failed");
+        }
+        try (JarOutputStream jos = new JarOutputStream(new FileOutputStream(jar))) {
+            for (int i = 0; i < classesAndSources.length; i += 2) {
+                jos.putNextEntry(new JarEntry(pkg + "/" + classesAndSources[i] + ".class"));
+                Files.copy(pkgDir.resolve(classesAndSources[i] + ".class"), jos);
+                jos.closeEntry();
+            }
+        }
+    }
 }
@@ -21,6 +21,9 @@ public class ManifestGeneratorTest {
         if (!manifest.contains("findPathBetweenClasses")) {
             throw new AssertionError("Manifest missing findPathBetweenClasses capability: " + manifest);
         }
+        if (!manifest.contains("\"nextPage\"")) {
+            throw new AssertionError("Manifest missing nextPage capability: " + manifest);
+        }
         if (!manifest.contains("findMethodsCallingMethod")) {
             throw new AssertionError("Manifest missing findMethodsCallingMethod capability: " + manifest);
         }
@@ -45,6 +48,9 @@ public class ManifestGeneratorTest {
         if (!manifest.contains("findConfigPropertyUsage")) {
             throw new AssertionError("Manifest missing findConfigPropertyUsage capability: " + manifest);
         }
+        if (!manifest.contains("searchSymbols")) {
+            throw new AssertionError("Manifest missing searchSymbols capability: " + manifest);
+        }
         if (!manifest.contains("getPackageHierarchy")) {
             throw new AssertionError("Manifest missing getPackageHierarchy capability: " + manifest);
         }
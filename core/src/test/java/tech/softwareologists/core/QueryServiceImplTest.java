@@ -4,10 +4,15 @@ import org.junit.Test;
 import org.neo4j.driver.Driver;
 import org.neo4j.driver.Session;
 import tech.softwareologists.core.db.EmbeddedNeo4j;
+import tech.softwareologists.core.db.GraphStore;
 import tech.softwareologists.core.db.NodeLabel;
 import tech.softwareologists.core.db.EdgeType;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
 
 public class QueryServiceImplTest {
     @Test
@@ -600,6 +605,14 @@ public class QueryServiceImplTest {
             if (methRes.getItems().size() != 1 || !methRes.getItems().get(0).equals("cfg.MyClass|set(I)V")) {
                 throw new AssertionError("Unexpected method usage: " + methRes.getItems());
             }
+            tech.softwareologists.core.QueryResult<String> prefixRes = svc.findConfigPropertyUsage("app.*", null, null, null);
+            if (prefixRes.getTotal() != 2 || !prefixRes.getItems().equals(java.util.List.of("cfg.MyClass", "cfg.MyClass|set(I)V"))) {
+                throw new AssertionError("Unexpected prefix usage: " + prefixRes.getItems());
+            }
+            tech.softwareologists.core.QueryResult<String> wildcardRes = svc.findConfigPropertyUsage("app.*out", null, null, null);
+            if (!wildcardRes.getItems().equals(java.util.List.of("cfg.MyClass|set(I)V"))) {
+                throw new AssertionError("Unexpected wildcard usage: " + wildcardRes.getItems());
+            }
         }
     }
 
@@ -671,6 +684,240 @@ public class QueryServiceImplTest {
         }
     }
 
+    /**
+     * Store answering every list query with the given sorted names, applying
+     * the paging and cursor parameters, and every count query with their
+     * number. Count queries are tallied in {@code counts[0]}.
+     */
+    private static StubStore listStore(java.util.List<String> names, int[] counts) {
+        return new StubStore((query, params) -> {
+            if (query.contains("count(")) {
+                counts[0]++;
+                return java.util.List.of(java.util.Map.of("total", names.size()));
+            }
+            java.util.List<String> rows = names;
+            if (params.containsKey("after")) {
+                String after = (String) params.get("after");
+                rows = new java.util.ArrayList<>();
+                for (String n : names) {
+                    if (n.compareTo(after) >= 0) {
+                        rows.add(n);
+                    }
+                }
+            }
+            int skip = params.containsKey("skip") ? ((Number) params.get("skip")).intValue()
+                    : params.containsKey("ties") ? ((Number) params.get("ties")).intValue() : 0;
+            int lim = params.containsKey("lim") ? ((Number) params.get("lim")).intValue() : rows.size();
+            java.util.List<java.util.Map<String, Object>> result = new java.util.ArrayList<>();
+            for (String n : rows.subList(Math.min(skip, rows.size()), Math.min(skip + lim, rows.size()))) {
+                result.add(java.util.Map.of("name", n));
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Read-only store answering every query with the given function. Streams
+     * and asynchronous queries use the function too unless their hook is set.
+     */
+    private static final class StubStore implements GraphStore {
+        private final BiFunction<String, Map<String, Object>, List<Map<String, Object>>> rows;
+        BiFunction<String, Map<String, Object>, Stream<Map<String, Object>>> stream;
+        BiFunction<String, Map<String, Object>, CompletionStage<List<Map<String, Object>>>> async;
+
+        StubStore(BiFunction<String, Map<String, Object>, List<Map<String, Object>>> rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public List<Map<String, Object>> query(String query, Map<String, Object> params) {
+            return rows.apply(query, params);
+        }
+
+        @Override
+        public Stream<Map<String, Object>> stream(String query, Map<String, Object> params) {
+            return stream == null ? GraphStore.super.stream(query, params) : stream.apply(query, params);
+        }
+
+        @Override
+        public CompletionStage<List<Map<String, Object>>> queryAsync(String query, Map<String, Object> params) {
+            return async == null ? GraphStore.super.queryAsync(query, params) : async.apply(query, params);
+        }
+
+        @Override
+        public <T> T write(Work<T> work) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean isTransient(RuntimeException e) {
+            return false;
+        }
+    }
+
+    @Test
+    public void runPagedQuery_countsOnlyWhenTotalUnknown() {
+        int[] counts = new int[1];
+        StubStore store = listStore(java.util.List.of("A", "B", "C", "D", "E"), counts);
+
+        QueryService counted = new QueryServiceImpl(store);
+        QueryResult<String> last = counted.findCallers("T", null, 3, 2);
+        QueryResult<String> all = counted.findCallers("T", null, null, null);
+        if (counts[0] != 0 || last.getTotal() != 5 || last.hasMore() || all.getTotal() != 5 || all.hasMore()) {
+            throw new AssertionError("Total not derived from the page: counts=" + counts[0]);
+        }
+        QueryResult<String> middle = counted.findCallers("T", null, 2, 2);
+        if (counts[0] != 1 || middle.getTotal() != 5 || !middle.hasMore() || !middle.getItems().equals(java.util.List.of("C", "D"))) {
+            throw new AssertionError("Unexpected middle page " + middle.getItems() + " total=" + middle.getTotal());
+        }
+        if (counted.findCallers("T", 4, 2, 2).hasMore()) {
+            throw new AssertionError("Results beyond the limit reported as more");
+        }
+
+        counts[0] = 0;
+        QueryResult<String> uncounted = new QueryServiceImpl(store, false).findCallers("T", null, 1, 2);
+        if (counts[0] != 0 || uncounted.getTotal() != QueryResult.UNKNOWN_TOTAL || !uncounted.hasMore()
+                || !uncounted.getItems().equals(java.util.List.of("A", "B"))) {
+            throw new AssertionError("Count-free page incorrect: " + uncounted.getItems() + " total=" + uncounted.getTotal());
+        }
+    }
+
+    @Test
+    public void nextPage_continuesAfterLastKeyIncludingDuplicates() {
+        int[] counts = new int[1];
+        long[] generation = new long[1];
+        QueryService svc = new QueryServiceImpl(listStore(java.util.List.of("A", "B", "B", "B", "C"), counts), true,
+                () -> generation[0]);
+
+        QueryResult<String> first = svc.findCallers("T", 4, 1, 2);
+        QueryResult<String> second = svc.nextPage(first.getNextCursor());
+        if (!first.getItems().equals(java.util.List.of("A", "B")) || !second.getItems().equals(java.util.List.of("B", "B"))
+                || second.getPage() != 2 || second.getTotal() != 5 || counts[0] != 1) {
+            throw new AssertionError("Unexpected second page " + second.getItems() + " total=" + second.getTotal()
+                    + " counts=" + counts[0]);
+        }
+        if (second.hasMore() || second.getNextCursor() != null) {
+            throw new AssertionError("Limit of the first call not kept");
+        }
+
+        generation[0]++;
+        QueryResult<String> unlimited = svc.findCallers("T", null, 1, 3);
+        QueryResult<String> rest = svc.nextPage(unlimited.getNextCursor());
+        if (!unlimited.getItems().equals(java.util.List.of("A", "B", "B"))
+                || !rest.getItems().equals(java.util.List.of("B", "C")) || rest.getNextCursor() != null) {
+            throw new AssertionError("Unexpected continuation " + rest.getItems());
+        }
+    }
+
+    @Test
+    public void runPagedQuery_generationChanged_readsPageAgain() {
+        int[] counts = new int[1];
+        long[] reads = new long[1];
+        QueryService settling = new QueryServiceImpl(listStore(java.util.List.of("A", "B", "C", "D", "E"), counts), true,
+                () -> reads[0] < 3 ? ++reads[0] : reads[0]);
+        QueryResult<String> page = settling.findCallers("T", null, 2, 2);
+        if (counts[0] != 2 || page.getTotal() != 5 || !page.getItems().equals(java.util.List.of("C", "D"))) {
+            throw new AssertionError("Page not read again after the graph changed: counts=" + counts[0]);
+        }
+
+        counts[0] = 0;
+        long[] changing = new long[1];
+        QueryService busy = new QueryServiceImpl(listStore(java.util.List.of("A", "B", "C", "D", "E"), counts), true,
+                () -> ++changing[0]);
+        busy.nextPage(busy.findCallers("T", null, 1, 2).getNextCursor());
+        if (counts[0] != 6) {
+            throw new AssertionError("Expected three attempts per page but counted " + counts[0]);
+        }
+    }
+
+    @Test
+    public void nextPage_cursorWithWrongArguments_invalidCursor() {
+        QueryService svc = new QueryServiceImpl(listStore(java.util.List.of("A", "B", "C"), new int[1]));
+        for (java.util.List<Object> args : java.util.List.<java.util.List<Object>>of(java.util.List.of("T"),
+                java.util.List.of("T", "deep"), java.util.List.of("T", 1, 2))) {
+            String token = PageCursor.next(PagedQuery.FIND_SUBCLASSES, args, java.util.List.of("A"), null, 0, 1,
+                    null, 2, 3).encode();
+            try {
+                svc.nextPage(token);
+                throw new AssertionError("Cursor accepted with arguments " + args);
+            } catch (IllegalArgumentException e) {
+                if (!e.getMessage().startsWith("Invalid cursor")) {
+                    throw new AssertionError("Unexpected message " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void stream_runsUnsortedLimitedQueryAndClosesStore() {
+        StubStore store = listStore(java.util.List.of("A", "B", "C"), new int[1]);
+        java.util.List<String> queries = new java.util.ArrayList<>();
+        boolean[] closed = new boolean[1];
+        store.stream = (query, params) -> {
+            queries.add(query);
+            return store.query(query, params).stream().onClose(() -> closed[0] = true);
+        };
+
+        java.util.List<String> items;
+        try (java.util.stream.Stream<String> s = new QueryServiceImpl(store).stream(PagedQuery.FIND_DEPENDENCIES,
+                java.util.Arrays.asList("T", null), 2)) {
+            items = s.collect(java.util.stream.Collectors.toList());
+        }
+        if (!items.equals(java.util.List.of("A", "B")) || !closed[0] || queries.size() != 1
+                || queries.get(0).contains("ORDER BY") || !queries.get(0).endsWith("LIMIT $lim")) {
+            throw new AssertionError("Unexpected stream " + items + " closed=" + closed[0] + " queries=" + queries);
+        }
+    }
+
+    @Test
+    public void stream_argumentsNotMatchingQuery_rejected() {
+        QueryService svc = new QueryServiceImpl(listStore(java.util.List.of("A"), new int[1]));
+        for (java.util.List<Object> args : java.util.List.<java.util.List<Object>>of(java.util.List.of("T"),
+                java.util.List.of("T", "2"), java.util.Arrays.asList("T", null))) {
+            try {
+                svc.stream(PagedQuery.FIND_SUBCLASSES, args, null).close();
+                throw new AssertionError("Arguments accepted: " + args);
+            } catch (IllegalArgumentException expected) {
+                // rejected before the query runs
+            }
+        }
+    }
+
+    @Test
+    public void findCallersAsync_completesWhenStoreAnswers() {
+        java.util.List<java.util.concurrent.CompletableFuture<java.util.List<java.util.Map<String, Object>>>> pending =
+                new java.util.ArrayList<>();
+        StubStore store = new StubStore((query, params) -> {
+            throw new AssertionError("Blocking query " + query);
+        });
+        store.async = (query, params) -> {
+            java.util.concurrent.CompletableFuture<java.util.List<java.util.Map<String, Object>>> f =
+                    new java.util.concurrent.CompletableFuture<>();
+            pending.add(f);
+            return f;
+        };
+
+        java.util.concurrent.CompletableFuture<QueryResult<String>> result =
+                new QueryServiceImpl(store).findCallersAsync("T", null, 1, 2).toCompletableFuture();
+        if (result.isDone() || pending.size() != 1) {
+            throw new AssertionError("Query did not wait for the store");
+        }
+        pending.get(0).complete(java.util.List.of(java.util.Map.of("name", "A"), java.util.Map.of("name", "B"),
+                java.util.Map.of("name", "C")));
+        if (result.isDone() || pending.size() != 2) {
+            throw new AssertionError("Count query not chained after the page");
+        }
+        pending.get(1).complete(java.util.List.of(java.util.Map.of("total", 5L)));
+        QueryResult<String> page = result.join();
+        if (!page.getItems().equals(java.util.List.of("A", "B")) || page.getTotal() != 5 || !page.hasMore()) {
+            throw new AssertionError("Unexpected page " + page.getItems() + " total=" + page.getTotal());
+        }
+
+        if (!new QueryServiceImpl(store).nextPageAsync("not a cursor").toCompletableFuture().isCompletedExceptionally()) {
+            throw new AssertionError("Invalid cursor should fail the stage");
+        }
+    }
+
     @Test
     public void findBeansWithAnnotation_paging_ordersAndCounts() {
         try (EmbeddedNeo4j db = new EmbeddedNeo4j()) {
@@ -680,7 +927,9 @@ public class QueryServiceImplTest {
                     java.util.Map<String,Object> m = new java.util.HashMap<>();
                     m.put("name", n);
                     m.put("annotations", java.util.List.of("Ann"));
-                    session.run("CREATE (:" + NodeLabel.CLASS + " {name:$name, annotations:$annotations})", m);
+                    session.run("MERGE (a:" + NodeLabel.ANNOTATION + " {name:'Ann'}) " +
+                            "CREATE (:" + NodeLabel.CLASS + " {name:$name, annotations:$annotations})-[:" +
+                            EdgeType.ANNOTATED_WITH + "]->(a)", m);
                 }
             }
             QueryService svc = new QueryServiceImpl(driver);
@@ -690,4 +939,72 @@ public class QueryServiceImplTest {
             }
         }
     }
+
+    @Test
+    public void searchByAnnotation_replacedClass_dropsAnnotationLinks() {
+        try (EmbeddedNeo4j db = new EmbeddedNeo4j()) {
+            ClassFacts.MethodFacts method = new ClassFacts.MethodFacts("run()V", java.util.List.of("ann.Timed"),
+                    null, null, null, null, null, null);
+            try (GraphBatchWriter writer = new GraphBatchWriter(db.getStore(), ImportOptions.defaults())) {
+                writer.write(new ClassFacts("ann.Service", "ann", java.util.List.of("ann.Bean"), null,
+                        java.util.List.of(method), null, null, null, null));
+            }
+            QueryService service = new QueryServiceImpl(db.getStore());
+            if (!service.findBeansWithAnnotation("ann.Bean", null, null, null).getItems().equals(java.util.List.of("ann.Service"))
+                    || !service.searchByAnnotation("ann.Timed", "method", null, null, null).getItems().equals(java.util.List.of("run()V"))) {
+                throw new AssertionError("Annotated class or method not found");
+            }
+
+            try (GraphBatchWriter writer = new GraphBatchWriter(db.getStore(), ImportOptions.defaults())) {
+                writer.replaceClass(new ClassFacts("ann.Service", "ann", null, null,
+                        java.util.List.of(new ClassFacts.MethodFacts("run()V", null, null, null, null, null, null, null)),
+                        null, null, null, null));
+            }
+            if (service.findBeansWithAnnotation("ann.Bean", null, null, null).getTotal() != 0
+                    || service.searchByAnnotation("ann.Timed", "method", null, null, null).getTotal() != 0) {
+                throw new AssertionError("Stale annotation links after replacing the class");
+            }
+            List<java.util.Map<String, Object>> left = db.getStore().query(
+                    "MATCH (a:" + NodeLabel.ANNOTATION + ") RETURN a.name AS name", java.util.Collections.emptyMap());
+            if (!left.isEmpty()) {
+                throw new AssertionError("Unused annotation nodes left: " + left);
+            }
+        }
+    }
+
+    @Test
+    public void searchSymbols_ranksExactThenCamelCaseThenFuzzy() {
+        try (EmbeddedNeo4j db = new EmbeddedNeo4j()) {
+            ClassFacts.MethodFacts method = new ClassFacts.MethodFacts("queryService()V", null,
+                    null, null, null, null, null, null);
+            try (GraphBatchWriter writer = new GraphBatchWriter(db.getStore(), ImportOptions.defaults())) {
+                writer.write(new ClassFacts("x.QueryServiceImpl", "x", null, null,
+                        java.util.List.of(method), null, null, null, null));
+                writer.write(new ClassFacts("x.QuerySupport", "x", null, null, null, null, null, null, null));
+                writer.write(new ClassFacts("y.QuerySupport", "y", null, null, null, null, null, null, null));
+            }
+            QueryService service = new QueryServiceImpl(db.getStore());
+
+            List<String> exact = service.searchSymbols("QuerySupport", "class", null).getItems();
+            if (!exact.equals(java.util.List.of("x.QuerySupport", "y.QuerySupport"))) {
+                throw new AssertionError("Unexpected exact matches: " + exact);
+            }
+            List<String> camel = service.searchSymbols("QSI", null, null).getItems();
+            if (camel.isEmpty() || !camel.get(0).equals("x.QueryServiceImpl")) {
+                throw new AssertionError("CamelCase abbreviation not matched first: " + camel);
+            }
+            List<String> ranked = service.searchSymbols("QS", "class", 2).getItems();
+            if (!ranked.equals(java.util.List.of("x.QuerySupport", "y.QuerySupport"))) {
+                throw new AssertionError("Shorter CamelCase matches should come first: " + ranked);
+            }
+            List<String> methods = service.searchSymbols("qS", "method", null).getItems();
+            if (!methods.equals(java.util.List.of("x.QueryServiceImpl|queryService()V"))) {
+                throw new AssertionError("Unexpected method matches: " + methods);
+            }
+            List<String> fuzzy = service.searchSymbols("QuerySuport", "class", null).getItems();
+            if (!fuzzy.contains("x.QuerySupport")) {
+                throw new AssertionError("Misspelled name not matched: " + fuzzy);
+            }
+        }
+    }
 }
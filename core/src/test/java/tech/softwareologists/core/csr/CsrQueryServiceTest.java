@@ -0,0 +1,152 @@
+package tech.softwareologists.core.csr;
+
+import org.junit.Test;
+import tech.softwareologists.core.ClassFacts;
+import tech.softwareologists.core.GraphBatchWriter;
+import tech.softwareologists.core.ImportOptions;
+import tech.softwareologists.core.QueryResult;
+import tech.softwareologists.core.QueryService;
+import tech.softwareologists.core.QueryServiceImpl;
+import tech.softwareologists.core.db.EmbeddedNeo4j;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+/** Tests for {@link CsrGraph} and {@link CsrQueryService}. */
+public class CsrQueryServiceTest {
+    static List<ClassFacts> facts() {
+        ClassFacts.MethodFacts list = new ClassFacts.MethodFacts("list()V",
+                List.of("org.springframework.web.bind.annotation.GetMapping"), "/api/items", "GET", null, null,
+                List.of("app.page.size"), List.of("b.Service|find()V"));
+        ClassFacts controller = new ClassFacts("a.Controller", "a",
+                List.of("org.springframework.web.bind.annotation.RestController"), List.of("app.name"),
+                List.of(list), List.of("b.Service", "c.Util"), List.of("b.Service"), null, null);
+
+        ClassFacts.MethodFacts find = new ClassFacts.MethodFacts("find()V", null, null, null, null, null, null,
+                List.of("c.Util|helper()V", "b.Base|init()V"));
+        ClassFacts.MethodFacts tick = new ClassFacts.MethodFacts("tick()V", null, null, null, null, "0 * * * * *",
+                null, List.of("b.Service|find()V"));
+        ClassFacts.MethodFacts on = new ClassFacts.MethodFacts("on(Lb/Event;)V", null, null, null, "b.Event", null,
+                List.of("app.timeout"), null);
+        ClassFacts service = new ClassFacts("b.Service", "b", List.of("org.springframework.stereotype.Service"),
+                null, List.of(find, tick, on), List.of("c.Util", "b.Base"), null, List.of("b.Api"), "b.Base");
+
+        ClassFacts impl = new ClassFacts("b.sub.Impl", "b.sub", null, null,
+                List.of(new ClassFacts.MethodFacts("find()V", null, null, null, null, null, null,
+                        List.of("b.Service|find()V"))),
+                List.of("b.Service"), null, List.of("b.Api"), "b.Service");
+        ClassFacts util = new ClassFacts("c.Util", "c", null, null,
+                List.of(new ClassFacts.MethodFacts("helper()V", null, null, null, null, null, null, null)),
+                List.of("c.Leaf"), null, null, null);
+        return List.of(controller, service, impl, util);
+    }
+
+    @Test
+    public void queries_matchDatabaseImplementation() {
+        CsrQueryService csr = new CsrQueryService(new CsrGraph.Builder().addAll(facts()).build());
+        try (EmbeddedNeo4j db = new EmbeddedNeo4j()) {
+            try (GraphBatchWriter writer = new GraphBatchWriter(db.getStore(), ImportOptions.defaults())) {
+                facts().forEach(writer::write);
+            }
+            QueryService neo = new QueryServiceImpl(db.getStore());
+
+            List<Function<QueryService, QueryResult<String>>> queries = Arrays.asList(
+                    s -> s.findCallers("b.Service", null, null, null),
+                    s -> s.findCallers("c.Util", 1, 2, 1),
+                    s -> s.findImplementations("b.Api", null, null, null),
+                    s -> s.findSubclasses("b.Base", 1, null, null, null),
+                    s -> s.findSubclasses("b.Base", 5, null, null, null),
+                    s -> s.findDependencies("a.Controller", null, null, null, null),
+                    s -> s.findDependencies("a.Controller", 1, null, 1, 2),
+                    s -> s.findPathBetweenClasses("a.Controller", "c.Leaf", null),
+                    s -> s.findPathBetweenClasses("a.Controller", "c.Leaf", 1),
+                    s -> s.findMethodsCallingMethod("b.Service", "find()V", null, null, null),
+                    s -> s.findBeansWithAnnotation("org.springframework.stereotype.Service", null, null, null),
+                    s -> s.searchByAnnotation("org.springframework.web.bind.annotation.GetMapping", "method", null, null, null),
+                    s -> s.findHttpEndpoints("/api", "GET", null, null, null),
+                    s -> s.findControllersUsingService("b.Service", null, null, null),
+                    s -> s.findEventListeners("b.Event", null, null, null),
+                    s -> s.findScheduledTasks(null, null, null),
+                    s -> s.findConfigPropertyUsage("app.name", null, null, null),
+                    s -> s.findConfigPropertyUsage("app.*", null, null, null),
+                    s -> s.findConfigPropertyUsage("app.*size", null, null, null),
+                    s -> s.findCallers("missing.Type", null, null, null));
+            for (int i = 0; i < queries.size(); i++) {
+                QueryResult<String> expected = queries.get(i).apply(neo);
+                QueryResult<String> actual = queries.get(i).apply(csr);
+                if (!expected.getItems().equals(actual.getItems()) || expected.getTotal() != actual.getTotal()
+                        || expected.getPageSize() != actual.getPageSize()) {
+                    throw new AssertionError("Query " + i + " differs: expected " + expected.getItems() + " ("
+                            + expected.getTotal() + ") but was " + actual.getItems() + " (" + actual.getTotal() + ")");
+                }
+            }
+            for (String root : new String[]{"", "b"}) {
+                if (!neo.getPackageHierarchy(root, null).equals(csr.getPackageHierarchy(root, null))) {
+                    throw new AssertionError("Package hierarchy differs: " + csr.getPackageHierarchy(root, null));
+                }
+            }
+            if (!neo.getGraphStatistics(3).equals(csr.getGraphStatistics(3))) {
+                throw new AssertionError("Statistics differ: expected " + neo.getGraphStatistics(3)
+                        + " but was " + csr.getGraphStatistics(3));
+            }
+        }
+    }
+
+    @Test
+    public void builder_classAddedAgain_replacesEarlierFacts() {
+        CsrGraph.Builder builder = new CsrGraph.Builder().addAll(facts());
+        builder.accept(new ClassFacts("a.Controller", "a", null, null, null, List.of("c.Util"), null, null, null));
+        QueryService service = new CsrQueryService(builder.build());
+
+        if (!service.findCallers("b.Service", null, null, null).getItems().equals(List.of("b.sub.Impl"))) {
+            throw new AssertionError("Stale dependency of the replaced class");
+        }
+        if (service.findHttpEndpoints("/api", "GET", null, null, null).getTotal() != 0) {
+            throw new AssertionError("Stale endpoint of the replaced class");
+        }
+        if (!service.findPathBetweenClasses("a.Controller", "c.Leaf", null).getItems()
+                .equals(List.of("a.Controller", "c.Util", "c.Leaf"))) {
+            throw new AssertionError("Unexpected path");
+        }
+    }
+
+    @Test
+    public void searchSymbols_ranksExactThenCamelCase() {
+        QueryService service = new CsrQueryService(new CsrGraph.Builder().addAll(facts()).build());
+
+        List<String> exact = service.searchSymbols("Service", null, null).getItems();
+        if (!exact.get(0).equals("b.Service")) {
+            throw new AssertionError("Exact match not first: " + exact);
+        }
+        List<String> methods = service.searchSymbols("find", "method", null).getItems();
+        if (!methods.equals(List.of("b.Service|find()V", "b.sub.Impl|find()V"))) {
+            throw new AssertionError("Unexpected method matches: " + methods);
+        }
+        List<String> camel = service.searchSymbols("C", "class", 1).getItems();
+        if (!camel.equals(List.of("a.Controller"))) {
+            throw new AssertionError("Unexpected CamelCase matches: " + camel);
+        }
+    }
+
+    @Test
+    public void nextPage_walksAllResultsAcrossGenerations() {
+        GenerationalQueryService service = new GenerationalQueryService();
+        service.put("app.jar", facts());
+        service.commit();
+
+        QueryResult<String> page = service.findCallers("b.Service", null, 1, 1);
+        List<String> seen = new java.util.ArrayList<>(page.getItems());
+        // A caller sorting before the cursor is added between pages
+        service.put("extra.jar", List.of(new ClassFacts("a.Aaa", "a", null, null, null, List.of("b.Service"),
+                null, null, null)));
+        service.commit();
+        while (page.getNextCursor() != null) {
+            page = service.nextPage(page.getNextCursor());
+            seen.addAll(page.getItems());
+        }
+        if (!seen.equals(List.of("a.Controller", "b.sub.Impl")) || page.getPage() != 2 || page.getTotal() != 3) {
+            throw new AssertionError("Unexpected pages " + seen + " total=" + page.getTotal());
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package tech.softwareologists.core.csr;
+
+import org.junit.Test;
+import tech.softwareologists.core.QueryService;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+/** Tests for {@link CsrSnapshot}. */
+public class CsrSnapshotTest {
+    @Test
+    public void readWrittenSnapshot_answersQueriesLikeOriginal() throws Exception {
+        CsrGraph graph = new CsrGraph.Builder().addAll(CsrQueryServiceTest.facts()).build();
+        Path file = Files.createTempDirectory("snapshot").resolve("graph.csr");
+        CsrSnapshot.write(graph, "stamp-1", file);
+
+        if (!"stamp-1".equals(CsrSnapshot.stamp(file))) {
+            throw new AssertionError("Unexpected stamp " + CsrSnapshot.stamp(file));
+        }
+        CsrGraph read = CsrSnapshot.read(file);
+        if (read.nodeCount() != graph.nodeCount() || read.edgeCount() != graph.edgeCount()) {
+            throw new AssertionError("Expected " + graph.nodeCount() + "/" + graph.edgeCount() + " but was "
+                    + read.nodeCount() + "/" + read.edgeCount());
+        }
+
+        QueryService expected = new CsrQueryService(graph);
+        QueryService actual = new CsrQueryService(read);
+        List<Function<QueryService, Object>> queries = Arrays.asList(
+                s -> s.findCallers("b.Service", null, null, null).getItems(),
+                s -> s.findSubclasses("b.Base", 5, null, null, null).getItems(),
+                s -> s.findMethodsCallingMethod("b.Service", "find()V", null, null, null).getItems(),
+                s -> s.findHttpEndpoints("/api", "GET", null, null, null).getItems(),
+                s -> s.findEventListeners("b.Event", null, null, null).getItems(),
+                s -> s.findScheduledTasks(null, null, null).getItems(),
+                s -> s.findConfigPropertyUsage("app.*", null, null, null).getItems(),
+                s -> s.searchSymbols("find", null, null).getItems(),
+                s -> s.getPackageHierarchy("", null),
+                s -> s.getGraphStatistics(3));
+        for (int i = 0; i < queries.size(); i++) {
+            Object want = queries.get(i).apply(expected);
+            Object got = queries.get(i).apply(actual);
+            if (!want.equals(got)) {
+                throw new AssertionError("Query " + i + " differs: expected " + want + " but was " + got);
+            }
+        }
+    }
+
+    @Test
+    public void stamp_missingOrForeignFile_isNull() throws Exception {
+        Path dir = Files.createTempDirectory("snapshot");
+        if (CsrSnapshot.stamp(dir.resolve("missing.csr")) != null) {
+            throw new AssertionError("Missing snapshot should have no stamp");
+        }
+        Path foreign = Files.write(dir.resolve("foreign.csr"), new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+        if (CsrSnapshot.stamp(foreign) != null) {
+            throw new AssertionError("Foreign file should have no stamp");
+        }
+    }
+}
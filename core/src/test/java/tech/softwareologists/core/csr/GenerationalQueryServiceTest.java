@@ -0,0 +1,93 @@
+package tech.softwareologists.core.csr;
+
+import org.junit.Test;
+import tech.softwareologists.core.ClassFacts;
+import tech.softwareologists.core.QueryService;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/** Tests for {@link GenerationalQueryService}. */
+public class GenerationalQueryServiceTest {
+    @Test
+    public void stagedFacts_visibleOnlyAfterCommit() {
+        GenerationalQueryService service = new GenerationalQueryService();
+        service.put("app.jar", CsrQueryServiceTest.facts());
+        if (service.generation() != 0 || service.findCallers("b.Service", null, null, null).getTotal() != 0) {
+            throw new AssertionError("Staged facts must not be visible before commit");
+        }
+        if (service.commit() != 1
+                || !service.findCallers("b.Service", null, null, null).getItems().equals(List.of("a.Controller", "b.sub.Impl"))) {
+            throw new AssertionError("Committed facts not visible: " + service.findCallers("b.Service", null, null, null).getItems());
+        }
+    }
+
+    @Test
+    public void removedSource_oldGenerationStillAnswersQueries() {
+        GenerationalQueryService service = new GenerationalQueryService();
+        service.put("app.jar", CsrQueryServiceTest.facts());
+        service.put("extra.jar", List.of(new ClassFacts("d.Client", "d", null, null, null,
+                List.of("b.Service"), null, null, null)));
+        service.commit();
+        QueryService before = new CsrQueryService(service.current().getGraph());
+
+        service.remove("extra.jar");
+        service.commit();
+        if (!service.findCallers("b.Service", null, null, null).getItems().equals(List.of("a.Controller", "b.sub.Impl"))) {
+            throw new AssertionError("Removed source still visible: " + service.findCallers("b.Service", null, null, null).getItems());
+        }
+        if (!before.findCallers("b.Service", null, null, null).getItems()
+                .equals(List.of("a.Controller", "b.sub.Impl", "d.Client"))) {
+            throw new AssertionError("Previous generation changed: " + before.findCallers("b.Service", null, null, null).getItems());
+        }
+    }
+
+    @Test
+    public void laterCommit_rebuildsUnchangedSourcesFromGraph() throws Exception {
+        ClassFacts client = new ClassFacts("d.Client", "d", null, null, null, List.of("b.Service"), null, null, null);
+        GenerationalQueryService service = new GenerationalQueryService();
+        service.put("app.jar", CsrQueryServiceTest.facts());
+        service.commit();
+        service.put("extra.jar", List.of(client));
+        service.commit();
+
+        List<ClassFacts> all = new java.util.ArrayList<>(CsrQueryServiceTest.facts());
+        all.add(client);
+        Path dir = Files.createTempDirectory("generations");
+        CsrSnapshot.write(new CsrGraph.Builder().addAll(all).build(), "", dir.resolve("expected.csr"));
+        CsrSnapshot.write(service.current().getGraph(), "", dir.resolve("actual.csr"));
+        if (!Arrays.equals(Files.readAllBytes(dir.resolve("expected.csr")), Files.readAllBytes(dir.resolve("actual.csr")))) {
+            throw new AssertionError("Graph rebuilt from the previous generation differs from a fresh build");
+        }
+    }
+
+    @Test
+    public void sharedClass_keptUntilLastSourceRemoved() {
+        GenerationalQueryService service = new GenerationalQueryService();
+        service.put("app.jar", List.of(new ClassFacts("d.Shared", "d", null, null, null,
+                List.of("b.Service"), null, null, null)));
+        service.commit();
+        service.put("copy.jar", List.of(new ClassFacts("d.Shared", "d", null, null, null,
+                List.of("c.Util"), null, null, null)));
+        service.commit();
+        if (!service.findDependencies("d.Shared", null, null, null, null).getItems().equals(List.of("c.Util"))) {
+            throw new AssertionError("Source put last should provide the class: "
+                    + service.findDependencies("d.Shared", null, null, null, null).getItems());
+        }
+
+        service.remove("copy.jar");
+        service.commit();
+        if (!service.findDependencies("d.Shared", null, null, null, null).getItems().equals(List.of("b.Service"))) {
+            throw new AssertionError("Class of the remaining source lost: "
+                    + service.findDependencies("d.Shared", null, null, null, null).getItems());
+        }
+
+        service.remove("app.jar");
+        service.commit();
+        if (!service.findDependencies("d.Shared", null, null, null, null).getItems().isEmpty()) {
+            throw new AssertionError("Class still present after its last source was removed");
+        }
+    }
+}
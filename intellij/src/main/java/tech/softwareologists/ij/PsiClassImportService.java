@@ -9,26 +9,38 @@ import com.intellij.psi.search.FilenameIndex;
 import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.openapi.vfs.VirtualFile;
 import org.neo4j.driver.Driver;
-import org.neo4j.driver.Session;
-import org.neo4j.driver.Values;
+import tech.softwareologists.core.SymbolNames;
+import tech.softwareologists.core.db.GraphStore;
 import tech.softwareologists.core.db.NodeLabel;
 import tech.softwareologists.core.db.EdgeType;
 
 import java.util.Collection;
+import java.util.Map;
 
 /**
  * Scans a project for {@link PsiClass} instances and persists them
  * to Neo4j via the core APIs.
+ *
+ * <p>Imported classes are tagged with {@link #ARTIFACT} in the
+ * {@code artifact} property, so a later scan can tell them apart from the
+ * dependency targets they point to and prune the ones that are gone.</p>
  */
 public class PsiClassImportService {
-    private final Driver driver;
+    /** Provenance stored on classes imported from the project sources. */
+    public static final String ARTIFACT = "project";
+
+    private final GraphStore store;
     private final java.util.Set<String> filters;
 
-    public PsiClassImportService(Driver driver, String filterString) {
-        this.driver = driver;
+    public PsiClassImportService(GraphStore store, String filterString) {
+        this.store = store;
         this.filters = parseFilters(filterString);
     }
 
+    public PsiClassImportService(Driver driver, String filterString) {
+        this(GraphStore.of(driver), filterString);
+    }
+
     private static java.util.Set<String> parseFilters(String filterString) {
         java.util.Set<String> set = new java.util.HashSet<>();
         if (filterString != null && !filterString.isBlank()) {
@@ -51,7 +63,9 @@ public class PsiClassImportService {
     }
 
     /**
-     * Scan the given project and persist discovered classes.
+     * Scan the given project and persist discovered classes. Classes imported
+     * by an earlier scan that are no longer in the project are deleted,
+     * together with dependency targets left without any relationship.
      *
      * @param project project to scan
      * @return number of classes imported
@@ -61,22 +75,32 @@ public class PsiClassImportService {
         Collection<VirtualFile> files = FilenameIndex.getAllFilesByExt(project, "java",
                 GlobalSearchScope.projectScope(project));
         int count = 0;
-        try (Session session = driver.session()) {
-            for (VirtualFile vf : files) {
-                PsiFile file = psiManager.findFile(vf);
-                if (file instanceof PsiJavaFile) {
-                    PsiClass[] classes = ((PsiJavaFile) file).getClasses();
-                    for (PsiClass cls : classes) {
-                        String qname = cls.getQualifiedName();
-                        if (qname != null && allowed(qname)) {
-                            session.run("MERGE (c:" + NodeLabel.CLASS + " {name:$name})",
-                                    Values.parameters("name", qname));
-                            count++;
-                        }
+        java.util.List<Map<String, Object>> rows = new java.util.ArrayList<>();
+        java.util.List<String> names = new java.util.ArrayList<>();
+        for (VirtualFile vf : files) {
+            PsiFile file = psiManager.findFile(vf);
+            if (file instanceof PsiJavaFile) {
+                PsiClass[] classes = ((PsiJavaFile) file).getClasses();
+                for (PsiClass cls : classes) {
+                    String qname = cls.getQualifiedName();
+                    if (qname != null && allowed(qname)) {
+                        Map<String, Object> row = SymbolNames.classProperties(qname);
+                        row.put("name", qname);
+                        rows.add(row);
+                        names.add(qname);
+                        count++;
                     }
                 }
             }
         }
+        store.write(tx -> {
+            tx.run("MATCH (c:" + NodeLabel.CLASS + ") WHERE c.artifact = $artifact AND NOT c.name IN $names " +
+                    "DETACH DELETE c", Map.of("artifact", ARTIFACT, "names", names));
+            tx.run("MATCH (c:" + NodeLabel.CLASS + ") WHERE c.artifact IS NULL AND NOT (c)--() DELETE c", Map.of());
+            tx.run("UNWIND $rows AS row MERGE (c:" + NodeLabel.CLASS + " {name:row.name}) " +
+                    "SET c += row, c.artifact = $artifact", Map.of("rows", rows, "artifact", ARTIFACT));
+            return null;
+        });
         return count;
     }
 
@@ -90,31 +114,31 @@ public class PsiClassImportService {
         if (qname == null || !allowed(qname)) {
             return;
         }
-        try (Session session = driver.session()) {
-            session.run("MERGE (c:" + NodeLabel.CLASS + " {name:$name})",
-                    Values.parameters("name", qname));
+        store.write(tx -> {
+            tx.run("MERGE (c:" + NodeLabel.CLASS + " {name:$name}) SET c += $props, c.artifact = $artifact",
+                    Map.of("name", qname, "props", SymbolNames.classProperties(qname), "artifact", ARTIFACT));
 
             java.util.Set<String> seen = new java.util.HashSet<>();
             for (com.intellij.psi.PsiClassType t : cls.getExtendsListTypes()) {
-                addEdge(qname, t, session, seen);
+                addEdge(qname, t, tx, seen);
             }
             for (com.intellij.psi.PsiClassType t : cls.getImplementsListTypes()) {
-                addEdge(qname, t, session, seen);
+                addEdge(qname, t, tx, seen);
             }
-        }
+            return null;
+        });
     }
 
     private void addEdge(String src, com.intellij.psi.PsiClassType type,
-                          Session session, java.util.Set<String> seen) {
+                          GraphStore.Tx tx, java.util.Set<String> seen) {
         com.intellij.psi.PsiClass resolved = type.resolve();
         String depName = resolved != null ? resolved.getQualifiedName() : type.getCanonicalText();
         if (depName == null || src.equals(depName) || !seen.add(depName)) {
             return;
         }
-        session.run("MERGE (d:" + NodeLabel.CLASS + " {name:$dep})",
-                Values.parameters("dep", depName));
-        session.run("MATCH (s:" + NodeLabel.CLASS + " {name:$src}), (t:" + NodeLabel.CLASS +
+        tx.run("MERGE (d:" + NodeLabel.CLASS + " {name:$dep})", Map.of("dep", depName));
+        tx.run("MATCH (s:" + NodeLabel.CLASS + " {name:$src}), (t:" + NodeLabel.CLASS +
                         " {name:$tgt}) MERGE (s)-[:" + EdgeType.DEPENDS_ON + "]->(t)",
-                Values.parameters("src", src, "tgt", depName));
+                Map.of("src", src, "tgt", depName));
     }
 }
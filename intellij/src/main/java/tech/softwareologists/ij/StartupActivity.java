@@ -5,6 +5,7 @@ import com.intellij.openapi.project.Project;
 import com.intellij.openapi.project.DumbAware;
 import com.intellij.psi.PsiManager;
 import com.intellij.openapi.Disposable;
+import com.intellij.openapi.util.Disposer;
 import tech.softwareologists.core.db.EmbeddedNeo4j;
 import tech.softwareologists.core.QueryService;
 import tech.softwareologists.core.QueryServiceImpl;
@@ -12,8 +13,12 @@ import tech.softwareologists.ij.server.HttpMcpServer;
 import tech.softwareologists.ij.settings.McpSettings;
 import tech.softwareologists.ij.McpServerStatus;
 
+import java.nio.file.Paths;
+
 /**
- * Project-level startup activity that logs when a project is opened.
+ * Project-level startup activity that imports the project classes and starts
+ * the MCP HTTP server. The server and the database are closed with the
+ * project.
  */
 public class StartupActivity implements com.intellij.openapi.startup.StartupActivity, DumbAware {
 
@@ -24,9 +29,13 @@ public class StartupActivity implements com.intellij.openapi.startup.StartupActi
         LOG.info("CodeGraph MCP plugin initialized for project: " + project.getName());
 
         try {
-            EmbeddedNeo4j db = new EmbeddedNeo4j();
             McpSettings settings = McpSettings.getInstance();
-            PsiClassImportService service = new PsiClassImportService(db.getDriver(), settings.getPackageFilters());
+            EmbeddedNeo4j db = new EmbeddedNeo4j(settings.getDataDir().isEmpty()
+                    ? null
+                    : Paths.get(settings.getDataDir()).resolve(project.getLocationHash()),
+                    true, settings.getDatabaseOptions());
+            Disposer.register((Disposable) project, db::close);
+            PsiClassImportService service = new PsiClassImportService(db.getStore(), settings.getPackageFilters());
             int count = service.importProjectClasses(project);
             LOG.info("Imported " + count + " classes from project");
             PsiManager.getInstance(project).addPsiTreeChangeListener(
@@ -34,9 +43,12 @@ public class StartupActivity implements com.intellij.openapi.startup.StartupActi
                     (Disposable) project
             );
 
-            QueryService queryService = new QueryServiceImpl(db.getDriver());
+            // Responses only carry the items, so paged totals are not counted
+            QueryService queryService = new QueryServiceImpl(db.getQueryStore(), false);
             HttpMcpServer server = new HttpMcpServer(settings.getPort(), queryService);
             server.start();
+            // Disposed before the database, which was registered first
+            Disposer.register((Disposable) project, server::stop);
             McpServerStatus.setStatus("Running on port " + server.getPort());
             LOG.info("MCP HTTP server started on port " + server.getPort());
         } catch (Exception e) {
@@ -3,26 +3,53 @@ package tech.softwareologists.ij.server;
 import com.sun.net.httpserver.HttpServer;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpExchange;
+import tech.softwareologists.core.AsyncQueryService;
 import tech.softwareologists.core.ManifestGenerator;
+import tech.softwareologists.core.QueryResult;
 import tech.softwareologists.core.QueryService;
 
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
 /**
  * Minimal HTTP server exposing MCP endpoints.
+ *
+ * <p>Queries go through {@link AsyncQueryService}. The handler returns as
+ * soon as a query is started and the response is sent when it completes,
+ * so the server thread is not held while the database works. Requests
+ * are handled and answered by a pool of {@value #DEFAULT_THREADS}
+ * threads.</p>
  */
 public class HttpMcpServer {
+    /** Threads handling requests and sending the answers of completed queries. */
+    public static final int DEFAULT_THREADS = 4;
+
     private final HttpServer server;
+    private final ExecutorService executor;
     private final QueryService queryService;
+    private final AsyncQueryService asyncQueries;
 
     public HttpMcpServer(int port, QueryService queryService) throws IOException {
         this.queryService = queryService;
+        this.asyncQueries = AsyncQueryService.of(queryService);
         this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(DEFAULT_THREADS, task -> {
+            Thread t = new Thread(task, "codegraph-http-" + threads.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(executor);
         server.createContext("/mcp/manifest", new ManifestHandler());
         server.createContext("/mcp/query", new QueryHandler());
     }
@@ -35,6 +62,7 @@ public class HttpMcpServer {
     /** Stops the server. */
     public void stop() {
         server.stop(0);
+        executor.shutdown();
     }
 
     /** Returns the bound port. */
@@ -66,7 +94,7 @@ public class HttpMcpServer {
                 return;
             }
             String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8).trim();
-            String response = "[]";
+            CompletionStage<String> response = CompletableFuture.completedFuture("[]");
 
             if (!body.isEmpty()) {
                 JSONObject req = new JSONObject(body);
@@ -86,7 +114,7 @@ public class HttpMcpServer {
                     } else {
                         cls = val.toString();
                     }
-                    response = new JSONArray(queryService.findCallers(cls, limit, page, pageSize).getItems()).toString();
+                    response = asyncQueries.findCallersAsync(cls, limit, page, pageSize).thenApply(r -> pageJson(r, val));
                 } else if (req.has("findImplementations")) {
                     Object val = req.get("findImplementations");
                     String iface;
@@ -102,7 +130,7 @@ public class HttpMcpServer {
                     } else {
                         iface = val.toString();
                     }
-                    response = new JSONArray(queryService.findImplementations(iface, limit, page, pageSize).getItems()).toString();
+                    response = asyncQueries.findImplementationsAsync(iface, limit, page, pageSize).thenApply(r -> pageJson(r, val));
                 } else if (req.has("findSubclasses")) {
                     Object val = req.get("findSubclasses");
                     String cls;
@@ -120,7 +148,7 @@ public class HttpMcpServer {
                     } else {
                         cls = val.toString();
                     }
-                    response = new JSONArray(queryService.findSubclasses(cls, depth, limit, page, pageSize).getItems()).toString();
+                    response = asyncQueries.findSubclassesAsync(cls, depth, limit, page, pageSize).thenApply(r -> pageJson(r, val));
                 } else if (req.has("findDependencies")) {
                     Object val = req.get("findDependencies");
                     String cls;
@@ -138,13 +166,13 @@ public class HttpMcpServer {
                     } else {
                         cls = val.toString();
                     }
-                    response = new JSONArray(queryService.findDependencies(cls, depth, limit, page, pageSize).getItems()).toString();
+                    response = asyncQueries.findDependenciesAsync(cls, depth, limit, page, pageSize).thenApply(r -> pageJson(r, val));
                 } else if (req.has("findPathBetweenClasses")) {
                     JSONObject o = req.getJSONObject("findPathBetweenClasses");
                     String from = o.getString("fromClass");
                     String to = o.getString("toClass");
                     Integer max = o.has("maxDepth") ? o.getInt("maxDepth") : null;
-                    response = new JSONArray(queryService.findPathBetweenClasses(from, to, max).getItems()).toString();
+                    response = asyncQueries.findPathBetweenClassesAsync(from, to, max).thenApply(r -> new JSONArray(r.getItems()).toString());
                 } else if (req.has("findMethodsCallingMethod")) {
                     JSONObject o = req.getJSONObject("findMethodsCallingMethod");
                     String cls = o.getString("className");
@@ -152,7 +180,7 @@ public class HttpMcpServer {
                     Integer lim = o.has("limit") ? o.getInt("limit") : null;
                     Integer page = o.has("page") ? o.getInt("page") : null;
                     Integer pageSize = o.has("pageSize") ? o.getInt("pageSize") : null;
-                    response = new JSONArray(queryService.findMethodsCallingMethod(cls, sig, lim, page, pageSize).getItems()).toString();
+                    response = asyncQueries.findMethodsCallingMethodAsync(cls, sig, lim, page, pageSize).thenApply(r -> pageJson(r, o));
                 } else if (req.has("findBeansWithAnnotation")) {
                     Object val = req.get("findBeansWithAnnotation");
                     String ann;
@@ -168,7 +196,7 @@ public class HttpMcpServer {
                     } else {
                         ann = val.toString();
                     }
-                    response = new JSONArray(queryService.findBeansWithAnnotation(ann, limit, page, pageSize).getItems()).toString();
+                    response = asyncQueries.findBeansWithAnnotationAsync(ann, limit, page, pageSize).thenApply(r -> pageJson(r, val));
                 } else if (req.has("searchByAnnotation")) {
                     JSONObject o = req.getJSONObject("searchByAnnotation");
                     String ann = o.getString("annotation");
@@ -176,7 +204,7 @@ public class HttpMcpServer {
                     Integer limit = o.has("limit") ? o.getInt("limit") : null;
                     Integer page = o.has("page") ? o.getInt("page") : null;
                     Integer pageSize = o.has("pageSize") ? o.getInt("pageSize") : null;
-                    response = new JSONArray(queryService.searchByAnnotation(ann, target, limit, page, pageSize).getItems()).toString();
+                    response = asyncQueries.searchByAnnotationAsync(ann, target, limit, page, pageSize).thenApply(r -> pageJson(r, o));
                 } else if (req.has("findHttpEndpoints")) {
                     JSONObject o = req.getJSONObject("findHttpEndpoints");
                     String base = o.getString("basePath");
@@ -184,7 +212,7 @@ public class HttpMcpServer {
                     Integer limit = o.has("limit") ? o.getInt("limit") : null;
                     Integer page = o.has("page") ? o.getInt("page") : null;
                     Integer pageSize = o.has("pageSize") ? o.getInt("pageSize") : null;
-                    response = new JSONArray(queryService.findHttpEndpoints(base, verb, limit, page, pageSize).getItems()).toString();
+                    response = asyncQueries.findHttpEndpointsAsync(base, verb, limit, page, pageSize).thenApply(r -> pageJson(r, o));
                 } else if (req.has("findControllersUsingService")) {
                     Object val = req.get("findControllersUsingService");
                     String svc;
@@ -200,7 +228,7 @@ public class HttpMcpServer {
                     } else {
                         svc = val.toString();
                     }
-                    response = new JSONArray(queryService.findControllersUsingService(svc, limit, page, pageSize).getItems()).toString();
+                    response = asyncQueries.findControllersUsingServiceAsync(svc, limit, page, pageSize).thenApply(r -> pageJson(r, val));
                 } else if (req.has("findEventListeners")) {
                     Object val = req.get("findEventListeners");
                     String ev;
@@ -216,7 +244,7 @@ public class HttpMcpServer {
                     } else {
                         ev = val.toString();
                     }
-                    response = new JSONArray(queryService.findEventListeners(ev, limit, page, pageSize).getItems()).toString();
+                    response = asyncQueries.findEventListenersAsync(ev, limit, page, pageSize).thenApply(r -> pageJson(r, val));
                 } else if (req.has("findScheduledTasks")) {
                     JSONObject o = req.optJSONObject("findScheduledTasks");
                     Integer limit = null;
@@ -227,7 +255,7 @@ public class HttpMcpServer {
                         page = o.has("page") ? o.getInt("page") : null;
                         pageSize = o.has("pageSize") ? o.getInt("pageSize") : null;
                     }
-                    response = new JSONArray(queryService.findScheduledTasks(limit, page, pageSize).getItems()).toString();
+                    response = asyncQueries.findScheduledTasksAsync(limit, page, pageSize).thenApply(r -> pageJson(r, o));
                 } else if (req.has("findConfigPropertyUsage")) {
                     Object val = req.get("findConfigPropertyUsage");
                     String key;
@@ -243,7 +271,25 @@ public class HttpMcpServer {
                     } else {
                         key = val.toString();
                     }
-                    response = new JSONArray(queryService.findConfigPropertyUsage(key, limit, page, pageSize).getItems()).toString();
+                    response = asyncQueries.findConfigPropertyUsageAsync(key, limit, page, pageSize).thenApply(r -> pageJson(r, val));
+                } else if (req.has("searchSymbols")) {
+                    Object val = req.get("searchSymbols");
+                    String query;
+                    String kind = null;
+                    Integer limit = null;
+                    if (val instanceof JSONObject) {
+                        JSONObject o = (JSONObject) val;
+                        query = o.getString("query");
+                        kind = o.has("kind") ? o.getString("kind") : null;
+                        limit = o.has("limit") ? o.getInt("limit") : null;
+                    } else {
+                        query = val.toString();
+                    }
+                    response = asyncQueries.searchSymbolsAsync(query, kind, limit).thenApply(r -> new JSONArray(r.getItems()).toString());
+                } else if (req.has("nextPage")) {
+                    Object val = req.get("nextPage");
+                    String cursor = val instanceof JSONObject ? ((JSONObject) val).getString("cursor") : val.toString();
+                    response = asyncQueries.nextPageAsync(cursor).thenApply(r -> pageWithCursor(r));
                 } else if (req.has("getPackageHierarchy")) {
                     Object val = req.get("getPackageHierarchy");
                     String pkg;
@@ -255,25 +301,64 @@ public class HttpMcpServer {
                     } else {
                         pkg = val.toString();
                     }
-                    response = queryService.getPackageHierarchy(pkg, depth);
+                    response = asyncQueries.getPackageHierarchyAsync(pkg, depth);
                 } else if (req.has("getGraphStatistics")) {
                     Integer top = req.optInt("getGraphStatistics", -1);
-                    response = queryService.getGraphStatistics(top == -1 ? null : top);
+                    response = asyncQueries.getGraphStatisticsAsync(top == -1 ? null : top);
                 } else if (req.has("exportGraph")) {
                     JSONObject o = req.getJSONObject("exportGraph");
                     String format = o.getString("format");
                     String path = o.getString("outputPath");
                     queryService.exportGraph(format, path);
-                    response = "{}";
+                    response = CompletableFuture.completedFuture("{}");
                 }
             }
 
-            byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+            // Answer on a server thread, not on the database thread completing the query
+            response.whenCompleteAsync((text, error) -> respond(exchange, text, error), executor);
+        }
+    }
+
+    /**
+     * Send the answer of a query once its stage completes, on a server
+     * thread after the handler has returned. A failed query is
+     * answered with status 500 and an {@code error} object.
+     */
+    private static void respond(HttpExchange exchange, String response, Throwable error) {
+        try {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            String body = response;
+            if (cause != null) {
+                JSONObject o = new JSONObject();
+                o.put("error", String.valueOf(cause.getMessage()));
+                body = o.toString();
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
             exchange.getResponseHeaders().set("Content-Type", "application/json");
-            exchange.sendResponseHeaders(200, bytes.length);
+            exchange.sendResponseHeaders(cause == null ? 200 : 500, bytes.length);
             try (OutputStream os = exchange.getResponseBody()) {
                 os.write(bytes);
             }
+        } catch (IOException e) {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Items of a page as a JSON array, or as an object with the items and
+     * the cursor of the next page if the request set {@code withCursor}.
+     */
+    private static String pageJson(QueryResult<String> result, Object request) {
+        if (request instanceof JSONObject && ((JSONObject) request).optBoolean("withCursor")) {
+            return pageWithCursor(result);
         }
+        return new JSONArray(result.getItems()).toString();
+    }
+
+    private static String pageWithCursor(QueryResult<String> result) {
+        JSONObject o = new JSONObject();
+        o.put("items", new JSONArray(result.getItems()));
+        o.put("nextCursor", result.getNextCursor() == null ? JSONObject.NULL : result.getNextCursor());
+        return o.toString();
     }
 }
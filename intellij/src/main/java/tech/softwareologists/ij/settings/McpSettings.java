@@ -1,6 +1,7 @@
 package tech.softwareologists.ij.settings;
 
 import com.intellij.ide.util.PropertiesComponent;
+import tech.softwareologists.core.db.DatabaseOptions;
 
 /**
  * Accessor for persistent MCP plugin settings.
@@ -8,6 +9,13 @@ import com.intellij.ide.util.PropertiesComponent;
 public class McpSettings {
     private static final String PORT_KEY = "codegraph.mcp.port";
     private static final String FILTERS_KEY = "codegraph.mcp.packageFilters";
+    private static final String DATA_DIR_KEY = "codegraph.mcp.dataDir";
+    private static final String PAGE_CACHE_KEY = "codegraph.mcp.db.pageCache";
+    private static final String TX_STATE_KEY = "codegraph.mcp.db.txState";
+    private static final String TX_STATE_OFF_HEAP_MAX_KEY = "codegraph.mcp.db.txStateOffHeapMax";
+    private static final String PLAN_CACHE_KEY = "codegraph.mcp.db.planCache";
+    private static final String TX_MEMORY_KEY = "codegraph.mcp.db.txMemory";
+    private static final String TOTAL_TX_MEMORY_KEY = "codegraph.mcp.db.totalTxMemory";
 
     private final PropertiesComponent props = PropertiesComponent.getInstance();
 
@@ -31,6 +39,104 @@ public class McpSettings {
         props.setValue(FILTERS_KEY, filters == null ? "" : filters);
     }
 
+    /** Returns the directory of the persistent graph store or an empty string to keep it in memory. */
+    public String getDataDir() {
+        return props.getValue(DATA_DIR_KEY, "");
+    }
+
+    /** Sets the directory of the persistent graph store. */
+    public void setDataDir(String dataDir) {
+        props.setValue(DATA_DIR_KEY, dataDir == null ? "" : dataDir);
+    }
+
+    /** Returns the page cache size such as {@code 512m}, or an empty string for the database default. */
+    public String getPageCache() {
+        return props.getValue(PAGE_CACHE_KEY, "");
+    }
+
+    /** Sets the page cache size. */
+    public void setPageCache(String size) {
+        props.setValue(PAGE_CACHE_KEY, size == null ? "" : size);
+    }
+
+    /** Returns {@code on-heap}, {@code off-heap} or an empty string for the database default. */
+    public String getTxState() {
+        return props.getValue(TX_STATE_KEY, "");
+    }
+
+    /** Sets where transaction state is allocated. */
+    public void setTxState(String txState) {
+        props.setValue(TX_STATE_KEY, txState == null ? "" : txState);
+    }
+
+    /** Returns the off-heap limit for transaction state, or an empty string for the database default. */
+    public String getTxStateOffHeapMax() {
+        return props.getValue(TX_STATE_OFF_HEAP_MAX_KEY, "");
+    }
+
+    /** Sets the off-heap limit for transaction state. */
+    public void setTxStateOffHeapMax(String size) {
+        props.setValue(TX_STATE_OFF_HEAP_MAX_KEY, size == null ? "" : size);
+    }
+
+    /** Returns the number of cached query plans, or an empty string for the database default. */
+    public String getPlanCache() {
+        return props.getValue(PLAN_CACHE_KEY, "");
+    }
+
+    /** Sets the number of cached query plans. */
+    public void setPlanCache(String size) {
+        props.setValue(PLAN_CACHE_KEY, size == null ? "" : size);
+    }
+
+    /** Returns the memory limit of a single transaction, or an empty string for the database default. */
+    public String getTxMemory() {
+        return props.getValue(TX_MEMORY_KEY, "");
+    }
+
+    /** Sets the memory limit of a single transaction. */
+    public void setTxMemory(String size) {
+        props.setValue(TX_MEMORY_KEY, size == null ? "" : size);
+    }
+
+    /** Returns the memory limit of all transactions, or an empty string for the database default. */
+    public String getTotalTxMemory() {
+        return props.getValue(TOTAL_TX_MEMORY_KEY, "");
+    }
+
+    /** Sets the memory limit of all transactions. */
+    public void setTotalTxMemory(String size) {
+        props.setValue(TOTAL_TX_MEMORY_KEY, size == null ? "" : size);
+    }
+
+    /**
+     * Builds the database memory settings from the stored values.
+     *
+     * @throws IllegalArgumentException if a stored value cannot be parsed
+     */
+    public DatabaseOptions getDatabaseOptions() {
+        DatabaseOptions options = DatabaseOptions.defaults();
+        if (!getPageCache().isBlank()) {
+            options = options.withPageCacheBytes(DatabaseOptions.parseBytes(getPageCache()));
+        }
+        if (!getTxState().isBlank()) {
+            options = options.withTxStateMemory(DatabaseOptions.parseTxStateMemory(getTxState()));
+        }
+        if (!getTxStateOffHeapMax().isBlank()) {
+            options = options.withTxStateMaxOffHeapBytes(DatabaseOptions.parseBytes(getTxStateOffHeapMax()));
+        }
+        if (!getPlanCache().isBlank()) {
+            options = options.withPlanCacheSize(Integer.parseInt(getPlanCache().trim()));
+        }
+        if (!getTxMemory().isBlank()) {
+            options = options.withTxMemoryMaxBytes(DatabaseOptions.parseBytes(getTxMemory()));
+        }
+        if (!getTotalTxMemory().isBlank()) {
+            options = options.withTotalTxMemoryMaxBytes(DatabaseOptions.parseBytes(getTotalTxMemory()));
+        }
+        return options;
+    }
+
     /** Singleton instance. */
     public static McpSettings getInstance() {
         return Holder.INSTANCE;
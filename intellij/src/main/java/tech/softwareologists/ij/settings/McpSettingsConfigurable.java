@@ -10,11 +10,19 @@ import java.awt.*;
 import tech.softwareologists.ij.McpServerStatus;
 
 /**
- * Settings panel allowing configuration of the MCP HTTP port and package filters.
+ * Settings panel allowing configuration of the MCP HTTP port, package filters,
+ * graph data directory and database memory settings.
  */
 public class McpSettingsConfigurable implements Configurable {
     private JTextField portField;
     private JTextField filterField;
+    private JTextField dataDirField;
+    private JTextField pageCacheField;
+    private JComboBox<String> txStateBox;
+    private JTextField txStateOffHeapMaxField;
+    private JTextField planCacheField;
+    private JTextField txMemoryField;
+    private JTextField totalTxMemoryField;
     private JLabel statusLabel;
     private JPanel panel;
 
@@ -45,6 +53,57 @@ public class McpSettingsConfigurable implements Configurable {
 
         gc.gridx = 0;
         gc.gridy = 2;
+        panel.add(new JLabel("Data Directory (empty keeps the graph in memory):"), gc);
+        gc.gridx = 1;
+        dataDirField = new JTextField(McpSettings.getInstance().getDataDir(), 20);
+        panel.add(dataDirField, gc);
+
+        McpSettings settings = McpSettings.getInstance();
+        gc.gridx = 0;
+        gc.gridy = 3;
+        panel.add(new JLabel("Page Cache (e.g. 512m, empty for default):"), gc);
+        gc.gridx = 1;
+        pageCacheField = new JTextField(settings.getPageCache(), 10);
+        panel.add(pageCacheField, gc);
+
+        gc.gridx = 0;
+        gc.gridy = 4;
+        panel.add(new JLabel("Transaction State:"), gc);
+        gc.gridx = 1;
+        txStateBox = new JComboBox<>(new String[]{"", "on-heap", "off-heap"});
+        txStateBox.setSelectedItem(settings.getTxState());
+        panel.add(txStateBox, gc);
+
+        gc.gridx = 0;
+        gc.gridy = 5;
+        panel.add(new JLabel("Off-Heap Transaction State Limit:"), gc);
+        gc.gridx = 1;
+        txStateOffHeapMaxField = new JTextField(settings.getTxStateOffHeapMax(), 10);
+        panel.add(txStateOffHeapMaxField, gc);
+
+        gc.gridx = 0;
+        gc.gridy = 6;
+        panel.add(new JLabel("Query Plan Cache Entries:"), gc);
+        gc.gridx = 1;
+        planCacheField = new JTextField(settings.getPlanCache(), 10);
+        panel.add(planCacheField, gc);
+
+        gc.gridx = 0;
+        gc.gridy = 7;
+        panel.add(new JLabel("Memory per Transaction:"), gc);
+        gc.gridx = 1;
+        txMemoryField = new JTextField(settings.getTxMemory(), 10);
+        panel.add(txMemoryField, gc);
+
+        gc.gridx = 0;
+        gc.gridy = 8;
+        panel.add(new JLabel("Memory of all Transactions:"), gc);
+        gc.gridx = 1;
+        totalTxMemoryField = new JTextField(settings.getTotalTxMemory(), 10);
+        panel.add(totalTxMemoryField, gc);
+
+        gc.gridx = 0;
+        gc.gridy = 9;
         panel.add(new JLabel("Server Status:"), gc);
         gc.gridx = 1;
         statusLabel = new JLabel(McpServerStatus.getStatus());
@@ -57,8 +116,16 @@ public class McpSettingsConfigurable implements Configurable {
         McpSettings settings = McpSettings.getInstance();
         String portText = portField.getText().trim();
         String filterText = filterField.getText().trim();
+        String dataDirText = dataDirField.getText().trim();
         return settings.getPort() != parseInt(portText, settings.getPort()) ||
-                !filterText.equals(settings.getPackageFilters());
+                !filterText.equals(settings.getPackageFilters()) ||
+                !dataDirText.equals(settings.getDataDir()) ||
+                !pageCacheField.getText().trim().equals(settings.getPageCache()) ||
+                !String.valueOf(txStateBox.getSelectedItem()).equals(settings.getTxState()) ||
+                !txStateOffHeapMaxField.getText().trim().equals(settings.getTxStateOffHeapMax()) ||
+                !planCacheField.getText().trim().equals(settings.getPlanCache()) ||
+                !txMemoryField.getText().trim().equals(settings.getTxMemory()) ||
+                !totalTxMemoryField.getText().trim().equals(settings.getTotalTxMemory());
     }
 
     @Override
@@ -66,6 +133,13 @@ public class McpSettingsConfigurable implements Configurable {
         McpSettings settings = McpSettings.getInstance();
         settings.setPort(parseInt(portField.getText().trim(), settings.getPort()));
         settings.setPackageFilters(filterField.getText().trim());
+        settings.setDataDir(dataDirField.getText().trim());
+        settings.setPageCache(pageCacheField.getText().trim());
+        settings.setTxState(String.valueOf(txStateBox.getSelectedItem()));
+        settings.setTxStateOffHeapMax(txStateOffHeapMaxField.getText().trim());
+        settings.setPlanCache(planCacheField.getText().trim());
+        settings.setTxMemory(txMemoryField.getText().trim());
+        settings.setTotalTxMemory(totalTxMemoryField.getText().trim());
     }
 
     private static int parseInt(String text, int def) {
@@ -81,6 +155,13 @@ public class McpSettingsConfigurable implements Configurable {
         McpSettings settings = McpSettings.getInstance();
         portField.setText(String.valueOf(settings.getPort()));
         filterField.setText(settings.getPackageFilters());
+        dataDirField.setText(settings.getDataDir());
+        pageCacheField.setText(settings.getPageCache());
+        txStateBox.setSelectedItem(settings.getTxState());
+        txStateOffHeapMaxField.setText(settings.getTxStateOffHeapMax());
+        planCacheField.setText(settings.getPlanCache());
+        txMemoryField.setText(settings.getTxMemory());
+        totalTxMemoryField.setText(settings.getTotalTxMemory());
         if (statusLabel != null) {
             statusLabel.setText(McpServerStatus.getStatus());
         }
@@ -91,6 +172,13 @@ public class McpSettingsConfigurable implements Configurable {
         panel = null;
         portField = null;
         filterField = null;
+        dataDirField = null;
+        pageCacheField = null;
+        txStateBox = null;
+        txStateOffHeapMaxField = null;
+        planCacheField = null;
+        txMemoryField = null;
+        totalTxMemoryField = null;
         statusLabel = null;
     }
 }
@@ -81,6 +81,11 @@ public class HttpMcpServerTest {
                 return new tech.softwareologists.core.QueryResult<>(java.util.Collections.emptyList(),1,0,0);
             }
 
+            @Override
+            public tech.softwareologists.core.QueryResult<String> searchSymbols(String query, String kind, Integer limit) {
+                return new tech.softwareologists.core.QueryResult<>(java.util.Collections.emptyList(),1,0,0);
+            }
+
             @Override
             public String getPackageHierarchy(String rootPackage, Integer depth) {
                 return "{}";
@@ -179,6 +184,9 @@ public class HttpMcpServerTest {
             @Override
             public tech.softwareologists.core.QueryResult<String> findConfigPropertyUsage(String propertyKey, Integer limit, Integer page, Integer pageSize) { return new tech.softwareologists.core.QueryResult<>(Collections.emptyList(),1,0,0); }
 
+            @Override
+            public tech.softwareologists.core.QueryResult<String> searchSymbols(String query, String kind, Integer limit) { return new tech.softwareologists.core.QueryResult<>(Collections.emptyList(),1,0,0); }
+
             @Override
             public String getPackageHierarchy(String rootPackage, Integer depth) { return "{}"; }
 
@@ -252,6 +260,9 @@ public class HttpMcpServerTest {
             @Override
             public tech.softwareologists.core.QueryResult<String> findConfigPropertyUsage(String propertyKey, Integer limit, Integer page, Integer pageSize) { return new tech.softwareologists.core.QueryResult<>(Collections.emptyList(),1,0,0); }
 
+            @Override
+            public tech.softwareologists.core.QueryResult<String> searchSymbols(String query, String kind, Integer limit) { return new tech.softwareologists.core.QueryResult<>(Collections.emptyList(),1,0,0); }
+
             @Override
             public String getPackageHierarchy(String rootPackage, Integer depth) { return "{}"; }
 